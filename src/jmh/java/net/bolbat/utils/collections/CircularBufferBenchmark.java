@@ -0,0 +1,80 @@
+package net.bolbat.utils.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CircularBuffer} benchmark.<br>
+ * Compares <code>get()</code> throughput of the shared counter buffer and striped buffer for different threads amount and elements amount (power of two
+ * and not).
+ *
+ * @author Alexandr Bolbat
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CircularBufferBenchmark {
+
+	/**
+	 * Buffer mode.
+	 */
+	@Param({ "SHARED", "STRIPED" })
+	public String mode;
+
+	/**
+	 * Elements amount.
+	 */
+	@Param({ "3", "8", "100" })
+	public int size;
+
+	/**
+	 * Testing buffer.
+	 */
+	private CircularBuffer<Integer> buffer;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final List<Integer> elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			elements.add(i);
+
+		buffer = "STRIPED".equals(mode) ? CircularBuffer.striped(elements) : CircularBuffer.of(elements);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Integer getSingleThread() {
+		return buffer.get();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Integer getFourThreads() {
+		return buffer.get();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Integer getMaxThreads() {
+		return buffer.get();
+	}
+
+}
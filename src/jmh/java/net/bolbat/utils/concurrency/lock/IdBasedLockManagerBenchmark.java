@@ -0,0 +1,210 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link IdBasedLockManager} implementations benchmark.<br>
+ * Measures obtain/lock/unlock(release) throughput and latency for different threads amount, id's cardinality and id's distribution (uniform or Zipfian
+ * with hot keys). Allocation rate is reported by the GC profiler (<code>-prof gc</code>, enabled by default in the <code>benchmark</code> profile).
+ *
+ * @author Alexandr Bolbat
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdBasedLockManagerBenchmark {
+
+	/**
+	 * Pre-generated id's sequence size per thread, power of two.
+	 */
+	private static final int SEQUENCE_SIZE = 1 << 16;
+
+	/**
+	 * Zipfian distribution exponent.
+	 */
+	private static final double ZIPFIAN_EXPONENT = 0.99d;
+
+	/**
+	 * Benchmark state shared by all threads.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	@State(Scope.Benchmark)
+	public static class ManagerState {
+
+		/**
+		 * Lock manager type.
+		 */
+		@Param({ "SAFE", "CONCURRENT", "STRIPED", "INSTRUMENTED" })
+		public String manager;
+
+		/**
+		 * Id's cardinality.
+		 */
+		@Param({ "1", "1024", "1048576" })
+		public int cardinality;
+
+		/**
+		 * Id's distribution.
+		 */
+		@Param({ "UNIFORM", "ZIPFIAN" })
+		public String distribution;
+
+		/**
+		 * Lock manager.
+		 */
+		private IdBasedLockManager<Long> lockManager;
+
+		/**
+		 * Id's, boxed once to avoid measuring boxing allocations.
+		 */
+		private Long[] ids;
+
+		/**
+		 * Zipfian cumulative distribution, <code>null</code> for uniform distribution.
+		 */
+		private double[] cdf;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			switch (manager) {
+			case "SAFE":
+				lockManager = new SafeIdBasedLockManager<>();
+				break;
+			case "CONCURRENT":
+				lockManager = new ConcurrentIdBasedLockManager<>();
+				break;
+			case "STRIPED":
+				lockManager = new StripedIdBasedLockManager<>(1024);
+				break;
+			case "INSTRUMENTED":
+				lockManager = new InstrumentedIdBasedLockManager<>(new ConcurrentIdBasedLockManager<Long>());
+				break;
+			default:
+				throw new IllegalArgumentException("manager[" + manager + "] not supported");
+			}
+
+			ids = new Long[cardinality];
+			for (int i = 0; i < cardinality; i++)
+				ids[i] = Long.valueOf(i);
+
+			cdf = null;
+			if ("ZIPFIAN".equals(distribution)) {
+				cdf = new double[cardinality];
+				double sum = 0d;
+				for (int i = 0; i < cardinality; i++) {
+					sum += 1d / Math.pow(i + 1, ZIPFIAN_EXPONENT);
+					cdf[i] = sum;
+				}
+				for (int i = 0; i < cardinality; i++)
+					cdf[i] /= sum;
+			}
+		}
+
+		/**
+		 * Get next random id index.
+		 *
+		 * @param random
+		 *            random generator
+		 * @return id index
+		 */
+		private int nextIndex(final Random random) {
+			if (cdf == null)
+				return random.nextInt(cardinality);
+
+			final int index = Arrays.binarySearch(cdf, random.nextDouble());
+			return Math.min(cardinality - 1, index >= 0 ? index : -index - 1);
+		}
+
+	}
+
+	/**
+	 * Per thread id's sequence.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	@State(Scope.Thread)
+	public static class IdsState {
+
+		/**
+		 * Pre-generated id's sequence.
+		 */
+		private Long[] sequence;
+
+		/**
+		 * Current sequence position.
+		 */
+		private int position;
+
+		@Setup(Level.Trial)
+		public void setup(final ManagerState state) {
+			final Random random = new Random(Thread.currentThread().getId());
+			sequence = new Long[SEQUENCE_SIZE];
+			for (int i = 0; i < SEQUENCE_SIZE; i++)
+				sequence[i] = state.ids[state.nextIndex(random)];
+		}
+
+		/**
+		 * Get next id.
+		 *
+		 * @return id
+		 */
+		private Long next() {
+			return sequence[position++ & (SEQUENCE_SIZE - 1)];
+		}
+
+	}
+
+	@Benchmark
+	@Threads(1)
+	public IdBasedLock<Long> obtainReleaseSingleThread(final ManagerState state, final IdsState ids) {
+		return obtainRelease(state, ids);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public IdBasedLock<Long> obtainReleaseFourThreads(final ManagerState state, final IdsState ids) {
+		return obtainRelease(state, ids);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public IdBasedLock<Long> obtainReleaseMaxThreads(final ManagerState state, final IdsState ids) {
+		return obtainRelease(state, ids);
+	}
+
+	/**
+	 * Obtain, lock and unlock (release) the lock for the next id.
+	 *
+	 * @param state
+	 *            shared state
+	 * @param ids
+	 *            thread id's sequence
+	 * @return used lock
+	 */
+	private static IdBasedLock<Long> obtainRelease(final ManagerState state, final IdsState ids) {
+		final IdBasedLock<Long> lock = state.lockManager.obtainLock(ids.next());
+		lock.lock();
+		lock.unlock();
+		return lock;
+	}
+
+}
@@ -0,0 +1,85 @@
+package net.bolbat.utils.crypt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+
+/**
+ * {@link Algorithm} throughput benchmark.<br>
+ * Compares encoding and decoding throughput of all algorithms through the cached {@link CipherHandle} for different value sizes, key derivation is not
+ * measured.
+ *
+ * @author Alexandr Bolbat
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherAlgorithmBenchmark {
+
+	/**
+	 * Algorithm.
+	 */
+	@Param({ "AES", "AES_GCM", "ARCFOUR", "BLOWFISH", "DES", "DE_SEDE", "RC2", "PBE_WITH_MD5_AND_DES", "PBE_WITH_SHA1_AND_DE_SEDE",
+			"PBE_WITH_SHA1_AND_RC2_40" })
+	public String algorithm;
+
+	/**
+	 * Value size in bytes.
+	 */
+	@Param({ "1024", "65536" })
+	public int size;
+
+	/**
+	 * Value to encode.
+	 */
+	private byte[] value;
+
+	/**
+	 * Encoded value.
+	 */
+	private byte[] encoded;
+
+	/**
+	 * Cipher handle.
+	 */
+	private CipherHandle handle;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		value = new byte[size];
+		new Random(42).nextBytes(value);
+		handle = CipherHandle.of(Algorithm.valueOf(algorithm), "qweasdzxc", "1234567890");
+		encoded = handle.encode(value);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] encode() {
+		return handle.encode(value);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] decode() {
+		return handle.decode(encoded);
+	}
+
+}
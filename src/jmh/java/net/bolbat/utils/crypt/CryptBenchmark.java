@@ -0,0 +1,132 @@
+package net.bolbat.utils.crypt;
+
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+
+/**
+ * {@link CipherHandle} and {@link DigestUtils} benchmark.<br>
+ * Compares encoding and digest latency of the pooled instances with the provider lookup and initialization on each call (previous behavior, key is
+ * derived once for both). Run with <code>-prof gc</code> to compare allocation rate.
+ *
+ * @author Alexandr Bolbat
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptBenchmark {
+
+	/**
+	 * Secure key.
+	 */
+	private static final String KEY = "qweasdzxc";
+
+	/**
+	 * Secure salt.
+	 */
+	private static final String SALT = "1234567890";
+
+	/**
+	 * Value size in bytes.
+	 */
+	@Param({ "64", "1024" })
+	public int size;
+
+	/**
+	 * Value to process.
+	 */
+	private byte[] value;
+
+	/**
+	 * Cipher handle.
+	 */
+	private CipherHandle handle;
+
+	/**
+	 * Derived key.
+	 */
+	private Key key;
+
+	/**
+	 * Algorithm parameters.
+	 */
+	private AlgorithmParameterSpec parameterSpec;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		value = new byte[size];
+		Arrays.fill(value, (byte) 'a');
+		handle = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		key = Algorithm.AES.crateKey(KEY, SALT);
+		parameterSpec = Algorithm.AES.createParameterSpec(KEY, SALT);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] encodePooled() {
+		return handle.encode(value);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] encodeNewInstance() throws Exception {
+		final Cipher cipher = Cipher.getInstance(Algorithm.AES.getAlgorithmName());
+		if (parameterSpec != null) {
+			cipher.init(Cipher.ENCRYPT_MODE, key, parameterSpec);
+		} else {
+			cipher.init(Cipher.ENCRYPT_MODE, key);
+		}
+		return cipher.doFinal(value);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public byte[] encodePooledFourThreads() {
+		return handle.encode(value);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] digestPooled() {
+		return DigestUtils.Algorithm.SHA_256.digest(value, SALT);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] digestNewInstance() throws Exception {
+		final MessageDigest digest = MessageDigest.getInstance(DigestUtils.Algorithm.SHA_256.getAlgorithmName());
+		digest.update(value);
+		digest.update(SALT.getBytes(CipherUtils.DEFAULT_CHARSET));
+		return digest.digest();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public byte[] digestPooledFourThreads() {
+		return DigestUtils.Algorithm.SHA_256.digest(value, SALT);
+	}
+
+}
@@ -7,8 +7,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import net.bolbat.utils.annotation.Audience;
 import net.bolbat.utils.annotation.Concurrency;
@@ -17,7 +20,9 @@ import net.bolbat.utils.lang.ToStringUtils;
 
 /**
  * Circular buffer implementation for situations when we need to obtain each time next value from the original collection in circular way.<br>
- * This implementation is thread safe and immutable.
+ * This implementation is thread safe and immutable.<br>
+ * Buffer created with <code>striped(...)</code> is using striped counters selected by the current thread instead of the single shared counter, so
+ * <code>get()</code> scales with threads amount in exchange of approximate (per stripe) round-robin fairness.
  * 
  * @author Alexandr Bolbat
  *
@@ -34,6 +39,16 @@ public class CircularBuffer<E> implements Serializable {
 	 */
 	private static final long serialVersionUID = 7432470971599446893L;
 
+	/**
+	 * Maximum stripes amount for striped buffer.
+	 */
+	public static final int MAXIMUM_STRIPES_COUNT = 64;
+
+	/**
+	 * Stripe counter slot size in <code>long</code>'s, each counter is placed on own cache line to avoid false sharing.
+	 */
+	private static final int STRIPE_SLOT_SIZE = 16;
+
 	/**
 	 * Last used index.
 	 */
@@ -44,6 +59,21 @@ public class CircularBuffer<E> implements Serializable {
 	 */
 	private final List<E> elements;
 
+	/**
+	 * Elements index mask if elements amount is power of two, otherwise <code>-1</code>.
+	 */
+	private final int indexMask;
+
+	/**
+	 * Padded stripes counters, <code>null</code> if buffer is not striped.
+	 */
+	private final AtomicLongArray stripes;
+
+	/**
+	 * Stripe index mask.
+	 */
+	private final int stripesMask;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -51,7 +81,35 @@ public class CircularBuffer<E> implements Serializable {
 	 *            elements list
 	 */
 	private CircularBuffer(final List<E> aElements) {
+		this(aElements, false);
+	}
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param aElements
+	 *            elements list
+	 * @param aStriped
+	 *            is striped counters should be used
+	 */
+	private CircularBuffer(final List<E> aElements, final boolean aStriped) {
 		this.elements = aElements != null ? aElements : new ArrayList<>();
+
+		final int size = elements.size();
+		this.indexMask = size > 0 && (size & (size - 1)) == 0 ? size - 1 : -1;
+
+		if (!aStriped) {
+			this.stripes = null;
+			this.stripesMask = 0;
+			return;
+		}
+
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final int stripesCount = Math.min(MAXIMUM_STRIPES_COUNT, processors == 1 ? 1 : Integer.highestOneBit(processors - 1) << 1);
+		this.stripes = new AtomicLongArray(stripesCount * STRIPE_SLOT_SIZE);
+		this.stripesMask = stripesCount - 1;
+		for (int i = 0; i < stripesCount; i++) // spreading stripes start positions, to prevent stripes from selecting the same elements at the same time
+			stripes.set(i * STRIPE_SLOT_SIZE, (long) i * size / stripesCount);
 	}
 
 	/**
@@ -81,13 +139,46 @@ public class CircularBuffer<E> implements Serializable {
 		return new CircularBuffer<>(new ArrayList<>(aElements));
 	}
 
+	/**
+	 * Create striped {@link CircularBuffer} from elements.
+	 * 
+	 * @param aElements
+	 *            elements
+	 * @return {@link CircularBuffer}
+	 */
+	@SafeVarargs
+	public static <E> CircularBuffer<E> striped(final E... aElements) {
+		checkArgument(aElements != null, "aElements argument is null");
+
+		return striped(Arrays.asList(aElements));
+	}
+
+	/**
+	 * Create striped {@link CircularBuffer} from {@link Collection}.
+	 * 
+	 * @param aElements
+	 *            elements
+	 * @return {@link CircularBuffer}
+	 */
+	public static <E> CircularBuffer<E> striped(final Collection<E> aElements) {
+		checkArgument(aElements != null, "aElements argument is null");
+
+		return new CircularBuffer<>(new ArrayList<>(aElements), true);
+	}
+
 	/**
 	 * Get next element.
 	 * 
 	 * @return next element or <code>null</code> if element is <code>null</code> or elements array is empty
 	 */
 	public E get() {
-		return elements.isEmpty() ? null : elements.get(Math.abs(lastIndex.incrementAndGet()) % elements.size());
+		if (elements.isEmpty())
+			return null;
+
+		if (stripes != null)
+			return elements.get(index(stripes.getAndIncrement(stripeSlot())));
+
+		return elements.get(index(lastIndex.incrementAndGet()));
 	}
 
 	/**
@@ -115,12 +206,25 @@ public class CircularBuffer<E> implements Serializable {
 	}
 
 	/**
-	 * Get last used index.
+	 * Get last used index.<br>
+	 * For striped buffer index last used by the current thread stripe is returned.
 	 * 
 	 * @return <code>int</code>
 	 */
 	public int lastIndex() {
-		return Math.abs(lastIndex.get()) % elements.size();
+		if (stripes != null)
+			return index(stripes.get(stripeSlot()) - 1);
+
+		return index(lastIndex.get());
+	}
+
+	/**
+	 * Is this buffer striped.
+	 * 
+	 * @return <code>true</code> if striped or <code>false</code>
+	 */
+	public boolean isStriped() {
+		return stripes != null;
 	}
 
 	/**
@@ -160,9 +264,7 @@ public class CircularBuffer<E> implements Serializable {
 	 * @return new buffer instance
 	 */
 	public CircularBuffer<E> add(final E element) {
-		final List<E> result = new ArrayList<>(elements);
-		result.add(element);
-		return of(result);
+		return mutate().add(element).build();
 	}
 
 	/**
@@ -173,15 +275,71 @@ public class CircularBuffer<E> implements Serializable {
 	 * @return new buffer instance
 	 */
 	public CircularBuffer<E> remove(final E element) {
-		if (elements.isEmpty())
-			return new CircularBuffer<>(null);
+		return mutate().remove(element).build();
+	}
+
+	/**
+	 * Start this buffer batch mutation.<br>
+	 * All additions and removals are applied with the single elements copy, new buffer continues rotation from this buffer position.
+	 * 
+	 * @return {@link Mutation}
+	 */
+	public Mutation<E> mutate() {
+		return new Mutation<>(this);
+	}
+
+	/**
+	 * Continue rotation of the given buffer.
+	 * 
+	 * @param previous
+	 *            previous buffer
+	 */
+	private void continueRotation(final CircularBuffer<E> previous) {
+		if (previous.elements.isEmpty() || elements.isEmpty())
+			return;
+
+		if (stripes != null && previous.stripes != null && stripes.length() == previous.stripes.length()) {
+			for (int i = 0; i < stripes.length(); i += STRIPE_SLOT_SIZE)
+				stripes.set(i, previous.stripes.get(i));
+
+			return;
+		}
 
-		final List<E> result = new ArrayList<>();
-		for (final E e : elements)
-			if (!isEquals(element, e))
-				result.add(e);
+		// next element is selected from the same position, or from the start if elements amount decreased below the position
+		lastIndex.set(previous.lastIndex());
+	}
+
+	/**
+	 * Get element index for the counter value.
+	 * 
+	 * @param counter
+	 *            counter value
+	 * @return element index
+	 */
+	private int index(final int counter) {
+		final int value = counter & Integer.MAX_VALUE; // ignoring sign on counter overflow
+		return indexMask >= 0 ? value & indexMask : value % elements.size();
+	}
+
+	/**
+	 * Get element index for the stripe counter value.
+	 * 
+	 * @param counter
+	 *            stripe counter value
+	 * @return element index
+	 */
+	private int index(final long counter) {
+		final long value = counter & Long.MAX_VALUE; // ignoring sign on counter overflow
+		return (int) (indexMask >= 0 ? value & indexMask : value % elements.size());
+	}
 
-		return of(result);
+	/**
+	 * Get current thread stripe counter slot.
+	 * 
+	 * @return slot index in the stripes array
+	 */
+	private int stripeSlot() {
+		return ((int) Thread.currentThread().getId() & stripesMask) * STRIPE_SLOT_SIZE;
 	}
 
 	/**
@@ -197,12 +355,145 @@ public class CircularBuffer<E> implements Serializable {
 		return first != null && first.equals(second) || first == null && second == null;
 	}
 
+	/**
+	 * Recalculate derived state after deserialization, streams written before derived fields were added contain them with default values.
+	 * 
+	 * @return {@link CircularBuffer} with the same elements and rotation position
+	 */
+	private Object readResolve() {
+		final CircularBuffer<E> resolved = new CircularBuffer<>(elements, stripes != null);
+		resolved.lastIndex.set(lastIndex.get());
+		if (stripes != null && stripes.length() == resolved.stripes.length())
+			for (int i = 0; i < stripes.length(); i += STRIPE_SLOT_SIZE)
+				resolved.stripes.set(i, stripes.get(i));
+
+		return resolved;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
 		builder.append(" [elements=").append(ToStringUtils.toString(elements));
+		if (stripes != null)
+			builder.append(", stripes=").append(stripesMask + 1);
 		builder.append("]");
 		return builder.toString();
 	}
 
+	/**
+	 * {@link CircularBuffer} batch mutation.<br>
+	 * Operations are applied as if they were applied one by one: removal removes all occurrences of the element from the original buffer and from the
+	 * elements added before, added elements are appended to the end in the addition order.
+	 * 
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <E>
+	 *            elements type
+	 */
+	@Concurrency.NotThreadSafe
+	public static final class Mutation<E> {
+
+		/**
+		 * Original buffer.
+		 */
+		private final CircularBuffer<E> original;
+
+		/**
+		 * Elements removed from the original buffer.
+		 */
+		private final Set<E> removed = new HashSet<>();
+
+		/**
+		 * Added elements.
+		 */
+		private final List<E> added = new ArrayList<>();
+
+		/**
+		 * Default constructor.
+		 * 
+		 * @param aOriginal
+		 *            original buffer
+		 */
+		private Mutation(final CircularBuffer<E> aOriginal) {
+			this.original = aOriginal;
+		}
+
+		/**
+		 * Add element to the end.
+		 * 
+		 * @param element
+		 *            element to add
+		 * @return {@link Mutation}
+		 */
+		public Mutation<E> add(final E element) {
+			added.add(element);
+			return this;
+		}
+
+		/**
+		 * Add elements to the end.
+		 * 
+		 * @param elements
+		 *            elements to add
+		 * @return {@link Mutation}
+		 */
+		public Mutation<E> addAll(final Collection<? extends E> elements) {
+			checkArgument(elements != null, "elements argument is null");
+
+			added.addAll(elements);
+			return this;
+		}
+
+		/**
+		 * Remove element (all occurrences).
+		 * 
+		 * @param element
+		 *            element to remove
+		 * @return {@link Mutation}
+		 */
+		public Mutation<E> remove(final E element) {
+			removed.add(element);
+			if (!added.isEmpty())
+				added.removeIf(e -> original.isEquals(element, e));
+
+			return this;
+		}
+
+		/**
+		 * Remove elements (all occurrences).
+		 * 
+		 * @param elements
+		 *            elements to remove
+		 * @return {@link Mutation}
+		 */
+		public Mutation<E> removeAll(final Collection<? extends E> elements) {
+			checkArgument(elements != null, "elements argument is null");
+
+			removed.addAll(elements);
+			if (!added.isEmpty())
+				added.removeAll(elements);
+
+			return this;
+		}
+
+		/**
+		 * Build new buffer, original buffer is not changed.
+		 * 
+		 * @return new buffer instance
+		 */
+		public CircularBuffer<E> build() {
+			final List<E> result = new ArrayList<>(original.elements.size() + added.size());
+			for (final E e : original.elements)
+				if (removed.isEmpty() || !removed.contains(e))
+					result.add(e);
+
+			result.addAll(added);
+
+			final CircularBuffer<E> buffer = new CircularBuffer<>(result, original.isStriped());
+			buffer.continueRotation(original);
+			return buffer;
+		}
+
+	}
+
 }
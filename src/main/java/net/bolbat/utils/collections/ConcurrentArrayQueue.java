@@ -0,0 +1,496 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Bounded lock-free array queue with single consumer, base for {@link SpscArrayQueue} and {@link MpscArrayQueue}.<br>
+ * Elements are stored in the preallocated array without per element allocations, producer and consumer sequences are placed on own cache lines to
+ * avoid false sharing. Consumer can take elements in batches with <code>drain(...)</code>, which publishes consumer progress once per batch.<br>
+ * Blocking operations are waiting according to the queue {@link WaitStrategy}. All consuming methods should be called by single consumer thread at a
+ * time.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public abstract class ConcurrentArrayQueue<E> {
+
+	/**
+	 * Maximum capacity.
+	 */
+	public static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * Sequence slot size in <code>long</code>'s, each sequence is placed on own cache line to avoid false sharing.
+	 */
+	private static final int SEQUENCE_SLOT_SIZE = 16;
+
+	/**
+	 * Producer sequence index in the sequences array.
+	 */
+	private static final int PRODUCER = SEQUENCE_SLOT_SIZE;
+
+	/**
+	 * Consumer sequence index in the sequences array.
+	 */
+	private static final int CONSUMER = SEQUENCE_SLOT_SIZE * 2;
+
+	/**
+	 * Spins amount before yielding for {@link WaitStrategy#SPIN_YIELD}.
+	 */
+	private static final int SPINS = 100;
+
+	/**
+	 * Elements slots.
+	 */
+	private final AtomicReferenceArray<E> slots;
+
+	/**
+	 * Slots index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Capacity.
+	 */
+	private final int capacity;
+
+	/**
+	 * Padded producer and consumer sequences.
+	 */
+	private final AtomicLongArray sequences = new AtomicLongArray(SEQUENCE_SLOT_SIZE * 3);
+
+	/**
+	 * Wait strategy.
+	 */
+	private final WaitStrategy waitStrategy;
+
+	/**
+	 * Consumer thread waiting for elements, used by {@link WaitStrategy#BLOCKING}.
+	 */
+	private volatile Thread waitingConsumer;
+
+	/**
+	 * Producer threads waiting for free space, used by {@link WaitStrategy#BLOCKING}.
+	 */
+	private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aCapacity
+	 *            capacity, rounded up to power of two
+	 * @param aWaitStrategy
+	 *            wait strategy
+	 */
+	protected ConcurrentArrayQueue(final int aCapacity, final WaitStrategy aWaitStrategy) {
+		checkArgument(aCapacity > 0, "aCapacity argument should be greater than 0");
+		checkArgument(aCapacity <= MAXIMUM_CAPACITY, "aCapacity argument should be less or equal to " + MAXIMUM_CAPACITY);
+		checkArgument(aWaitStrategy != null, "aWaitStrategy argument is null");
+
+		this.capacity = aCapacity == 1 ? 1 : Integer.highestOneBit(aCapacity - 1) << 1;
+		this.mask = capacity - 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.waitStrategy = aWaitStrategy;
+	}
+
+	/**
+	 * Claim producer sequence for the new element.
+	 *
+	 * @return claimed sequence or <code>-1</code> if queue is full
+	 */
+	protected abstract long claim();
+
+	/**
+	 * Add element if queue is not full.
+	 *
+	 * @param element
+	 *            element, can't be <code>null</code>
+	 * @return <code>true</code> if added or <code>false</code> if queue is full
+	 */
+	public boolean offer(final E element) {
+		checkArgument(element != null, "element argument is null");
+
+		final long sequence = claim();
+		if (sequence < 0L)
+			return false;
+
+		publish(sequence, element);
+		return true;
+	}
+
+	/**
+	 * Add element, waiting for free space if queue is full.
+	 *
+	 * @param element
+	 *            element, can't be <code>null</code>
+	 * @param timeout
+	 *            waiting timeout
+	 * @param unit
+	 *            timeout unit
+	 * @return <code>true</code> if added or <code>false</code> if timeout elapsed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean offer(final E element, final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkArgument(unit != null, "unit argument is null");
+
+		if (offer(element))
+			return true;
+
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		final Thread current = Thread.currentThread();
+		if (waitStrategy == WaitStrategy.BLOCKING)
+			waitingProducers.add(current);
+		try {
+			for (int idle = 0;; idle++) {
+				if (offer(element))
+					return true;
+
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L)
+					return false;
+
+				idle(idle, remaining);
+			}
+		} finally {
+			if (waitStrategy == WaitStrategy.BLOCKING)
+				waitingProducers.remove(current);
+		}
+	}
+
+	/**
+	 * Add element, waiting for free space if queue is full.
+	 *
+	 * @param element
+	 *            element, can't be <code>null</code>
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void put(final E element) throws InterruptedException {
+		offer(element, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Take element if queue is not empty.<br>
+	 * Should be called by single consumer thread at a time.
+	 *
+	 * @return element or <code>null</code> if queue is empty
+	 */
+	public E poll() {
+		final long sequence = sequences.get(CONSUMER);
+		final E element = take(sequence);
+		if (element == null)
+			return null;
+
+		release(sequence + 1);
+		return element;
+	}
+
+	/**
+	 * Take element, waiting for element if queue is empty.<br>
+	 * Should be called by single consumer thread at a time.
+	 *
+	 * @param timeout
+	 *            waiting timeout
+	 * @param unit
+	 *            timeout unit
+	 * @return element or <code>null</code> if timeout elapsed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkArgument(unit != null, "unit argument is null");
+
+		E element = poll();
+		if (element != null)
+			return element;
+
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (waitStrategy == WaitStrategy.BLOCKING)
+			waitingConsumer = Thread.currentThread();
+		try {
+			for (int idle = 0;; idle++) {
+				element = poll();
+				if (element != null)
+					return element;
+
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L)
+					return null;
+
+				idle(idle, remaining);
+			}
+		} finally {
+			if (waitStrategy == WaitStrategy.BLOCKING)
+				waitingConsumer = null;
+		}
+	}
+
+	/**
+	 * Take element, waiting for element if queue is empty.<br>
+	 * Should be called by single consumer thread at a time.
+	 *
+	 * @return element
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public E take() throws InterruptedException {
+		return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Take available elements in batch, without waiting.<br>
+	 * Should be called by single consumer thread at a time.
+	 *
+	 * @param consumer
+	 *            elements consumer
+	 * @param limit
+	 *            maximum elements amount
+	 * @return taken elements amount
+	 */
+	public int drain(final Consumer<? super E> consumer, final int limit) {
+		checkArgument(consumer != null, "consumer argument is null");
+		checkArgument(limit >= 0, "limit argument is negative");
+
+		final long start = sequences.get(CONSUMER);
+		long sequence = start;
+		try {
+			while (sequence - start < limit) {
+				final E element = take(sequence);
+				if (element == null)
+					break;
+
+				sequence++;
+				consumer.accept(element);
+			}
+		} finally {
+			if (sequence != start)
+				release(sequence);
+		}
+
+		return (int) (sequence - start);
+	}
+
+	/**
+	 * Take all available elements in batch, without waiting.<br>
+	 * Should be called by single consumer thread at a time.
+	 *
+	 * @param consumer
+	 *            elements consumer
+	 * @return taken elements amount
+	 */
+	public int drain(final Consumer<? super E> consumer) {
+		return drain(consumer, capacity);
+	}
+
+	/**
+	 * Get elements amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		for (;;) {
+			final long consumer = sequences.get(CONSUMER);
+			final long producer = sequences.get(PRODUCER);
+			if (consumer == sequences.get(CONSUMER)) // consistent pair
+				return (int) Math.max(0L, Math.min(capacity, producer - consumer));
+		}
+	}
+
+	/**
+	 * Is this queue is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Get capacity.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get wait strategy.
+	 *
+	 * @return {@link WaitStrategy}
+	 */
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Get producer sequence.
+	 *
+	 * @return <code>long</code>
+	 */
+	protected final long getProducerSequence() {
+		return sequences.get(PRODUCER);
+	}
+
+	/**
+	 * Set producer sequence, for single producer.
+	 *
+	 * @param sequence
+	 *            sequence
+	 */
+	protected final void setProducerSequence(final long sequence) {
+		sequences.lazySet(PRODUCER, sequence);
+	}
+
+	/**
+	 * Compare and set producer sequence, for multiple producers.
+	 *
+	 * @param expected
+	 *            expected sequence
+	 * @param sequence
+	 *            new sequence
+	 * @return <code>true</code> if updated or <code>false</code>
+	 */
+	protected final boolean casProducerSequence(final long expected, final long sequence) {
+		return sequences.compareAndSet(PRODUCER, expected, sequence);
+	}
+
+	/**
+	 * Get consumer sequence.
+	 *
+	 * @return <code>long</code>
+	 */
+	protected final long getConsumerSequence() {
+		return sequences.get(CONSUMER);
+	}
+
+	/**
+	 * Publish element to the claimed sequence slot.
+	 *
+	 * @param sequence
+	 *            claimed sequence
+	 * @param element
+	 *            element
+	 */
+	protected void publish(final long sequence, final E element) {
+		if (waitStrategy != WaitStrategy.BLOCKING) {
+			slots.lazySet((int) sequence & mask, element);
+			return;
+		}
+
+		slots.set((int) sequence & mask, element); // full fence before checking the waiting consumer
+		final Thread consumer = waitingConsumer;
+		if (consumer != null)
+			LockSupport.unpark(consumer);
+	}
+
+	/**
+	 * Take element from the sequence slot.
+	 *
+	 * @param sequence
+	 *            consumer sequence
+	 * @return element or <code>null</code> if sequence is not produced yet
+	 */
+	private E take(final long sequence) {
+		final int index = (int) sequence & mask;
+		E element = slots.get(index);
+		if (element == null) {
+			if (sequence >= sequences.get(PRODUCER))
+				return null;
+
+			// sequence is claimed by producer, element is going to be published
+			do
+				element = slots.get(index);
+			while (element == null);
+		}
+
+		slots.lazySet(index, null);
+		return element;
+	}
+
+	/**
+	 * Publish consumer progress, freed slots are becoming available to producers.
+	 *
+	 * @param sequence
+	 *            next consumer sequence
+	 */
+	private void release(final long sequence) {
+		if (waitStrategy != WaitStrategy.BLOCKING) {
+			sequences.lazySet(CONSUMER, sequence);
+			return;
+		}
+
+		sequences.set(CONSUMER, sequence); // full fence before checking waiting producers
+		if (!waitingProducers.isEmpty())
+			for (final Thread producer : waitingProducers)
+				LockSupport.unpark(producer);
+	}
+
+	/**
+	 * Wait according to the wait strategy.
+	 *
+	 * @param iteration
+	 *            waiting iteration
+	 * @param remaining
+	 *            remaining timeout in nanoseconds
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private void idle(final int iteration, final long remaining) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+
+		if (waitStrategy == WaitStrategy.BLOCKING)
+			LockSupport.parkNanos(this, remaining);
+		else if (iteration >= SPINS)
+			Thread.yield();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [capacity=").append(capacity);
+		builder.append(", size=").append(size());
+		builder.append(", waitStrategy=").append(waitStrategy);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Waiting strategy for blocking operations.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public enum WaitStrategy {
+
+		/**
+		 * Busy spinning, then yielding the processor. Lowest latency, consumes processor while waiting.
+		 */
+		SPIN_YIELD,
+
+		/**
+		 * Parking waiting threads until they are signaled by the other side. Higher latency, no processor consumption while waiting.
+		 */
+		BLOCKING
+
+	}
+
+}
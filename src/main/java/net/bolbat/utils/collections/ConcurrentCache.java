@@ -0,0 +1,1252 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.concurrency.SingleFlight;
+
+/**
+ * Concurrent cache with optional size or weight bound, expiration after write and after access, loaders with per key single flight and statistics.
+ * <br>
+ * Entries are stored in the {@link ConcurrentHashMap}, so reads are lock free. Eviction policy is striped over segments selected by the key hash,
+ * each segment runs W-TinyLFU: new entries are admitted to the small LRU window, entries leaving the window are competing with the main LRU victim
+ * and the more frequently used one (according to the segment frequency sketch) is retained, so one-time scans are not flushing frequently used
+ * entries. Reads are recording access only if the segment is not locked, under contention recency and frequency are sampled instead of blocking
+ * readers.<br>
+ * Weight is accounted for the whole cache, not split between segments: the bound is enforced after each write, first by the written segment
+ * admission and then, if the written segment has no victim to compete with, by evicting the least frequently used of the segments main list
+ * victims, so admission to one segment can't flush frequently used entries of other segments. Concurrent writes can exceed the bound until their
+ * eviction completes. Entries heavier than the maximum weight are not cached.<br>
+ * Expired entries are never returned, they are removed on access, on writes to the same segment and by <code>cleanUp()</code>.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class ConcurrentCache<K, V> {
+
+	/**
+	 * Default segments amount.
+	 */
+	public static final int DEFAULT_SEGMENTS_COUNT = 16;
+
+	/**
+	 * Maximum segments amount.
+	 */
+	public static final int MAXIMUM_SEGMENTS_COUNT = 1 << 16;
+
+	/**
+	 * Window share of the segment part of the maximum weight, in percents.
+	 */
+	private static final int WINDOW_PERCENTS = 1;
+
+	/**
+	 * Maximum frequency sketch size per segment.
+	 */
+	private static final int MAXIMUM_SKETCH_SIZE = 1 << 16;
+
+	/**
+	 * Entries.
+	 */
+	private final ConcurrentMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Segments.
+	 */
+	private final Segment<K, V>[] segments;
+
+	/**
+	 * Segments index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Maximum weight, <code>-1</code> if cache is not bounded.
+	 */
+	private final long maximumWeight;
+
+	/**
+	 * Total weight of the entries.
+	 */
+	private final AtomicLong totalWeight = new AtomicLong();
+
+	/**
+	 * Entries weigher.
+	 */
+	private final ToIntBiFunction<? super K, ? super V> weigher;
+
+	/**
+	 * Expiration after write in nanoseconds, <code>0</code> if disabled.
+	 */
+	private final long expireAfterWrite;
+
+	/**
+	 * Expiration after access in nanoseconds, <code>0</code> if disabled.
+	 */
+	private final long expireAfterAccess;
+
+	/**
+	 * Time source in nanoseconds.
+	 */
+	private final LongSupplier ticker;
+
+	/**
+	 * Loaders single flight.
+	 */
+	private final SingleFlight<K, V> loads = new SingleFlight<>();
+
+	/**
+	 * Hits count.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Misses count.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Loads count.
+	 */
+	private final LongAdder loadsCount = new LongAdder();
+
+	/**
+	 * Evictions count.
+	 */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Expirations count.
+	 */
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param builder
+	 *            {@link Builder}
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ConcurrentCache(final Builder<K, V> builder) {
+		this.maximumWeight = builder.maximumWeight;
+		this.weigher = builder.weigher;
+		this.expireAfterWrite = builder.expireAfterWrite;
+		this.expireAfterAccess = builder.expireAfterAccess;
+		this.ticker = builder.ticker;
+
+		int segmentsCount = Integer.highestOneBit(builder.segmentsCount - 1) << 1;
+		if (maximumWeight >= 0L) // window and frequency sketch are sized by the segment part of the maximum weight, it should fit at least one entry
+			segmentsCount = (int) Math.min(segmentsCount, Long.highestOneBit(Math.max(1L, maximumWeight)));
+
+		this.segments = new Segment[Math.max(1, segmentsCount)];
+		this.mask = segments.length - 1;
+		for (int i = 0; i < segments.length; i++) {
+			final long segmentShare = maximumWeight < 0L ? -1L : maximumWeight / segments.length + (i < maximumWeight % segments.length ? 1 : 0);
+			segments[i] = new Segment<>(this, segmentShare);
+		}
+	}
+
+	/**
+	 * Create {@link Builder}.
+	 *
+	 * @return {@link Builder}
+	 */
+	public static <K, V> Builder<K, V> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Get value.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @return value or <code>null</code> if not cached or expired
+	 */
+	public V get(final K key) {
+		checkArgument(key != null, "key argument is null");
+
+		final int hash = spread(key.hashCode());
+		final Segment<K, V> segment = segments[hash & mask];
+		final Node<K, V> node = entries.get(key);
+		final long now = ticker.getAsLong();
+		if (node == null || isExpired(node, now)) {
+			if (node != null)
+				segment.expire(node);
+
+			misses.increment();
+			segment.recordAccess(null, hash);
+			return null;
+		}
+
+		if (expireAfterAccess > 0L)
+			node.accessTime = now;
+
+		hits.increment();
+		segment.recordAccess(node, hash);
+		return node.value;
+	}
+
+	/**
+	 * Get value or load it if not cached.<br>
+	 * Concurrent loads of the same key are coalesced, loader is called once and all callers receive its result.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @param loader
+	 *            loader, can't be <code>null</code>, <code>null</code> result is returned but not cached
+	 * @return value
+	 */
+	public V get(final K key, final Function<? super K, ? extends V> loader) {
+		checkArgument(loader != null, "loader argument is null");
+
+		final V cached = get(key);
+		if (cached != null)
+			return cached;
+
+		try {
+			return loads.execute(key, () -> {
+				final Node<K, V> node = entries.get(key); // could be loaded by the previous flight
+				if (node != null && !isExpired(node, ticker.getAsLong()))
+					return node.value;
+
+				loadsCount.increment();
+				final V loaded = loader.apply(key);
+				if (loaded != null)
+					put(key, loaded);
+
+				return loaded;
+			});
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for key[" + key + "] load", e);
+		} catch (final Exception e) { // loader is a function, checked exceptions are not expected
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Put value.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @param value
+	 *            value, can't be <code>null</code>
+	 */
+	public void put(final K key, final V value) {
+		checkArgument(key != null, "key argument is null");
+		checkArgument(value != null, "value argument is null");
+
+		final int weight = weigher.applyAsInt(key, value);
+		checkArgument(weight >= 0, "weigher returned negative weight");
+
+		final int hash = spread(key.hashCode());
+		final Node<K, V> written = segments[hash & mask].put(key, value, weight, hash, ticker.getAsLong());
+		if (maximumWeight >= 0L && totalWeight.get() > maximumWeight)
+			evictOverflow(hash & mask, written);
+	}
+
+	/**
+	 * Remove value.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @return removed value or <code>null</code> if not cached or expired
+	 */
+	public V remove(final K key) {
+		checkArgument(key != null, "key argument is null");
+
+		final Node<K, V> node = segments[spread(key.hashCode()) & mask].remove(key);
+		return node == null || isExpired(node, ticker.getAsLong()) ? null : node.value;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void invalidateAll() {
+		for (final Segment<K, V> segment : segments)
+			segment.clear();
+	}
+
+	/**
+	 * Remove all expired entries.
+	 */
+	public void cleanUp() {
+		final long now = ticker.getAsLong();
+		for (final Node<K, V> node : entries.values())
+			if (isExpired(node, now))
+				segments[spread(node.key.hashCode()) & mask].expire(node);
+	}
+
+	/**
+	 * Get entries amount, can include expired but not yet removed entries.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get total weight of the entries.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getWeight() {
+		return totalWeight.get();
+	}
+
+	/**
+	 * Get maximum weight (size if weigher is not configured).
+	 *
+	 * @return maximum weight or <code>-1</code> if cache is not bounded
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * Get segments amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getSegmentsCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Get hits count.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getHitsCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get misses count.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getMissesCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get hit rate.
+	 *
+	 * @return hit rate in <code>[0, 1]</code> range, <code>1</code> if there was no requests
+	 */
+	public double getHitRate() {
+		final long hitsCount = hits.sum();
+		final long requests = hitsCount + misses.sum();
+		return requests == 0L ? 1d : (double) hitsCount / requests;
+	}
+
+	/**
+	 * Get loader calls count.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getLoadsCount() {
+		return loadsCount.sum();
+	}
+
+	/**
+	 * Get count of entries evicted by size (weight) bound.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getEvictionsCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Get count of expired entries removals.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getExpirationsCount() {
+		return expirations.sum();
+	}
+
+	/**
+	 * Evict entries while cache weight exceeds the maximum.<br>
+	 * Main list least recently used nodes of all segments are compared by frequency (according to their segment sketches) and the least frequently
+	 * used one is evicted, written node is not a victim here. Windows are evicted only if there are no main victims, written node is evicted last.
+	 * Segments are locked one by one so writers can't deadlock.
+	 *
+	 * @param index
+	 *            written segment index, its victim loses frequency ties as the admitted candidate does
+	 * @param written
+	 *            written node
+	 */
+	private void evictOverflow(final int index, final Node<K, V> written) {
+		while (totalWeight.get() > maximumWeight) {
+			Segment<K, V> victimSegment = null;
+			Node<K, V> victim = null;
+			int victimFrequency = Integer.MAX_VALUE;
+			for (int i = 0; i < segments.length; i++) {
+				final Segment<K, V> segment = segments[(index + i) & mask];
+				segment.lock.lock();
+				try {
+					final Node<K, V> node = segment.victim(written);
+					final int frequency = node != null ? segment.sketch.frequency(spread(node.key.hashCode())) : Integer.MAX_VALUE;
+					if (node != null && frequency < victimFrequency) {
+						victimSegment = segment;
+						victim = node;
+						victimFrequency = frequency;
+					}
+				} finally {
+					segment.lock.unlock();
+				}
+			}
+
+			if (victim == null)
+				break;
+
+			victimSegment.evict(victim, written);
+		}
+
+		for (int i = 1; i < segments.length; i++)
+			segments[(index + i) & mask].evictOverflow(true);
+
+		segments[index].evictOverflow(false);
+		segments[index].evictOverflow(true);
+	}
+
+	/**
+	 * Get eviction segment index for the given key.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @return segment index
+	 */
+	int segmentIndex(final K key) {
+		return spread(key.hashCode()) & mask;
+	}
+
+	/**
+	 * Check is node expired.
+	 *
+	 * @param node
+	 *            node
+	 * @param now
+	 *            current time in nanoseconds
+	 * @return <code>true</code> if expired or <code>false</code>
+	 */
+	private boolean isExpired(final Node<K, V> node, final long now) {
+		return expireAfterWrite > 0L && now - node.writeTime >= expireAfterWrite || expireAfterAccess > 0L && now - node.accessTime >= expireAfterAccess;
+	}
+
+	/**
+	 * Spread hash code bits (MurmurHash3 fmix32), so keys with close hash codes are distributed over segments.
+	 *
+	 * @param hashCode
+	 *            hash code
+	 * @return spread hash code
+	 */
+	private static int spread(final int hashCode) {
+		int h = hashCode;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [size=").append(size());
+		builder.append(", weight=").append(getWeight());
+		builder.append(", maximumWeight=").append(maximumWeight);
+		builder.append(", segments=").append(segments.length);
+		builder.append(", hits=").append(hits.sum());
+		builder.append(", misses=").append(misses.sum());
+		builder.append(", loads=").append(loadsCount.sum());
+		builder.append(", evictions=").append(evictions.sum());
+		builder.append(", expirations=").append(expirations.sum());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * {@link ConcurrentCache} builder.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <K>
+	 *            key type
+	 * @param <V>
+	 *            value type
+	 */
+	@Concurrency.NotThreadSafe
+	public static final class Builder<K, V> {
+
+		/**
+		 * Maximum weight, <code>-1</code> if not bounded.
+		 */
+		private long maximumWeight = -1L;
+
+		/**
+		 * Is maximum configured as weight.
+		 */
+		private boolean weighted;
+
+		/**
+		 * Entries weigher.
+		 */
+		private ToIntBiFunction<? super K, ? super V> weigher = (key, value) -> 1;
+
+		/**
+		 * Expiration after write in nanoseconds.
+		 */
+		private long expireAfterWrite;
+
+		/**
+		 * Expiration after access in nanoseconds.
+		 */
+		private long expireAfterAccess;
+
+		/**
+		 * Segments amount.
+		 */
+		private int segmentsCount = DEFAULT_SEGMENTS_COUNT;
+
+		/**
+		 * Time source in nanoseconds.
+		 */
+		private LongSupplier ticker = System::nanoTime;
+
+		/**
+		 * Default constructor.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * Set maximum entries amount.
+		 *
+		 * @param aMaximumSize
+		 *            maximum entries amount
+		 * @return {@link Builder}
+		 */
+		public Builder<K, V> setMaximumSize(final long aMaximumSize) {
+			checkArgument(aMaximumSize >= 0L, "aMaximumSize argument is negative");
+			checkArgument(!weighted, "maximum weight already configured");
+
+			this.maximumWeight = aMaximumSize;
+			return this;
+		}
+
+		/**
+		 * Set maximum entries weight, weigher is required.
+		 *
+		 * @param aMaximumWeight
+		 *            maximum entries weight
+		 * @param aWeigher
+		 *            entries weigher, should return not negative weight
+		 * @return {@link Builder}
+		 */
+		public Builder<K, V> setMaximumWeight(final long aMaximumWeight, final ToIntBiFunction<? super K, ? super V> aWeigher) {
+			checkArgument(aMaximumWeight >= 0L, "aMaximumWeight argument is negative");
+			checkArgument(aWeigher != null, "aWeigher argument is null");
+			checkArgument(weighted || maximumWeight < 0L, "maximum size already configured");
+
+			this.maximumWeight = aMaximumWeight;
+			this.weigher = aWeigher;
+			this.weighted = true;
+			return this;
+		}
+
+		/**
+		 * Set expiration after entry creation or last update.
+		 *
+		 * @param duration
+		 *            duration, <code>0</code> to disable
+		 * @param unit
+		 *            duration unit
+		 * @return {@link Builder}
+		 */
+		public Builder<K, V> setExpireAfterWrite(final long duration, final TimeUnit unit) {
+			checkArgument(duration >= 0L, "duration argument is negative");
+			checkArgument(unit != null, "unit argument is null");
+
+			this.expireAfterWrite = unit.toNanos(duration);
+			return this;
+		}
+
+		/**
+		 * Set expiration after entry last access (read or write).
+		 *
+		 * @param duration
+		 *            duration, <code>0</code> to disable
+		 * @param unit
+		 *            duration unit
+		 * @return {@link Builder}
+		 */
+		public Builder<K, V> setExpireAfterAccess(final long duration, final TimeUnit unit) {
+			checkArgument(duration >= 0L, "duration argument is negative");
+			checkArgument(unit != null, "unit argument is null");
+
+			this.expireAfterAccess = unit.toNanos(duration);
+			return this;
+		}
+
+		/**
+		 * Set eviction segments amount, rounded up to power of two.
+		 *
+		 * @param aSegmentsCount
+		 *            segments amount
+		 * @return {@link Builder}
+		 */
+		public Builder<K, V> setSegmentsCount(final int aSegmentsCount) {
+			checkArgument(aSegmentsCount > 0, "aSegmentsCount argument should be greater than 0");
+			checkArgument(aSegmentsCount <= MAXIMUM_SEGMENTS_COUNT, "aSegmentsCount argument should be less or equal to " + MAXIMUM_SEGMENTS_COUNT);
+
+			this.segmentsCount = aSegmentsCount;
+			return this;
+		}
+
+		/**
+		 * Set time source, for testing.
+		 *
+		 * @param aTicker
+		 *            time source in nanoseconds
+		 * @return {@link Builder}
+		 */
+		Builder<K, V> setTicker(final LongSupplier aTicker) {
+			checkArgument(aTicker != null, "aTicker argument is null");
+
+			this.ticker = aTicker;
+			return this;
+		}
+
+		/**
+		 * Build {@link ConcurrentCache}.
+		 *
+		 * @return {@link ConcurrentCache}
+		 */
+		public ConcurrentCache<K, V> build() {
+			return new ConcurrentCache<>(this);
+		}
+
+	}
+
+	/**
+	 * Cache entry, linked into the segment window or main access order list.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <K>
+	 *            key type
+	 * @param <V>
+	 *            value type
+	 */
+	private static final class Node<K, V> {
+
+		/**
+		 * Key.
+		 */
+		private final K key;
+
+		/**
+		 * Value.
+		 */
+		private volatile V value;
+
+		/**
+		 * Weight, guarded by the segment lock.
+		 */
+		private int weight;
+
+		/**
+		 * Last write time in nanoseconds.
+		 */
+		private volatile long writeTime;
+
+		/**
+		 * Last access time in nanoseconds.
+		 */
+		private volatile long accessTime;
+
+		/**
+		 * Is node in the window list, guarded by the segment lock.
+		 */
+		private boolean inWindow;
+
+		/**
+		 * Is node linked to the segment, guarded by the segment lock.
+		 */
+		private boolean alive;
+
+		/**
+		 * Previous (more recently used) node, guarded by the segment lock.
+		 */
+		private Node<K, V> previous;
+
+		/**
+		 * Next (less recently used) node, guarded by the segment lock.
+		 */
+		private Node<K, V> next;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aKey
+		 *            key
+		 */
+		private Node(final K aKey) {
+			this.key = aKey;
+		}
+
+	}
+
+	/**
+	 * Eviction segment, runs W-TinyLFU policy for the keys mapped to it, window and frequency sketch are sized by the segment part of the maximum
+	 * weight.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <K>
+	 *            key type
+	 * @param <V>
+	 *            value type
+	 */
+	private static final class Segment<K, V> {
+
+		/**
+		 * Segment lock, guards the policy state.
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * Cache.
+		 */
+		private final ConcurrentCache<K, V> cache;
+
+		/**
+		 * Window maximum weight, <code>-1</code> if not bounded.
+		 */
+		private final long windowMaximum;
+
+		/**
+		 * Window list sentinel.
+		 */
+		private final Node<K, V> window = sentinel();
+
+		/**
+		 * Main list sentinel.
+		 */
+		private final Node<K, V> main = sentinel();
+
+		/**
+		 * Frequency sketch, <code>null</code> if not bounded.
+		 */
+		private final FrequencySketch sketch;
+
+		/**
+		 * Window weight.
+		 */
+		private long windowWeight;
+
+		/**
+		 * Main weight.
+		 */
+		private long mainWeight;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aCache
+		 *            cache
+		 * @param share
+		 *            segment part of the maximum weight, <code>-1</code> if not bounded
+		 */
+		private Segment(final ConcurrentCache<K, V> aCache, final long share) {
+			this.cache = aCache;
+			this.windowMaximum = share < 0L ? -1L : Math.min(share, Math.max(1L, share * WINDOW_PERCENTS / 100));
+			this.sketch = share < 0L ? null : new FrequencySketch((int) Math.min(MAXIMUM_SKETCH_SIZE, share));
+		}
+
+		/**
+		 * Record access to the node or to the absent key, skipped if segment is locked.
+		 *
+		 * @param node
+		 *            accessed node, <code>null</code> on miss
+		 * @param hash
+		 *            key hash
+		 */
+		private void recordAccess(final Node<K, V> node, final int hash) {
+			if (sketch == null && node == null)
+				return;
+			if (!lock.tryLock())
+				return;
+
+			try {
+				if (sketch != null)
+					sketch.increment(hash);
+				if (node != null && node.alive)
+					moveToFront(node.inWindow ? window : main, node);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Put value.
+		 *
+		 * @param key
+		 *            key
+		 * @param value
+		 *            value
+		 * @param weight
+		 *            value weight
+		 * @param hash
+		 *            key hash
+		 * @param now
+		 *            current time in nanoseconds
+		 * @return written node
+		 */
+		private Node<K, V> put(final K key, final V value, final int weight, final int hash, final long now) {
+			lock.lock();
+			try {
+				Node<K, V> node = cache.entries.get(key);
+				if (node != null) {
+					node.value = value;
+					node.writeTime = now;
+					node.accessTime = now;
+					addWeight(node, weight - node.weight);
+					node.weight = weight;
+					moveToFront(node.inWindow ? window : main, node);
+				} else {
+					node = new Node<>(key);
+					node.value = value;
+					node.weight = weight;
+					node.writeTime = now;
+					node.accessTime = now;
+					node.inWindow = true;
+					node.alive = true;
+					linkFirst(window, node);
+					addWeight(node, weight);
+					cache.entries.put(key, node);
+				}
+
+				if (sketch != null) {
+					sketch.increment(hash);
+					if (weight > cache.maximumWeight) { // can't be cached, rejected before evicting anything
+						unlink(node);
+						cache.evictions.increment();
+					}
+				}
+
+				expireTails(now);
+				evictWindow();
+				return node;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Remove node of the key.
+		 *
+		 * @param key
+		 *            key
+		 * @return removed node or <code>null</code>
+		 */
+		private Node<K, V> remove(final K key) {
+			lock.lock();
+			try {
+				final Node<K, V> node = cache.entries.get(key);
+				if (node != null)
+					unlink(node);
+
+				return node;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Remove expired node, if it's still cached.
+		 *
+		 * @param node
+		 *            node
+		 */
+		private void expire(final Node<K, V> node) {
+			lock.lock();
+			try {
+				if (node.alive && cache.isExpired(node, cache.ticker.getAsLong())) {
+					unlink(node);
+					cache.expirations.increment();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Remove all segment nodes.
+		 */
+		private void clear() {
+			lock.lock();
+			try {
+				while (window.previous != window)
+					unlink(window.previous);
+				while (main.previous != main)
+					unlink(main.previous);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Get main list victim, least recently used node except the written one.<br>
+		 * Should be called under the segment lock.
+		 *
+		 * @param written
+		 *            written node
+		 * @return victim or <code>null</code> if main list has no victim
+		 */
+		private Node<K, V> victim(final Node<K, V> written) {
+			final Node<K, V> result = main.previous != written ? main.previous : written.previous;
+			return result != main ? result : null;
+		}
+
+		/**
+		 * Evict victim selected by the cache, if it's still cached and still not the written node.
+		 *
+		 * @param victim
+		 *            victim
+		 * @param written
+		 *            written node
+		 */
+		private void evict(final Node<K, V> victim, final Node<K, V> written) {
+			lock.lock();
+			try {
+				if (victim.alive && victim != written && cache.totalWeight.get() > cache.maximumWeight) {
+					unlink(victim);
+					cache.evictions.increment();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Evict least recently used nodes while cache weight exceeds the maximum.
+		 *
+		 * @param fromWindow
+		 *            is nodes evicted from the window or from the main list
+		 */
+		private void evictOverflow(final boolean fromWindow) {
+			if (cache.totalWeight.get() <= cache.maximumWeight)
+				return;
+
+			final Node<K, V> list = fromWindow ? window : main;
+			lock.lock();
+			try {
+				while (list.previous != list && cache.totalWeight.get() > cache.maximumWeight) {
+					unlink(list.previous);
+					cache.evictions.increment();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Remove expired least recently used nodes, lists are ordered by access so expired nodes are collected from the tails.
+		 *
+		 * @param now
+		 *            current time in nanoseconds
+		 */
+		private void expireTails(final long now) {
+			expireTail(window, now);
+			expireTail(main, now);
+		}
+
+		/**
+		 * Remove expired least recently used nodes of the list.
+		 *
+		 * @param list
+		 *            list sentinel
+		 * @param now
+		 *            current time in nanoseconds
+		 */
+		private void expireTail(final Node<K, V> list, final long now) {
+			while (list.previous != list && cache.isExpired(list.previous, now)) {
+				unlink(list.previous);
+				cache.expirations.increment();
+			}
+		}
+
+		/**
+		 * Evict nodes exceeding window maximum weight.<br>
+		 * Window overflow candidates are moved to the main list if cache has space, otherwise candidate competes with the main least recently used
+		 * node and the less frequently used one is evicted. Candidate is admitted if segment main list is empty, cache overflow is evicted then by
+		 * the frequency comparison of all segments victims, so the admitted candidate is evicted if other segments victims are used more frequently.
+		 * Weight updates of the main nodes are bounded the same way.
+		 */
+		private void evictWindow() {
+			if (sketch == null)
+				return;
+
+			while (windowWeight > windowMaximum) {
+				final Node<K, V> candidate = window.previous;
+				final int candidateFrequency = sketch.frequency(spread(candidate.key.hashCode()));
+				boolean admitted = true;
+				while (cache.totalWeight.get() > cache.maximumWeight) {
+					final Node<K, V> victim = main.previous;
+					if (victim == main)
+						break;
+					if (candidateFrequency <= sketch.frequency(spread(victim.key.hashCode()))) {
+						admitted = false;
+						break;
+					}
+
+					unlink(victim);
+					cache.evictions.increment();
+				}
+
+				if (admitted) {
+					detach(candidate);
+					windowWeight -= candidate.weight;
+					candidate.inWindow = false;
+					linkFirst(main, candidate);
+					mainWeight += candidate.weight;
+				} else {
+					unlink(candidate);
+					cache.evictions.increment();
+				}
+			}
+		}
+
+		/**
+		 * Add weight delta to the node list weight and to the cache weight.
+		 *
+		 * @param node
+		 *            node
+		 * @param delta
+		 *            weight delta
+		 */
+		private void addWeight(final Node<K, V> node, final long delta) {
+			if (node.inWindow)
+				windowWeight += delta;
+			else
+				mainWeight += delta;
+
+			if (delta != 0L)
+				cache.totalWeight.addAndGet(delta);
+		}
+
+		/**
+		 * Unlink node from the segment and remove it from the cache.
+		 *
+		 * @param node
+		 *            node
+		 */
+		private void unlink(final Node<K, V> node) {
+			detach(node);
+			addWeight(node, -node.weight);
+			node.alive = false;
+			cache.entries.remove(node.key, node);
+		}
+
+		/**
+		 * Move node to the list head (most recently used).
+		 *
+		 * @param list
+		 *            list sentinel
+		 * @param node
+		 *            node
+		 */
+		private static <K, V> void moveToFront(final Node<K, V> list, final Node<K, V> node) {
+			if (list.next == node)
+				return;
+
+			detach(node);
+			linkFirst(list, node);
+		}
+
+		/**
+		 * Link node as the list head.
+		 *
+		 * @param list
+		 *            list sentinel
+		 * @param node
+		 *            node
+		 */
+		private static <K, V> void linkFirst(final Node<K, V> list, final Node<K, V> node) {
+			node.previous = list;
+			node.next = list.next;
+			list.next.previous = node;
+			list.next = node;
+		}
+
+		/**
+		 * Detach node from its list.
+		 *
+		 * @param node
+		 *            node
+		 */
+		private static <K, V> void detach(final Node<K, V> node) {
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+		}
+
+		/**
+		 * Create list sentinel.
+		 *
+		 * @return sentinel node, linked to itself
+		 */
+		private static <K, V> Node<K, V> sentinel() {
+			final Node<K, V> result = new Node<>(null);
+			result.previous = result;
+			result.next = result;
+			return result;
+		}
+
+	}
+
+	/**
+	 * Count-min sketch of 4 bit counters for frequency estimation, counters are halved periodically so old popularity fades out.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class FrequencySketch {
+
+		/**
+		 * Hash seeds per sketch row.
+		 */
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+		/**
+		 * Counters, 16 counters per <code>long</code>.
+		 */
+		private final long[] table;
+
+		/**
+		 * Table index mask.
+		 */
+		private final int mask;
+
+		/**
+		 * Increments amount before halving counters.
+		 */
+		private final int sampleSize;
+
+		/**
+		 * Increments since the last halving.
+		 */
+		private int additions;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param capacity
+		 *            expected entries amount
+		 */
+		private FrequencySketch(final int capacity) {
+			final int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+			this.table = new long[size];
+			this.mask = size - 1;
+			this.sampleSize = size * 10;
+		}
+
+		/**
+		 * Estimate frequency.
+		 *
+		 * @param hash
+		 *            key hash
+		 * @return frequency in <code>[0, 15]</code> range
+		 */
+		private int frequency(final int hash) {
+			int result = 15;
+			for (int row = 0; row < SEEDS.length; row++) {
+				final long h = rowHash(hash, row);
+				result = Math.min(result, (int) (table[(int) (h >>> 32) & mask] >>> shift(h)) & 0xF);
+			}
+
+			return result;
+		}
+
+		/**
+		 * Increment frequency.
+		 *
+		 * @param hash
+		 *            key hash
+		 */
+		private void increment(final int hash) {
+			boolean added = false;
+			for (int row = 0; row < SEEDS.length; row++) {
+				final long h = rowHash(hash, row);
+				final int index = (int) (h >>> 32) & mask;
+				final int shift = shift(h);
+				if (((table[index] >>> shift) & 0xF) < 15) {
+					table[index] += 1L << shift;
+					added = true;
+				}
+			}
+
+			if (added && ++additions >= sampleSize) {
+				for (int i = 0; i < table.length; i++)
+					table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+
+				additions >>>= 1;
+			}
+		}
+
+		/**
+		 * Get row hash.
+		 *
+		 * @param hash
+		 *            key hash
+		 * @param row
+		 *            row
+		 * @return row hash
+		 */
+		private static long rowHash(final int hash, final int row) {
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			h ^= h >>> 29;
+			return h;
+		}
+
+		/**
+		 * Get counter shift in the table <code>long</code>.
+		 *
+		 * @param rowHash
+		 *            row hash
+		 * @return shift
+		 */
+		private static int shift(final long rowHash) {
+			return ((int) rowHash & 15) << 2;
+		}
+
+	}
+
+}
@@ -0,0 +1,694 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.lang.ToStringUtils;
+
+/**
+ * Consistent hash ring with virtual nodes, for key affine (sticky) routing.<br>
+ * Each node is placed on the ring as a set of virtual nodes (points), key belongs to the node of the first point clockwise from the key hash, so
+ * membership changes are moving only keys of the affected ring arcs.<br>
+ * Points are stored in the primitive sorted array, lookup is <code>O(log n)</code> binary search without allocations. Ring is updated incrementally
+ * (only added or removed node points are hashed) and published atomically, so lookups never block and always see consistent ring.<br>
+ * Points are placed by the node key, 64 bit hash from the node hasher. Placement should be the same in all processes sharing the ring, so the
+ * hasher should be stable: by default node key is the <code>toString()</code> hash, nodes with identity based (not overridden)
+ * <code>toString()</code> are rejected and nodes with colliding keys are rejected as well. Custom hasher can be configured for nodes without
+ * suitable <code>toString()</code>, it should be {@link Serializable} if the ring is serialized.<br>
+ * Jump and rendezvous hashing are available as alternative stateless strategies.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <N>
+ *            node type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class ConsistentHashRing<N> implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 4563284009178806614L;
+
+	/**
+	 * Default virtual nodes amount per node.
+	 */
+	public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+	/**
+	 * FNV-1a 64 bit offset basis.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/**
+	 * FNV-1a 64 bit prime.
+	 */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Default virtual nodes amount per node.
+	 */
+	private final int virtualNodes;
+
+	/**
+	 * Node hasher, provides node key for the points placement.
+	 */
+	private final ToLongFunction<? super N> nodeHasher;
+
+	/**
+	 * Current ring.
+	 */
+	private volatile Ring<N> ring = new Ring<>(new long[0], new Object[0], Collections.<N, Integer> emptyMap(), Collections.<Long, N> emptyMap());
+
+	/**
+	 * Default constructor, <code>DEFAULT_VIRTUAL_NODES</code> will be used as virtual nodes amount.
+	 */
+	public ConsistentHashRing() {
+		this(DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aVirtualNodes
+	 *            default virtual nodes amount per node
+	 */
+	public ConsistentHashRing(final int aVirtualNodes) {
+		this(aVirtualNodes, ToStringHasher.INSTANCE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aVirtualNodes
+	 *            default virtual nodes amount per node
+	 * @param aNodeHasher
+	 *            node hasher, should return stable and unique key for each node
+	 */
+	public ConsistentHashRing(final int aVirtualNodes, final ToLongFunction<? super N> aNodeHasher) {
+		checkArgument(aVirtualNodes > 0, "aVirtualNodes argument should be greater than 0");
+		checkArgument(aNodeHasher != null, "aNodeHasher argument is null");
+
+		this.virtualNodes = aVirtualNodes;
+		this.nodeHasher = aNodeHasher;
+	}
+
+	/**
+	 * Create {@link ConsistentHashRing} with given nodes.
+	 *
+	 * @param aNodes
+	 *            nodes
+	 * @return {@link ConsistentHashRing}
+	 */
+	public static <N> ConsistentHashRing<N> of(final Collection<N> aNodes) {
+		checkArgument(aNodes != null, "aNodes argument is null");
+
+		final ConsistentHashRing<N> result = new ConsistentHashRing<>();
+		result.addAll(aNodes);
+		return result;
+	}
+
+	/**
+	 * Get node for the key.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @return node or <code>null</code> if ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public N get(final Object key) {
+		checkArgument(key != null, "key argument is null");
+
+		final Ring<N> current = ring;
+		if (current.points.length == 0)
+			return null;
+
+		return (N) current.owners[current.pointIndex(hash(key))];
+	}
+
+	/**
+	 * Get distinct nodes for the key in the ring order, for replicas placement.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @param count
+	 *            maximum nodes amount
+	 * @return {@link List} of nodes, can contain less than requested nodes if ring has less nodes
+	 */
+	@SuppressWarnings("unchecked")
+	public List<N> get(final Object key, final int count) {
+		checkArgument(key != null, "key argument is null");
+		checkArgument(count >= 0, "count argument is negative");
+
+		final Ring<N> current = ring;
+		final int limit = Math.min(count, current.nodes.size());
+		final List<N> result = new ArrayList<>(limit);
+		if (limit == 0)
+			return result;
+
+		final Set<Object> selected = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		final int start = current.pointIndex(hash(key));
+		for (int i = 0; i < current.points.length && result.size() < limit; i++) {
+			final Object owner = current.owners[(start + i) % current.points.length];
+			if (selected.add(owner))
+				result.add((N) owner);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Add node with default virtual nodes amount.
+	 *
+	 * @param node
+	 *            node, can't be <code>null</code>
+	 * @return <code>true</code> if added or <code>false</code> if node already exist
+	 */
+	public boolean add(final N node) {
+		return add(node, virtualNodes);
+	}
+
+	/**
+	 * Add node with given virtual nodes amount (node weight).
+	 *
+	 * @param node
+	 *            node, can't be <code>null</code>
+	 * @param nodeVirtualNodes
+	 *            node virtual nodes amount
+	 * @return <code>true</code> if added or <code>false</code> if node already exist
+	 * @throws IllegalArgumentException
+	 *             if node key collides with other node key
+	 */
+	public synchronized boolean add(final N node, final int nodeVirtualNodes) {
+		checkArgument(node != null, "node argument is null");
+		checkArgument(nodeVirtualNodes > 0, "nodeVirtualNodes argument should be greater than 0");
+
+		if (ring.nodes.containsKey(node))
+			return false;
+
+		ring = ring.add(Collections.singletonMap(node, nodeVirtualNodes), nodeHasher);
+		return true;
+	}
+
+	/**
+	 * Add nodes with default virtual nodes amount, ring is updated once.
+	 *
+	 * @param nodes
+	 *            nodes, can't be <code>null</code> or contain <code>null</code>
+	 * @return <code>true</code> if at least one node added or <code>false</code>
+	 * @throws IllegalArgumentException
+	 *             if node key collides with other node key, nothing is added then
+	 */
+	public synchronized boolean addAll(final Collection<N> nodes) {
+		checkArgument(nodes != null, "nodes argument is null");
+
+		final Map<N, Integer> added = new LinkedHashMap<>();
+		for (final N node : nodes) {
+			checkArgument(node != null, "nodes argument contains null");
+			if (!ring.nodes.containsKey(node))
+				added.put(node, virtualNodes);
+		}
+
+		if (added.isEmpty())
+			return false;
+
+		ring = ring.add(added, nodeHasher);
+		return true;
+	}
+
+	/**
+	 * Remove node.
+	 *
+	 * @param node
+	 *            node, can't be <code>null</code>
+	 * @return <code>true</code> if removed or <code>false</code> if node not exist
+	 */
+	public synchronized boolean remove(final N node) {
+		checkArgument(node != null, "node argument is null");
+
+		if (!ring.nodes.containsKey(node))
+			return false;
+
+		ring = ring.remove(node, nodeHasher);
+		return true;
+	}
+
+	/**
+	 * Check is ring contains given node.
+	 *
+	 * @param node
+	 *            node
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean contains(final N node) {
+		return node != null && ring.nodes.containsKey(node);
+	}
+
+	/**
+	 * Get nodes (unmodifiable).
+	 *
+	 * @return unmodifiable {@link List} of nodes
+	 */
+	public List<N> getNodes() {
+		return Collections.unmodifiableList(new ArrayList<>(ring.nodes.keySet()));
+	}
+
+	/**
+	 * Get nodes amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return ring.nodes.size();
+	}
+
+	/**
+	 * Is ring empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return ring.nodes.isEmpty();
+	}
+
+	/**
+	 * Get ring points (virtual nodes) amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getPointsCount() {
+		return ring.points.length;
+	}
+
+	/**
+	 * Get load distribution, share of the hash space owned by each node.
+	 *
+	 * @return {@link Map} with node as key and share in <code>[0, 1]</code> range as value, in nodes addition order
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<N, Double> getLoadDistribution() {
+		final Ring<N> current = ring;
+		final Map<N, Double> result = new LinkedHashMap<>();
+		for (final N node : current.nodes.keySet())
+			result.put(node, 0d);
+
+		final int length = current.points.length;
+		for (int i = 0; i < length; i++) {
+			// arc from the previous point (exclusive) to this point (inclusive), as unsigned 64 bit distance
+			final long arc = i == 0 ? current.points[0] - current.points[length - 1] : current.points[i] - current.points[i - 1];
+			final double share = length == 1 ? 1d : unsignedToDouble(arc) / 18446744073709551616d;
+			result.merge((N) current.owners[i], share, Double::sum);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get load imbalance, the most loaded node share divided by the ideal (equal) share.
+	 *
+	 * @return <code>1</code> for perfectly balanced ring, <code>0</code> if ring is empty
+	 */
+	public double getLoadImbalance() {
+		final Map<N, Double> distribution = getLoadDistribution();
+		if (distribution.isEmpty())
+			return 0d;
+
+		double max = 0d;
+		for (final double share : distribution.values())
+			max = Math.max(max, share);
+
+		return max * distribution.size();
+	}
+
+	/**
+	 * Jump consistent hash (Lamping, Veach), maps key hash to the bucket in <code>[0, buckets)</code> range without any state.<br>
+	 * Only keys of the removed last bucket (or keys moving to the added last bucket) are remapped, so buckets should be added and removed at the end.
+	 *
+	 * @param key
+	 *            key hash
+	 * @param buckets
+	 *            buckets amount
+	 * @return bucket index
+	 */
+	public static int jump(final long key, final int buckets) {
+		checkArgument(buckets > 0, "buckets argument should be greater than 0");
+
+		long k = key;
+		long b = -1L;
+		long j = 0L;
+		while (j < buckets) {
+			b = j;
+			k = k * 2862933555777941757L + 1L;
+			j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((k >>> 33) + 1)));
+		}
+
+		return (int) b;
+	}
+
+	/**
+	 * Rendezvous (highest random weight) hashing, selects the node with the highest key and node combined hash.<br>
+	 * Works with any nodes order and moves only keys of the removed node, selection is <code>O(n)</code>.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @param nodes
+	 *            nodes, can't be <code>null</code>
+	 * @return node or <code>null</code> if nodes list is empty
+	 */
+	public static <N> N rendezvous(final Object key, final List<N> nodes) {
+		checkArgument(key != null, "key argument is null");
+		checkArgument(nodes != null, "nodes argument is null");
+
+		final long keyHash = hash(key);
+		N result = null;
+		long best = 0L;
+		for (final N node : nodes) {
+			final long weight = mix(keyHash ^ hash(node));
+			if (result == null || Long.compareUnsigned(weight, best) > 0) {
+				result = node;
+				best = weight;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get object 64 bit hash.<br>
+	 * {@link CharSequence} is hashed by characters (FNV-1a), other objects by the <code>hashCode()</code>, both finalized with 64 bit mix.
+	 *
+	 * @param object
+	 *            object
+	 * @return hash
+	 */
+	static long hash(final Object object) {
+		if (!(object instanceof CharSequence))
+			return mix(object.hashCode());
+
+		final CharSequence value = (CharSequence) object;
+		long h = FNV_OFFSET_BASIS;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= FNV_PRIME;
+		}
+
+		return mix(h);
+	}
+
+	/**
+	 * Virtual node point hash.
+	 *
+	 * @param nodeKey
+	 *            node key
+	 * @param index
+	 *            virtual node index
+	 * @return hash
+	 */
+	private static long pointHash(final long nodeKey, final int index) {
+		return mix(nodeKey + index * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * 64 bit hash finalizer (MurmurHash3 fmix64).
+	 *
+	 * @param value
+	 *            value
+	 * @return mixed value
+	 */
+	private static long mix(final long value) {
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Convert unsigned 64 bit value to <code>double</code>.
+	 *
+	 * @param value
+	 *            unsigned value
+	 * @return <code>double</code>
+	 */
+	private static double unsignedToDouble(final long value) {
+		final double result = (double) (value >>> 1) * 2d;
+		return result + (value & 1L);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [nodes=").append(ToStringUtils.toString(ring.nodes.keySet()));
+		builder.append(", points=").append(ring.points.length);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Immutable ring state.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <N>
+	 *            node type
+	 */
+	private static final class Ring<N> implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = -6946802286768015183L;
+
+		/**
+		 * Points hashes, sorted as unsigned values.
+		 */
+		private final long[] points;
+
+		/**
+		 * Points owners.
+		 */
+		private final Object[] owners;
+
+		/**
+		 * Nodes with virtual nodes amount, in addition order.
+		 */
+		private final Map<N, Integer> nodes;
+
+		/**
+		 * Nodes by their keys, for the keys collisions detection.
+		 */
+		private final Map<Long, N> keys;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aPoints
+		 *            sorted points
+		 * @param aOwners
+		 *            points owners
+		 * @param aNodes
+		 *            nodes
+		 * @param aKeys
+		 *            nodes by keys
+		 */
+		private Ring(final long[] aPoints, final Object[] aOwners, final Map<N, Integer> aNodes, final Map<Long, N> aKeys) {
+			this.points = aPoints;
+			this.owners = aOwners;
+			this.nodes = aNodes;
+			this.keys = aKeys;
+		}
+
+		/**
+		 * Get index of the first point clockwise from the hash.
+		 *
+		 * @param hash
+		 *            key hash
+		 * @return point index
+		 */
+		private int pointIndex(final long hash) {
+			// points are sorted as unsigned, flipping sign bit to use signed binary search
+			int low = 0;
+			int high = points.length - 1;
+			final long key = hash ^ Long.MIN_VALUE;
+			while (low <= high) {
+				final int middle = (low + high) >>> 1;
+				final long value = points[middle] ^ Long.MIN_VALUE;
+				if (value < key)
+					low = middle + 1;
+				else if (value > key)
+					high = middle - 1;
+				else
+					return middle;
+			}
+
+			return low == points.length ? 0 : low;
+		}
+
+		/**
+		 * Create ring with added nodes, existing points are merged with sorted points of the added nodes.
+		 *
+		 * @param added
+		 *            added nodes with virtual nodes amount
+		 * @param nodeHasher
+		 *            node hasher
+		 * @return {@link Ring}
+		 */
+		private Ring<N> add(final Map<N, Integer> added, final ToLongFunction<? super N> nodeHasher) {
+			final Map<Long, N> resultKeys = new LinkedHashMap<>(keys);
+			int addedCount = 0;
+			for (final Map.Entry<N, Integer> entry : added.entrySet()) {
+				final N node = entry.getKey();
+				final N existing = resultKeys.putIfAbsent(nodeHasher.applyAsLong(node), node);
+				checkArgument(existing == null, "node[" + node + "] key collides with node[" + existing + "] key");
+				addedCount += entry.getValue();
+			}
+
+			final long[] addedPoints = new long[addedCount];
+			final Object[] addedOwners = new Object[addedCount];
+			final Integer[] order = new Integer[addedCount];
+			int position = 0;
+			for (final Map.Entry<Long, N> entry : resultKeys.entrySet()) {
+				final Integer count = added.get(entry.getValue());
+				for (int i = 0; count != null && i < count; i++) {
+					addedPoints[position] = pointHash(entry.getKey(), i);
+					addedOwners[position] = entry.getValue();
+					order[position] = position;
+					position++;
+				}
+			}
+
+			Arrays.sort(order, (first, second) -> Long.compareUnsigned(addedPoints[first], addedPoints[second]));
+
+			final long[] resultPoints = new long[points.length + addedCount];
+			final Object[] resultOwners = new Object[resultPoints.length];
+			int i = 0;
+			int j = 0;
+			for (int k = 0; k < resultPoints.length; k++)
+				if (j >= addedCount || i < points.length && Long.compareUnsigned(points[i], addedPoints[order[j]]) <= 0) {
+					resultPoints[k] = points[i];
+					resultOwners[k] = owners[i++];
+				} else {
+					resultPoints[k] = addedPoints[order[j]];
+					resultOwners[k] = addedOwners[order[j++]];
+				}
+
+			final Map<N, Integer> resultNodes = new LinkedHashMap<>(nodes);
+			resultNodes.putAll(added);
+			return new Ring<>(resultPoints, resultOwners, resultNodes, resultKeys);
+		}
+
+		/**
+		 * Create ring without given node points.
+		 *
+		 * @param node
+		 *            removed node
+		 * @param nodeHasher
+		 *            node hasher
+		 * @return {@link Ring}
+		 */
+		private Ring<N> remove(final N node, final ToLongFunction<? super N> nodeHasher) {
+			final Object owner = ownerInstance(node);
+			final int removedCount = nodes.get(node);
+			final long[] resultPoints = new long[points.length - removedCount];
+			final Object[] resultOwners = new Object[resultPoints.length];
+			int k = 0;
+			for (int i = 0; i < points.length; i++)
+				if (owners[i] != owner) {
+					resultPoints[k] = points[i];
+					resultOwners[k++] = owners[i];
+				}
+
+			final Map<N, Integer> resultNodes = new LinkedHashMap<>(nodes);
+			resultNodes.remove(node);
+			final Map<Long, N> resultKeys = new LinkedHashMap<>(keys);
+			resultKeys.remove(nodeHasher.applyAsLong(node));
+			return new Ring<>(resultPoints, resultOwners, resultNodes, resultKeys);
+		}
+
+		/**
+		 * Get node instance stored in the ring, equal to the given node.
+		 *
+		 * @param node
+		 *            node
+		 * @return stored instance
+		 */
+		private Object ownerInstance(final N node) {
+			for (final N stored : nodes.keySet())
+				if (stored.equals(node))
+					return stored;
+
+			return node;
+		}
+
+	}
+
+	/**
+	 * Default node hasher, node key is the <code>toString()</code> hash.<br>
+	 * Identity based <code>toString()</code> is different in each process, so nodes not overriding it are rejected.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class ToStringHasher implements ToLongFunction<Object>, Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = -2205716245905537683L;
+
+		/**
+		 * Singleton instance.
+		 */
+		private static final ToStringHasher INSTANCE = new ToStringHasher();
+
+		@Override
+		public long applyAsLong(final Object node) {
+			checkArgument(!isIdentityToString(node), "node[" + node + "] toString() is identity based, configure node hasher");
+
+			return hash(node.toString());
+		}
+
+		/**
+		 * Check is <code>toString()</code> of the object inherited from {@link Object}.
+		 *
+		 * @param object
+		 *            object
+		 * @return <code>true</code> if identity based or <code>false</code>
+		 */
+		private static boolean isIdentityToString(final Object object) {
+			try {
+				return object.getClass().getMethod("toString").getDeclaringClass() == Object.class;
+			} catch (final NoSuchMethodException e) { // public toString() always exist
+				return false;
+			}
+		}
+
+		/**
+		 * Resolve singleton instance on deserialization.
+		 *
+		 * @return {@link ToStringHasher}
+		 */
+		private Object readResolve() {
+			return INSTANCE;
+		}
+
+	}
+
+}
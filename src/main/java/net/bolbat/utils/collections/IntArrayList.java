@@ -0,0 +1,293 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Growable list of primitive <code>int</code> values, values are not boxed on any operation.<br>
+ * Iteration with <code>forEach(...)</code> or by index is allocation free.
+ *
+ * @author Alexandr Bolbat
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.NotThreadSafe
+public class IntArrayList implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 2170394826619458403L;
+
+	/**
+	 * Default initial capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 10;
+
+	/**
+	 * Maximum capacity.
+	 */
+	private static final int MAXIMUM_CAPACITY = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Values.
+	 */
+	private int[] values;
+
+	/**
+	 * Values amount.
+	 */
+	private int size;
+
+	/**
+	 * Default constructor, <code>DEFAULT_CAPACITY</code> will be used as initial capacity.
+	 */
+	public IntArrayList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param capacity
+	 *            initial capacity
+	 */
+	public IntArrayList(final int capacity) {
+		checkArgument(capacity >= 0, "capacity argument is negative");
+
+		this.values = new int[capacity];
+	}
+
+	/**
+	 * Create {@link IntArrayList} with given values.
+	 *
+	 * @param aValues
+	 *            values
+	 * @return {@link IntArrayList}
+	 */
+	public static IntArrayList of(final int... aValues) {
+		checkArgument(aValues != null, "aValues argument is null");
+
+		final IntArrayList result = new IntArrayList(aValues.length);
+		result.addAll(aValues);
+		return result;
+	}
+
+	/**
+	 * Add value to the end of the list.
+	 *
+	 * @param value
+	 *            value
+	 */
+	public void add(final int value) {
+		ensureCapacity(size + 1);
+		values[size++] = value;
+	}
+
+	/**
+	 * Insert value at the given position, following values are shifted right.
+	 *
+	 * @param index
+	 *            position
+	 * @param value
+	 *            value
+	 */
+	public void add(final int index, final int value) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		ensureCapacity(size + 1);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+		size++;
+	}
+
+	/**
+	 * Add values to the end of the list.
+	 *
+	 * @param aValues
+	 *            values
+	 */
+	public void addAll(final int... aValues) {
+		checkArgument(aValues != null, "aValues argument is null");
+
+		ensureCapacity(size + aValues.length);
+		System.arraycopy(aValues, 0, values, size, aValues.length);
+		size += aValues.length;
+	}
+
+	/**
+	 * Get value.
+	 *
+	 * @param index
+	 *            position
+	 * @return value
+	 */
+	public int get(final int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * Replace value.
+	 *
+	 * @param index
+	 *            position
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 */
+	public int set(final int index, final int value) {
+		checkIndex(index);
+		final int previous = values[index];
+		values[index] = value;
+		return previous;
+	}
+
+	/**
+	 * Remove value at the given position, following values are shifted left.
+	 *
+	 * @param index
+	 *            position
+	 * @return removed value
+	 */
+	public int removeAt(final int index) {
+		checkIndex(index);
+		final int previous = values[index];
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		return previous;
+	}
+
+	/**
+	 * Get position of the first occurrence of the value.
+	 *
+	 * @param value
+	 *            value
+	 * @return position or <code>-1</code> if not exist
+	 */
+	public int indexOf(final int value) {
+		for (int i = 0; i < size; i++)
+			if (values[i] == value)
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Check is list contains given value.
+	 *
+	 * @param value
+	 *            value
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean contains(final int value) {
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * Sort values in ascending order.
+	 */
+	public void sort() {
+		Arrays.sort(values, 0, size);
+	}
+
+	/**
+	 * Remove all values, capacity is retained.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Get values amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Is this list is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get values.
+	 *
+	 * @return values array copy
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Iterate over values without allocations, list shouldn't be modified by the consumer.
+	 *
+	 * @param consumer
+	 *            values consumer
+	 */
+	public void forEach(final IntConsumer consumer) {
+		checkArgument(consumer != null, "consumer argument is null");
+
+		for (int i = 0; i < size; i++)
+			consumer.accept(values[i]);
+	}
+
+	/**
+	 * Ensure capacity for the given values amount, capacity grows by half.
+	 *
+	 * @param capacity
+	 *            required capacity
+	 */
+	public void ensureCapacity(final int capacity) {
+		if (capacity < 0 || capacity > MAXIMUM_CAPACITY)
+			throw new IllegalStateException("Maximum capacity reached");
+		if (capacity <= values.length)
+			return;
+
+		final long grown = Math.max(DEFAULT_CAPACITY, values.length + ((long) values.length >> 1));
+		values = Arrays.copyOf(values, (int) Math.min(MAXIMUM_CAPACITY, Math.max(capacity, grown)));
+	}
+
+	/**
+	 * Reduce capacity to the values amount.
+	 */
+	public void trimToSize() {
+		if (values.length != size)
+			values = Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Check index bounds.
+	 *
+	 * @param index
+	 *            position
+	 */
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [size=").append(size);
+		builder.append(", values=").append(Arrays.toString(toArray()));
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,330 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Set of primitive <code>int</code> values, values are not boxed on any operation.<br>
+ * Open addressing hash table with linear probing and backward shift deletion (no tombstones), zero value is stored separately. Iteration with
+ * <code>forEach(...)</code> is allocation free.
+ *
+ * @author Alexandr Bolbat
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.NotThreadSafe
+public class IntSet implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 6613590431877612598L;
+
+	/**
+	 * Default expected size.
+	 */
+	public static final int DEFAULT_EXPECTED_SIZE = 16;
+
+	/**
+	 * Maximum table size.
+	 */
+	private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+	/**
+	 * Values table, <code>0</code> is free slot.
+	 */
+	private int[] values;
+
+	/**
+	 * Table index mask.
+	 */
+	private int mask;
+
+	/**
+	 * Size of the table part (without zero value).
+	 */
+	private int tableSize;
+
+	/**
+	 * Is zero value present.
+	 */
+	private boolean hasZero;
+
+	/**
+	 * Default constructor, <code>DEFAULT_EXPECTED_SIZE</code> will be used as expected size.
+	 */
+	public IntSet() {
+		this(DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param expectedSize
+	 *            expected values amount
+	 */
+	public IntSet(final int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize argument is negative");
+
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Create {@link IntSet} with given values.
+	 *
+	 * @param aValues
+	 *            values
+	 * @return {@link IntSet}
+	 */
+	public static IntSet of(final int... aValues) {
+		checkArgument(aValues != null, "aValues argument is null");
+
+		final IntSet result = new IntSet(aValues.length);
+		for (final int value : aValues)
+			result.add(value);
+
+		return result;
+	}
+
+	/**
+	 * Add value.
+	 *
+	 * @param value
+	 *            value
+	 * @return <code>true</code> if added or <code>false</code> if already exist
+	 */
+	public boolean add(final int value) {
+		if (value == 0) {
+			if (hasZero)
+				return false;
+
+			hasZero = true;
+			return true;
+		}
+
+		final int index = slotOf(value);
+		if (values[index] == value)
+			return false;
+
+		if (tableSize == mask) // at least one free slot is required to terminate probing
+			throw new IllegalStateException("Maximum capacity reached");
+
+		values[index] = value;
+		if (++tableSize > (values.length >>> 1) && values.length < MAXIMUM_TABLE_SIZE)
+			resize(values.length << 1);
+
+		return true;
+	}
+
+	/**
+	 * Check is set contains given value.
+	 *
+	 * @param value
+	 *            value
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean contains(final int value) {
+		return value == 0 ? hasZero : values[slotOf(value)] == value;
+	}
+
+	/**
+	 * Remove value.
+	 *
+	 * @param value
+	 *            value
+	 * @return <code>true</code> if removed or <code>false</code> if not exist
+	 */
+	public boolean remove(final int value) {
+		if (value == 0) {
+			final boolean removed = hasZero;
+			hasZero = false;
+			return removed;
+		}
+
+		final int index = slotOf(value);
+		if (values[index] != value)
+			return false;
+
+		shiftBack(index);
+		tableSize--;
+		return true;
+	}
+
+	/**
+	 * Remove all values, table capacity is retained.
+	 */
+	public void clear() {
+		Arrays.fill(values, 0);
+		tableSize = 0;
+		hasZero = false;
+	}
+
+	/**
+	 * Get values amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return hasZero ? tableSize + 1 : tableSize;
+	}
+
+	/**
+	 * Is this set is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Get values.
+	 *
+	 * @return values array, in iteration order
+	 */
+	public int[] toArray() {
+		final int[] result = new int[size()];
+		int position = 0;
+		if (hasZero)
+			result[position++] = 0;
+		for (final int value : values)
+			if (value != 0)
+				result[position++] = value;
+
+		return result;
+	}
+
+	/**
+	 * Iterate over values without allocations, set shouldn't be modified by the consumer.
+	 *
+	 * @param consumer
+	 *            values consumer
+	 */
+	public void forEach(final IntConsumer consumer) {
+		checkArgument(consumer != null, "consumer argument is null");
+
+		if (hasZero)
+			consumer.accept(0);
+		for (final int value : values)
+			if (value != 0)
+				consumer.accept(value);
+	}
+
+	/**
+	 * Get table slot of the value, slot contains the value or it's the free slot where value should be inserted.
+	 *
+	 * @param value
+	 *            not zero value
+	 * @return slot index
+	 */
+	private int slotOf(final int value) {
+		int index = hash(value) & mask;
+		for (int current = values[index]; current != 0 && current != value; current = values[index])
+			index = (index + 1) & mask;
+
+		return index;
+	}
+
+	/**
+	 * Remove value from the table slot, following values of the probe chain are shifted back to keep the chain without gaps.
+	 *
+	 * @param removed
+	 *            removed slot index
+	 */
+	private void shiftBack(final int removed) {
+		int gap = removed;
+		int index = (removed + 1) & mask;
+		for (int current = values[index]; current != 0; current = values[index]) {
+			final int home = hash(current) & mask;
+			if (((index - home) & mask) >= ((index - gap) & mask)) { // value can be moved to the gap without passing its home slot
+				values[gap] = current;
+				gap = index;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		values[gap] = 0;
+	}
+
+	/**
+	 * Allocate empty table.
+	 *
+	 * @param size
+	 *            table size, power of two
+	 */
+	private void allocate(final int size) {
+		this.values = new int[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Resize table and rehash values.
+	 *
+	 * @param size
+	 *            new table size, power of two
+	 */
+	private void resize(final int size) {
+		final int[] oldValues = values;
+		allocate(size);
+		for (final int value : oldValues) {
+			if (value == 0)
+				continue;
+
+			int index = hash(value) & mask;
+			while (values[index] != 0)
+				index = (index + 1) & mask;
+
+			values[index] = value;
+		}
+	}
+
+	/**
+	 * Get table size for expected values amount, load factor is <code>0.5</code>.
+	 *
+	 * @param expectedSize
+	 *            expected values amount
+	 * @return table size, power of two
+	 */
+	private static int tableSizeFor(final int expectedSize) {
+		final long required = Math.max(4L, (long) expectedSize * 2L);
+		if (required > MAXIMUM_TABLE_SIZE)
+			return MAXIMUM_TABLE_SIZE;
+
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+
+	/**
+	 * Spread value bits (MurmurHash3 fmix32), so sequential values are not clustered.
+	 *
+	 * @param value
+	 *            value
+	 * @return hash
+	 */
+	private static int hash(final int value) {
+		int h = value;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [size=").append(size());
+		builder.append(", values=").append(Arrays.toString(toArray()));
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,377 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.lang.ToStringUtils;
+
+/**
+ * Least loaded elements selector, alternative to {@link CircularBuffer} when elements (backends) have different and changing performance.<br>
+ * Selection uses power of two choices: two random elements are compared and the less loaded one is selected. Element load is the amount of in-flight
+ * selections multiplied by the element latency (exponentially weighted moving average), so slow elements are getting less selections even if they are
+ * not overloaded yet.<br>
+ * Each selection returns a {@link Handle} which should be completed (or closed) when the work with the element is finished.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class LeastLoadedSelector<E> implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -1032695938546342957L;
+
+	/**
+	 * Default latency moving average smoothing factor, weight of the latest sample.
+	 */
+	public static final double DEFAULT_SMOOTHING = 0.2d;
+
+	/**
+	 * Elements list.
+	 */
+	private final List<E> elements;
+
+	/**
+	 * Latency moving average smoothing factor.
+	 */
+	private final double smoothing;
+
+	/**
+	 * Elements in-flight selections amount.
+	 */
+	private final AtomicIntegerArray inFlight;
+
+	/**
+	 * Elements latency moving average in nanoseconds, <code>0</code> if there is no samples yet.
+	 */
+	private final AtomicLongArray latency;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aElements
+	 *            elements list
+	 * @param aSmoothing
+	 *            latency moving average smoothing factor
+	 */
+	private LeastLoadedSelector(final List<E> aElements, final double aSmoothing) {
+		this.elements = aElements;
+		this.smoothing = aSmoothing;
+		this.inFlight = new AtomicIntegerArray(aElements.size());
+		this.latency = new AtomicLongArray(aElements.size());
+	}
+
+	/**
+	 * Create {@link LeastLoadedSelector} from elements.
+	 *
+	 * @param aElements
+	 *            elements
+	 * @return {@link LeastLoadedSelector}
+	 */
+	@SafeVarargs
+	public static <E> LeastLoadedSelector<E> of(final E... aElements) {
+		checkArgument(aElements != null, "aElements argument is null");
+
+		return of(Arrays.asList(aElements));
+	}
+
+	/**
+	 * Create {@link LeastLoadedSelector} from {@link Collection}.
+	 *
+	 * @param aElements
+	 *            elements
+	 * @return {@link LeastLoadedSelector}
+	 */
+	public static <E> LeastLoadedSelector<E> of(final Collection<E> aElements) {
+		return of(aElements, DEFAULT_SMOOTHING);
+	}
+
+	/**
+	 * Create {@link LeastLoadedSelector} from {@link Collection}.
+	 *
+	 * @param aElements
+	 *            elements
+	 * @param aSmoothing
+	 *            latency moving average smoothing factor, weight of the latest sample in <code>(0, 1]</code> range
+	 * @return {@link LeastLoadedSelector}
+	 */
+	public static <E> LeastLoadedSelector<E> of(final Collection<E> aElements, final double aSmoothing) {
+		checkArgument(aElements != null, "aElements argument is null");
+		checkArgument(aSmoothing > 0d && aSmoothing <= 1d, "aSmoothing argument should be in (0, 1] range");
+
+		return new LeastLoadedSelector<>(new ArrayList<>(aElements), aSmoothing);
+	}
+
+	/**
+	 * Select the less loaded element from two random elements.
+	 *
+	 * @return {@link Handle} of the selected element or <code>null</code> if elements list is empty
+	 */
+	public Handle<E> select() {
+		final int size = elements.size();
+		if (size == 0)
+			return null;
+		if (size == 1)
+			return acquire(0);
+
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if (second >= first) // distinct candidates
+			second++;
+
+		return acquire(lessLoaded(first, second));
+	}
+
+	/**
+	 * Get element by index.<br>
+	 * {@link IndexOutOfBoundsException} will be thrown if elements list is empty or index out of elements list bounds.
+	 *
+	 * @param index
+	 *            element index
+	 * @return element
+	 */
+	public E get(final int index) {
+		if (elements.isEmpty() || index < 0 || index >= elements.size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+
+		return elements.get(index);
+	}
+
+	/**
+	 * Get elements list (unmodifiable).
+	 *
+	 * @return unmodifiable elements list
+	 */
+	public List<E> getAll() {
+		return Collections.unmodifiableList(elements);
+	}
+
+	/**
+	 * Get element in-flight selections amount.
+	 *
+	 * @param index
+	 *            element index
+	 * @return <code>int</code>
+	 */
+	public int getInFlight(final int index) {
+		return inFlight.get(index);
+	}
+
+	/**
+	 * Get element latency moving average.
+	 *
+	 * @param index
+	 *            element index
+	 * @param unit
+	 *            the time unit of the result
+	 * @return latency, <code>0</code> if there is no completed selections yet
+	 */
+	public long getLatency(final int index, final TimeUnit unit) {
+		return unit.convert(latency.get(index), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Is this selector is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return elements.isEmpty();
+	}
+
+	/**
+	 * Get this selector size.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Select less loaded element from two candidates.<br>
+	 * Load is in-flight amount multiplied by latency, if any candidate has no latency samples yet candidates are compared by in-flight amount only
+	 * preferring the candidate without samples, so new elements are probed first.
+	 *
+	 * @param first
+	 *            first candidate index
+	 * @param second
+	 *            second candidate index
+	 * @return selected element index
+	 */
+	private int lessLoaded(final int first, final int second) {
+		final long firstLatency = latency.get(first);
+		final long secondLatency = latency.get(second);
+		final int firstInFlight = inFlight.get(first);
+		final int secondInFlight = inFlight.get(second);
+		if (firstLatency == 0L || secondLatency == 0L) {
+			if (firstInFlight != secondInFlight)
+				return firstInFlight < secondInFlight ? first : second;
+
+			return firstLatency == 0L ? first : second;
+		}
+
+		return (double) (firstInFlight + 1) * firstLatency <= (double) (secondInFlight + 1) * secondLatency ? first : second;
+	}
+
+	/**
+	 * Register in-flight selection.
+	 *
+	 * @param index
+	 *            selected element index
+	 * @return {@link Handle}
+	 */
+	private Handle<E> acquire(final int index) {
+		inFlight.incrementAndGet(index);
+		return new Handle<>(this, index, System.nanoTime());
+	}
+
+	/**
+	 * Complete in-flight selection.
+	 *
+	 * @param index
+	 *            selected element index
+	 * @param elapsed
+	 *            selection duration in nanoseconds
+	 */
+	private void complete(final int index, final long elapsed) {
+		inFlight.decrementAndGet(index);
+
+		final long sample = Math.max(1L, elapsed); // 0 is reserved for 'no samples'
+		for (;;) {
+			final long current = latency.get(index);
+			final long updated = current == 0L ? sample : current + (long) ((sample - current) * smoothing);
+			if (latency.compareAndSet(index, current, Math.max(1L, updated)))
+				return;
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [elements=").append(ToStringUtils.toString(elements));
+		builder.append(", inFlight=").append(inFlight);
+		builder.append(", latency=").append(latency);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Selected element handle, should be completed when the work with the element is finished.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <E>
+	 *            elements type
+	 */
+	@Concurrency.NotThreadSafe
+	public static final class Handle<E> implements AutoCloseable {
+
+		/**
+		 * Selector.
+		 */
+		private final LeastLoadedSelector<E> selector;
+
+		/**
+		 * Selected element index.
+		 */
+		private final int index;
+
+		/**
+		 * Selection time in nanoseconds.
+		 */
+		private final long startTime;
+
+		/**
+		 * Is handle completed.
+		 */
+		private boolean completed;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aSelector
+		 *            selector
+		 * @param aIndex
+		 *            selected element index
+		 * @param aStartTime
+		 *            selection time
+		 */
+		private Handle(final LeastLoadedSelector<E> aSelector, final int aIndex, final long aStartTime) {
+			this.selector = aSelector;
+			this.index = aIndex;
+			this.startTime = aStartTime;
+		}
+
+		/**
+		 * Get selected element.
+		 *
+		 * @return element
+		 */
+		public E getElement() {
+			return selector.elements.get(index);
+		}
+
+		/**
+		 * Get selected element index.
+		 *
+		 * @return <code>int</code>
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Is handle completed.
+		 *
+		 * @return <code>true</code> if completed or <code>false</code>
+		 */
+		public boolean isCompleted() {
+			return completed;
+		}
+
+		/**
+		 * Complete the selection, time since selection is recorded as element latency sample.<br>
+		 * Repeated calls are ignored.
+		 */
+		public void complete() {
+			if (completed)
+				return;
+
+			completed = true;
+			selector.complete(index, System.nanoTime() - startTime);
+		}
+
+		@Override
+		public void close() {
+			complete();
+		}
+
+		@Override
+		public String toString() {
+			return "(" + index + ", " + getElement() + ", " + completed + ")";
+		}
+
+	}
+
+}
@@ -0,0 +1,457 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Map with primitive <code>long</code> keys and values, keys and values are not boxed on any operation.<br>
+ * Open addressing hash table with linear probing and backward shift deletion (no tombstones), zero key is stored separately. Absent values are
+ * reported as the map missing value. Iteration with <code>forEach(...)</code> is allocation free.
+ *
+ * @author Alexandr Bolbat
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.NotThreadSafe
+public class LongLongMap implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -1520945728012367731L;
+
+	/**
+	 * Default expected size.
+	 */
+	public static final int DEFAULT_EXPECTED_SIZE = 16;
+
+	/**
+	 * Default missing value.
+	 */
+	public static final long DEFAULT_MISSING_VALUE = 0L;
+
+	/**
+	 * Maximum table size.
+	 */
+	private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+	/**
+	 * Value returned for absent keys.
+	 */
+	private final long missingValue;
+
+	/**
+	 * Keys table, <code>0</code> is free slot.
+	 */
+	private long[] keys;
+
+	/**
+	 * Values table.
+	 */
+	private long[] values;
+
+	/**
+	 * Table index mask.
+	 */
+	private int mask;
+
+	/**
+	 * Size of the table part (without zero key).
+	 */
+	private int tableSize;
+
+	/**
+	 * Is zero key present.
+	 */
+	private boolean hasZeroKey;
+
+	/**
+	 * Zero key value.
+	 */
+	private long zeroValue;
+
+	/**
+	 * Default constructor, <code>DEFAULT_EXPECTED_SIZE</code> and <code>DEFAULT_MISSING_VALUE</code> will be used.
+	 */
+	public LongLongMap() {
+		this(DEFAULT_EXPECTED_SIZE, DEFAULT_MISSING_VALUE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param expectedSize
+	 *            expected entries amount
+	 * @param aMissingValue
+	 *            value returned for absent keys
+	 */
+	public LongLongMap(final int expectedSize, final long aMissingValue) {
+		checkArgument(expectedSize >= 0, "expectedSize argument is negative");
+
+		this.missingValue = aMissingValue;
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Get value.
+	 *
+	 * @param key
+	 *            key
+	 * @return value or missing value if not exist
+	 */
+	public long get(final long key) {
+		return getOrDefault(key, missingValue);
+	}
+
+	/**
+	 * Get value or default value if not exist.
+	 *
+	 * @param key
+	 *            key
+	 * @param defaultValue
+	 *            default value
+	 * @return value
+	 */
+	public long getOrDefault(final long key, final long defaultValue) {
+		if (key == 0L)
+			return hasZeroKey ? zeroValue : defaultValue;
+
+		final int index = indexOf(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	/**
+	 * Check is map contains given key.
+	 *
+	 * @param key
+	 *            key
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean containsKey(final long key) {
+		return key == 0L ? hasZeroKey : indexOf(key) >= 0;
+	}
+
+	/**
+	 * Put value.
+	 *
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value
+	 * @return previous value or missing value
+	 */
+	public long put(final long key, final long value) {
+		if (key == 0L) {
+			final long previous = hasZeroKey ? zeroValue : missingValue;
+			hasZeroKey = true;
+			zeroValue = value;
+			return previous;
+		}
+
+		final int index = slotOf(key);
+		if (keys[index] == key) {
+			final long previous = values[index];
+			values[index] = value;
+			return previous;
+		}
+
+		insert(index, key, value);
+		return missingValue;
+	}
+
+	/**
+	 * Add delta to the value, absent value is treated as <code>0</code>.
+	 *
+	 * @param key
+	 *            key
+	 * @param delta
+	 *            delta
+	 * @return new value
+	 */
+	public long addTo(final long key, final long delta) {
+		if (key == 0L) {
+			zeroValue = hasZeroKey ? zeroValue + delta : delta;
+			hasZeroKey = true;
+			return zeroValue;
+		}
+
+		final int index = slotOf(key);
+		if (keys[index] == key)
+			return values[index] += delta;
+
+		insert(index, key, delta);
+		return delta;
+	}
+
+	/**
+	 * Remove value.
+	 *
+	 * @param key
+	 *            key
+	 * @return removed value or missing value
+	 */
+	public long remove(final long key) {
+		if (key == 0L) {
+			final long previous = hasZeroKey ? zeroValue : missingValue;
+			hasZeroKey = false;
+			zeroValue = 0L;
+			return previous;
+		}
+
+		final int index = indexOf(key);
+		if (index < 0)
+			return missingValue;
+
+		final long previous = values[index];
+		shiftBack(index);
+		tableSize--;
+		return previous;
+	}
+
+	/**
+	 * Remove all entries, table capacity is retained.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		tableSize = 0;
+		hasZeroKey = false;
+		zeroValue = 0L;
+	}
+
+	/**
+	 * Get entries amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return hasZeroKey ? tableSize + 1 : tableSize;
+	}
+
+	/**
+	 * Is this map is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Get value returned for absent keys.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getMissingValue() {
+		return missingValue;
+	}
+
+	/**
+	 * Get keys.
+	 *
+	 * @return keys array, in iteration order
+	 */
+	public long[] keys() {
+		final long[] result = new long[size()];
+		int position = 0;
+		if (hasZeroKey)
+			result[position++] = 0L;
+		for (final long key : keys)
+			if (key != 0L)
+				result[position++] = key;
+
+		return result;
+	}
+
+	/**
+	 * Iterate over entries without allocations, map shouldn't be modified by the consumer.
+	 *
+	 * @param consumer
+	 *            entries consumer
+	 */
+	public void forEach(final EntryConsumer consumer) {
+		checkArgument(consumer != null, "consumer argument is null");
+
+		if (hasZeroKey)
+			consumer.accept(0L, zeroValue);
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != 0L)
+				consumer.accept(keys[i], values[i]);
+	}
+
+	/**
+	 * Get table index of the key.
+	 *
+	 * @param key
+	 *            not zero key
+	 * @return index or <code>-1</code> if not exist
+	 */
+	private int indexOf(final long key) {
+		final int index = slotOf(key);
+		return keys[index] == key ? index : -1;
+	}
+
+	/**
+	 * Get table slot of the key, slot contains the key or it's the free slot where key should be inserted.
+	 *
+	 * @param key
+	 *            not zero key
+	 * @return slot index
+	 */
+	private int slotOf(final long key) {
+		int index = hash(key) & mask;
+		for (long current = keys[index]; current != 0L && current != key; current = keys[index])
+			index = (index + 1) & mask;
+
+		return index;
+	}
+
+	/**
+	 * Insert entry to the free slot.
+	 *
+	 * @param index
+	 *            free slot index
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value
+	 */
+	private void insert(final int index, final long key, final long value) {
+		if (tableSize == mask) // at least one free slot is required to terminate probing
+			throw new IllegalStateException("Maximum capacity reached");
+
+		keys[index] = key;
+		values[index] = value;
+		if (++tableSize > (keys.length >>> 1) && keys.length < MAXIMUM_TABLE_SIZE)
+			resize(keys.length << 1);
+	}
+
+	/**
+	 * Remove entry from the table slot, following entries of the probe chain are shifted back to keep the chain without gaps.
+	 *
+	 * @param removed
+	 *            removed slot index
+	 */
+	private void shiftBack(final int removed) {
+		int gap = removed;
+		int index = (removed + 1) & mask;
+		for (long current = keys[index]; current != 0L; current = keys[index]) {
+			final int home = hash(current) & mask;
+			if (((index - home) & mask) >= ((index - gap) & mask)) { // entry can be moved to the gap without passing its home slot
+				keys[gap] = current;
+				values[gap] = values[index];
+				gap = index;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		keys[gap] = 0L;
+	}
+
+	/**
+	 * Allocate empty table.
+	 *
+	 * @param size
+	 *            table size, power of two
+	 */
+	private void allocate(final int size) {
+		this.keys = new long[size];
+		this.values = new long[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Resize table and rehash entries.
+	 *
+	 * @param size
+	 *            new table size, power of two
+	 */
+	private void resize(final int size) {
+		final long[] oldKeys = keys;
+		final long[] oldValues = values;
+		allocate(size);
+		for (int i = 0; i < oldKeys.length; i++) {
+			final long key = oldKeys[i];
+			if (key == 0L)
+				continue;
+
+			int index = hash(key) & mask;
+			while (keys[index] != 0L)
+				index = (index + 1) & mask;
+
+			keys[index] = key;
+			values[index] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Get table size for expected entries amount, load factor is <code>0.5</code>.
+	 *
+	 * @param expectedSize
+	 *            expected entries amount
+	 * @return table size, power of two
+	 */
+	private static int tableSizeFor(final int expectedSize) {
+		final long required = Math.max(4L, (long) expectedSize * 2L);
+		if (required > MAXIMUM_TABLE_SIZE)
+			return MAXIMUM_TABLE_SIZE;
+
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+
+	/**
+	 * Spread key bits (MurmurHash3 fmix64), so sequential keys are not clustered.
+	 *
+	 * @param key
+	 *            key
+	 * @return hash
+	 */
+	private static int hash(final long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [size=").append(size());
+		builder.append(", entries={");
+		forEach((key, value) -> builder.append(key).append('=').append(value).append(", "));
+		if (!isEmpty())
+			builder.setLength(builder.length() - 2);
+		builder.append("}]");
+		return builder.toString();
+	}
+
+	/**
+	 * Map entries consumer.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+
+		/**
+		 * Consume entry.
+		 *
+		 * @param key
+		 *            key
+		 * @param value
+		 *            value
+		 */
+		void accept(long key, long value);
+
+	}
+
+}
@@ -0,0 +1,432 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Map with primitive <code>long</code> keys, keys are not boxed on any operation.<br>
+ * Open addressing hash table with linear probing and backward shift deletion (no tombstones), zero key is stored separately. Iteration with
+ * <code>forEach(...)</code> is allocation free.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <V>
+ *            values type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.NotThreadSafe
+public class LongObjectMap<V> implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 3147958260731283954L;
+
+	/**
+	 * Default expected size.
+	 */
+	public static final int DEFAULT_EXPECTED_SIZE = 16;
+
+	/**
+	 * Maximum table size.
+	 */
+	private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+	/**
+	 * Keys table, <code>0</code> is free slot.
+	 */
+	private long[] keys;
+
+	/**
+	 * Values table.
+	 */
+	private Object[] values;
+
+	/**
+	 * Table index mask.
+	 */
+	private int mask;
+
+	/**
+	 * Size of the table part (without zero key).
+	 */
+	private int tableSize;
+
+	/**
+	 * Is zero key present.
+	 */
+	private boolean hasZeroKey;
+
+	/**
+	 * Zero key value.
+	 */
+	private V zeroValue;
+
+	/**
+	 * Default constructor, <code>DEFAULT_EXPECTED_SIZE</code> will be used as expected size.
+	 */
+	public LongObjectMap() {
+		this(DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param expectedSize
+	 *            expected entries amount
+	 */
+	public LongObjectMap(final int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize argument is negative");
+
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Get value.
+	 *
+	 * @param key
+	 *            key
+	 * @return value or <code>null</code> if not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final long key) {
+		if (key == 0L)
+			return zeroValue;
+
+		final int index = indexOf(key);
+		return index < 0 ? null : (V) values[index];
+	}
+
+	/**
+	 * Get value or default value if not exist.
+	 *
+	 * @param key
+	 *            key
+	 * @param defaultValue
+	 *            default value
+	 * @return value
+	 */
+	public V getOrDefault(final long key, final V defaultValue) {
+		final V value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * Check is map contains given key.
+	 *
+	 * @param key
+	 *            key
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean containsKey(final long key) {
+		return key == 0L ? hasZeroKey : indexOf(key) >= 0;
+	}
+
+	/**
+	 * Put value.
+	 *
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value, can't be <code>null</code>
+	 * @return previous value or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(final long key, final V value) {
+		checkArgument(value != null, "value argument is null");
+
+		if (key == 0L) {
+			final V previous = zeroValue;
+			hasZeroKey = true;
+			zeroValue = value;
+			return previous;
+		}
+
+		int index = hash(key) & mask;
+		for (long current = keys[index]; current != 0L; current = keys[index]) {
+			if (current == key) {
+				final V previous = (V) values[index];
+				values[index] = value;
+				return previous;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		if (tableSize == mask) // at least one free slot is required to terminate probing
+			throw new IllegalStateException("Maximum capacity reached");
+
+		keys[index] = key;
+		values[index] = value;
+		if (++tableSize > (keys.length >>> 1) && keys.length < MAXIMUM_TABLE_SIZE)
+			resize(keys.length << 1);
+
+		return null;
+	}
+
+	/**
+	 * Get value or compute and put it if not exist.
+	 *
+	 * @param key
+	 *            key
+	 * @param function
+	 *            value function, <code>null</code> result is not stored
+	 * @return existing or computed value
+	 */
+	public V computeIfAbsent(final long key, final LongFunction<? extends V> function) {
+		checkArgument(function != null, "function argument is null");
+
+		V value = get(key);
+		if (value == null) {
+			value = function.apply(key);
+			if (value != null)
+				put(key, value);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Remove value.
+	 *
+	 * @param key
+	 *            key
+	 * @return removed value or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(final long key) {
+		if (key == 0L) {
+			final V previous = zeroValue;
+			hasZeroKey = false;
+			zeroValue = null;
+			return previous;
+		}
+
+		final int index = indexOf(key);
+		if (index < 0)
+			return null;
+
+		final V previous = (V) values[index];
+		shiftBack(index);
+		tableSize--;
+		return previous;
+	}
+
+	/**
+	 * Remove all entries, table capacity is retained.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(values, null);
+		tableSize = 0;
+		hasZeroKey = false;
+		zeroValue = null;
+	}
+
+	/**
+	 * Get entries amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return hasZeroKey ? tableSize + 1 : tableSize;
+	}
+
+	/**
+	 * Is this map is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Get keys.
+	 *
+	 * @return keys array, in iteration order
+	 */
+	public long[] keys() {
+		final long[] result = new long[size()];
+		int position = 0;
+		if (hasZeroKey)
+			result[position++] = 0L;
+		for (final long key : keys)
+			if (key != 0L)
+				result[position++] = key;
+
+		return result;
+	}
+
+	/**
+	 * Iterate over entries without allocations, map shouldn't be modified by the consumer.
+	 *
+	 * @param consumer
+	 *            entries consumer
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(final EntryConsumer<? super V> consumer) {
+		checkArgument(consumer != null, "consumer argument is null");
+
+		if (hasZeroKey)
+			consumer.accept(0L, zeroValue);
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != 0L)
+				consumer.accept(keys[i], (V) values[i]);
+	}
+
+	/**
+	 * Get table index of the key.
+	 *
+	 * @param key
+	 *            not zero key
+	 * @return index or <code>-1</code> if not exist
+	 */
+	private int indexOf(final long key) {
+		int index = hash(key) & mask;
+		for (long current = keys[index]; current != 0L; current = keys[index]) {
+			if (current == key)
+				return index;
+
+			index = (index + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Remove entry from the table slot, following entries of the probe chain are shifted back to keep the chain without gaps.
+	 *
+	 * @param removed
+	 *            removed slot index
+	 */
+	private void shiftBack(final int removed) {
+		int gap = removed;
+		int index = (removed + 1) & mask;
+		for (long current = keys[index]; current != 0L; current = keys[index]) {
+			final int home = hash(current) & mask;
+			if (((index - home) & mask) >= ((index - gap) & mask)) { // entry can be moved to the gap without passing its home slot
+				keys[gap] = current;
+				values[gap] = values[index];
+				gap = index;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		keys[gap] = 0L;
+		values[gap] = null;
+	}
+
+	/**
+	 * Allocate empty table.
+	 *
+	 * @param size
+	 *            table size, power of two
+	 */
+	private void allocate(final int size) {
+		this.keys = new long[size];
+		this.values = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Resize table and rehash entries.
+	 *
+	 * @param size
+	 *            new table size, power of two
+	 */
+	private void resize(final int size) {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(size);
+		for (int i = 0; i < oldKeys.length; i++) {
+			final long key = oldKeys[i];
+			if (key == 0L)
+				continue;
+
+			int index = hash(key) & mask;
+			while (keys[index] != 0L)
+				index = (index + 1) & mask;
+
+			keys[index] = key;
+			values[index] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Get table size for expected entries amount, load factor is <code>0.5</code>.
+	 *
+	 * @param expectedSize
+	 *            expected entries amount
+	 * @return table size, power of two
+	 */
+	private static int tableSizeFor(final int expectedSize) {
+		final long required = Math.max(4L, (long) expectedSize * 2L);
+		if (required > MAXIMUM_TABLE_SIZE)
+			return MAXIMUM_TABLE_SIZE;
+
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+
+	/**
+	 * Spread key bits (MurmurHash3 fmix64), so sequential keys are not clustered.
+	 *
+	 * @param key
+	 *            key
+	 * @return hash
+	 */
+	private static int hash(final long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [size=").append(size());
+		builder.append(", entries={");
+		forEach((key, value) -> builder.append(key).append('=').append(value).append(", "));
+		if (!isEmpty())
+			builder.setLength(builder.length() - 2);
+		builder.append("}]");
+		return builder.toString();
+	}
+
+	/**
+	 * Map entries consumer.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <V>
+	 *            values type
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+
+		/**
+		 * Consume entry.
+		 *
+		 * @param key
+		 *            key
+		 * @param value
+		 *            value
+		 */
+		void accept(long key, V value);
+
+	}
+
+}
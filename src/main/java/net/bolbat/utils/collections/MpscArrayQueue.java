@@ -0,0 +1,56 @@
+package net.bolbat.utils.collections;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Multiple producers single consumer bounded lock-free array queue.<br>
+ * Producers are claiming sequences with CAS and publishing elements to the claimed slots, consuming methods should be called by single consumer
+ * thread at a time.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class MpscArrayQueue<E> extends ConcurrentArrayQueue<E> {
+
+	/**
+	 * Public constructor, {@link WaitStrategy#SPIN_YIELD} is used.
+	 *
+	 * @param aCapacity
+	 *            capacity, rounded up to power of two
+	 */
+	public MpscArrayQueue(final int aCapacity) {
+		this(aCapacity, WaitStrategy.SPIN_YIELD);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aCapacity
+	 *            capacity, rounded up to power of two
+	 * @param aWaitStrategy
+	 *            wait strategy
+	 */
+	public MpscArrayQueue(final int aCapacity, final WaitStrategy aWaitStrategy) {
+		super(aCapacity, aWaitStrategy);
+	}
+
+	@Override
+	protected long claim() {
+		for (;;) {
+			final long sequence = getProducerSequence();
+			if (sequence - getConsumerSequence() >= getCapacity())
+				return -1L;
+
+			if (casProducerSequence(sequence, sequence + 1))
+				return sequence;
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.lang.ToStringUtils;
+
+/**
+ * Bounded ring buffer which overwrites the oldest element when full, for retention of the latest elements (requests, errors, samples) in constant
+ * memory.<br>
+ * Buffer supports single writer and any amount of concurrent readers without locks: <code>add(...)</code> should be called by one thread at a time
+ * (or externally synchronized), reading methods can be called from any thread. Snapshots are validated against the writer sequence, so elements
+ * overwritten during the snapshot are dropped instead of returned out of order, snapshot always contains consecutive latest elements.<br>
+ * Slots amount is capacity plus one (slot of the write in progress) rounded up to power of two, extra slots are reducing the chance of dropping
+ * elements under intensive writes.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class RingBuffer<E> implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -2385476016931728544L;
+
+	/**
+	 * Maximum capacity.
+	 */
+	public static final int MAXIMUM_CAPACITY = (1 << 30) - 1;
+
+	/**
+	 * Capacity.
+	 */
+	private final int capacity;
+
+	/**
+	 * Slots index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Slots.
+	 */
+	private final AtomicReferenceArray<E> slots;
+
+	/**
+	 * Next write sequence, also amount of written elements.
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aCapacity
+	 *            capacity, maximum amount of retained elements
+	 */
+	public RingBuffer(final int aCapacity) {
+		checkArgument(aCapacity > 0, "aCapacity argument should be greater than 0");
+		checkArgument(aCapacity <= MAXIMUM_CAPACITY, "aCapacity argument should be less or equal to " + MAXIMUM_CAPACITY);
+
+		final int slotsCount = Integer.highestOneBit(aCapacity) << 1;
+		this.capacity = aCapacity;
+		this.mask = slotsCount - 1;
+		this.slots = new AtomicReferenceArray<>(slotsCount);
+	}
+
+	/**
+	 * Add element, the oldest element is overwritten if buffer is full.<br>
+	 * Should be called by single writer thread at a time.
+	 *
+	 * @param element
+	 *            element, can't be <code>null</code>
+	 */
+	public void add(final E element) {
+		checkArgument(element != null, "element argument is null");
+
+		final long current = sequence.get();
+		slots.lazySet((int) current & mask, element);
+		sequence.lazySet(current + 1); // publishing after the element
+	}
+
+	/**
+	 * Get the latest element.
+	 *
+	 * @return element or <code>null</code> if buffer is empty
+	 */
+	public E getLast() {
+		for (;;) {
+			final long end = sequence.get();
+			if (end == 0L)
+				return null;
+
+			final E result = slots.get((int) (end - 1) & mask);
+			if (sequence.get() - mask < end) // not overwritten
+				return result;
+		}
+	}
+
+	/**
+	 * Get snapshot of the retained elements.
+	 *
+	 * @return {@link List} of elements from the oldest to the latest
+	 */
+	public List<E> snapshot() {
+		return snapshot(capacity);
+	}
+
+	/**
+	 * Get snapshot of the latest elements.
+	 *
+	 * @param limit
+	 *            maximum elements amount
+	 * @return {@link List} of elements from the oldest to the latest
+	 */
+	public List<E> snapshot(final int limit) {
+		checkArgument(limit >= 0, "limit argument is negative");
+
+		for (;;) {
+			final long end = sequence.get();
+			final long start = Math.max(0L, end - Math.min(limit, capacity));
+			if (start == end)
+				return new ArrayList<>(0);
+
+			final Object[] elements = new Object[(int) (end - start)];
+			for (long s = start; s < end; s++)
+				elements[(int) (s - start)] = slots.get((int) s & mask);
+
+			// slot of sequence 's' could be overwritten by writes of sequences starting from 's + slots count', including the not published one
+			final long valid = Math.max(start, sequence.get() - mask);
+			if (valid < end)
+				return toList(elements, (int) (valid - start));
+		}
+	}
+
+	/**
+	 * Get capacity, maximum amount of retained elements.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get amount of retained elements.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return (int) Math.min(capacity, sequence.get());
+	}
+
+	/**
+	 * Is this buffer is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return sequence.get() == 0L;
+	}
+
+	/**
+	 * Get amount of elements written since buffer creation, including overwritten.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getWrittenCount() {
+		return sequence.get();
+	}
+
+	/**
+	 * Convert elements array tail to the {@link List}.
+	 *
+	 * @param elements
+	 *            elements
+	 * @param from
+	 *            first element index
+	 * @return {@link List}
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> List<E> toList(final Object[] elements, final int from) {
+		final List<E> result = new ArrayList<>(elements.length - from);
+		for (int i = from; i < elements.length; i++)
+			result.add((E) elements[i]);
+
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [capacity=").append(capacity);
+		builder.append(", written=").append(sequence.get());
+		builder.append(", elements=").append(ToStringUtils.toString(snapshot()));
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
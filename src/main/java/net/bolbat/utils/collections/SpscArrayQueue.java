@@ -0,0 +1,66 @@
+package net.bolbat.utils.collections;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Single producer single consumer bounded lock-free array queue.<br>
+ * Producing methods should be called by single producer thread at a time, consuming methods by single consumer thread at a time.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class SpscArrayQueue<E> extends ConcurrentArrayQueue<E> {
+
+	/**
+	 * Cached consumer sequence, producer is reading actual consumer sequence only when queue looks full.
+	 */
+	private long consumerSequenceCache;
+
+	/**
+	 * Public constructor, {@link WaitStrategy#SPIN_YIELD} is used.
+	 *
+	 * @param aCapacity
+	 *            capacity, rounded up to power of two
+	 */
+	public SpscArrayQueue(final int aCapacity) {
+		this(aCapacity, WaitStrategy.SPIN_YIELD);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aCapacity
+	 *            capacity, rounded up to power of two
+	 * @param aWaitStrategy
+	 *            wait strategy
+	 */
+	public SpscArrayQueue(final int aCapacity, final WaitStrategy aWaitStrategy) {
+		super(aCapacity, aWaitStrategy);
+	}
+
+	@Override
+	protected long claim() {
+		final long sequence = getProducerSequence();
+		if (sequence - consumerSequenceCache >= getCapacity()) {
+			consumerSequenceCache = getConsumerSequence();
+			if (sequence - consumerSequenceCache >= getCapacity())
+				return -1L;
+		}
+
+		return sequence;
+	}
+
+	@Override
+	protected void publish(final long sequence, final E element) {
+		super.publish(sequence, element);
+		setProducerSequence(sequence + 1); // single producer, sequence is published after the element
+	}
+
+}
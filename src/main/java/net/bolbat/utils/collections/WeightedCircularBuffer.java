@@ -0,0 +1,392 @@
+package net.bolbat.utils.collections;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.lang.ToStringUtils;
+
+/**
+ * Weighted circular buffer implementation, each element is obtained proportionally to its weight.<br>
+ * Selection is <code>O(1)</code> and allocation free: elements are selected through the alias table (Vose's method) driven by the low-discrepancy
+ * (golden ratio) sequence over the shared counter, so selection is deterministic and elements are interleaved smoothly instead of obtaining the same
+ * element weight times in a row.<br>
+ * Elements are immutable, weights can be updated at any time, update rebuilds only the alias table which is published atomically, so concurrent
+ * selections are using either previous or new weights, never mix of them. Elements with zero weight are not selected.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <E>
+ *            elements type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class WeightedCircularBuffer<E> implements Serializable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -5279851474561263416L;
+
+	/**
+	 * Golden ratio 64 bit fraction, sequence step.
+	 */
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * 32 bit fraction scale.
+	 */
+	private static final double FRACTION_SCALE = 4294967296d;
+
+	/**
+	 * Sequence counter.
+	 */
+	private final AtomicLong counter = new AtomicLong();
+
+	/**
+	 * Elements list.
+	 */
+	private final List<E> elements;
+
+	/**
+	 * Current weights and alias table.
+	 */
+	private volatile Table table;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aElements
+	 *            elements list
+	 * @param aWeights
+	 *            elements weights
+	 */
+	private WeightedCircularBuffer(final List<E> aElements, final int[] aWeights) {
+		this.elements = aElements;
+		this.table = new Table(aWeights);
+	}
+
+	/**
+	 * Create {@link WeightedCircularBuffer} from elements and weights.
+	 *
+	 * @param aElements
+	 *            elements
+	 * @param aWeights
+	 *            elements weights, should have the same size as elements and can't be negative
+	 * @return {@link WeightedCircularBuffer}
+	 */
+	public static <E> WeightedCircularBuffer<E> of(final List<E> aElements, final int[] aWeights) {
+		checkArgument(aElements != null, "aElements argument is null");
+		checkArgument(aWeights != null, "aWeights argument is null");
+		checkArgument(aElements.size() == aWeights.length, "aWeights argument size should be the same as aElements size");
+		for (final int weight : aWeights)
+			checkArgument(weight >= 0, "aWeights argument contains negative weight");
+
+		return new WeightedCircularBuffer<>(new ArrayList<>(aElements), aWeights.clone());
+	}
+
+	/**
+	 * Create {@link WeightedCircularBuffer} from elements and weights {@link Map}, elements order is defined by the map iteration order.
+	 *
+	 * @param aWeights
+	 *            elements weights, can't contain <code>null</code> or negative weights
+	 * @return {@link WeightedCircularBuffer}
+	 */
+	public static <E> WeightedCircularBuffer<E> of(final Map<E, Integer> aWeights) {
+		checkArgument(aWeights != null, "aWeights argument is null");
+
+		final List<E> aElements = new ArrayList<>(aWeights.size());
+		final int[] weights = new int[aWeights.size()];
+		for (final Map.Entry<E, Integer> entry : aWeights.entrySet()) {
+			checkArgument(entry.getValue() != null && entry.getValue() >= 0, "aWeights argument contains null or negative weight");
+
+			weights[aElements.size()] = entry.getValue();
+			aElements.add(entry.getKey());
+		}
+
+		return new WeightedCircularBuffer<>(aElements, weights);
+	}
+
+	/**
+	 * Get next element.
+	 *
+	 * @return next element or <code>null</code> if element is <code>null</code>, elements array is empty or all weights are zero
+	 */
+	public E get() {
+		final Table current = table;
+		if (current.totalWeight == 0L)
+			return null;
+
+		final long fraction = (counter.getAndIncrement() * GOLDEN_RATIO) >>> 32; // next sequence value as 32 bit fraction
+		final long scaled = fraction * current.thresholds.length;
+		final int column = (int) (scaled >>> 32);
+		return elements.get((scaled & 0xFFFFFFFFL) < current.thresholds[column] ? column : current.aliases[column]);
+	}
+
+	/**
+	 * Get element by index.<br>
+	 * {@link IndexOutOfBoundsException} will be thrown if elements list is empty or index out of elements list bounds.
+	 *
+	 * @param index
+	 *            element index
+	 * @return element
+	 */
+	public E get(final int index) {
+		if (elements.isEmpty() || index < 0 || index >= elements.size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+
+		return elements.get(index);
+	}
+
+	/**
+	 * Get elements list (unmodifiable).
+	 *
+	 * @return unmodifiable elements list
+	 */
+	public List<E> getAll() {
+		return Collections.unmodifiableList(elements);
+	}
+
+	/**
+	 * Get element weight by element index.
+	 *
+	 * @param index
+	 *            element index
+	 * @return element weight
+	 */
+	public int getWeight(final int index) {
+		if (index < 0 || index >= elements.size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+
+		return table.weights[index];
+	}
+
+	/**
+	 * Get elements weights.
+	 *
+	 * @return weights copy, in elements order
+	 */
+	public int[] getWeights() {
+		return table.weights.clone();
+	}
+
+	/**
+	 * Get total weight.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getTotalWeight() {
+		return table.totalWeight;
+	}
+
+	/**
+	 * Update element weight by element index.
+	 *
+	 * @param index
+	 *            element index
+	 * @param weight
+	 *            new weight, can't be negative
+	 */
+	public synchronized void setWeightAt(final int index, final int weight) {
+		if (index < 0 || index >= elements.size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+		checkArgument(weight >= 0, "weight argument is negative");
+
+		final int[] weights = table.weights.clone();
+		weights[index] = weight;
+		table = new Table(weights);
+	}
+
+	/**
+	 * Update weight of the given element (all occurrences in the buffer).
+	 *
+	 * @param element
+	 *            element
+	 * @param weight
+	 *            new weight, can't be negative
+	 * @return <code>true</code> if buffer contains element or <code>false</code>
+	 */
+	public boolean setWeight(final E element, final int weight) {
+		return setWeights(Collections.singletonMap(element, weight));
+	}
+
+	/**
+	 * Update weights of the given elements (all occurrences in the buffer) atomically.
+	 *
+	 * @param aWeights
+	 *            elements weights, can't contain <code>null</code> or negative weights
+	 * @return <code>true</code> if buffer contains at least one of the elements or <code>false</code>
+	 */
+	public synchronized boolean setWeights(final Map<E, Integer> aWeights) {
+		checkArgument(aWeights != null, "aWeights argument is null");
+		for (final Integer weight : aWeights.values())
+			checkArgument(weight != null && weight >= 0, "aWeights argument contains null or negative weight");
+
+		final int[] weights = table.weights.clone();
+		boolean found = false;
+		for (int i = 0; i < weights.length; i++) {
+			final E element = elements.get(i);
+			if (!aWeights.containsKey(element))
+				continue;
+
+			weights[i] = aWeights.get(element);
+			found = true;
+		}
+
+		if (found)
+			table = new Table(weights);
+
+		return found;
+	}
+
+	/**
+	 * Is this buffer is empty.
+	 *
+	 * @return <code>true</code> if empty or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return elements.isEmpty();
+	}
+
+	/**
+	 * Get this buffer size.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Check is this buffer contains given element.
+	 *
+	 * @param element
+	 *            element
+	 * @return <code>true</code> if contains or <code>false</code>
+	 */
+	public boolean contains(final E element) {
+		return !elements.isEmpty() && elements.contains(element);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [elements=").append(ToStringUtils.toString(elements));
+		builder.append(", weights=").append(Arrays.toString(table.weights));
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Immutable weights and alias table.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class Table implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 1841287519434081653L;
+
+		/**
+		 * Elements weights.
+		 */
+		private final int[] weights;
+
+		/**
+		 * Total weight.
+		 */
+		private final long totalWeight;
+
+		/**
+		 * Column own element probabilities as 32 bit fractions.
+		 */
+		private final long[] thresholds;
+
+		/**
+		 * Column alias elements indexes.
+		 */
+		private final int[] aliases;
+
+		/**
+		 * Default constructor, builds alias table with Vose's method.
+		 *
+		 * @param aWeights
+		 *            elements weights
+		 */
+		private Table(final int[] aWeights) {
+			final int size = aWeights.length;
+			this.weights = aWeights;
+			this.thresholds = new long[size];
+			this.aliases = new int[size];
+
+			long total = 0L;
+			for (final int weight : aWeights)
+				total += weight;
+
+			this.totalWeight = total;
+			if (total == 0L)
+				return;
+
+			// column capacity is total weight, element share is weight * size
+			final long[] shares = new long[size];
+			final int[] small = new int[size];
+			final int[] large = new int[size];
+			int smallCount = 0;
+			int largeCount = 0;
+			for (int i = 0; i < size; i++) {
+				shares[i] = (long) aWeights[i] * size;
+				aliases[i] = i;
+				if (shares[i] < total)
+					small[smallCount++] = i;
+				else
+					large[largeCount++] = i;
+			}
+
+			while (smallCount > 0 && largeCount > 0) {
+				final int less = small[--smallCount];
+				final int more = large[--largeCount];
+				thresholds[less] = fraction(shares[less], total);
+				aliases[less] = more;
+
+				shares[more] -= total - shares[less];
+				if (shares[more] < total)
+					small[smallCount++] = more;
+				else
+					large[largeCount++] = more;
+			}
+
+			// remaining columns are fully owned, including rounding leftovers
+			while (largeCount > 0)
+				thresholds[large[--largeCount]] = 1L << 32;
+			while (smallCount > 0)
+				thresholds[small[--smallCount]] = 1L << 32;
+		}
+
+		/**
+		 * Convert share of the column capacity to 32 bit fraction.
+		 *
+		 * @param share
+		 *            share
+		 * @param capacity
+		 *            column capacity
+		 * @return <code>long</code>
+		 */
+		private static long fraction(final long share, final long capacity) {
+			return (long) ((double) share / capacity * FRACTION_SCALE);
+		}
+
+	}
+
+}
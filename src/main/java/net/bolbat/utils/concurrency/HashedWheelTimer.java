@@ -0,0 +1,419 @@
+package net.bolbat.utils.concurrency;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Hashed wheel timer.<br>
+ * Approximated timer for big amount of short timeouts which are cancelled in most cases (leases, request timeouts): scheduling and cancellation are
+ * <code>O(1)</code> and do not require any monitors, all timeouts are served by the single daemon worker thread which started lazily on the first
+ * scheduling.<br>
+ * Timeouts are expired not earlier than requested and not later than one tick after, so tasks should be short and must not block the worker thread.<br>
+ * Task failures (including errors) are logged and are not affecting other timeouts, only fatal {@link VirtualMachineError} stops the worker thread
+ * and the timer.
+ *
+ * @author Alexandr Bolbat
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class HashedWheelTimer implements AutoCloseable {
+
+	/**
+	 * {@link Logger} instance.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+	/**
+	 * Default tick duration in milliseconds.
+	 */
+	public static final long DEFAULT_TICK_DURATION = 10L;
+
+	/**
+	 * Default wheel size (ticks per wheel round).
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/**
+	 * Maximum wheel size.
+	 */
+	public static final int MAXIMUM_WHEEL_SIZE = 1 << 30;
+
+	/**
+	 * Initial state.
+	 */
+	private static final int STATE_INIT = 0;
+
+	/**
+	 * Started state.
+	 */
+	private static final int STATE_STARTED = 1;
+
+	/**
+	 * Stopped state.
+	 */
+	private static final int STATE_STOPPED = 2;
+
+	/**
+	 * Tick duration in nanoseconds.
+	 */
+	private final long tickDuration;
+
+	/**
+	 * Wheel buckets, accessed only by the worker thread.
+	 */
+	private final List<List<Timeout>> wheel;
+
+	/**
+	 * Wheel bucket index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Timeouts scheduled but not transferred to the wheel yet.
+	 */
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Timer state.
+	 */
+	private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+	/**
+	 * Worker thread.
+	 */
+	private final Thread worker;
+
+	/**
+	 * Worker start time in nanoseconds, <code>0</code> if not started yet.
+	 */
+	private volatile long startTime;
+
+	/**
+	 * Default constructor, <code>DEFAULT_TICK_DURATION</code> milliseconds tick and <code>DEFAULT_WHEEL_SIZE</code> wheel will be used.
+	 */
+	public HashedWheelTimer() {
+		this(DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aTickDuration
+	 *            tick duration
+	 * @param aUnit
+	 *            the time unit of the tick duration argument
+	 * @param aWheelSize
+	 *            wheel size, will be rounded up to the nearest power of two
+	 */
+	public HashedWheelTimer(final long aTickDuration, final TimeUnit aUnit, final int aWheelSize) {
+		checkArgument(aTickDuration > 0, "aTickDuration argument should be greater than 0");
+		checkArgument(aUnit != null, "aUnit argument is null");
+		checkArgument(aWheelSize > 0, "aWheelSize argument should be greater than 0");
+		checkArgument(aWheelSize <= MAXIMUM_WHEEL_SIZE, "aWheelSize argument should not be greater than " + MAXIMUM_WHEEL_SIZE);
+
+		final int size = aWheelSize == 1 ? 1 : Integer.highestOneBit(aWheelSize - 1) << 1;
+		this.tickDuration = aUnit.toNanos(aTickDuration);
+		this.wheel = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			wheel.add(new ArrayList<Timeout>());
+
+		this.mask = size - 1;
+
+		final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("bb-utils-hashed-wheel-timer-%d").setDaemon(true).build();
+		this.worker = threadFactory.newThread(this::work);
+	}
+
+	/**
+	 * Schedule task execution after the given delay.
+	 *
+	 * @param task
+	 *            task, can't be <code>null</code>
+	 * @param delay
+	 *            delay before the task execution
+	 * @param unit
+	 *            the time unit of the delay argument
+	 * @return {@link Timeout}
+	 */
+	public Timeout newTimeout(final Runnable task, final long delay, final TimeUnit unit) {
+		checkArgument(task != null, "task argument is null");
+		checkArgument(unit != null, "unit argument is null");
+
+		start();
+		final Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0L, unit.toNanos(delay)) - startTime);
+		pending.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stop the timer, not expired timeouts are discarded.
+	 */
+	public void stop() {
+		if (state.getAndSet(STATE_STOPPED) != STATE_STARTED)
+			return;
+
+		worker.interrupt();
+		if (Thread.currentThread() == worker)
+			return;
+
+		boolean interrupted = false;
+		while (worker.isAlive())
+			try {
+				worker.join(100L);
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * Start the worker thread if not started yet.
+	 */
+	private void start() {
+		final int current = state.get();
+		if (current == STATE_STOPPED)
+			throw new IllegalStateException("Timer is stopped");
+
+		if (current == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+			final long now = System.nanoTime();
+			startTime = now == 0L ? 1L : now; // 0 is reserved for 'not started'
+			worker.start();
+			return;
+		}
+
+		while (startTime == 0L) // started by other thread
+			Thread.yield();
+	}
+
+	/**
+	 * Worker thread loop.
+	 */
+	private void work() {
+		try {
+			long tick = 0L;
+			while (state.get() == STATE_STARTED) {
+				final long deadline = waitForTick(tick);
+				if (deadline < 0L)
+					break;
+
+				transferPending(tick);
+				expire(wheel.get((int) (tick & mask)), deadline);
+				tick++;
+			}
+		} finally { // stopped or died on fatal error, new timeouts are not accepted
+			state.set(STATE_STOPPED);
+			pending.clear();
+			for (final List<Timeout> bucket : wheel)
+				bucket.clear();
+		}
+	}
+
+	/**
+	 * Wait for the tick end.
+	 *
+	 * @param tick
+	 *            current tick
+	 * @return current time relative to the start time or <code>-1</code> if timer stopped
+	 */
+	private long waitForTick(final long tick) {
+		final long deadline = tickDuration * (tick + 1);
+		for (;;) {
+			final long current = System.nanoTime() - startTime;
+			final long sleep = deadline - current;
+			if (sleep <= 0L)
+				return current;
+
+			try {
+				TimeUnit.NANOSECONDS.sleep(sleep);
+			} catch (final InterruptedException e) {
+				if (state.get() == STATE_STOPPED)
+					return -1L;
+			}
+		}
+	}
+
+	/**
+	 * Transfer pending timeouts to the wheel buckets.
+	 *
+	 * @param tick
+	 *            current tick
+	 */
+	private void transferPending(final long tick) {
+		for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+			if (timeout.isCancelled())
+				continue;
+
+			final long ticks = Math.max(timeout.deadline / tickDuration, tick); // already expired timeouts are placed to the current bucket
+			timeout.remainingRounds = (ticks - tick) / wheel.size();
+			wheel.get((int) (ticks & mask)).add(timeout);
+		}
+	}
+
+	/**
+	 * Expire bucket timeouts with the deadline before the given time, cancelled timeouts are removed.
+	 *
+	 * @param bucket
+	 *            wheel bucket
+	 * @param deadline
+	 *            current time relative to the start time
+	 */
+	private static void expire(final List<Timeout> bucket, final long deadline) {
+		int retained = 0;
+		for (int i = 0; i < bucket.size(); i++) {
+			final Timeout timeout = bucket.get(i);
+			if (timeout.isCancelled())
+				continue;
+
+			if (timeout.remainingRounds <= 0L && timeout.deadline <= deadline) {
+				timeout.expire();
+				continue;
+			}
+
+			if (timeout.remainingRounds > 0L)
+				timeout.remainingRounds--;
+
+			bucket.set(retained++, timeout);
+		}
+
+		bucket.subList(retained, bucket.size()).clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [tickDuration=").append(TimeUnit.NANOSECONDS.toMillis(tickDuration)).append("ms");
+		builder.append(", wheelSize=").append(wheel.size());
+		builder.append(", state=").append(state.get());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Scheduled timeout.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public static final class Timeout {
+
+		/**
+		 * Timeout state updater.
+		 */
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+		/**
+		 * Waiting state.
+		 */
+		private static final int STATE_WAITING = 0;
+
+		/**
+		 * Cancelled state.
+		 */
+		private static final int STATE_CANCELLED = 1;
+
+		/**
+		 * Expired state.
+		 */
+		private static final int STATE_EXPIRED = 2;
+
+		/**
+		 * Task.
+		 */
+		private final Runnable task;
+
+		/**
+		 * Deadline relative to the timer start time, in nanoseconds.
+		 */
+		private final long deadline;
+
+		/**
+		 * Remaining wheel rounds, accessed only by the worker thread.
+		 */
+		private long remainingRounds;
+
+		/**
+		 * Timeout state, updated only through <code>STATE</code>.
+		 */
+		private volatile int state;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aTask
+		 *            task
+		 * @param aDeadline
+		 *            deadline relative to the timer start time
+		 */
+		private Timeout(final Runnable aTask, final long aDeadline) {
+			this.task = aTask;
+			this.deadline = aDeadline;
+		}
+
+		/**
+		 * Cancel the timeout.
+		 *
+		 * @return <code>true</code> if cancelled by this call or <code>false</code> if timeout is already expired or cancelled
+		 */
+		public boolean cancel() {
+			return STATE.compareAndSet(this, STATE_WAITING, STATE_CANCELLED);
+		}
+
+		/**
+		 * Is timeout cancelled.
+		 *
+		 * @return <code>true</code> if cancelled or <code>false</code>
+		 */
+		public boolean isCancelled() {
+			return state == STATE_CANCELLED;
+		}
+
+		/**
+		 * Is timeout expired (task executed or executing).
+		 *
+		 * @return <code>true</code> if expired or <code>false</code>
+		 */
+		public boolean isExpired() {
+			return state == STATE_EXPIRED;
+		}
+
+		/**
+		 * Execute the task if timeout is not cancelled.
+		 */
+		private void expire() {
+			if (!STATE.compareAndSet(this, STATE_WAITING, STATE_EXPIRED))
+				return;
+
+			try {
+				task.run();
+			} catch (final VirtualMachineError e) { // JVM can't continue reliably, worker and timer are stopped
+				LOGGER.error("Timeout task[" + task + "] failed with fatal error, timer is stopped", e);
+				throw e;
+			} catch (final Throwable e) { // worker thread is kept alive for other timeouts
+				LOGGER.warn("Timeout task[" + task + "] failed", e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,301 @@
+package net.bolbat.utils.concurrency;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Keyed serial executor.<br>
+ * Tasks with the same key are executed one by one in submission order, tasks with different keys are executed in parallel on the shared {@link Executor}.
+ * This is non-blocking alternative for the id based locking when tasks only should be ordered per key.<br>
+ * Amount of keys processed at the same time is bounded, each key processes not more than batch size tasks before giving the way to the other keys.<br>
+ * Key queue is removed as soon as it become empty, in the same way as id based locks managers remove locks without references.<br>
+ * Task failures are logged and are not affecting following tasks.<br>
+ * Accepted task is never dropped or executed twice: if shared executor rejects key queue dispatching, rejection is logged, tasks stay queued and
+ * key queue is dispatched again by the next submission or by the next finished key batch, so submitter is not failed (and doesn't resubmit) due
+ * to the shared executor saturation, but tasks are not executed while executor keeps rejecting.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <K>
+ *            key type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class KeyedSerialExecutor<K> {
+
+	/**
+	 * {@link Logger} instance.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+	/**
+	 * Default maximum tasks amount processed for the key before giving the way to the other keys.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/**
+	 * Shared executor.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Maximum amount of keys processed at the same time.
+	 */
+	private final int maxActiveKeys;
+
+	/**
+	 * Maximum tasks amount processed for the key before giving the way to the other keys.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Keys queues, contains only keys with pending or running tasks.
+	 */
+	private final ConcurrentMap<K, KeyQueue<K>> queues = new ConcurrentHashMap<>();
+
+	/**
+	 * Keys queues ready for processing.
+	 */
+	private final Queue<KeyQueue<K>> ready = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Amount of keys processed at this moment.
+	 */
+	private final AtomicInteger activeKeys = new AtomicInteger();
+
+	/**
+	 * Public constructor, amount of keys processed at the same time is not bounded.
+	 *
+	 * @param aExecutor
+	 *            shared executor
+	 */
+	public KeyedSerialExecutor(final Executor aExecutor) {
+		this(aExecutor, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aExecutor
+	 *            shared executor
+	 * @param aMaxActiveKeys
+	 *            maximum amount of keys processed at the same time
+	 */
+	public KeyedSerialExecutor(final Executor aExecutor, final int aMaxActiveKeys) {
+		this(aExecutor, aMaxActiveKeys, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aExecutor
+	 *            shared executor
+	 * @param aMaxActiveKeys
+	 *            maximum amount of keys processed at the same time
+	 * @param aBatchSize
+	 *            maximum tasks amount processed for the key before giving the way to the other keys
+	 */
+	public KeyedSerialExecutor(final Executor aExecutor, final int aMaxActiveKeys, final int aBatchSize) {
+		checkArgument(aExecutor != null, "aExecutor argument is null");
+		checkArgument(aMaxActiveKeys > 0, "aMaxActiveKeys argument should be greater than 0");
+		checkArgument(aBatchSize > 0, "aBatchSize argument should be greater than 0");
+
+		this.executor = aExecutor;
+		this.maxActiveKeys = aMaxActiveKeys;
+		this.batchSize = aBatchSize;
+	}
+
+	/**
+	 * Execute task after all previously submitted tasks with the same key.<br>
+	 * Task is accepted even if shared executor rejects dispatching, check class description for details.
+	 *
+	 * @param key
+	 *            task key, can't be <code>null</code>
+	 * @param task
+	 *            task, can't be <code>null</code>
+	 */
+	public void execute(final K key, final Runnable task) {
+		checkArgument(key != null, "key argument is null");
+		checkArgument(task != null, "task argument is null");
+
+		final KeyQueue<K> queue = queues.compute(key, (k, current) -> {
+			final KeyQueue<K> result = current != null ? current : new KeyQueue<>(k);
+			result.tasks.add(task);
+			return result;
+		});
+
+		if (queue.markScheduled()) {
+			ready.add(queue);
+			dispatch();
+		}
+	}
+
+	/**
+	 * Get keys with pending or running tasks.
+	 *
+	 * @return {@link List} of <K>
+	 */
+	public List<K> getKeys() {
+		return new ArrayList<>(queues.keySet());
+	}
+
+	/**
+	 * Get amount of keys with pending or running tasks.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getKeysCount() {
+		return queues.size();
+	}
+
+	/**
+	 * Get amount of keys processed at this moment.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getActiveKeysCount() {
+		return activeKeys.get();
+	}
+
+	/**
+	 * Dispatch ready keys queues to the shared executor while active keys limit allows.<br>
+	 * Rejected key queue is returned to the ready queues and dispatching is stopped until the next submission or finished key batch.
+	 */
+	private void dispatch() {
+		for (;;) {
+			final int active = activeKeys.get();
+			if (active >= maxActiveKeys || ready.isEmpty())
+				return;
+			if (!activeKeys.compareAndSet(active, active + 1))
+				continue;
+
+			final KeyQueue<K> queue = ready.poll();
+			if (queue == null) { // taken by other thread
+				activeKeys.decrementAndGet();
+				continue;
+			}
+
+			try {
+				executor.execute(() -> drain(queue));
+			} catch (final RejectedExecutionException e) { // tasks stay queued, not thrown to the submitter which could resubmit them
+				activeKeys.decrementAndGet();
+				ready.add(queue);
+				LOGGER.warn("Key[" + queue.key + "] tasks dispatching rejected, will be retried", e);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Execute key queue tasks.
+	 *
+	 * @param queue
+	 *            key queue
+	 */
+	private void drain(final KeyQueue<K> queue) {
+		try {
+			for (int i = 0; i < batchSize; i++) {
+				final Runnable task = queue.tasks.poll();
+				if (task == null)
+					break;
+
+				try {
+					task.run();
+				} catch (final RuntimeException e) {
+					LOGGER.warn("Task for key[" + queue.key + "] failed", e);
+				}
+			}
+		} finally {
+			// removing key queue if there is no more tasks, atomically with possible tasks submission
+			final KeyQueue<K> remaining = queues.computeIfPresent(queue.key, (k, current) -> current.tasks.isEmpty() ? null : current);
+
+			activeKeys.decrementAndGet();
+			if (remaining != null)
+				ready.add(remaining);
+
+			dispatch();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [keys=").append(queues.size());
+		builder.append(", activeKeys=").append(activeKeys.get());
+		builder.append(", maxActiveKeys=").append(maxActiveKeys);
+		builder.append(", batchSize=").append(batchSize);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Key tasks queue.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <K>
+	 *            key type
+	 */
+	private static final class KeyQueue<K> {
+
+		/**
+		 * Scheduled flag updater.
+		 */
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<KeyQueue> SCHEDULED = AtomicIntegerFieldUpdater.newUpdater(KeyQueue.class, "scheduled");
+
+		/**
+		 * Key.
+		 */
+		private final K key;
+
+		/**
+		 * Pending tasks.
+		 */
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * Scheduled flag, set once by the first submitter, queue stays scheduled until it removed.
+		 */
+		private volatile int scheduled;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aKey
+		 *            key
+		 */
+		private KeyQueue(final K aKey) {
+			this.key = aKey;
+		}
+
+		/**
+		 * Mark queue as scheduled.
+		 *
+		 * @return <code>true</code> if queue was marked by this call or <code>false</code> if it was already scheduled
+		 */
+		private boolean markScheduled() {
+			return scheduled == 0 && SCHEDULED.compareAndSet(this, 0, 1);
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+package net.bolbat.utils.concurrency;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Single flight (request coalescing) utility.<br>
+ * Concurrent calls with the same key are sharing one in-flight computation: the first caller executes the loader, all other callers are waiting for it
+ * and receive the same result or exception, without repeating the computation.<br>
+ * Flight is removed as soon as computation finished, so following calls are starting the new computation, in the same way as id based locks managers
+ * remove locks without references.<br>
+ * Loader shouldn't call this utility with the same key recursively, it will wait for itself forever.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class SingleFlight<K, V> {
+
+	/**
+	 * In-flight computations.
+	 */
+	private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+	/**
+	 * Execute loader or join the computation already in-flight for the same key.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @param loader
+	 *            loader, can't be <code>null</code>, executed only if there is no in-flight computation for the key
+	 * @return computed value, can be <code>null</code> if loader returned <code>null</code>
+	 * @throws Exception
+	 *             loader exception, the same for all callers joined the computation, or {@link InterruptedException} if current thread interrupted while
+	 *             waiting
+	 */
+	public V execute(final K key, final Callable<? extends V> loader) throws Exception {
+		checkArgument(key != null, "key argument is null");
+		checkArgument(loader != null, "loader argument is null");
+
+		for (;;) {
+			final Flight<V> current = flights.get(key);
+			if (current == null) {
+				final Flight<V> flight = new Flight<>();
+				if (flights.putIfAbsent(key, flight) == null)
+					return run(key, flight, loader);
+
+				continue;
+			}
+
+			if (current.tryIncreaseCallers())
+				return await(current);
+
+			flights.remove(key, current); // finished flight, retry with new one
+		}
+	}
+
+	/**
+	 * Get keys with in-flight computations.
+	 *
+	 * @return {@link List} of <K>
+	 */
+	public List<K> getKeys() {
+		return new ArrayList<>(flights.keySet());
+	}
+
+	/**
+	 * Get in-flight computations count.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getKeysCount() {
+		return flights.size();
+	}
+
+	/**
+	 * Get amount of callers sharing in-flight computation for the given key.
+	 *
+	 * @param key
+	 *            key, can't be <code>null</code>
+	 * @return <code>int</code>, <code>0</code> if there is no in-flight computation
+	 */
+	public int getCallersCount(final K key) {
+		checkArgument(key != null, "key argument is null");
+
+		final Flight<V> flight = flights.get(key);
+		return flight != null ? Math.max(0, flight.callers) : 0;
+	}
+
+	/**
+	 * Execute loader as flight owner and publish result to all joined callers.
+	 *
+	 * @param key
+	 *            key
+	 * @param flight
+	 *            owned flight
+	 * @param loader
+	 *            loader
+	 * @return computed value
+	 * @throws Exception
+	 *             loader exception
+	 */
+	private V run(final K key, final Flight<V> flight, final Callable<? extends V> loader) throws Exception {
+		V value = null;
+		Throwable failure = null;
+		try {
+			value = loader.call();
+			return value;
+		} catch (final Exception | Error e) {
+			failure = e;
+			throw e;
+		} finally {
+			// retiring flight before publishing the result, so late callers are starting the new computation
+			flight.retire();
+			flights.remove(key, flight);
+			if (failure != null)
+				flight.future.completeExceptionally(failure);
+			else
+				flight.future.complete(value);
+		}
+	}
+
+	/**
+	 * Wait for the in-flight computation result.
+	 *
+	 * @param flight
+	 *            joined flight
+	 * @return computed value
+	 * @throws Exception
+	 *             loader exception
+	 */
+	private static <V> V await(final Flight<V> flight) throws Exception {
+		try {
+			return flight.future.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+
+			throw e;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [flights=").append(flights.size());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * In-flight computation.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <V>
+	 *            value type
+	 */
+	private static final class Flight<V> {
+
+		/**
+		 * Callers count updater.
+		 */
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<Flight> CALLERS = AtomicIntegerFieldUpdater.newUpdater(Flight.class, "callers");
+
+		/**
+		 * Computation result.
+		 */
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+
+		/**
+		 * Callers count, including owner, or <code>-1</code> if flight is finished.
+		 */
+		private volatile int callers = 1;
+
+		/**
+		 * Join the flight if it's not finished yet.
+		 *
+		 * @return <code>true</code> if joined or <code>false</code> if flight is finished
+		 */
+		private boolean tryIncreaseCallers() {
+			for (;;) {
+				final int current = callers;
+				if (current < 0)
+					return false;
+				if (CALLERS.compareAndSet(this, current, current + 1))
+					return true;
+			}
+		}
+
+		/**
+		 * Mark flight as finished, following joins will fail.
+		 */
+		private void retire() {
+			callers = -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Id based lock granted by {@link AsyncIdBasedLockManager}.<br>
+ * Lock is not owned by any thread, it can be released from any thread (for example from the other stage of the asynchronous pipeline). Lock is not
+ * reentrant.
+ * 
+ * @author Alexandr Bolbat
+ * 
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class AsyncIdBasedLock<T> implements AutoCloseable {
+
+	/**
+	 * Released flag updater.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<AsyncIdBasedLock> RELEASED = AtomicIntegerFieldUpdater.newUpdater(AsyncIdBasedLock.class, "released");
+
+	/**
+	 * Lock manager.
+	 */
+	private final AsyncIdBasedLockManager<T> manager;
+
+	/**
+	 * Lock id.
+	 */
+	private final T id;
+
+	/**
+	 * Released flag, updated only through <code>RELEASED</code>.
+	 */
+	private volatile int released;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param aId
+	 *            lock id
+	 * @param aManager
+	 *            lock manager
+	 */
+	AsyncIdBasedLock(final T aId, final AsyncIdBasedLockManager<T> aManager) {
+		this.manager = aManager;
+		this.id = aId;
+	}
+
+	/**
+	 * Release the lock and pass it to the next waiter, if any.<br>
+	 * Repeated calls are ignored.
+	 * 
+	 * @return <code>true</code> if lock was released by this call or <code>false</code> if it was already released
+	 */
+	public boolean unlock() {
+		if (!RELEASED.compareAndSet(this, 0, 1))
+			return false;
+
+		manager.releaseLock(this);
+		return true;
+	}
+
+	/**
+	 * Is lock released.
+	 * 
+	 * @return <code>true</code> if released or <code>false</code>
+	 */
+	public boolean isReleased() {
+		return released != 0;
+	}
+
+	/**
+	 * Get lock id.
+	 * 
+	 * @return <T>
+	 */
+	protected T getId() {
+		return id;
+	}
+
+	@Override
+	public void close() {
+		unlock();
+	}
+
+	@Override
+	public String toString() {
+		return "(" + id + ", " + (released != 0 ? "released" : "locked") + ")";
+	}
+
+}
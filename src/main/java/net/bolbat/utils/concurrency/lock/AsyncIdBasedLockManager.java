@@ -0,0 +1,156 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Asynchronous id based locks manager.<br>
+ * Lock is granted through {@link CompletableFuture}, so no thread is blocked while waiting for the lock. Each id keeps a FIFO queue of waiters and lock is
+ * passed to the next waiter when it released, waiters with already completed (cancelled) futures are skipped.<br>
+ * Waiters state for id is removed as soon as lock is released and there is no more waiters, in the same way as {@link IdBasedLockManager} removes locks
+ * without references.<br>
+ * Granting future is completed in the thread which released the lock (or in the requesting thread if lock is free), so dependent stages should be
+ * asynchronous if they are expensive or release the lock synchronously for long waiters chains.
+ * 
+ * @author Alexandr Bolbat
+ * 
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class AsyncIdBasedLockManager<T> {
+
+	/**
+	 * Waiters storage, contains only currently locked id's.
+	 */
+	private final ConcurrentMap<T, Waiters<T>> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Get locked id's.
+	 * 
+	 * @return {@link List} of <T>
+	 */
+	public List<T> getLocksIds() {
+		return new ArrayList<>(locks.keySet());
+	}
+
+	/**
+	 * Get locked id's count.
+	 * 
+	 * @return <code>int</code>
+	 */
+	public int getLocksCount() {
+		return locks.size();
+	}
+
+	/**
+	 * Obtain lock asynchronously.<br>
+	 * Returned future is completed immediately if lock is free or when all previous waiters released the lock.
+	 * 
+	 * @param id
+	 *            lock id, can't be <code>null</code>
+	 * @return {@link CompletableFuture} completed with {@link AsyncIdBasedLock} when lock is granted
+	 */
+	public CompletableFuture<AsyncIdBasedLock<T>> obtainLockAsync(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		final CompletableFuture<AsyncIdBasedLock<T>> waiter = new CompletableFuture<>();
+		final Waiters<T> waiters = locks.compute(id, (key, current) -> {
+			if (current == null)
+				return new Waiters<>(waiter);
+
+			current.queue.add(waiter);
+			return current;
+		});
+
+		// lock is free, granting it directly, outside of the storage update
+		if (waiters.owner == waiter)
+			waiter.complete(new AsyncIdBasedLock<>(id, this));
+
+		return waiter;
+	}
+
+	/**
+	 * Release {@link AsyncIdBasedLock} and pass it to the next waiter.
+	 * 
+	 * @param lock
+	 *            lock, can't be <code>null</code>
+	 */
+	void releaseLock(final AsyncIdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+
+		final T id = lock.getId();
+		for (;;) {
+			final Waiters<T> waiters = locks.computeIfPresent(id, (key, current) -> {
+				current.next = current.queue.poll();
+				return current.next != null ? current : null;
+			});
+
+			// only lock holder can modify 'next', so it safe to read it outside of the storage update
+			final CompletableFuture<AsyncIdBasedLock<T>> next = waiters != null ? waiters.next : null;
+			if (next == null || next.complete(new AsyncIdBasedLock<>(id, this)))
+				return;
+
+			// waiter future already completed (cancelled), passing lock to the next one
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [locks=").append(locks.keySet());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Id waiters.
+	 * 
+	 * @author Alexandr Bolbat
+	 * 
+	 * @param <T>
+	 *            locking id type
+	 */
+	private static final class Waiters<T> {
+
+		/**
+		 * Waiter which created this state and got the lock immediately.
+		 */
+		private final CompletableFuture<AsyncIdBasedLock<T>> owner;
+
+		/**
+		 * Waiters queue.
+		 */
+		private final Queue<CompletableFuture<AsyncIdBasedLock<T>>> queue = new ArrayDeque<>();
+
+		/**
+		 * Next waiter to pass the lock.
+		 */
+		private CompletableFuture<AsyncIdBasedLock<T>> next;
+
+		/**
+		 * Default constructor.
+		 * 
+		 * @param aOwner
+		 *            first lock owner
+		 */
+		private Waiters(final CompletableFuture<AsyncIdBasedLock<T>> aOwner) {
+			this.owner = aOwner;
+		}
+
+	}
+
+}
@@ -12,7 +12,8 @@ import net.bolbat.utils.annotation.Concurrency;
 import net.bolbat.utils.annotation.Stability;
 
 /**
- * Unsafe {@link IdBasedLockManager} implementation.
+ * Unsafe {@link IdBasedLockManager} implementation.<br>
+ * Exist lock is looked up first and new lock is created only if there is no lock for given id, references are counted with CAS without any monitors.
  * 
  * @author Alexandr Bolbat
  * 
@@ -48,33 +49,31 @@ public final class ConcurrentIdBasedLockManager<T> implements IdBasedLockManager
 	public IdBasedLock<T> obtainLock(T id) {
 		checkArgument(id != null, "id argument is null");
 
-		final IdBasedLock<T> lock = new IdBasedLock<>(id, this);
-		lock.increaseReferences();
+		for (;;) {
+			IdBasedLock<T> lock = locks.get(id);
+			if (lock == null) {
+				final IdBasedLock<T> created = new IdBasedLock<>(id, this);
+				created.increaseReferences();
 
-		final IdBasedLock<T> fromMap = locks.putIfAbsent(id, lock);
-		if (fromMap == null)
-			return lock;
-
-		synchronized (fromMap) {
-			if (fromMap.increaseReferences() == 1) { // if they already released from "locks" by other thread
-				IdBasedLock<T> tmp = null;
-				do {
-					tmp = locks.putIfAbsent(id, fromMap);
-				} while (!(tmp != null && tmp == fromMap));
+				lock = locks.putIfAbsent(id, created);
+				if (lock == null)
+					return created;
 			}
-		}
 
-		return fromMap;
+			if (lock.tryIncreaseReferences())
+				return lock;
+
+			// lock already released by other thread, helping to remove it and retrying
+			locks.remove(id, lock);
+		}
 	}
 
 	@Override
 	public void releaseLock(final IdBasedLock<T> lock) {
 		checkArgument(lock != null, "lock argument is null");
 
-		synchronized (lock) {
-			if (lock.decreaseReferences() == 0)
-				locks.remove(lock.getId());
-		}
+		if (lock.decreaseReferences() == 0)
+			locks.remove(lock.getId(), lock);
 	}
 
 	@Override
@@ -0,0 +1,87 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Concurrent {@link ReadWriteIdBasedLockManager} implementation.<br>
+ * Uses the same references counting and cleanup model as {@link ConcurrentIdBasedLockManager}.
+ * 
+ * @author Alexandr Bolbat
+ * 
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class ConcurrentReadWriteIdBasedLockManager<T> implements ReadWriteIdBasedLockManager<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 2870917326640432425L;
+
+	/**
+	 * Locks storage.
+	 */
+	private final ConcurrentMap<T, ReadWriteIdBasedLock<T>> locks = new ConcurrentHashMap<>();
+
+	@Override
+	public List<T> getLocksIds() {
+		return new ArrayList<>(locks.keySet());
+	}
+
+	@Override
+	public int getLocksCount() {
+		return locks.size();
+	}
+
+	@Override
+	public ReadWriteIdBasedLock<T> obtainLock(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		for (;;) {
+			ReadWriteIdBasedLock<T> lock = locks.get(id);
+			if (lock == null) {
+				final ReadWriteIdBasedLock<T> created = new ReadWriteIdBasedLock<>(id, this);
+				created.increaseReferences();
+
+				lock = locks.putIfAbsent(id, created);
+				if (lock == null)
+					return created;
+			}
+
+			if (lock.tryIncreaseReferences())
+				return lock;
+
+			// lock already released by other thread, helping to remove it and retrying
+			locks.remove(id, lock);
+		}
+	}
+
+	@Override
+	public void releaseLock(final ReadWriteIdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+
+		if (lock.decreaseReferences() == 0)
+			locks.remove(lock.getId(), lock);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [locks=").append(locks);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,537 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Cross-process {@link IdBasedLockManager} implementation.<br>
+ * Id's are mapped to the one byte regions of the shared lock file, region is locked with {@link FileChannel} region lock, so processes using the same lock
+ * file and regions amount are excluding each other for the same id's. Threads of the same process are contending on the in-memory {@link IdBasedLock}
+ * first and only one of them takes the file region lock.<br>
+ * Different id's can be mapped to the same region and in this case they will exclude each other between processes, but not within the same process.<br>
+ * File region locks are held on behalf of the whole process, so lock file shouldn't be locked by other means in the same process. Each file region
+ * acquisition uses own {@link FileChannel}, so thread interruption can't release region locks held by other threads.<br>
+ * References are counted with CAS in the same way as in {@link ConcurrentIdBasedLockManager}.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class FileIdBasedLockManager<T> implements IdBasedLockManager<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 2957063917232416571L;
+
+	/**
+	 * Default regions amount.
+	 */
+	public static final int DEFAULT_REGIONS_COUNT = 1024;
+
+	/**
+	 * Maximum regions amount.
+	 */
+	public static final int MAXIMUM_REGIONS_COUNT = 1 << 30;
+
+	/**
+	 * Maximum pause between file region lock attempts in milliseconds, for timed acquisition.
+	 */
+	private static final long MAX_RETRY_PAUSE = 10L;
+
+	/**
+	 * Lock file path.
+	 */
+	private final String lockFile;
+
+	/**
+	 * Regions.
+	 */
+	private final Region[] regions;
+
+	/**
+	 * Region index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Locks storage.
+	 */
+	private final ConcurrentMap<T, FileLockedIdBasedLock<T>> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Public constructor, <code>DEFAULT_REGIONS_COUNT</code> will be used as regions amount.
+	 *
+	 * @param aLockFile
+	 *            lock file, will be created if not exist
+	 */
+	public FileIdBasedLockManager(final Path aLockFile) {
+		this(aLockFile, DEFAULT_REGIONS_COUNT);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aLockFile
+	 *            lock file, will be created if not exist
+	 * @param aRegionsCount
+	 *            regions amount, will be rounded up to the nearest power of two, should be the same for all processes using the same lock file
+	 */
+	public FileIdBasedLockManager(final Path aLockFile, final int aRegionsCount) {
+		checkArgument(aLockFile != null, "aLockFile argument is null");
+		checkArgument(aRegionsCount > 0, "aRegionsCount argument should be greater than 0");
+		checkArgument(aRegionsCount <= MAXIMUM_REGIONS_COUNT, "aRegionsCount argument should not be greater than " + MAXIMUM_REGIONS_COUNT);
+
+		final int size = aRegionsCount == 1 ? 1 : Integer.highestOneBit(aRegionsCount - 1) << 1;
+		this.lockFile = aLockFile.toAbsolutePath().toString();
+		this.regions = new Region[size];
+		for (int i = 0; i < size; i++)
+			regions[i] = new Region(lockFile, i);
+
+		this.mask = size - 1;
+
+		try (FileChannel channel = open(lockFile)) { // validating lock file
+			channel.size();
+		} catch (final IOException e) {
+			throw new IdBasedLockRuntimeException("Lock file[" + lockFile + "] can't be opened", e);
+		}
+	}
+
+	@Override
+	public List<T> getLocksIds() {
+		return new ArrayList<>(locks.keySet());
+	}
+
+	@Override
+	public int getLocksCount() {
+		return locks.size();
+	}
+
+	@Override
+	public IdBasedLock<T> obtainLock(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		for (;;) {
+			FileLockedIdBasedLock<T> lock = locks.get(id);
+			if (lock == null) {
+				final FileLockedIdBasedLock<T> created = new FileLockedIdBasedLock<>(id, this, regions[spread(id.hashCode()) & mask]);
+				created.increaseReferences();
+
+				lock = locks.putIfAbsent(id, created);
+				if (lock == null)
+					return created;
+			}
+
+			if (lock.tryIncreaseReferences())
+				return lock;
+
+			// lock already released by other thread, helping to remove it and retrying
+			locks.remove(id, lock);
+		}
+	}
+
+	@Override
+	public void releaseLock(final IdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+
+		if (lock.decreaseReferences() == 0)
+			locks.remove(lock.getId(), lock);
+	}
+
+	/**
+	 * Get lock file path.
+	 *
+	 * @return {@link Path}
+	 */
+	public Path getLockFile() {
+		return Paths.get(lockFile);
+	}
+
+	/**
+	 * Get regions count.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getRegionsCount() {
+		return regions.length;
+	}
+
+	/**
+	 * Get amount of file regions locked by this process through this manager.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getLockedRegionsCount() {
+		int result = 0;
+		for (final Region region : regions)
+			if (region.isLocked())
+				result++;
+
+		return result;
+	}
+
+	/**
+	 * Open new lock file channel.
+	 *
+	 * @param lockFile
+	 *            lock file path
+	 * @return {@link FileChannel}
+	 * @throws IOException
+	 *             on I/O errors
+	 */
+	private static FileChannel open(final String lockFile) throws IOException {
+		return FileChannel.open(Paths.get(lockFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Spread hash code bits, to prevent poor quality hash codes from clustering in the same regions.
+	 *
+	 * @param hashCode
+	 *            original hash code
+	 * @return spread hash code
+	 */
+	private static int spread(final int hashCode) {
+		int h = hashCode;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [lockFile=").append(lockFile);
+		builder.append(", regions=").append(regions.length);
+		builder.append(", locks=").append(locks);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Lock file region, shared by all in-memory locks with id's mapped to it.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class Region implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 6620385101420858117L;
+
+		/**
+		 * Lock file path.
+		 */
+		private final String lockFile;
+
+		/**
+		 * Region index, used as region position in the lock file.
+		 */
+		private final int index;
+
+		/**
+		 * Region state guard, held while file region lock is acquiring, so only one thread of the process is waiting for other processes. Status
+		 * queries are not using it.
+		 */
+		private final ReentrantLock guard = new ReentrantLock();
+
+		/**
+		 * Amount of in-memory locks holding the region, updated under <code>guard</code> and read without it by the status queries.
+		 */
+		private volatile int holders;
+
+		/**
+		 * File region lock, guarded by <code>guard</code>.
+		 */
+		private transient FileLock fileLock;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aLockFile
+		 *            lock file path
+		 * @param aIndex
+		 *            region index
+		 */
+		private Region(final String aLockFile, final int aIndex) {
+			this.lockFile = aLockFile;
+			this.index = aIndex;
+		}
+
+		/**
+		 * Acquire the region, waiting for other processes if required.
+		 */
+		private void acquire() {
+			guard.lock();
+			try {
+				if (holders == 0)
+					fileLock = lockFileRegion(false, 0L);
+
+				holders++;
+			} catch (final InterruptedException e) { // not thrown by not timed waiting
+				Thread.currentThread().interrupt();
+				throw new IdBasedLockRuntimeException("Lock file[" + lockFile + "] region[" + index + "] waiting interrupted", e);
+			} finally {
+				guard.unlock();
+			}
+		}
+
+		/**
+		 * Try to acquire the region, waiting for other threads and processes not longer than given deadline.
+		 *
+		 * @param deadline
+		 *            {@link System#nanoTime()} deadline for the whole acquisition, already passed deadline for no waiting
+		 * @return <code>true</code> if acquired or <code>false</code>
+		 * @throws InterruptedException
+		 *             if the current thread is interrupted while waiting
+		 */
+		private boolean tryAcquire(final long deadline) throws InterruptedException {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining > 0L ? !guard.tryLock(remaining, TimeUnit.NANOSECONDS) : !guard.tryLock())
+				return false;
+
+			try {
+				if (holders == 0) {
+					fileLock = lockFileRegion(true, deadline);
+					if (fileLock == null)
+						return false;
+				}
+
+				holders++;
+				return true;
+			} finally {
+				guard.unlock();
+			}
+		}
+
+		/**
+		 * Release the region, file region lock is released by the last holder.
+		 */
+		private void release() {
+			guard.lock();
+			try {
+				if (--holders > 0)
+					return;
+
+				final FileLock released = fileLock;
+				fileLock = null;
+				try {
+					released.channel().close(); // releasing the lock as well
+				} catch (final IOException e) {
+					throw new IdBasedLockRuntimeException("Lock file[" + lockFile + "] region[" + index + "] release failed", e);
+				}
+			} finally {
+				guard.unlock();
+			}
+		}
+
+		/**
+		 * Is region locked by this process.
+		 *
+		 * @return <code>true</code> if locked or <code>false</code>
+		 */
+		private boolean isLocked() {
+			return holders > 0; // not blocked by the thread waiting for other processes under the guard
+		}
+
+		/**
+		 * Lock the file region using new channel.
+		 *
+		 * @param timed
+		 *            is waiting limited by the deadline
+		 * @param deadline
+		 *            {@link System#nanoTime()} deadline for timed waiting
+		 * @return {@link FileLock} or <code>null</code> if the deadline reached
+		 * @throws InterruptedException
+		 *             if the current thread is interrupted while timed waiting
+		 */
+		private FileLock lockFileRegion(final boolean timed, final long deadline) throws InterruptedException {
+			boolean interrupted = false;
+			try {
+				for (long pause = 1L;; pause = Math.min(pause * 2, MAX_RETRY_PAUSE)) {
+					FileChannel channel = null;
+					try {
+						channel = open(lockFile);
+						final FileLock result = !timed ? channel.lock(index, 1L, false) : channel.tryLock(index, 1L, false);
+						if (result != null)
+							return result;
+
+						channel.close();
+					} catch (final ClosedByInterruptException | FileLockInterruptionException e) {
+						// channel closed by interruption, retrying uninterruptibly or failing timed waiting
+						if (timed)
+							throw new InterruptedException("Lock file[" + lockFile + "] region[" + index + "] waiting interrupted");
+
+						Thread.interrupted();
+						interrupted = true;
+						continue;
+					} catch (final IOException | OverlappingFileLockException e) {
+						closeQuietly(channel);
+						throw new IdBasedLockRuntimeException("Lock file[" + lockFile + "] region[" + index + "] lock failed", e);
+					}
+
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0L)
+						return null;
+
+					TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(pause)));
+				}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Close channel ignoring errors.
+		 *
+		 * @param channel
+		 *            channel, can be <code>null</code>
+		 */
+		private static void closeQuietly(final FileChannel channel) {
+			if (channel == null)
+				return;
+
+			try {
+				channel.close();
+			} catch (final IOException e) {
+				// nothing to do
+			}
+		}
+
+	}
+
+	/**
+	 * {@link IdBasedLock} which holds the file region while locked.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <T>
+	 *            locking id type
+	 */
+	private static final class FileLockedIdBasedLock<T> extends IdBasedLock<T> {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = -1753427046214398409L;
+
+		/**
+		 * Lock file region.
+		 */
+		private final Region region;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aId
+		 *            lock id
+		 * @param aManager
+		 *            lock manager
+		 * @param aRegion
+		 *            lock file region
+		 */
+		private FileLockedIdBasedLock(final T aId, final IdBasedLockManager<T> aManager, final Region aRegion) {
+			super(aId, aManager);
+			this.region = aRegion;
+		}
+
+		@Override
+		public IdBasedLock<T> lock() {
+			getLock().lock();
+			if (getLock().getHoldCount() > 1)
+				return this;
+
+			boolean acquired = false;
+			try {
+				region.acquire();
+				acquired = true;
+				return this;
+			} finally {
+				if (!acquired)
+					getLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean tryLock() {
+			if (!getLock().tryLock())
+				return false;
+			if (getLock().getHoldCount() > 1)
+				return true;
+
+			boolean acquired = false;
+			try {
+				acquired = region.tryAcquire(System.nanoTime());
+				return acquired;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				if (!acquired)
+					getLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean tryLock(final long timeout, final TimeUnit unit) throws InterruptedException {
+			final long deadline = System.nanoTime() + unit.toNanos(timeout);
+			if (!getLock().tryLock(timeout, unit))
+				return false;
+			if (getLock().getHoldCount() > 1)
+				return true;
+
+			boolean acquired = false;
+			try {
+				acquired = region.tryAcquire(deadline);
+				return acquired;
+			} finally {
+				if (!acquired)
+					getLock().unlock();
+			}
+		}
+
+		@Override
+		public IdBasedLock<T> unlock() {
+			if (getLock().isHeldByCurrentThread() && getLock().getHoldCount() == 1)
+				try {
+					region.release();
+				} finally {
+					super.unlock();
+				}
+			else
+				super.unlock();
+
+			return this;
+		}
+
+	}
+
+}
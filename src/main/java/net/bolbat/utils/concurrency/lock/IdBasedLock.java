@@ -2,7 +2,7 @@ package net.bolbat.utils.concurrency.lock;
 
 import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
 
 import net.bolbat.utils.annotation.Audience;
@@ -28,14 +28,20 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 	private static final long serialVersionUID = 6545930245567508822L;
 
 	/**
-	 * {@link ReentrantLock} instance.
+	 * Lock references count updater.
 	 */
-	private final ReentrantLock lock = new ReentrantLock();
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<IdBasedLock> REFERENCES_COUNT = AtomicIntegerFieldUpdater.newUpdater(IdBasedLock.class, "referencesCount");
 
 	/**
-	 * Lock references count.
+	 * {@link ReentrantLock} instance, <code>null</code> if locking is implemented by the subclass.
 	 */
-	private final AtomicInteger referencesCount = new AtomicInteger(0);
+	private final ReentrantLock lock;
+
+	/**
+	 * Lock references count, updated only through <code>REFERENCES_COUNT</code>.
+	 */
+	private volatile int referencesCount;
 
 	/**
 	 * Lock manager.
@@ -47,6 +53,12 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 	 */
 	private final T id;
 
+	/**
+	 * Outermost hold start timestamp in nanoseconds, recorded by {@link InstrumentedIdBasedLockManager}.<br>
+	 * Written after the outermost acquisition and read before the outermost release, so it's accessed only by the lock owner.
+	 */
+	transient long holdStart;
+
 	/**
 	 * Protected constructor.
 	 * 
@@ -56,8 +68,24 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 	 *            lock manager
 	 */
 	protected IdBasedLock(final T aId, final IdBasedLockManager<T> aManager) {
+		this(aId, aManager, new ReentrantLock());
+	}
+
+	/**
+	 * Protected constructor, for locks sharing the same {@link ReentrantLock} with other lock or implementing locking by itself.<br>
+	 * Subclass passing <code>null</code> lock should override all locking and lock state methods.
+	 * 
+	 * @param aId
+	 *            lock id
+	 * @param aManager
+	 *            lock manager
+	 * @param aLock
+	 *            {@link ReentrantLock} instance, <code>null</code> if locking is implemented by the subclass
+	 */
+	protected IdBasedLock(final T aId, final IdBasedLockManager<T> aManager, final ReentrantLock aLock) {
 		this.manager = aManager;
 		this.id = aId;
+		this.lock = aLock;
 	}
 
 	/**
@@ -153,13 +181,33 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 		return lock.hasQueuedThread(thread);
 	}
 
+	/**
+	 * Queries the number of holds on this lock by the current thread.<br>
+	 * Check <code>ReentrantLock.getHoldCount()</code> for details.
+	 *
+	 * @return the number of holds on this lock by the current thread, or zero if this lock is not held by the current thread
+	 */
+	public int getHoldCount() {
+		return lock.getHoldCount();
+	}
+
+	/**
+	 * Returns an estimate of the number of threads waiting to acquire this lock.<br>
+	 * Check <code>ReentrantLock.getQueueLength()</code> for details.
+	 *
+	 * @return the estimated number of threads waiting for this lock
+	 */
+	public int getQueueLength() {
+		return lock.getQueueLength();
+	}
+
 	/**
 	 * Get lock references count.
 	 * 
 	 * @return <code>int</code>
 	 */
 	public int getReferencesCount() {
-		return referencesCount.get();
+		return referencesCount;
 	}
 
 	/**
@@ -168,7 +216,23 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 	 * @return increased value as <code>int</code>
 	 */
 	protected int increaseReferences() {
-		return referencesCount.incrementAndGet();
+		return REFERENCES_COUNT.incrementAndGet(this);
+	}
+
+	/**
+	 * Increase references count only if lock is still referenced.<br>
+	 * Lock with zero references is treated as released by the manager and can't be reused.
+	 * 
+	 * @return <code>true</code> if references count was increased or <code>false</code>
+	 */
+	protected boolean tryIncreaseReferences() {
+		for (;;) {
+			final int current = referencesCount;
+			if (current <= 0)
+				return false;
+			if (REFERENCES_COUNT.compareAndSet(this, current, current + 1))
+				return true;
+		}
 	}
 
 	/**
@@ -177,7 +241,7 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 	 * @return decreased value as <code>int</code>
 	 */
 	protected int decreaseReferences() {
-		return referencesCount.decrementAndGet();
+		return REFERENCES_COUNT.decrementAndGet(this);
 	}
 
 	/**
@@ -189,6 +253,16 @@ public class IdBasedLock<T> implements Serializable, AutoCloseable {
 		return id;
 	}
 
+	/**
+	 * Get {@link ReentrantLock} instance.<br>
+	 * Decorators should use lock methods instead, since locking can be implemented by the subclass.
+	 * 
+	 * @return {@link ReentrantLock} or <code>null</code> if locking is implemented by the subclass
+	 */
+	protected ReentrantLock getLock() {
+		return lock;
+	}
+
 	@Override
 	public void close() {
 		unlock();
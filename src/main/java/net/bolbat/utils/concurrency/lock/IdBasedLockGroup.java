@@ -0,0 +1,357 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Group of {@link IdBasedLock} acquired atomically for multiple id's.<br>
+ * Locks are always acquired in the canonical id's order (natural or defined by {@link Comparator}), so concurrent groups with intersecting id's can't
+ * deadlock each other. Already acquired locks are released if acquisition of the whole group failed.<br>
+ * {@link StripedIdBasedLockManager} (also decorated with {@link InstrumentedIdBasedLockManager}) maps several id's onto one stripe, for it id's are
+ * ordered by stripe index first and each stripe is acquired once. Other managers mapping several id's onto one lock are not supported and can deadlock.<br>
+ * Group is released in the reverse order on <code>unlock()</code> or <code>close()</code>.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.NotThreadSafe
+public final class IdBasedLockGroup<T> implements AutoCloseable {
+
+	/**
+	 * Acquired locks, in acquisition order.
+	 */
+	private final List<IdBasedLock<T>> locks;
+
+	/**
+	 * Locked id's, in acquisition order, can contain id's sharing one lock.
+	 */
+	private final List<T> ids;
+
+	/**
+	 * Is group released.
+	 */
+	private boolean released;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aLocks
+	 *            acquired locks
+	 * @param aIds
+	 *            locked id's
+	 */
+	private IdBasedLockGroup(final List<IdBasedLock<T>> aLocks, final List<T> aIds) {
+		this.locks = aLocks;
+		this.ids = Collections.unmodifiableList(aIds);
+	}
+
+	/**
+	 * Acquire locks for all given id's in natural id's order.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @return acquired {@link IdBasedLockGroup}
+	 */
+	public static <T extends Comparable<? super T>> IdBasedLockGroup<T> lock(final IdBasedLockManager<T> manager, final Collection<T> ids) {
+		return lock(manager, ids, null);
+	}
+
+	/**
+	 * Acquire locks for all given id's in order defined by {@link Comparator}.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @param comparator
+	 *            id's comparator, natural order will be used if <code>null</code>
+	 * @return acquired {@link IdBasedLockGroup}
+	 */
+	public static <T> IdBasedLockGroup<T> lock(final IdBasedLockManager<T> manager, final Collection<T> ids, final Comparator<? super T> comparator) {
+		final List<T> ordered = order(manager, ids, comparator);
+		final List<IdBasedLock<T>> acquired = new ArrayList<>(ordered.size());
+		boolean success = false;
+		try {
+			for (final T id : distinct(manager, ordered)) {
+				final IdBasedLock<T> lock = manager.obtainLock(id);
+				boolean locked = false;
+				try {
+					lock.lock();
+					locked = true;
+				} finally {
+					if (!locked)
+						manager.releaseLock(lock);
+				}
+
+				acquired.add(lock);
+			}
+
+			success = true;
+			return new IdBasedLockGroup<>(acquired, ordered);
+		} finally {
+			if (!success)
+				rollback(acquired);
+		}
+	}
+
+	/**
+	 * Try to acquire locks for all given id's in natural id's order, without waiting.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @return acquired {@link IdBasedLockGroup} or <code>null</code> if at least one lock is held by other thread
+	 */
+	public static <T extends Comparable<? super T>> IdBasedLockGroup<T> tryLock(final IdBasedLockManager<T> manager, final Collection<T> ids) {
+		return tryLock(manager, ids, (Comparator<? super T>) null);
+	}
+
+	/**
+	 * Try to acquire locks for all given id's in order defined by {@link Comparator}, without waiting.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @param comparator
+	 *            id's comparator, natural order will be used if <code>null</code>
+	 * @return acquired {@link IdBasedLockGroup} or <code>null</code> if at least one lock is held by other thread
+	 */
+	public static <T> IdBasedLockGroup<T> tryLock(final IdBasedLockManager<T> manager, final Collection<T> ids, final Comparator<? super T> comparator) {
+		final List<T> ordered = order(manager, ids, comparator);
+		final List<IdBasedLock<T>> acquired = new ArrayList<>(ordered.size());
+		boolean success = false;
+		try {
+			for (final T id : distinct(manager, ordered)) {
+				final IdBasedLock<T> lock = manager.obtainLock(id);
+				if (!lock.tryLock()) {
+					manager.releaseLock(lock);
+					return null;
+				}
+
+				acquired.add(lock);
+			}
+
+			success = true;
+			return new IdBasedLockGroup<>(acquired, ordered);
+		} finally {
+			if (!success)
+				rollback(acquired);
+		}
+	}
+
+	/**
+	 * Try to acquire locks for all given id's in natural id's order, waiting not more than given timeout for the whole group.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @param timeout
+	 *            the time to wait for the whole group
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 * @return acquired {@link IdBasedLockGroup} or <code>null</code> if the waiting time elapsed before all locks could be acquired
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public static <T extends Comparable<? super T>> IdBasedLockGroup<T> tryLock(final IdBasedLockManager<T> manager, final Collection<T> ids,
+			final long timeout, final TimeUnit unit) throws InterruptedException {
+		return tryLock(manager, ids, null, timeout, unit);
+	}
+
+	/**
+	 * Try to acquire locks for all given id's in order defined by {@link Comparator}, waiting not more than given timeout for the whole group.
+	 *
+	 * @param manager
+	 *            lock manager, can't be <code>null</code>
+	 * @param ids
+	 *            id's, can't be <code>null</code> or contain <code>null</code>
+	 * @param comparator
+	 *            id's comparator, natural order will be used if <code>null</code>
+	 * @param timeout
+	 *            the time to wait for the whole group
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 * @return acquired {@link IdBasedLockGroup} or <code>null</code> if the waiting time elapsed before all locks could be acquired
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public static <T> IdBasedLockGroup<T> tryLock(final IdBasedLockManager<T> manager, final Collection<T> ids, final Comparator<? super T> comparator,
+			final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkArgument(unit != null, "unit argument is null");
+
+		final List<T> ordered = order(manager, ids, comparator);
+		final List<IdBasedLock<T>> acquired = new ArrayList<>(ordered.size());
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean success = false;
+		try {
+			for (final T id : distinct(manager, ordered)) {
+				final IdBasedLock<T> lock = manager.obtainLock(id);
+				boolean locked = false;
+				try {
+					locked = lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				} finally {
+					if (!locked)
+						manager.releaseLock(lock);
+				}
+				if (!locked)
+					return null;
+
+				acquired.add(lock);
+			}
+
+			success = true;
+			return new IdBasedLockGroup<>(acquired, ordered);
+		} finally {
+			if (!success)
+				rollback(acquired);
+		}
+	}
+
+	/**
+	 * Get locked id's in acquisition order.
+	 *
+	 * @return unmodifiable {@link List} of <T>
+	 */
+	public List<T> getIds() {
+		return ids;
+	}
+
+	/**
+	 * Is group released.
+	 *
+	 * @return <code>true</code> if released or <code>false</code>
+	 */
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * Release all group locks in the reverse order.<br>
+	 * Repeated calls are ignored.
+	 */
+	public void unlock() {
+		if (released)
+			return;
+
+		released = true;
+		rollback(locks);
+	}
+
+	@Override
+	public void close() {
+		unlock();
+	}
+
+	/**
+	 * Validate arguments and prepare id's in canonical order without duplicates.<br>
+	 * For striped manager id's are ordered by stripe index first, id's order is kept within the stripe.
+	 *
+	 * @param manager
+	 *            lock manager
+	 * @param ids
+	 *            id's
+	 * @param comparator
+	 *            id's comparator, optional
+	 * @return ordered id's
+	 */
+	private static <T> List<T> order(final IdBasedLockManager<T> manager, final Collection<T> ids, final Comparator<? super T> comparator) {
+		checkArgument(manager != null, "manager argument is null");
+		checkArgument(ids != null, "ids argument is null");
+
+		final TreeSet<T> ordered = new TreeSet<>(comparator);
+		for (final T id : ids) {
+			checkArgument(id != null, "ids argument contains null");
+			ordered.add(id);
+		}
+
+		final List<T> result = new ArrayList<>(ordered);
+		final StripedIdBasedLockManager<T> striped = striped(manager);
+		if (striped != null)
+			result.sort(Comparator.comparingInt(striped::stripeIndex)); // stable sort, id's order is kept within the stripe
+
+		return result;
+	}
+
+	/**
+	 * Get id's to acquire, one id for each stripe if manager is striped.
+	 *
+	 * @param manager
+	 *            lock manager
+	 * @param ordered
+	 *            id's in canonical order
+	 * @return id's to acquire
+	 */
+	private static <T> List<T> distinct(final IdBasedLockManager<T> manager, final List<T> ordered) {
+		final StripedIdBasedLockManager<T> striped = striped(manager);
+		if (striped == null)
+			return ordered;
+
+		final List<T> result = new ArrayList<>(ordered.size());
+		int previous = -1;
+		for (final T id : ordered) {
+			final int index = striped.stripeIndex(id);
+			if (index != previous)
+				result.add(id);
+
+			previous = index;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get striped manager, decorated one including.
+	 *
+	 * @param manager
+	 *            lock manager
+	 * @return {@link StripedIdBasedLockManager} or <code>null</code> if manager is not striped
+	 */
+	private static <T> StripedIdBasedLockManager<T> striped(final IdBasedLockManager<T> manager) {
+		IdBasedLockManager<T> current = manager;
+		while (current instanceof InstrumentedIdBasedLockManager)
+			current = ((InstrumentedIdBasedLockManager<T>) current).getDelegate();
+
+		return current instanceof StripedIdBasedLockManager ? (StripedIdBasedLockManager<T>) current : null;
+	}
+
+	/**
+	 * Release acquired locks in the reverse order.
+	 *
+	 * @param acquired
+	 *            acquired locks
+	 */
+	private static <T> void rollback(final List<IdBasedLock<T>> acquired) {
+		for (int i = acquired.size() - 1; i >= 0; i--)
+			acquired.get(i).unlock();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [ids=").append(ids);
+		builder.append(", released=").append(released);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,53 @@
+package net.bolbat.utils.concurrency.lock;
+
+/**
+ * General id based locking runtime exception, used for locking failures which are not caused by the locking logic (I/O errors).
+ * 
+ * @author Alexandr Bolbat
+ */
+public class IdBasedLockRuntimeException extends RuntimeException {
+
+	/**
+	 * Basic serialVersionUID variable.
+	 */
+	private static final long serialVersionUID = 4203158730276540931L;
+
+	/**
+	 * Default constructor.
+	 */
+	public IdBasedLockRuntimeException() {
+	}
+
+	/**
+	 * Public constructor.
+	 * 
+	 * @param message
+	 *            exception message
+	 */
+	public IdBasedLockRuntimeException(final String message) {
+		super(message);
+	}
+
+	/**
+	 * Public constructor.
+	 * 
+	 * @param cause
+	 *            exception cause
+	 */
+	public IdBasedLockRuntimeException(final Throwable cause) {
+		super(cause);
+	}
+
+	/**
+	 * Public constructor.
+	 * 
+	 * @param message
+	 *            exception message
+	 * @param cause
+	 *            exception cause
+	 */
+	public IdBasedLockRuntimeException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+}
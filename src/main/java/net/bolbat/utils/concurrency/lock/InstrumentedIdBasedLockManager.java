@@ -0,0 +1,851 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Instrumented {@link IdBasedLockManager} decorator.<br>
+ * Collects global and per id acquisitions counts, wait time and hold time histograms, queued threads high-water marks and allows to find the most contended
+ * id's. All counters are striped ({@link LongAdder}) and high-water marks are updated only when exceeded, so recording is cheap enough to be always on.<br>
+ * Per id statistics is collected for not more than configured amount of id's. When limit is reached new id replaces the least contended id from the random
+ * sample (sampled space-saving), replacing id inherits replaced id contention estimate, so hot id's are retained while newly hot id's still can be
+ * tracked. Id's which are not tracked (tracking is skipped on contention) are accounted only in global statistics.<br>
+ * Decorated locks are used only through their public methods, so decorator is working with any {@link IdBasedLock} implementation. Hold start is kept
+ * in the decorated lock itself, so hold time is recorded once per outermost hold even if it's acquired and released through different instances or
+ * through the different id's of the same stripe.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class InstrumentedIdBasedLockManager<T> implements IdBasedLockManager<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = 5087127283426093297L;
+
+	/**
+	 * Default maximum amount of id's with tracked statistics.
+	 */
+	public static final int DEFAULT_MAX_TRACKED_IDS = 1024;
+
+	/**
+	 * Amount of tracked id's sampled for the replacement.
+	 */
+	private static final int REPLACEMENT_SAMPLE_SIZE = 8;
+
+	/**
+	 * Decorated manager.
+	 */
+	private final IdBasedLockManager<T> delegate;
+
+	/**
+	 * Maximum amount of id's with tracked statistics.
+	 */
+	private final int maxTrackedIds;
+
+	/**
+	 * Global statistics.
+	 */
+	private final Stats globalStats = new Stats();
+
+	/**
+	 * Per id statistics.
+	 */
+	private final ConcurrentMap<T, IdStats> idsStats = new ConcurrentHashMap<>();
+
+	/**
+	 * Tracked id's, for sampling replacement victims, guarded by <code>trackingLock</code>.
+	 */
+	private final Object[] trackedIds;
+
+	/**
+	 * Tracked id's amount, guarded by <code>trackingLock</code>.
+	 */
+	private int trackedCount;
+
+	/**
+	 * Tracked id's modification lock.
+	 */
+	private final ReentrantLock trackingLock = new ReentrantLock();
+
+	/**
+	 * Public constructor, <code>DEFAULT_MAX_TRACKED_IDS</code> will be used as maximum amount of id's with tracked statistics.
+	 *
+	 * @param aDelegate
+	 *            decorated manager
+	 */
+	public InstrumentedIdBasedLockManager(final IdBasedLockManager<T> aDelegate) {
+		this(aDelegate, DEFAULT_MAX_TRACKED_IDS);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aDelegate
+	 *            decorated manager
+	 * @param aMaxTrackedIds
+	 *            maximum amount of id's with tracked statistics, <code>0</code> to disable per id statistics
+	 */
+	public InstrumentedIdBasedLockManager(final IdBasedLockManager<T> aDelegate, final int aMaxTrackedIds) {
+		checkArgument(aDelegate != null, "aDelegate argument is null");
+		checkArgument(aMaxTrackedIds >= 0, "aMaxTrackedIds argument is negative");
+
+		this.delegate = aDelegate;
+		this.maxTrackedIds = aMaxTrackedIds;
+		this.trackedIds = new Object[aMaxTrackedIds];
+	}
+
+	@Override
+	public List<T> getLocksIds() {
+		return delegate.getLocksIds();
+	}
+
+	@Override
+	public int getLocksCount() {
+		return delegate.getLocksCount();
+	}
+
+	@Override
+	public IdBasedLock<T> obtainLock(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		return new InstrumentedLock<>(id, delegate.obtainLock(id), this, idStats(id));
+	}
+
+	@Override
+	public void releaseLock(final IdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+
+		delegate.releaseLock(lock instanceof InstrumentedLock ? ((InstrumentedLock<T>) lock).delegate : lock);
+	}
+
+	/**
+	 * Get decorated manager.
+	 *
+	 * @return {@link IdBasedLockManager}
+	 */
+	IdBasedLockManager<T> getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Get global statistics.
+	 *
+	 * @return {@link Stats}
+	 */
+	public Stats getStats() {
+		return globalStats;
+	}
+
+	/**
+	 * Get id statistics.
+	 *
+	 * @param id
+	 *            lock id
+	 * @return {@link IdStats} or <code>null</code> if statistics for given id is not tracked
+	 */
+	public IdStats getStats(final T id) {
+		return id != null ? idsStats.get(id) : null;
+	}
+
+	/**
+	 * Get per id statistics snapshot.
+	 *
+	 * @return unmodifiable {@link Map} with id's and statistics
+	 */
+	public Map<T, IdStats> getIdsStats() {
+		return Collections.unmodifiableMap(new HashMap<>(idsStats));
+	}
+
+	/**
+	 * Get the most contended id's, ordered by contended acquisitions count.
+	 *
+	 * @param limit
+	 *            maximum amount of id's
+	 * @return {@link List} of <T>
+	 */
+	public List<T> getTopContended(final int limit) {
+		checkArgument(limit >= 0, "limit argument is negative");
+
+		final List<Entry<T, Long>> contended = new ArrayList<>();
+		for (final Entry<T, IdStats> entry : idsStats.entrySet()) {
+			final long count = entry.getValue().getContendedAcquisitionsCount();
+			if (count > 0)
+				contended.add(new SimpleImmutableEntry<>(entry.getKey(), count));
+		}
+
+		Collections.sort(contended, new Comparator<Entry<T, Long>>() {
+			@Override
+			public int compare(final Entry<T, Long> first, final Entry<T, Long> second) {
+				return Long.compare(second.getValue(), first.getValue());
+			}
+		});
+
+		final List<T> result = new ArrayList<>(Math.min(limit, contended.size()));
+		for (int i = 0; i < contended.size() && i < limit; i++)
+			result.add(contended.get(i).getKey());
+
+		return result;
+	}
+
+	/**
+	 * Reset all statistics.
+	 */
+	public void resetStats() {
+		globalStats.reset();
+		trackingLock.lock();
+		try {
+			idsStats.clear();
+			Arrays.fill(trackedIds, null);
+			trackedCount = 0;
+		} finally {
+			trackingLock.unlock();
+		}
+	}
+
+	/**
+	 * Get or create id statistics.<br>
+	 * If tracked id's limit reached id replaces the least contended id from the random sample.
+	 *
+	 * @param id
+	 *            lock id
+	 * @return {@link IdStats} or <code>null</code> if id is not tracked
+	 */
+	@SuppressWarnings("unchecked")
+	private IdStats idStats(final T id) {
+		final IdStats stats = idsStats.get(id);
+		if (stats != null || maxTrackedIds == 0 || !trackingLock.tryLock()) // tracking is skipped on contention
+			return stats;
+
+		try {
+			final IdStats existing = idsStats.get(id);
+			if (existing != null)
+				return existing;
+
+			long error = 0;
+			if (trackedCount < trackedIds.length) {
+				trackedIds[trackedCount++] = id;
+			} else {
+				int victim = 0;
+				long victimEstimate = Long.MAX_VALUE;
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < REPLACEMENT_SAMPLE_SIZE; i++) {
+					final int index = random.nextInt(trackedIds.length);
+					final IdStats candidate = idsStats.get(trackedIds[index]);
+					final long estimate = candidate != null ? candidate.getEstimate() : 0L;
+					if (estimate < victimEstimate) {
+						victim = index;
+						victimEstimate = estimate;
+					}
+				}
+
+				idsStats.remove((T) trackedIds[victim]);
+				trackedIds[victim] = id;
+				error = victimEstimate;
+			}
+
+			final IdStats created = new IdStats(error);
+			idsStats.put(id, created);
+			return created;
+		} finally {
+			trackingLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [delegate=").append(delegate);
+		builder.append(", stats=").append(globalStats);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Instrumented lock, decorates lock obtained from the decorated manager.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <T>
+	 *            locking id type
+	 */
+	private static final class InstrumentedLock<T> extends IdBasedLock<T> {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = -6542316592006418418L;
+
+		/**
+		 * Decorated lock.
+		 */
+		private final IdBasedLock<T> delegate;
+
+		/**
+		 * Instrumented manager.
+		 */
+		private final InstrumentedIdBasedLockManager<T> manager;
+
+		/**
+		 * Id statistics, optional.
+		 */
+		private final IdStats idStats;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aId
+		 *            lock id
+		 * @param aDelegate
+		 *            decorated lock
+		 * @param aManager
+		 *            instrumented manager
+		 * @param aIdStats
+		 *            id statistics, optional
+		 */
+		private InstrumentedLock(final T aId, final IdBasedLock<T> aDelegate, final InstrumentedIdBasedLockManager<T> aManager, final IdStats aIdStats) {
+			super(aId, aManager, null); // all locking is done by the decorated lock
+			this.delegate = aDelegate;
+			this.manager = aManager;
+			this.idStats = aIdStats;
+		}
+
+		@Override
+		public IdBasedLock<T> lock() {
+			final long start = System.nanoTime();
+			if (delegate.tryLock()) {
+				acquired(start, false);
+				return this;
+			}
+
+			queued();
+			delegate.lock();
+			acquired(start, true);
+			return this;
+		}
+
+		@Override
+		public boolean tryLock() {
+			final long start = System.nanoTime();
+			if (delegate.tryLock()) {
+				acquired(start, false);
+				return true;
+			}
+
+			failed();
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(final long timeout, final TimeUnit unit) throws InterruptedException {
+			final long start = System.nanoTime();
+			if (delegate.tryLock()) {
+				acquired(start, false);
+				return true;
+			}
+
+			queued();
+			if (delegate.tryLock(timeout, unit)) {
+				acquired(start, true);
+				return true;
+			}
+
+			failed();
+			return false;
+		}
+
+		@Override
+		public IdBasedLock<T> unlock() {
+			final boolean outermost = delegate.getHoldCount() == 1;
+			final long holdStart = delegate.holdStart;
+			delegate.unlock(); // releases reference in the decorated manager
+			if (outermost)
+				manager.globalStats.holdTimeHistogram.record(System.nanoTime() - holdStart);
+
+			return this;
+		}
+
+		@Override
+		public boolean isHeldByCurrentThread() {
+			return delegate.isHeldByCurrentThread();
+		}
+
+		@Override
+		public boolean isLocked() {
+			return delegate.isLocked();
+		}
+
+		@Override
+		public boolean hasQueuedThreads() {
+			return delegate.hasQueuedThreads();
+		}
+
+		@Override
+		public boolean hasQueuedThread(final Thread thread) {
+			return delegate.hasQueuedThread(thread);
+		}
+
+		@Override
+		public int getHoldCount() {
+			return delegate.getHoldCount();
+		}
+
+		@Override
+		public int getQueueLength() {
+			return delegate.getQueueLength();
+		}
+
+		@Override
+		public int getReferencesCount() {
+			return delegate.getReferencesCount();
+		}
+
+		/**
+		 * Record lock acquisition.
+		 *
+		 * @param start
+		 *            acquisition start timestamp in nanoseconds
+		 * @param contended
+		 *            is lock was acquired after waiting
+		 */
+		private void acquired(final long start, final boolean contended) {
+			final long now = System.nanoTime();
+			final long waitTime = now - start;
+			if (delegate.getHoldCount() == 1)
+				delegate.holdStart = now;
+
+			manager.globalStats.acquired(waitTime, contended);
+			if (idStats != null)
+				idStats.acquired(waitTime, contended);
+		}
+
+		/**
+		 * Record thread queuing for the lock.
+		 */
+		private void queued() {
+			final int queueLength = delegate.getQueueLength() + 1;
+			manager.globalStats.queued(queueLength);
+			if (idStats != null)
+				idStats.queued(queueLength);
+		}
+
+		/**
+		 * Record failed lock acquisition.
+		 */
+		private void failed() {
+			manager.globalStats.failed();
+			if (idStats != null)
+				idStats.failed();
+		}
+
+		@Override
+		public String toString() {
+			return delegate.toString();
+		}
+
+	}
+
+	/**
+	 * Id locking statistics.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public static class IdStats implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = -1405478916101183744L;
+
+		/**
+		 * Acquisitions count.
+		 */
+		private final LongAdder acquisitions = new LongAdder();
+
+		/**
+		 * Acquisitions after waiting count.
+		 */
+		private final LongAdder contendedAcquisitions = new LongAdder();
+
+		/**
+		 * Failed (timed out) acquisitions count.
+		 */
+		private final LongAdder failedAcquisitions = new LongAdder();
+
+		/**
+		 * Total wait time in nanoseconds.
+		 */
+		private final LongAdder waitTime = new LongAdder();
+
+		/**
+		 * Maximum queued threads count.
+		 */
+		private final AtomicLong maxQueueLength = new AtomicLong();
+
+		/**
+		 * Contended acquisitions estimate inherited from the replaced id.
+		 */
+		private final long error;
+
+		/**
+		 * Default constructor.
+		 */
+		public IdStats() {
+			this(0L);
+		}
+
+		/**
+		 * Protected constructor.
+		 *
+		 * @param aError
+		 *            contended acquisitions estimate inherited from the replaced id
+		 */
+		protected IdStats(final long aError) {
+			this.error = aError;
+		}
+
+		/**
+		 * Record lock acquisition.
+		 *
+		 * @param aWaitTime
+		 *            wait time in nanoseconds
+		 * @param contended
+		 *            is lock was acquired after waiting
+		 */
+		protected void acquired(final long aWaitTime, final boolean contended) {
+			acquisitions.increment();
+			if (contended) {
+				contendedAcquisitions.increment();
+				waitTime.add(aWaitTime);
+			}
+		}
+
+		/**
+		 * Record failed lock acquisition.
+		 */
+		protected void failed() {
+			failedAcquisitions.increment();
+		}
+
+		/**
+		 * Record thread queuing for the lock.
+		 *
+		 * @param queueLength
+		 *            queued threads count
+		 */
+		protected void queued(final long queueLength) {
+			long current = maxQueueLength.get();
+			while (queueLength > current && !maxQueueLength.compareAndSet(current, queueLength))
+				current = maxQueueLength.get();
+		}
+
+		/**
+		 * Reset statistics.
+		 */
+		protected void reset() {
+			acquisitions.reset();
+			contendedAcquisitions.reset();
+			failedAcquisitions.reset();
+			waitTime.reset();
+			maxQueueLength.set(0);
+		}
+
+		public long getAcquisitionsCount() {
+			return acquisitions.sum();
+		}
+
+		public long getContendedAcquisitionsCount() {
+			return contendedAcquisitions.sum();
+		}
+
+		public long getFailedAcquisitionsCount() {
+			return failedAcquisitions.sum();
+		}
+
+		/**
+		 * Get total wait time of contended acquisitions.
+		 *
+		 * @return wait time in nanoseconds
+		 */
+		public long getWaitTime() {
+			return waitTime.sum();
+		}
+
+		/**
+		 * Get queued threads high-water mark.
+		 *
+		 * @return <code>long</code>
+		 */
+		public long getMaxQueueLength() {
+			return maxQueueLength.get();
+		}
+
+		/**
+		 * Get contended acquisitions estimate, used for choosing tracked id's replacement victims.
+		 *
+		 * @return contended acquisitions count with estimate inherited from the replaced id
+		 */
+		protected long getEstimate() {
+			return error + contendedAcquisitions.sum();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+			builder.append(" [acquisitions=").append(getAcquisitionsCount());
+			builder.append(", contended=").append(getContendedAcquisitionsCount());
+			builder.append(", failed=").append(getFailedAcquisitionsCount());
+			builder.append(", waitTime=").append(getWaitTime());
+			builder.append(", maxQueueLength=").append(getMaxQueueLength());
+			builder.append("]");
+			return builder.toString();
+		}
+
+	}
+
+	/**
+	 * Global locking statistics, additionally to the {@link IdStats} contains wait time and hold time histograms.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public static final class Stats extends IdStats {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 7346005004187369812L;
+
+		/**
+		 * Wait time histogram.
+		 */
+		private final Histogram waitTimeHistogram = new Histogram();
+
+		/**
+		 * Hold time histogram.
+		 */
+		private final Histogram holdTimeHistogram = new Histogram();
+
+		@Override
+		protected void acquired(final long aWaitTime, final boolean contended) {
+			super.acquired(aWaitTime, contended);
+			waitTimeHistogram.record(aWaitTime);
+		}
+
+		@Override
+		protected void reset() {
+			super.reset();
+			waitTimeHistogram.reset();
+			holdTimeHistogram.reset();
+		}
+
+		/**
+		 * Get wait time histogram, for all acquisitions.
+		 *
+		 * @return {@link Histogram}
+		 */
+		public Histogram getWaitTimeHistogram() {
+			return waitTimeHistogram;
+		}
+
+		/**
+		 * Get hold time histogram.
+		 *
+		 * @return {@link Histogram}
+		 */
+		public Histogram getHoldTimeHistogram() {
+			return holdTimeHistogram;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(super.toString());
+			builder.append(" [waitTimeHistogram=").append(waitTimeHistogram);
+			builder.append(", holdTimeHistogram=").append(holdTimeHistogram);
+			builder.append("]");
+			return builder.toString();
+		}
+
+	}
+
+	/**
+	 * Time histogram with power of two nanoseconds buckets.<br>
+	 * Bucket with index <code>i</code> contains values in range <code>[2^(i-1), 2^i)</code>, bucket <code>0</code> contains zero values.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public static final class Histogram implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 3185633233049606417L;
+
+		/**
+		 * Buckets amount.
+		 */
+		public static final int BUCKETS = Long.SIZE;
+
+		/**
+		 * Buckets.
+		 */
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+		/**
+		 * Values sum.
+		 */
+		private final LongAdder sum = new LongAdder();
+
+		/**
+		 * Maximum value.
+		 */
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Default constructor.
+		 */
+		private Histogram() {
+			for (int i = 0; i < BUCKETS; i++)
+				buckets[i] = new LongAdder();
+		}
+
+		/**
+		 * Record value.
+		 *
+		 * @param nanos
+		 *            value in nanoseconds, negative values are recorded as zero
+		 */
+		private void record(final long nanos) {
+			final long value = Math.max(0L, nanos);
+			buckets[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(value))].increment();
+			sum.add(value);
+
+			long current = max.get();
+			while (value > current && !max.compareAndSet(current, value))
+				current = max.get();
+		}
+
+		/**
+		 * Reset histogram.
+		 */
+		private void reset() {
+			for (final LongAdder bucket : buckets)
+				bucket.reset();
+
+			sum.reset();
+			max.set(0);
+		}
+
+		/**
+		 * Get recorded values count.
+		 *
+		 * @return <code>long</code>
+		 */
+		public long getCount() {
+			long result = 0;
+			for (final LongAdder bucket : buckets)
+				result += bucket.sum();
+
+			return result;
+		}
+
+		/**
+		 * Get buckets counts snapshot.
+		 *
+		 * @return array of counts, check class description for buckets ranges
+		 */
+		public long[] getBuckets() {
+			final long[] result = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				result[i] = buckets[i].sum();
+
+			return result;
+		}
+
+		/**
+		 * Get mean value.
+		 *
+		 * @return mean value in nanoseconds or <code>0</code> if nothing recorded
+		 */
+		public double getMean() {
+			final long count = getCount();
+			return count == 0 ? 0d : (double) sum.sum() / count;
+		}
+
+		/**
+		 * Get maximum value.
+		 *
+		 * @return maximum value in nanoseconds
+		 */
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Get percentile value estimation, as upper bound of the bucket containing percentile.
+		 *
+		 * @param percentile
+		 *            percentile, from <code>0</code> to <code>100</code>
+		 * @return percentile value estimation in nanoseconds
+		 */
+		public long getPercentile(final double percentile) {
+			checkArgument(percentile >= 0 && percentile <= 100, "percentile argument should be in range [0, 100]");
+
+			final long[] counts = getBuckets();
+			long total = 0;
+			for (final long count : counts)
+				total += count;
+			if (total == 0)
+				return 0L;
+
+			final long rank = (long) Math.ceil(total * percentile / 100d);
+			long accumulated = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				accumulated += counts[i];
+				if (accumulated >= rank && counts[i] > 0)
+					return Math.min(max.get(), i == 0 ? 0L : i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+			}
+
+			return max.get();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("[");
+			builder.append("count=").append(getCount());
+			builder.append(", mean=").append(getMean());
+			builder.append(", p99=").append(getPercentile(99));
+			builder.append(", max=").append(getMax());
+			builder.append("]");
+			return builder.toString();
+		}
+
+	}
+
+}
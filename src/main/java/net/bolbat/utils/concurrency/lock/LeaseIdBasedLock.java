@@ -0,0 +1,364 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.io.Serializable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.concurrency.HashedWheelTimer;
+
+/**
+ * {@link IdBasedLock} with limited hold time (lease).<br>
+ * Lease starts on acquisition and ends on the last <code>unlock()</code>, if holder not released the lock in time it will be force-released by the
+ * manager timer: lock becomes available for other threads and holder's following <code>unlock()</code> fails with
+ * {@link IllegalMonitorStateException}.<br>
+ * Each obtained instance carries own lease time, while all instances obtained for the same id are sharing the same lock state. Reentrant acquisitions by
+ * the holder thread are not prolonging the lease.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class LeaseIdBasedLock<T> extends IdBasedLock<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -6112390409563127464L;
+
+	/**
+	 * Shared lock state.
+	 */
+	private final State<T> state;
+
+	/**
+	 * Lease time in nanoseconds.
+	 */
+	private final long leaseTime;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aState
+	 *            shared lock state
+	 * @param aLeaseTime
+	 *            lease time in nanoseconds
+	 */
+	LeaseIdBasedLock(final State<T> aState, final long aLeaseTime) {
+		super(aState.id, aState.manager, null); // all locking is done by the shared state
+		this.state = aState;
+		this.leaseTime = aLeaseTime;
+	}
+
+	@Override
+	public LeaseIdBasedLock<T> lock() {
+		if (state.tryReenter())
+			return this;
+
+		state.permit.acquireUninterruptibly();
+		state.acquired(leaseTime);
+		return this;
+	}
+
+	@Override
+	public boolean tryLock() {
+		if (state.tryReenter())
+			return true;
+		if (!state.permit.tryAcquire())
+			return false;
+
+		state.acquired(leaseTime);
+		return true;
+	}
+
+	@Override
+	public boolean tryLock(final long timeout, final TimeUnit unit) throws InterruptedException {
+		if (state.tryReenter())
+			return true;
+		if (!state.permit.tryAcquire(timeout, unit))
+			return false;
+
+		state.acquired(leaseTime);
+		return true;
+	}
+
+	/**
+	 * Attempts to release this lock.<br>
+	 * Lease is finished when all holder acquisitions are released.
+	 *
+	 * @return {@link LeaseIdBasedLock}
+	 * @throws IllegalMonitorStateException
+	 *             if the current thread does not hold this lock, including the case when the lease was expired
+	 */
+	@Override
+	public LeaseIdBasedLock<T> unlock() {
+		state.release();
+		state.manager.releaseLock(this);
+		return this;
+	}
+
+	@Override
+	public boolean isHeldByCurrentThread() {
+		synchronized (state) {
+			return state.holder == Thread.currentThread();
+		}
+	}
+
+	@Override
+	public boolean isLocked() {
+		synchronized (state) {
+			return state.holder != null;
+		}
+	}
+
+	@Override
+	public boolean hasQueuedThreads() {
+		return state.permit.hasQueuedThreads();
+	}
+
+	/**
+	 * Not supported by lease lock, queued threads are not tracked individually.
+	 *
+	 * @param thread
+	 *            the thread
+	 * @return <code>false</code>
+	 */
+	@Override
+	public boolean hasQueuedThread(final Thread thread) {
+		return false;
+	}
+
+	@Override
+	public int getHoldCount() {
+		synchronized (state) {
+			return state.holder == Thread.currentThread() ? state.holds : 0;
+		}
+	}
+
+	@Override
+	public int getQueueLength() {
+		return state.permit.getQueueLength();
+	}
+
+	@Override
+	public int getReferencesCount() {
+		return state.referencesCount;
+	}
+
+	/**
+	 * Get lease time.
+	 *
+	 * @param unit
+	 *            the time unit of the result
+	 * @return lease time
+	 */
+	public long getLeaseTime(final TimeUnit unit) {
+		return unit.convert(leaseTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get shared lock state.
+	 *
+	 * @return {@link State}
+	 */
+	State<T> getState() {
+		return state;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + getId() + ", " + state.referencesCount + ", " + TimeUnit.NANOSECONDS.toMillis(leaseTime) + "ms)";
+	}
+
+	/**
+	 * Lock state shared by all lock instances obtained for the same id.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <T>
+	 *            locking id type
+	 */
+	static final class State<T> implements Serializable {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 3853212512947612290L;
+
+		/**
+		 * References count updater.
+		 */
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<State> REFERENCES_COUNT = AtomicIntegerFieldUpdater.newUpdater(State.class, "referencesCount");
+
+		/**
+		 * Lock id.
+		 */
+		private final T id;
+
+		/**
+		 * Lock manager.
+		 */
+		private final LeaseIdBasedLockManager<T> manager;
+
+		/**
+		 * Lock permit, can be released by any thread, so expired lease can be force-released.
+		 */
+		private final Semaphore permit = new Semaphore(1);
+
+		/**
+		 * References count, updated only through <code>REFERENCES_COUNT</code>.
+		 */
+		private volatile int referencesCount;
+
+		/**
+		 * Holder thread, guarded by this state monitor.
+		 */
+		private transient Thread holder;
+
+		/**
+		 * Holder acquisitions count, guarded by this state monitor.
+		 */
+		private int holds;
+
+		/**
+		 * Lease generation, incremented on each acquisition and release, guarded by this state monitor.
+		 */
+		private long generation;
+
+		/**
+		 * Lease expiration timeout, guarded by this state monitor.
+		 */
+		private transient HashedWheelTimer.Timeout lease;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aId
+		 *            lock id
+		 * @param aManager
+		 *            lock manager
+		 */
+		State(final T aId, final LeaseIdBasedLockManager<T> aManager) {
+			this.id = aId;
+			this.manager = aManager;
+		}
+
+		/**
+		 * Get lock id.
+		 *
+		 * @return <T>
+		 */
+		T getId() {
+			return id;
+		}
+
+		/**
+		 * Increase references count.
+		 */
+		void increaseReferences() {
+			REFERENCES_COUNT.incrementAndGet(this);
+		}
+
+		/**
+		 * Increase references count only if state is still referenced, state with zero references is removed by the manager and can't be reused.
+		 *
+		 * @return <code>true</code> if references count was increased or <code>false</code>
+		 */
+		boolean tryIncreaseReferences() {
+			for (;;) {
+				final int current = referencesCount;
+				if (current <= 0)
+					return false;
+				if (REFERENCES_COUNT.compareAndSet(this, current, current + 1))
+					return true;
+			}
+		}
+
+		/**
+		 * Decrease references count.
+		 *
+		 * @return decreased value as <code>int</code>
+		 */
+		int decreaseReferences() {
+			return REFERENCES_COUNT.decrementAndGet(this);
+		}
+
+		/**
+		 * Reenter the lock if it's already held by the current thread.
+		 *
+		 * @return <code>true</code> if reentered or <code>false</code>
+		 */
+		private synchronized boolean tryReenter() {
+			if (holder != Thread.currentThread())
+				return false;
+
+			holds++;
+			return true;
+		}
+
+		/**
+		 * Start the lease after the permit acquisition.
+		 *
+		 * @param leaseTime
+		 *            lease time in nanoseconds
+		 */
+		private synchronized void acquired(final long leaseTime) {
+			holder = Thread.currentThread();
+			holds = 1;
+			final long leaseGeneration = ++generation;
+			lease = manager.scheduleLeaseExpiration(() -> expire(leaseGeneration), leaseTime);
+		}
+
+		/**
+		 * Release one holder acquisition.
+		 */
+		private synchronized void release() {
+			if (holder != Thread.currentThread())
+				throw new IllegalMonitorStateException("Lock[" + id + "] is not held by current thread or lease expired");
+
+			if (--holds == 0)
+				free();
+		}
+
+		/**
+		 * Finish the lease and release the permit.
+		 */
+		private void free() {
+			holder = null;
+			holds = 0;
+			generation++;
+			if (lease != null) {
+				lease.cancel();
+				lease = null;
+			}
+
+			permit.release();
+		}
+
+		/**
+		 * Force-release the lock if the given lease is still active.
+		 *
+		 * @param leaseGeneration
+		 *            expired lease generation
+		 */
+		private synchronized void expire(final long leaseGeneration) {
+			if (generation != leaseGeneration || holder == null)
+				return;
+
+			// accounting expiration before the permit release, so the next holder observes it
+			manager.leaseExpired(this, holds);
+			lease = null;
+			free();
+		}
+
+	}
+
+}
@@ -0,0 +1,240 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.concurrency.HashedWheelTimer;
+
+/**
+ * Lease based {@link IdBasedLockManager} implementation.<br>
+ * Obtained locks have limited hold time (lease), expired leases are force-released by the shared {@link HashedWheelTimer}, so stuck or forgotten holder
+ * can't block the id forever and can't prevent lock removal from the manager. Expired leases are counted, check <code>getExpiredLeasesCount()</code>.<br>
+ * References are counted with CAS in the same way as in {@link ConcurrentIdBasedLockManager}.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class LeaseIdBasedLockManager<T> implements IdBasedLockManager<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -2540467920651296315L;
+
+	/**
+	 * Locks states storage.
+	 */
+	private final ConcurrentMap<T, LeaseIdBasedLock.State<T>> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Default lease time in nanoseconds.
+	 */
+	private final long defaultLeaseTime;
+
+	/**
+	 * Leases timer, shared timer is used if <code>null</code>.
+	 */
+	private final transient HashedWheelTimer timer;
+
+	/**
+	 * Expired leases amount.
+	 */
+	private final LongAdder expiredLeasesCount = new LongAdder();
+
+	/**
+	 * Public constructor, shared timer will be used.
+	 *
+	 * @param aDefaultLeaseTime
+	 *            lease time for locks obtained without explicit lease time
+	 * @param aUnit
+	 *            the time unit of the lease time argument
+	 */
+	public LeaseIdBasedLockManager(final long aDefaultLeaseTime, final TimeUnit aUnit) {
+		this(aDefaultLeaseTime, aUnit, null);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aDefaultLeaseTime
+	 *            lease time for locks obtained without explicit lease time
+	 * @param aUnit
+	 *            the time unit of the lease time argument
+	 * @param aTimer
+	 *            leases timer, shared timer will be used if <code>null</code>
+	 */
+	public LeaseIdBasedLockManager(final long aDefaultLeaseTime, final TimeUnit aUnit, final HashedWheelTimer aTimer) {
+		checkArgument(aDefaultLeaseTime > 0, "aDefaultLeaseTime argument should be greater than 0");
+		checkArgument(aUnit != null, "aUnit argument is null");
+
+		this.defaultLeaseTime = aUnit.toNanos(aDefaultLeaseTime);
+		this.timer = aTimer;
+	}
+
+	@Override
+	public List<T> getLocksIds() {
+		return new ArrayList<>(locks.keySet());
+	}
+
+	@Override
+	public int getLocksCount() {
+		return locks.size();
+	}
+
+	/**
+	 * Obtain {@link LeaseIdBasedLock} with the default lease time.
+	 *
+	 * @param id
+	 *            lock id, can't be <code>null</code>
+	 * @return {@link LeaseIdBasedLock} instance
+	 */
+	@Override
+	public LeaseIdBasedLock<T> obtainLock(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		return new LeaseIdBasedLock<>(obtainState(id), defaultLeaseTime);
+	}
+
+	/**
+	 * Obtain {@link LeaseIdBasedLock} with the given lease time.
+	 *
+	 * @param id
+	 *            lock id, can't be <code>null</code>
+	 * @param leaseTime
+	 *            maximum lock hold time
+	 * @param unit
+	 *            the time unit of the lease time argument
+	 * @return {@link LeaseIdBasedLock} instance
+	 */
+	public LeaseIdBasedLock<T> obtainLock(final T id, final long leaseTime, final TimeUnit unit) {
+		checkArgument(id != null, "id argument is null");
+		checkArgument(leaseTime > 0, "leaseTime argument should be greater than 0");
+		checkArgument(unit != null, "unit argument is null");
+
+		return new LeaseIdBasedLock<>(obtainState(id), unit.toNanos(leaseTime));
+	}
+
+	@Override
+	public void releaseLock(final IdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+		checkArgument(lock instanceof LeaseIdBasedLock, "lock argument is not obtained from this manager");
+
+		release(((LeaseIdBasedLock<T>) lock).getState(), 1);
+	}
+
+	/**
+	 * Get expired leases count.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getExpiredLeasesCount() {
+		return expiredLeasesCount.sum();
+	}
+
+	/**
+	 * Obtain lock state for the given id with increased references count.
+	 *
+	 * @param id
+	 *            lock id
+	 * @return {@link LeaseIdBasedLock.State}
+	 */
+	private LeaseIdBasedLock.State<T> obtainState(final T id) {
+		for (;;) {
+			LeaseIdBasedLock.State<T> state = locks.get(id);
+			if (state == null) {
+				final LeaseIdBasedLock.State<T> created = new LeaseIdBasedLock.State<>(id, this);
+				created.increaseReferences();
+
+				state = locks.putIfAbsent(id, created);
+				if (state == null)
+					return created;
+			}
+
+			if (state.tryIncreaseReferences())
+				return state;
+
+			// state already released by other thread, helping to remove it and retrying
+			locks.remove(id, state);
+		}
+	}
+
+	/**
+	 * Release lock state references.
+	 *
+	 * @param state
+	 *            lock state
+	 * @param references
+	 *            references amount
+	 */
+	private void release(final LeaseIdBasedLock.State<T> state, final int references) {
+		for (int i = 0; i < references; i++)
+			if (state.decreaseReferences() == 0)
+				locks.remove(state.getId(), state);
+	}
+
+	/**
+	 * Schedule lease expiration.
+	 *
+	 * @param task
+	 *            expiration task
+	 * @param leaseTime
+	 *            lease time in nanoseconds
+	 * @return {@link HashedWheelTimer.Timeout}
+	 */
+	HashedWheelTimer.Timeout scheduleLeaseExpiration(final Runnable task, final long leaseTime) {
+		final HashedWheelTimer aTimer = timer != null ? timer : SharedTimerHolder.TIMER;
+		return aTimer.newTimeout(task, leaseTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Lease expiration callback, releases references held by the expired holder.
+	 *
+	 * @param state
+	 *            lock state
+	 * @param holds
+	 *            holder acquisitions released by expiration
+	 */
+	void leaseExpired(final LeaseIdBasedLock.State<T> state, final int holds) {
+		expiredLeasesCount.increment();
+		release(state, holds);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [locks=").append(locks.size());
+		builder.append(", defaultLeaseTime=").append(TimeUnit.NANOSECONDS.toMillis(defaultLeaseTime)).append("ms");
+		builder.append(", expiredLeases=").append(expiredLeasesCount.sum());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Lazily initialized timer shared by all managers without own timer.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class SharedTimerHolder {
+
+		/**
+		 * Shared timer.
+		 */
+		private static final HashedWheelTimer TIMER = new HashedWheelTimer();
+
+	}
+
+}
@@ -0,0 +1,291 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Id based read/write lock implementation.<br>
+ * Multiple readers of the same id are not blocking each other, writer is exclusive.<br>
+ * Each unlock releases one lock reference in the manager, so each successful lock should be followed by the appropriate unlock.
+ * 
+ * @author Alexandr Bolbat
+ * 
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public class ReadWriteIdBasedLock<T> implements Serializable, AutoCloseable {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -1749330513407393541L;
+
+	/**
+	 * Lock references count updater.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ReadWriteIdBasedLock> REFERENCES_COUNT = AtomicIntegerFieldUpdater
+			.newUpdater(ReadWriteIdBasedLock.class, "referencesCount");
+
+	/**
+	 * {@link ReentrantReadWriteLock} instance.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Lock references count, updated only through <code>REFERENCES_COUNT</code>.
+	 */
+	private volatile int referencesCount;
+
+	/**
+	 * Lock manager.
+	 */
+	private final ReadWriteIdBasedLockManager<T> manager;
+
+	/**
+	 * Lock id.
+	 */
+	private final T id;
+
+	/**
+	 * Protected constructor.
+	 * 
+	 * @param aId
+	 *            lock id
+	 * @param aManager
+	 *            lock manager
+	 */
+	protected ReadWriteIdBasedLock(final T aId, final ReadWriteIdBasedLockManager<T> aManager) {
+		this.manager = aManager;
+		this.id = aId;
+	}
+
+	/**
+	 * Acquires the read lock.<br>
+	 * Check <code>ReentrantReadWriteLock.ReadLock.lock()</code> for details.
+	 * 
+	 * @return {@link ReadWriteIdBasedLock}
+	 */
+	public ReadWriteIdBasedLock<T> lockRead() {
+		lock.readLock().lock();
+		return this;
+	}
+
+	/**
+	 * Try to acquires the read lock.<br>
+	 * Check <code>ReentrantReadWriteLock.ReadLock.tryLock()</code> for details.
+	 * 
+	 * @return {@code true} if the read lock was acquired and {@code false} otherwise
+	 */
+	public boolean tryLockRead() {
+		return lock.readLock().tryLock();
+	}
+
+	/**
+	 * Try to acquires the read lock.<br>
+	 * Check <code>ReentrantReadWriteLock.ReadLock.tryLock(timeout, unit)</code> for details.
+	 * 
+	 * @param timeout
+	 *            the time to wait for the lock
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 * @return {@code true} if the read lock was acquired and {@code false} if the waiting time elapsed before the lock could be acquired
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public boolean tryLockRead(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return lock.readLock().tryLock(timeout, unit);
+	}
+
+	/**
+	 * Attempts to release the read lock.<br>
+	 * Check <code>ReentrantReadWriteLock.ReadLock.unlock()</code> for details.
+	 * 
+	 * @return {@link ReadWriteIdBasedLock}
+	 */
+	public ReadWriteIdBasedLock<T> unlockRead() {
+		lock.readLock().unlock();
+		manager.releaseLock(this);
+		return this;
+	}
+
+	/**
+	 * Acquires the write lock.<br>
+	 * Check <code>ReentrantReadWriteLock.WriteLock.lock()</code> for details.
+	 * 
+	 * @return {@link ReadWriteIdBasedLock}
+	 */
+	public ReadWriteIdBasedLock<T> lockWrite() {
+		lock.writeLock().lock();
+		return this;
+	}
+
+	/**
+	 * Try to acquires the write lock.<br>
+	 * Check <code>ReentrantReadWriteLock.WriteLock.tryLock()</code> for details.
+	 * 
+	 * @return {@code true} if the write lock was free and was acquired by the current thread, or the write lock was already held by the current thread; and
+	 *         {@code false} otherwise
+	 */
+	public boolean tryLockWrite() {
+		return lock.writeLock().tryLock();
+	}
+
+	/**
+	 * Try to acquires the write lock.<br>
+	 * Check <code>ReentrantReadWriteLock.WriteLock.tryLock(timeout, unit)</code> for details.
+	 * 
+	 * @param timeout
+	 *            the time to wait for the lock
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 * @return {@code true} if the write lock was free and was acquired by the current thread or the write lock was already held by the current thread and
+	 *         {@code false} if the waiting time elapsed before the lock could be acquired
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public boolean tryLockWrite(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return lock.writeLock().tryLock(timeout, unit);
+	}
+
+	/**
+	 * Attempts to release the write lock.<br>
+	 * Check <code>ReentrantReadWriteLock.WriteLock.unlock()</code> for details.
+	 * 
+	 * @return {@link ReadWriteIdBasedLock}
+	 */
+	public ReadWriteIdBasedLock<T> unlockWrite() {
+		lock.writeLock().unlock();
+		manager.releaseLock(this);
+		return this;
+	}
+
+	/**
+	 * Queries if the write lock is held by the current thread.<br>
+	 * Check <code>ReentrantReadWriteLock.isWriteLockedByCurrentThread()</code> for details.
+	 *
+	 * @return {@code true} if current thread holds the write lock and {@code false} otherwise
+	 */
+	public boolean isWriteLockedByCurrentThread() {
+		return lock.isWriteLockedByCurrentThread();
+	}
+
+	/**
+	 * Queries if the write lock is held by any thread.<br>
+	 * Check <code>ReentrantReadWriteLock.isWriteLocked()</code> for details.
+	 *
+	 * @return {@code true} if any thread holds the write lock and {@code false} otherwise
+	 */
+	public boolean isWriteLocked() {
+		return lock.isWriteLocked();
+	}
+
+	/**
+	 * Queries the number of read locks held for this lock.<br>
+	 * Check <code>ReentrantReadWriteLock.getReadLockCount()</code> for details.
+	 *
+	 * @return the number of read locks held
+	 */
+	public int getReadLockCount() {
+		return lock.getReadLockCount();
+	}
+
+	/**
+	 * Queries the number of reentrant read holds on this lock by the current thread.<br>
+	 * Check <code>ReentrantReadWriteLock.getReadHoldCount()</code> for details.
+	 *
+	 * @return the number of holds on the read lock by the current thread, or zero if the read lock is not held by the current thread
+	 */
+	public int getReadHoldCount() {
+		return lock.getReadHoldCount();
+	}
+
+	/**
+	 * Queries whether any threads are waiting to acquire the read or write lock.<br>
+	 * Check <code>ReentrantReadWriteLock.hasQueuedThreads()</code> for details.
+	 *
+	 * @return {@code true} if there may be other threads waiting to acquire the lock and {@code false} otherwise
+	 */
+	public boolean hasQueuedThreads() {
+		return lock.hasQueuedThreads();
+	}
+
+	/**
+	 * Get lock references count.
+	 * 
+	 * @return <code>int</code>
+	 */
+	public int getReferencesCount() {
+		return referencesCount;
+	}
+
+	/**
+	 * Increase references count.
+	 * 
+	 * @return increased value as <code>int</code>
+	 */
+	protected int increaseReferences() {
+		return REFERENCES_COUNT.incrementAndGet(this);
+	}
+
+	/**
+	 * Increase references count only if lock is still referenced.<br>
+	 * Lock with zero references is treated as released by the manager and can't be reused.
+	 * 
+	 * @return <code>true</code> if references count was increased or <code>false</code>
+	 */
+	protected boolean tryIncreaseReferences() {
+		for (;;) {
+			final int current = referencesCount;
+			if (current <= 0)
+				return false;
+			if (REFERENCES_COUNT.compareAndSet(this, current, current + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * Decrease references count.
+	 * 
+	 * @return decreased value as <code>int</code>
+	 */
+	protected int decreaseReferences() {
+		return REFERENCES_COUNT.decrementAndGet(this);
+	}
+
+	/**
+	 * Get lock id.
+	 * 
+	 * @return <T>
+	 */
+	protected T getId() {
+		return id;
+	}
+
+	/**
+	 * Release the write lock if it held by the current thread, otherwise release the read lock.
+	 */
+	@Override
+	public void close() {
+		if (lock.isWriteLockedByCurrentThread()) {
+			unlockWrite();
+		} else {
+			unlockRead();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "(" + id + ", " + referencesCount + ")";
+	}
+
+}
@@ -0,0 +1,52 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.io.Serializable;
+import java.util.List;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * {@link ReadWriteIdBasedLock} manager interface.
+ * 
+ * @author Alexandr Bolbat
+ * 
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+public interface ReadWriteIdBasedLockManager<T> extends Serializable {
+
+	/**
+	 * Get exist locks id's.
+	 * 
+	 * @return {@link List} of <T>
+	 */
+	List<T> getLocksIds();
+
+	/**
+	 * Get exist locks count.
+	 * 
+	 * @return <code>int</code>
+	 */
+	int getLocksCount();
+
+	/**
+	 * Obtain {@link ReadWriteIdBasedLock} from manager.
+	 * 
+	 * @param id
+	 *            lock id, can't be <code>null</code>
+	 * @return {@link ReadWriteIdBasedLock} instance
+	 */
+	ReadWriteIdBasedLock<T> obtainLock(T id);
+
+	/**
+	 * Release {@link ReadWriteIdBasedLock}.
+	 * 
+	 * @param lock
+	 *            lock, can't be <code>null</code>
+	 */
+	void releaseLock(ReadWriteIdBasedLock<T> lock);
+
+}
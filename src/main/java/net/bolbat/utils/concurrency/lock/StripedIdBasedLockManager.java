@@ -0,0 +1,275 @@
+package net.bolbat.utils.concurrency.lock;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Striped {@link IdBasedLockManager} implementation.<br>
+ * Id's are mapped to the fixed power of two amount of pre-allocated locks (stripes), so there is no locks storage churn, references counting and locks
+ * allocation at all, memory usage is bounded by stripes amount.<br>
+ * Different id's can be mapped to the same stripe and in this case they will share the same lock, check <code>getCollisionRate()</code> for estimating
+ * stripes amount quality.<br>
+ * Collisions and locked id's are tracked by the last obtained id of each stripe, which is updated without synchronization with locking, so this
+ * statistics is approximate and intended for monitoring only.
+ *
+ * @author Alexandr Bolbat
+ *
+ * @param <T>
+ *            locking id type
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class StripedIdBasedLockManager<T> implements IdBasedLockManager<T> {
+
+	/**
+	 * Generated SerialVersionUID.
+	 */
+	private static final long serialVersionUID = -3092528791470346515L;
+
+	/**
+	 * Default stripes amount.
+	 */
+	public static final int DEFAULT_STRIPES_COUNT = 64;
+
+	/**
+	 * Maximum stripes amount.
+	 */
+	public static final int MAXIMUM_STRIPES_COUNT = 1 << 30;
+
+	/**
+	 * Stripes.
+	 */
+	private final StripeLock<T>[] stripes;
+
+	/**
+	 * Stripe index mask.
+	 */
+	private final int mask;
+
+	/**
+	 * Obtained locks amount.
+	 */
+	private final LongAdder obtainsCount = new LongAdder();
+
+	/**
+	 * Obtained locks amount for stripes previously obtained for other id, approximate.
+	 */
+	private final LongAdder collisionsCount = new LongAdder();
+
+	/**
+	 * Default constructor, <code>DEFAULT_STRIPES_COUNT</code> will be used as stripes amount.
+	 */
+	public StripedIdBasedLockManager() {
+		this(DEFAULT_STRIPES_COUNT);
+	}
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param aStripesCount
+	 *            stripes amount, will be rounded up to the nearest power of two
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public StripedIdBasedLockManager(final int aStripesCount) {
+		checkArgument(aStripesCount > 0, "aStripesCount argument should be greater than 0");
+		checkArgument(aStripesCount <= MAXIMUM_STRIPES_COUNT, "aStripesCount argument should not be greater than " + MAXIMUM_STRIPES_COUNT);
+
+		final int size = aStripesCount == 1 ? 1 : Integer.highestOneBit(aStripesCount - 1) << 1;
+		this.stripes = new StripeLock[size];
+		for (int i = 0; i < size; i++)
+			stripes[i] = new StripeLock<>(i, this);
+
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Get last obtained id's of currently locked stripes.<br>
+	 * Result is approximate: only one id is reported for the stripe locked for several id's, and it can be the id obtained by other thread after the
+	 * stripe was locked.
+	 *
+	 * @return {@link List} of <T>
+	 */
+	@Override
+	public List<T> getLocksIds() {
+		final List<T> result = new ArrayList<>();
+		for (final StripeLock<T> stripe : stripes) {
+			final T lastId = stripe.lastId;
+			if (lastId != null && stripe.isLocked())
+				result.add(lastId);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get currently locked stripes count.
+	 *
+	 * @return <code>int</code>
+	 */
+	@Override
+	public int getLocksCount() {
+		int result = 0;
+		for (final StripeLock<T> stripe : stripes)
+			if (stripe.isLocked())
+				result++;
+
+		return result;
+	}
+
+	@Override
+	public IdBasedLock<T> obtainLock(final T id) {
+		checkArgument(id != null, "id argument is null");
+
+		final StripeLock<T> stripe = stripes[stripeIndex(id)];
+		obtainsCount.increment();
+
+		// racy by design, concurrent obtains of the same stripe can miss or double count the collision
+		// field is written only when id changed, to avoid cache line invalidation on the repeated obtains of the same id
+		final T lastId = stripe.lastId;
+		if (lastId == null || !lastId.equals(id)) {
+			if (lastId != null)
+				collisionsCount.increment();
+
+			stripe.lastId = id;
+		}
+
+		return stripe;
+	}
+
+	@Override
+	public void releaseLock(final IdBasedLock<T> lock) {
+		checkArgument(lock != null, "lock argument is null");
+		// nothing to release, stripes are pre-allocated
+	}
+
+	/**
+	 * Get stripes count.
+	 *
+	 * @return <code>int</code>
+	 */
+	public int getStripesCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Get obtained locks count.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getObtainsCount() {
+		return obtainsCount.sum();
+	}
+
+	/**
+	 * Get collisions count.<br>
+	 * Collision is an obtaining of the stripe which was previously obtained for the other id. Count is approximate, concurrent obtains of the same
+	 * stripe can miss or double count collisions.
+	 *
+	 * @return <code>long</code>
+	 */
+	public long getCollisionsCount() {
+		return collisionsCount.sum();
+	}
+
+	/**
+	 * Get approximate collision rate between stripes.
+	 *
+	 * @return collisions count divided by obtains count or <code>0</code> if nothing obtained yet
+	 */
+	public double getCollisionRate() {
+		final long obtains = obtainsCount.sum();
+		return obtains == 0 ? 0d : (double) collisionsCount.sum() / obtains;
+	}
+
+	/**
+	 * Get stripe index for the given id.
+	 *
+	 * @param id
+	 *            lock id, can't be <code>null</code>
+	 * @return stripe index
+	 */
+	int stripeIndex(final T id) {
+		return spread(id.hashCode()) & mask;
+	}
+
+	/**
+	 * Spread hash code bits, to prevent poor quality hash codes from clustering in the same stripes.
+	 *
+	 * @param hashCode
+	 *            original hash code
+	 * @return spread hash code
+	 */
+	private static int spread(final int hashCode) {
+		int h = hashCode;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [stripes=").append(stripes.length);
+		builder.append(", obtains=").append(obtainsCount.sum());
+		builder.append(", collisions=").append(collisionsCount.sum());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Stripe lock.
+	 *
+	 * @author Alexandr Bolbat
+	 *
+	 * @param <T>
+	 *            locking id type
+	 */
+	private static final class StripeLock<T> extends IdBasedLock<T> {
+
+		/**
+		 * Generated SerialVersionUID.
+		 */
+		private static final long serialVersionUID = 2261659720316573367L;
+
+		/**
+		 * Stripe index.
+		 */
+		private final int index;
+
+		/**
+		 * Last obtained id, updated without synchronization with locking.
+		 */
+		private volatile T lastId;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aIndex
+		 *            stripe index
+		 * @param aManager
+		 *            lock manager
+		 */
+		private StripeLock(final int aIndex, final IdBasedLockManager<T> aManager) {
+			super(null, aManager);
+			this.index = aIndex;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + index + ", " + lastId + ")";
+		}
+
+	}
+
+}
@@ -0,0 +1,1023 @@
+package net.bolbat.utils.crypt;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+import net.bolbat.utils.collections.ConcurrentCache;
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+import net.bolbat.utils.lang.StringUtils;
+
+/**
+ * Reusable {@link Cipher} handle for the algorithm, secure key and salt.<br>
+ * Key and algorithm parameters are derived once on handle creation, so encoding and decoding are not repeating key derivation (PBKDF2) on each call.
+ * Handles obtained with <code>of(...)</code> are kept in the bounded cache keyed by algorithm, key and salt, concurrent requests for the same handle
+ * are deriving the key once.<br>
+ * Initialized {@link Cipher} instances are reused through the bounded {@link InstancePool} per mode, so provider lookup and cipher initialization are
+ * not repeated on each call.<br>
+ * Streams and channels are processed in chunks of <code>CHUNK_SIZE</code> bytes with constant memory, output is the same as for the whole value.
+ * {@link ByteBuffer} values (including direct) are processed without copying to the heap.<br>
+ * Output of the authenticated algorithms (like {@link Algorithm#AES_GCM}) is framed as <code>[version][nonce][segments]</code>, full 96 bit random
+ * nonce is generated for each message, key is the same for all messages of the handle. Content is split to segments of <code>SEGMENT_SIZE</code>
+ * bytes, each segment is encrypted separately with the message nonce with the segment index XOR-ed into its last 4 bytes (like TLS 1.3 record nonce)
+ * and has own tag, the last segment is flagged in the authenticated data, so segments can't be reordered, dropped or truncated. All segments except the last one are full, the last one is shorter (can be empty). Streams and channels are
+ * decoded segment by segment with constant memory, each segment is released after its tag verification.
+ *
+ * @author Alexandr Bolbat
+ */
+@Audience.Public
+@Stability.Evolving
+@Concurrency.ThreadSafe
+public final class CipherHandle {
+
+	/**
+	 * Handles cache maximum size.
+	 */
+	public static final int CACHE_MAXIMUM_SIZE = 1024;
+
+	/**
+	 * Handles cache expiration after last access in minutes, derived keys are not kept in memory forever.
+	 */
+	public static final int CACHE_EXPIRE_AFTER_ACCESS = 60;
+
+	/**
+	 * Streams and channels processing chunk size in bytes.
+	 */
+	public static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Segment size in bytes of the authenticated algorithms content, each segment is encrypted and verified separately.
+	 */
+	public static final int SEGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * Frame format version of the authenticated algorithms output.
+	 */
+	public static final byte FRAME_VERSION = 1;
+
+	/**
+	 * Nonce size in bytes of the authenticated algorithms, full 96 bit random nonce for each message.
+	 */
+	public static final int NONCE_SIZE = 12;
+
+	/**
+	 * Authentication tag size in bytes of the authenticated algorithms.
+	 */
+	public static final int TAG_SIZE = 16;
+
+	/**
+	 * Frame header size in bytes, version and nonce.
+	 */
+	public static final int HEADER_SIZE = 1 + NONCE_SIZE;
+
+	/**
+	 * Encrypted segment size in bytes, all segments except the last one have this size.
+	 */
+	private static final int ENCRYPTED_SEGMENT_SIZE = SEGMENT_SIZE + TAG_SIZE;
+
+	/**
+	 * Maximum segments amount of the message, segment index should fit the nonce.
+	 */
+	private static final long MAXIMUM_SEGMENTS_COUNT = 1L << Integer.SIZE;
+
+	/**
+	 * Last segment flag, authenticated data.
+	 */
+	private static final byte[] LAST_SEGMENT = { 1 };
+
+	/**
+	 * Not last segment flag, authenticated data.
+	 */
+	private static final byte[] NOT_LAST_SEGMENT = { 0 };
+
+	/**
+	 * Nonces generator.
+	 */
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/**
+	 * Handles cache.
+	 */
+	private static final ConcurrentCache<HandleKey, CipherHandle> CACHE = ConcurrentCache.<HandleKey, CipherHandle> builder()
+			.setMaximumSize(CACHE_MAXIMUM_SIZE).setExpireAfterAccess(CACHE_EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES).build();
+
+	/**
+	 * Algorithm.
+	 */
+	private final Algorithm algorithm;
+
+	/**
+	 * Derived key.
+	 */
+	private final Key key;
+
+	/**
+	 * Algorithm parameters, <code>null</code> if algorithm is not using parameters.
+	 */
+	private final AlgorithmParameterSpec parameterSpec;
+
+	/**
+	 * Is output framed, ciphers are initialized with the random nonce for each message.
+	 */
+	private final boolean framed;
+
+	/**
+	 * Initialized encrypting ciphers.
+	 */
+	private final InstancePool<Cipher> encryptors;
+
+	/**
+	 * Initialized decrypting ciphers.
+	 */
+	private final InstancePool<Cipher> decryptors;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param aAlgorithm
+	 *            algorithm
+	 * @param aKey
+	 *            secure key
+	 * @param aSalt
+	 *            secure salt
+	 */
+	private CipherHandle(final Algorithm aAlgorithm, final String aKey, final String aSalt) {
+		this.algorithm = aAlgorithm;
+		this.key = aAlgorithm.crateKey(aKey, aSalt);
+		this.parameterSpec = aAlgorithm.createParameterSpec(aKey, aSalt);
+		this.framed = aAlgorithm.isAuthenticated();
+		this.encryptors = new InstancePool<>(InstancePool.DEFAULT_CAPACITY, () -> createCipher(Cipher.ENCRYPT_MODE));
+		this.decryptors = new InstancePool<>(InstancePool.DEFAULT_CAPACITY, () -> createCipher(Cipher.DECRYPT_MODE));
+	}
+
+	/**
+	 * Get cached {@link CipherHandle} or create it.<br>
+	 * Key will be used also as secure salt.
+	 *
+	 * @param algorithm
+	 *            algorithm
+	 * @param key
+	 *            secure key
+	 * @return {@link CipherHandle}
+	 */
+	public static CipherHandle of(final Algorithm algorithm, final String key) {
+		return of(algorithm, key, key);
+	}
+
+	/**
+	 * Get cached {@link CipherHandle} or create it.
+	 *
+	 * @param algorithm
+	 *            algorithm
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return {@link CipherHandle}
+	 */
+	public static CipherHandle of(final Algorithm algorithm, final String key, final String salt) {
+		checkArgument(algorithm != null, "algorithm argument is null.");
+		checkArgument(StringUtils.isNotEmpty(key), "key argument is empty.");
+		checkArgument(StringUtils.isNotEmpty(salt), "salt argument is empty.");
+
+		return CACHE.get(new HandleKey(algorithm, key, salt), handleKey -> new CipherHandle(algorithm, key, salt));
+	}
+
+	/**
+	 * Remove all cached handles, for example after keys rotation.
+	 */
+	public static void invalidateAll() {
+		CACHE.invalidateAll();
+	}
+
+	/**
+	 * Get algorithm.
+	 *
+	 * @return {@link Algorithm}
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Encode.<br>
+	 * Empty value is encoded to empty array, except the authenticated algorithms: header and empty last segment are written, so empty message is
+	 * authenticated as well.
+	 *
+	 * @param toEncode
+	 *            value to encode
+	 * @return encoded value in byte array
+	 */
+	public byte[] encode(final byte[] toEncode) {
+		if (toEncode == null || toEncode.length == 0)
+			return framed ? doFinal(Cipher.ENCRYPT_MODE, CipherUtils.EMPTY_BYTE_ARRAY) : CipherUtils.EMPTY_BYTE_ARRAY;
+
+		return doFinal(Cipher.ENCRYPT_MODE, toEncode);
+	}
+
+	/**
+	 * Decode.
+	 *
+	 * @param toDecode
+	 *            value to decode
+	 * @return decoded value in byte array
+	 */
+	public byte[] decode(final byte[] toDecode) {
+		if (toDecode == null || toDecode.length == 0)
+			return CipherUtils.EMPTY_BYTE_ARRAY;
+
+		return doFinal(Cipher.DECRYPT_MODE, toDecode);
+	}
+
+	/**
+	 * Encode {@link String}.<br>
+	 * Empty value is encoded to empty {@link String}, except the authenticated algorithms, see <code>encode(byte[])</code>.
+	 *
+	 * @param value
+	 *            {@link String} to encode
+	 * @return encoded {@link String} in hex format
+	 */
+	public String encode(final String value) {
+		if (StringUtils.isEmpty(value))
+			return framed ? HexUtils.encodeHexString(encode(CipherUtils.EMPTY_BYTE_ARRAY)) : CipherUtils.EMPTY_STRING;
+
+		return HexUtils.encodeHexString(encode(value.getBytes(CipherUtils.DEFAULT_CHARSET)));
+	}
+
+	/**
+	 * Decode {@link String}.
+	 *
+	 * @param value
+	 *            {@link String} to decode, in hex format
+	 * @return decoded {@link String}
+	 */
+	public String decode(final String value) {
+		if (StringUtils.isEmpty(value))
+			return CipherUtils.EMPTY_STRING;
+
+		try {
+			return new String(decode(HexUtils.decodeHex(value)), CipherUtils.DEFAULT_CHARSET);
+		} catch (final IllegalArgumentException e) {
+			throw new CipherRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Encode {@link ByteBuffer} content into the output {@link ByteBuffer}, content is not copied to the heap.<br>
+	 * Empty content is encoded to nothing, except the authenticated algorithms, see <code>encode(byte[])</code>.<br>
+	 * Input position is advanced to its limit, output position is advanced by the written bytes amount. Output should have at least
+	 * <code>getEncodedSize(input.remaining())</code> bytes remaining.
+	 *
+	 * @param input
+	 *            {@link ByteBuffer} to encode
+	 * @param output
+	 *            {@link ByteBuffer} for encoded content
+	 * @return encoded bytes amount
+	 */
+	public int encode(final ByteBuffer input, final ByteBuffer output) {
+		return doFinal(Cipher.ENCRYPT_MODE, input, output);
+	}
+
+	/**
+	 * Decode {@link ByteBuffer} content into the output {@link ByteBuffer}, content is not copied to the heap.<br>
+	 * Input position is advanced to its limit, output position is advanced by the written bytes amount. Output should have at least
+	 * <code>getDecodedSize(input.remaining())</code> bytes remaining.
+	 *
+	 * @param input
+	 *            {@link ByteBuffer} to decode
+	 * @param output
+	 *            {@link ByteBuffer} for decoded content
+	 * @return decoded bytes amount
+	 */
+	public int decode(final ByteBuffer input, final ByteBuffer output) {
+		return doFinal(Cipher.DECRYPT_MODE, input, output);
+	}
+
+	/**
+	 * Get maximum encoded content size.
+	 *
+	 * @param length
+	 *            content length
+	 * @return <code>int</code>
+	 */
+	public int getEncodedSize(final int length) {
+		return getOutputSize(Cipher.ENCRYPT_MODE, length);
+	}
+
+	/**
+	 * Get maximum decoded content size.
+	 *
+	 * @param length
+	 *            encoded content length
+	 * @return <code>int</code>
+	 */
+	public int getDecodedSize(final int length) {
+		return getOutputSize(Cipher.DECRYPT_MODE, length);
+	}
+
+	/**
+	 * Encode stream content, streams are not closed.<br>
+	 * Empty content is encoded to nothing, except the authenticated algorithms, see <code>encode(byte[])</code>.
+	 *
+	 * @param in
+	 *            {@link InputStream} to encode
+	 * @param out
+	 *            {@link OutputStream} for encoded content
+	 * @return encoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public long encode(final InputStream in, final OutputStream out) throws IOException {
+		return transfer(Cipher.ENCRYPT_MODE, in, out);
+	}
+
+	/**
+	 * Decode stream content, streams are not closed.<br>
+	 * For the authenticated algorithms each segment is released after its tag verification, on failure output can contain verified segments
+	 * preceding the failed one.
+	 *
+	 * @param in
+	 *            {@link InputStream} to decode
+	 * @param out
+	 *            {@link OutputStream} for decoded content
+	 * @return decoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public long decode(final InputStream in, final OutputStream out) throws IOException {
+		return transfer(Cipher.DECRYPT_MODE, in, out);
+	}
+
+	/**
+	 * Encode channel content, channels should be in blocking mode and are not closed.<br>
+	 * Empty content is encoded to nothing, except the authenticated algorithms, see <code>encode(byte[])</code>.
+	 *
+	 * @param in
+	 *            {@link ReadableByteChannel} to encode
+	 * @param out
+	 *            {@link WritableByteChannel} for encoded content
+	 * @return encoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public long encode(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		return transfer(Cipher.ENCRYPT_MODE, in, out);
+	}
+
+	/**
+	 * Decode channel content, channels should be in blocking mode and are not closed.<br>
+	 * For the authenticated algorithms each segment is released after its tag verification, on failure output can contain verified segments
+	 * preceding the failed one.
+	 *
+	 * @param in
+	 *            {@link ReadableByteChannel} to decode
+	 * @param out
+	 *            {@link WritableByteChannel} for decoded content
+	 * @return decoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public long decode(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		return transfer(Cipher.DECRYPT_MODE, in, out);
+	}
+
+	/**
+	 * Process the stream in chunks with pooled {@link Cipher}.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param in
+	 *            {@link InputStream}
+	 * @param out
+	 *            {@link OutputStream}
+	 * @return written bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	private long transfer(final int mode, final InputStream in, final OutputStream out) throws IOException {
+		checkArgument(in != null, "in argument is null.");
+		checkArgument(out != null, "out argument is null.");
+
+		if (framed)
+			return transferSegments(mode, in, out);
+
+		final Cipher cipher = pool(mode).acquire();
+		long consumed = 0;
+		long written = 0;
+		final byte[] input = new byte[CHUNK_SIZE];
+		byte[] output = new byte[cipher.getOutputSize(CHUNK_SIZE)];
+		try {
+			for (int read = in.read(input); read != -1; read = in.read(input)) {
+				consumed += read;
+				if (cipher.getOutputSize(read) > output.length)
+					output = new byte[cipher.getOutputSize(read)];
+
+				final int processed = cipher.update(input, 0, read, output);
+				out.write(output, 0, processed);
+				written += processed;
+			}
+
+			if (consumed == 0) { // empty content is encoded to nothing, same as empty array
+				pool(mode).release(cipher);
+				return 0;
+			}
+
+			if (cipher.getOutputSize(0) > output.length)
+				output = new byte[cipher.getOutputSize(0)];
+
+			final int processed = cipher.doFinal(output, 0);
+			out.write(output, 0, processed);
+			written += processed;
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+
+		pool(mode).release(cipher); // failed cipher is dropped
+		return written;
+	}
+
+	/**
+	 * Process the stream of the framed algorithm by segments with pooled {@link Cipher}.<br>
+	 * Each segment is processed with single <code>doFinal(...)</code> using buffers allocated once, decoded segment is written only after its tag
+	 * verification.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param in
+	 *            {@link InputStream}
+	 * @param out
+	 *            {@link OutputStream}
+	 * @return written bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	private long transferSegments(final int mode, final InputStream in, final OutputStream out) throws IOException {
+		final byte[] header = new byte[HEADER_SIZE];
+		long written = 0;
+		if (mode == Cipher.ENCRYPT_MODE) {
+			writeHeader(header);
+			out.write(header);
+			written += HEADER_SIZE;
+		} else {
+			if (readFully(in, header) < HEADER_SIZE)
+				throw new CipherRuntimeException("content is shorter than frame header.");
+
+			checkHeader(header);
+		}
+
+		final Cipher cipher = pool(mode).acquire();
+		final byte[] input = new byte[mode == Cipher.ENCRYPT_MODE ? SEGMENT_SIZE : ENCRYPTED_SEGMENT_SIZE];
+		final byte[] output = new byte[ENCRYPTED_SEGMENT_SIZE];
+		try {
+			for (long index = 0;; index++) {
+				final int read = readFully(in, input);
+				final boolean last = read < input.length;
+				initSegment(cipher, mode, header, index, last);
+				final int processed = cipher.doFinal(input, 0, read, output, 0);
+				out.write(output, 0, processed);
+				written += processed;
+				if (last)
+					break;
+			}
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+
+		pool(mode).release(cipher); // failed cipher is dropped
+		return written;
+	}
+
+	/**
+	 * Process the channel in chunks with pooled {@link Cipher}.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param in
+	 *            {@link ReadableByteChannel}
+	 * @param out
+	 *            {@link WritableByteChannel}
+	 * @return written bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	private long transfer(final int mode, final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		checkArgument(in != null, "in argument is null.");
+		checkArgument(out != null, "out argument is null.");
+
+		if (framed)
+			return transferSegments(mode, in, out);
+
+		final Cipher cipher = pool(mode).acquire();
+		long consumed = 0;
+		long written = 0;
+		final ByteBuffer input = ByteBuffer.allocate(CHUNK_SIZE);
+		ByteBuffer output = ByteBuffer.allocate(cipher.getOutputSize(CHUNK_SIZE));
+		try {
+			while (in.read(input) != -1) {
+				input.flip();
+				consumed += input.remaining();
+				if (cipher.getOutputSize(input.remaining()) > output.capacity())
+					output = ByteBuffer.allocate(cipher.getOutputSize(input.remaining()));
+
+				output.clear();
+				cipher.update(input, output);
+				written += write(output, out);
+				input.clear();
+			}
+
+			if (consumed == 0) { // empty content is encoded to nothing, same as empty array
+				pool(mode).release(cipher);
+				return 0;
+			}
+
+			input.flip(); // empty
+			if (cipher.getOutputSize(0) > output.capacity())
+				output = ByteBuffer.allocate(cipher.getOutputSize(0));
+
+			output.clear();
+			cipher.doFinal(input, output);
+			written += write(output, out);
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+
+		pool(mode).release(cipher); // failed cipher is dropped
+		return written;
+	}
+
+	/**
+	 * Process the channel of the framed algorithm by segments with pooled {@link Cipher}.<br>
+	 * Each segment is processed with single <code>doFinal(...)</code> using buffers allocated once, decoded segment is written only after its tag
+	 * verification.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param in
+	 *            {@link ReadableByteChannel}
+	 * @param out
+	 *            {@link WritableByteChannel}
+	 * @return written bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	private long transferSegments(final int mode, final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		long written = 0;
+		if (mode == Cipher.ENCRYPT_MODE) {
+			writeHeader(header.array());
+			header.position(HEADER_SIZE);
+			written += write(header, out);
+		} else {
+			if (readFully(in, header) < HEADER_SIZE)
+				throw new CipherRuntimeException("content is shorter than frame header.");
+
+			checkHeader(header.array());
+		}
+
+		final Cipher cipher = pool(mode).acquire();
+		final ByteBuffer input = ByteBuffer.allocate(mode == Cipher.ENCRYPT_MODE ? SEGMENT_SIZE : ENCRYPTED_SEGMENT_SIZE);
+		final ByteBuffer output = ByteBuffer.allocate(ENCRYPTED_SEGMENT_SIZE);
+		try {
+			for (long index = 0;; index++) {
+				input.clear();
+				final boolean last = readFully(in, input) < input.capacity();
+				input.flip();
+				initSegment(cipher, mode, header.array(), index, last);
+				output.clear();
+				cipher.doFinal(input, output);
+				written += write(output, out);
+				if (last)
+					break;
+			}
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+
+		pool(mode).release(cipher); // failed cipher is dropped
+		return written;
+	}
+
+	/**
+	 * Read from the stream until buffer is full or stream is ended.
+	 *
+	 * @param in
+	 *            {@link InputStream}
+	 * @param buffer
+	 *            buffer
+	 * @return read bytes amount, less than buffer length only if stream is ended
+	 * @throws IOException
+	 *             if reading failed
+	 */
+	private static int readFully(final InputStream in, final byte[] buffer) throws IOException {
+		int read = 0;
+		while (read < buffer.length) {
+			final int chunk = in.read(buffer, read, buffer.length - read);
+			if (chunk == -1)
+				break;
+
+			read += chunk;
+		}
+
+		return read;
+	}
+
+	/**
+	 * Read from the channel until buffer is full or channel is ended.
+	 *
+	 * @param in
+	 *            {@link ReadableByteChannel}
+	 * @param buffer
+	 *            buffer, in write mode
+	 * @return buffer position, less than buffer capacity only if channel is ended
+	 * @throws IOException
+	 *             if reading failed
+	 */
+	private static int readFully(final ReadableByteChannel in, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			if (in.read(buffer) == -1)
+				break;
+
+		return buffer.position();
+	}
+
+	/**
+	 * Write processed output fully.
+	 *
+	 * @param output
+	 *            processed output, in write mode
+	 * @param out
+	 *            {@link WritableByteChannel}
+	 * @return written bytes amount
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	private static int write(final ByteBuffer output, final WritableByteChannel out) throws IOException {
+		output.flip();
+		final int length = output.remaining();
+		while (output.hasRemaining())
+			out.write(output);
+
+		return length;
+	}
+
+	/**
+	 * Process the {@link ByteBuffer} with pooled {@link Cipher}.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param input
+	 *            input
+	 * @param output
+	 *            output
+	 * @return written bytes amount
+	 */
+	private int doFinal(final int mode, final ByteBuffer input, final ByteBuffer output) {
+		checkArgument(input != null, "input argument is null.");
+		checkArgument(output != null, "output argument is null.");
+
+		if (!input.hasRemaining() && !(framed && mode == Cipher.ENCRYPT_MODE)) // empty authenticated message is framed
+			return 0;
+
+		final Cipher cipher = pool(mode).acquire();
+		try {
+			final int result = framed ? doFinalSegments(cipher, mode, input, output) : cipher.doFinal(input, output);
+			pool(mode).release(cipher);
+			return result;
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Process the {@link ByteBuffer} of the framed algorithm by segments.
+	 *
+	 * @param cipher
+	 *            {@link Cipher}
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param input
+	 *            input
+	 * @param output
+	 *            output
+	 * @return written bytes amount
+	 * @throws ShortBufferException
+	 *             if output is too small
+	 * @throws IllegalBlockSizeException
+	 *             if input is malformed
+	 * @throws BadPaddingException
+	 *             if tag verification failed
+	 */
+	private int doFinalSegments(final Cipher cipher, final int mode, final ByteBuffer input, final ByteBuffer output)
+			throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+		final byte[] header = new byte[HEADER_SIZE];
+		int result = 0;
+		if (mode == Cipher.ENCRYPT_MODE) {
+			if (output.remaining() < getOutputSize(mode, input.remaining()))
+				throw new ShortBufferException("output remaining[" + output.remaining() + "] is too small.");
+
+			writeHeader(header);
+			output.put(header);
+			result += HEADER_SIZE;
+		} else {
+			if (input.remaining() < HEADER_SIZE)
+				throw new CipherRuntimeException("content is shorter than frame header.");
+
+			input.get(header);
+			checkHeader(header);
+		}
+
+		final int segment = mode == Cipher.ENCRYPT_MODE ? SEGMENT_SIZE : ENCRYPTED_SEGMENT_SIZE;
+		final int limit = input.limit();
+		try {
+			for (long index = 0;; index++) {
+				final int length = Math.min(segment, limit - input.position());
+				final boolean last = length < segment;
+				input.limit(input.position() + length);
+				initSegment(cipher, mode, header, index, last);
+				result += cipher.doFinal(input, output);
+				input.limit(limit);
+				if (last)
+					return result;
+			}
+		} finally {
+			input.limit(limit);
+		}
+	}
+
+	/**
+	 * Get output size for the input length.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param length
+	 *            input length
+	 * @return <code>int</code>
+	 */
+	private int getOutputSize(final int mode, final int length) {
+		checkArgument(length >= 0, "length argument is negative.");
+
+		if (framed) { // pooled ciphers are initialized per segment
+			if (mode == Cipher.ENCRYPT_MODE)
+				return HEADER_SIZE + length + (length / SEGMENT_SIZE + 1) * TAG_SIZE;
+
+			final int content = length - HEADER_SIZE;
+			return content <= 0 ? 0 : content / ENCRYPTED_SEGMENT_SIZE * SEGMENT_SIZE + Math.max(0, content % ENCRYPTED_SEGMENT_SIZE - TAG_SIZE);
+		}
+
+		final Cipher cipher = pool(mode).acquire();
+		final int result = cipher.getOutputSize(length);
+		pool(mode).release(cipher);
+		return result;
+	}
+
+	/**
+	 * Process the value with pooled {@link Cipher}.<br>
+	 * After successful <code>doFinal(...)</code> cipher is reset to the initialized state and returned to the pool, failed cipher is dropped.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param value
+	 *            value
+	 * @return processed value
+	 */
+	private byte[] doFinal(final int mode, final byte[] value) {
+		final Cipher cipher = pool(mode).acquire();
+		try {
+			final byte[] result = framed ? doFinalSegments(cipher, mode, value) : cipher.doFinal(value);
+			pool(mode).release(cipher);
+			return result;
+		} catch (final ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new CipherRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Process the value of the framed algorithm by segments.
+	 *
+	 * @param cipher
+	 *            {@link Cipher}
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param value
+	 *            value
+	 * @return processed value
+	 * @throws ShortBufferException
+	 *             if content is malformed
+	 * @throws IllegalBlockSizeException
+	 *             if content is malformed
+	 * @throws BadPaddingException
+	 *             if tag verification failed
+	 */
+	private byte[] doFinalSegments(final Cipher cipher, final int mode, final byte[] value)
+			throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+		final byte[] result = new byte[getOutputSize(mode, value.length)];
+		final byte[] header;
+		int offset = 0;
+		int position = 0;
+		if (mode == Cipher.ENCRYPT_MODE) {
+			header = new byte[HEADER_SIZE];
+			writeHeader(header);
+			System.arraycopy(header, 0, result, 0, HEADER_SIZE);
+			position = HEADER_SIZE;
+		} else {
+			if (value.length < HEADER_SIZE)
+				throw new CipherRuntimeException("content is shorter than frame header.");
+
+			header = Arrays.copyOf(value, HEADER_SIZE);
+			checkHeader(header);
+			offset = HEADER_SIZE;
+		}
+
+		final int segment = mode == Cipher.ENCRYPT_MODE ? SEGMENT_SIZE : ENCRYPTED_SEGMENT_SIZE;
+		for (long index = 0;; index++) {
+			final int length = Math.min(segment, value.length - offset);
+			final boolean last = length < segment;
+			initSegment(cipher, mode, header, index, last);
+			position += cipher.doFinal(value, offset, length, result, position);
+			offset += length;
+			if (last)
+				return result;
+		}
+	}
+
+	/**
+	 * Write frame header of the new message, version and random nonce.
+	 *
+	 * @param header
+	 *            header array
+	 */
+	private static void writeHeader(final byte[] header) {
+		final byte[] nonce = new byte[NONCE_SIZE];
+		RANDOM.nextBytes(nonce);
+		header[0] = FRAME_VERSION;
+		System.arraycopy(nonce, 0, header, 1, NONCE_SIZE);
+	}
+
+	/**
+	 * Check frame header version.
+	 *
+	 * @param header
+	 *            header array
+	 */
+	private static void checkHeader(final byte[] header) {
+		if (header[0] != FRAME_VERSION)
+			throw new CipherRuntimeException("frame version[" + header[0] + "] is not supported.");
+	}
+
+	/**
+	 * Initialize pooled {@link Cipher} of the framed algorithm for the next segment.<br>
+	 * Nonce is the header nonce with the segment index XOR-ed into its last 4 bytes, so segment nonces of the message are distinct and random 96 bit
+	 * nonces of different messages keep their collision bound. Header and last segment flag are authenticated as associated data.
+	 *
+	 * @param cipher
+	 *            {@link Cipher}
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @param header
+	 *            frame header
+	 * @param index
+	 *            segment index
+	 * @param last
+	 *            is segment last
+	 */
+	private void initSegment(final Cipher cipher, final int mode, final byte[] header, final long index, final boolean last) {
+		if (index >= MAXIMUM_SEGMENTS_COUNT)
+			throw new CipherRuntimeException("content is too long, segments amount limit[" + MAXIMUM_SEGMENTS_COUNT + "] exceeded.");
+
+		final byte[] nonce = Arrays.copyOfRange(header, 1, HEADER_SIZE);
+		for (int i = 0; i < Integer.BYTES; i++)
+			nonce[NONCE_SIZE - 1 - i] ^= (byte) (index >>> (i * Byte.SIZE));
+		try {
+			cipher.init(mode, key, new GCMParameterSpec(TAG_SIZE * Byte.SIZE, nonce));
+		} catch (final InvalidKeyException | InvalidAlgorithmParameterException e) {
+			throw new CipherRuntimeException(e);
+		}
+
+		cipher.updateAAD(header);
+		cipher.updateAAD(last ? LAST_SEGMENT : NOT_LAST_SEGMENT);
+	}
+
+	/**
+	 * Get ciphers pool for the mode.
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @return {@link InstancePool}
+	 */
+	private InstancePool<Cipher> pool(final int mode) {
+		return mode == Cipher.ENCRYPT_MODE ? encryptors : decryptors;
+	}
+
+	/**
+	 * Create {@link Cipher}, initialized if algorithm is not framed (framed cipher is initialized per segment).
+	 *
+	 * @param mode
+	 *            {@link Cipher} mode
+	 * @return {@link Cipher}
+	 */
+	private Cipher createCipher(final int mode) {
+		try {
+			final Cipher cipher = Cipher.getInstance(algorithm.getAlgorithmName());
+			if (framed) {
+				return cipher;
+			} else if (parameterSpec != null) {
+				cipher.init(mode, key, parameterSpec);
+			} else {
+				cipher.init(mode, key);
+			}
+			return cipher;
+		} catch (final NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
+			throw new CipherRuntimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + " [algorithm=" + algorithm + "]"; // key is not exposed
+	}
+
+	/**
+	 * Handles cache key.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class HandleKey {
+
+		/**
+		 * Algorithm.
+		 */
+		private final Algorithm algorithm;
+
+		/**
+		 * Secure key.
+		 */
+		private final String key;
+
+		/**
+		 * Secure salt.
+		 */
+		private final String salt;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aAlgorithm
+		 *            algorithm
+		 * @param aKey
+		 *            secure key
+		 * @param aSalt
+		 *            secure salt
+		 */
+		private HandleKey(final Algorithm aAlgorithm, final String aKey, final String aSalt) {
+			this.algorithm = aAlgorithm;
+			this.key = aKey;
+			this.salt = aSalt;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(new Object[] { algorithm, key, salt });
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof HandleKey))
+				return false;
+
+			final HandleKey other = (HandleKey) obj;
+			return algorithm == other.algorithm && key.equals(other.key) && salt.equals(other.salt);
+		}
+
+		@Override
+		public String toString() {
+			return algorithm.name(); // key and salt are not exposed
+		}
+
+	}
+
+}
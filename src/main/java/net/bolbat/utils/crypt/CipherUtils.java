@@ -2,6 +2,12 @@ package net.bolbat.utils.crypt;
 
 import static net.bolbat.utils.lang.StringUtils.isNotEmpty;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -111,15 +117,14 @@ public final class CipherUtils {
 	public static String encode(final Algorithm algorithm, final String value, final String key, final String salt) {
 		if (algorithm == null)
 			throw new IllegalArgumentException("algorithm argument is null.");
-		if (StringUtils.isEmpty(value))
+		if (StringUtils.isEmpty(value) && !algorithm.isAuthenticated()) // empty authenticated message is framed
 			return EMPTY_STRING;
 		if (StringUtils.isEmpty(key))
 			throw new IllegalArgumentException("key argument is empty.");
 		if (StringUtils.isEmpty(salt))
 			throw new IllegalArgumentException("salt argument is empty.");
 
-		final byte[] encoded = algorithm.encode(value.getBytes(DEFAULT_CHARSET), key, salt, null);
-		return HexUtils.encodeHexString(encoded);
+		return CipherHandle.of(algorithm, key, salt).encode(value);
 	}
 
 	/**
@@ -161,13 +166,131 @@ public final class CipherUtils {
 		if (StringUtils.isEmpty(salt))
 			throw new IllegalArgumentException("salt argument is empty.");
 
-		try {
-			final byte[] decodedHex = HexUtils.decodeHex(value);
-			final byte[] decoded = algorithm.decode(decodedHex, key, salt, null);
-			return new String(decoded, DEFAULT_CHARSET);
-		} catch (IllegalArgumentException e) {
-			throw new CipherRuntimeException(e);
-		}
+		return CipherHandle.of(algorithm, key, salt).decode(value);
+	}
+
+	/**
+	 * Encode {@link InputStream} content in chunks with constant memory, streams are not closed.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param in
+	 *            {@link InputStream} to encode
+	 * @param out
+	 *            {@link OutputStream} for encoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return encoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public static long encode(final Algorithm algorithm, final InputStream in, final OutputStream out, final String key, final String salt) throws IOException {
+		return CipherHandle.of(algorithm, key, salt).encode(in, out);
+	}
+
+	/**
+	 * Encode {@link ReadableByteChannel} content in chunks with constant memory, channels should be in blocking mode and are not closed.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param in
+	 *            {@link ReadableByteChannel} to encode
+	 * @param out
+	 *            {@link WritableByteChannel} for encoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return encoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public static long encode(final Algorithm algorithm, final ReadableByteChannel in, final WritableByteChannel out, final String key, final String salt) throws IOException {
+		return CipherHandle.of(algorithm, key, salt).encode(in, out);
+	}
+
+	/**
+	 * Decode {@link InputStream} content in chunks with constant memory, streams are not closed.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param in
+	 *            {@link InputStream} to decode
+	 * @param out
+	 *            {@link OutputStream} for decoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return decoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public static long decode(final Algorithm algorithm, final InputStream in, final OutputStream out, final String key, final String salt) throws IOException {
+		return CipherHandle.of(algorithm, key, salt).decode(in, out);
+	}
+
+	/**
+	 * Decode {@link ReadableByteChannel} content in chunks with constant memory, channels should be in blocking mode and are not closed.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param in
+	 *            {@link ReadableByteChannel} to decode
+	 * @param out
+	 *            {@link WritableByteChannel} for decoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return decoded bytes amount
+	 * @throws IOException
+	 *             if reading or writing failed
+	 */
+	public static long decode(final Algorithm algorithm, final ReadableByteChannel in, final WritableByteChannel out, final String key, final String salt) throws IOException {
+		return CipherHandle.of(algorithm, key, salt).decode(in, out);
+	}
+
+	/**
+	 * Encode {@link ByteBuffer} content into the output {@link ByteBuffer}, content is not copied to the heap.<br>
+	 * Output should have enough bytes remaining, see <code>CipherHandle.getEncodedSize(...)</code>.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param input
+	 *            {@link ByteBuffer} to encode
+	 * @param output
+	 *            {@link ByteBuffer} for encoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return encoded bytes amount
+	 */
+	public static int encode(final Algorithm algorithm, final ByteBuffer input, final ByteBuffer output, final String key, final String salt) {
+		return CipherHandle.of(algorithm, key, salt).encode(input, output);
+	}
+
+	/**
+	 * Decode {@link ByteBuffer} content into the output {@link ByteBuffer}, content is not copied to the heap.<br>
+	 * Output should have enough bytes remaining, see <code>CipherHandle.getDecodedSize(...)</code>.
+	 * 
+	 * @param algorithm
+	 *            algorithm
+	 * @param input
+	 *            {@link ByteBuffer} to decode
+	 * @param output
+	 *            {@link ByteBuffer} for decoded content
+	 * @param key
+	 *            secure key
+	 * @param salt
+	 *            secure salt
+	 * @return decoded bytes amount
+	 */
+	public static int decode(final Algorithm algorithm, final ByteBuffer input, final ByteBuffer output, final String key, final String salt) {
+		return CipherHandle.of(algorithm, key, salt).decode(input, output);
 	}
 
 	/**
@@ -183,6 +306,28 @@ public final class CipherUtils {
 		 */
 		AES("AES"),
 
+		/**
+		 * AES in Galois/Counter Mode, authenticated encryption with 128-bit tag.<br>
+		 * Random 96 bit nonce is generated for each message, encoded value is framed as <code>[version][nonce][segments]</code>, each segment has
+		 * own tag, see {@link CipherHandle}.
+		 */
+		AES_GCM("AES/GCM/NoPadding") {
+			@Override
+			public Key crateKey(final String key, final String salt) {
+				if (StringUtils.isEmpty(key))
+					throw new IllegalArgumentException("key argument is empty.");
+				if (StringUtils.isEmpty(salt))
+					throw new IllegalArgumentException("salt argument is empty.");
+
+				return generateSecretKeySpec(key, salt, "AES", DEFAULT_SECRET_KEY_ITERATIONS, DEFAULT_SECRET_KEY_SIZE);
+			}
+
+			@Override
+			public boolean isAuthenticated() {
+				return true;
+			}
+		},
+
 		/**
 		 * A stream cipher believed to be fully interoperable with the RC4 cipher.
 		 */
@@ -268,31 +413,14 @@ public final class CipherUtils {
 			}
 
 			@Override
-			public byte[] encode(final byte[] toEncode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toEncode == null || toEncode.length == 0)
-					return EMPTY_BYTE_ARRAY;
-				if (StringUtils.isEmpty(key))
-					throw new IllegalArgumentException("key argument is empty.");
-				if (StringUtils.isEmpty(salt))
-					throw new IllegalArgumentException("salt argument is empty.");
-
-				final SecretKey saltKey = generateSecretKeySpec(key, salt, DEFAULT_SECRET_KEY_ALGORITHM, DEFAULT_SECRET_KEY_ITERATIONS, SALT_KEY_SIZE);
-				final AlgorithmParameterSpec param = new PBEParameterSpec(saltKey.getEncoded(), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.encode(toEncode, key, salt, param);
-			}
-
-			@Override
-			public byte[] decode(final byte[] toDecode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toDecode == null || toDecode.length == 0)
-					return EMPTY_BYTE_ARRAY;
+			public AlgorithmParameterSpec createParameterSpec(final String key, final String salt) {
 				if (StringUtils.isEmpty(key))
 					throw new IllegalArgumentException("key argument is empty.");
 				if (StringUtils.isEmpty(salt))
 					throw new IllegalArgumentException("salt argument is empty.");
 
 				final SecretKey saltKey = generateSecretKeySpec(key, salt, DEFAULT_SECRET_KEY_ALGORITHM, DEFAULT_SECRET_KEY_ITERATIONS, SALT_KEY_SIZE);
-				final AlgorithmParameterSpec param = new PBEParameterSpec(saltKey.getEncoded(), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.decode(toDecode, key, salt, param);
+				return new PBEParameterSpec(saltKey.getEncoded(), DEFAULT_SECRET_KEY_ITERATIONS);
 			}
 
 		},
@@ -318,30 +446,15 @@ public final class CipherUtils {
 			}
 
 			@Override
-			public byte[] encode(final byte[] toEncode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toEncode == null || toEncode.length == 0)
-					return EMPTY_BYTE_ARRAY;
+			public AlgorithmParameterSpec createParameterSpec(final String key, final String salt) {
 				if (StringUtils.isEmpty(key))
 					throw new IllegalArgumentException("key argument is empty.");
 				if (StringUtils.isEmpty(salt))
 					throw new IllegalArgumentException("salt argument is empty.");
 
-				final AlgorithmParameterSpec param = new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.encode(toEncode, key, salt, param);
+				return new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
 			}
 
-			@Override
-			public byte[] decode(final byte[] toDecode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toDecode == null || toDecode.length == 0)
-					return EMPTY_BYTE_ARRAY;
-				if (StringUtils.isEmpty(key))
-					throw new IllegalArgumentException("key argument is empty.");
-				if (StringUtils.isEmpty(salt))
-					throw new IllegalArgumentException("salt argument is empty.");
-
-				final AlgorithmParameterSpec param = new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.decode(toDecode, key, salt, param);
-			}
 		},
 
 		/**
@@ -365,30 +478,15 @@ public final class CipherUtils {
 			}
 
 			@Override
-			public byte[] encode(final byte[] toEncode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toEncode == null || toEncode.length == 0)
-					return EMPTY_BYTE_ARRAY;
+			public AlgorithmParameterSpec createParameterSpec(final String key, final String salt) {
 				if (StringUtils.isEmpty(key))
 					throw new IllegalArgumentException("key argument is empty.");
 				if (StringUtils.isEmpty(salt))
 					throw new IllegalArgumentException("salt argument is empty.");
 
-				final AlgorithmParameterSpec param = new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.encode(toEncode, key, salt, param);
+				return new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
 			}
 
-			@Override
-			public byte[] decode(final byte[] toDecode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-				if (toDecode == null || toDecode.length == 0)
-					return EMPTY_BYTE_ARRAY;
-				if (StringUtils.isEmpty(key))
-					throw new IllegalArgumentException("key argument is empty.");
-				if (StringUtils.isEmpty(salt))
-					throw new IllegalArgumentException("salt argument is empty.");
-
-				final AlgorithmParameterSpec param = new PBEParameterSpec(salt.getBytes(DEFAULT_CHARSET), DEFAULT_SECRET_KEY_ITERATIONS);
-				return super.decode(toDecode, key, salt, param);
-			}
 		};
 
 		/**
@@ -428,6 +526,33 @@ public final class CipherUtils {
 			return generateSecretKeySpec(key, salt, getAlgorithmName(), DEFAULT_SECRET_KEY_ITERATIONS, DEFAULT_SECRET_KEY_SIZE);
 		}
 
+		/**
+		 * Create algorithm parameters.
+		 * 
+		 * @param key
+		 *            secure key
+		 * @param salt
+		 *            secure salt
+		 * @return {@link AlgorithmParameterSpec} or <code>null</code> if algorithm is not using parameters
+		 */
+		public AlgorithmParameterSpec createParameterSpec(final String key, final String salt) {
+			if (StringUtils.isEmpty(key))
+				throw new IllegalArgumentException("key argument is empty.");
+			if (StringUtils.isEmpty(salt))
+				throw new IllegalArgumentException("salt argument is empty.");
+
+			return null;
+		}
+
+		/**
+		 * Is algorithm authenticated (AEAD), such algorithms are using random nonce for each message and framed output.
+		 * 
+		 * @return <code>true</code> if authenticated or <code>false</code>
+		 */
+		public boolean isAuthenticated() {
+			return false;
+		}
+
 		/**
 		 * Encode.
 		 * 
@@ -438,24 +563,23 @@ public final class CipherUtils {
 		 * @param salt
 		 *            secure salt
 		 * @param paramSpec
-		 *            algorithm parameter, optional
+		 *            algorithm parameter, optional, if not set cached {@link CipherHandle} is used
 		 * @return encoded value in byte array
 		 */
 		public byte[] encode(final byte[] toEncode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
-			if (toEncode == null || toEncode.length == 0)
+			if ((toEncode == null || toEncode.length == 0) && (!isAuthenticated() || paramSpec != null)) // empty authenticated message is framed
 				return EMPTY_BYTE_ARRAY;
 			if (StringUtils.isEmpty(key))
 				throw new IllegalArgumentException("key argument is empty.");
 			if (StringUtils.isEmpty(salt))
 				throw new IllegalArgumentException("salt argument is empty.");
 
+			if (paramSpec == null) // derived key and initialized ciphers are reused
+				return CipherHandle.of(this, key, salt).encode(toEncode);
+
 			try {
 				final Cipher cipher = Cipher.getInstance(getAlgorithmName());
-				if (paramSpec != null) {
-					cipher.init(Cipher.ENCRYPT_MODE, crateKey(key, salt), paramSpec);
-				} else {
-					cipher.init(Cipher.ENCRYPT_MODE, crateKey(key, salt));
-				}
+				cipher.init(Cipher.ENCRYPT_MODE, crateKey(key, salt), paramSpec);
 				return cipher.doFinal(toEncode);
 			} catch (final NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException //
 					| InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
@@ -473,7 +597,7 @@ public final class CipherUtils {
 		 * @param salt
 		 *            secure salt
 		 * @param paramSpec
-		 *            algorithm parameter, optional
+		 *            algorithm parameter, optional, if not set cached {@link CipherHandle} is used
 		 * @return decoded value in byte array
 		 */
 		public byte[] decode(final byte[] toDecode, final String key, final String salt, final AlgorithmParameterSpec paramSpec) {
@@ -484,13 +608,12 @@ public final class CipherUtils {
 			if (StringUtils.isEmpty(salt))
 				throw new IllegalArgumentException("salt argument is empty.");
 
+			if (paramSpec == null) // derived key and initialized ciphers are reused
+				return CipherHandle.of(this, key, salt).decode(toDecode);
+
 			try {
 				final Cipher cipher = Cipher.getInstance(getAlgorithmName());
-				if (paramSpec != null) {
-					cipher.init(Cipher.DECRYPT_MODE, crateKey(key, salt), paramSpec);
-				} else {
-					cipher.init(Cipher.DECRYPT_MODE, crateKey(key, salt));
-				}
+				cipher.init(Cipher.DECRYPT_MODE, crateKey(key, salt), paramSpec);
 				return cipher.doFinal(toDecode);
 			} catch (final NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException //
 					| InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
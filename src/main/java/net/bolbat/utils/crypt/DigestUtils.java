@@ -3,14 +3,16 @@ package net.bolbat.utils.crypt;
 import static net.bolbat.utils.lang.StringUtils.EMPTY;
 import static net.bolbat.utils.lang.StringUtils.isNotEmpty;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-import net.bolbat.utils.lang.ArrayUtils;
 import net.bolbat.utils.lang.StringUtils;
 
 /**
- * {@link MessageDigest} utilities.
+ * {@link MessageDigest} utilities.<br>
+ * {@link MessageDigest} instances are reused through the bounded pool per algorithm.
  * 
  * @author Alexandr Bolbat
  */
@@ -99,6 +101,11 @@ public final class DigestUtils {
 		 */
 		private final String algorithmName;
 
+		/**
+		 * Reusable {@link MessageDigest} instances.
+		 */
+		private final InstancePool<MessageDigest> digests;
+
 		/**
 		 * Default constructor.
 		 * 
@@ -107,6 +114,7 @@ public final class DigestUtils {
 		 */
 		Algorithm(final String aAlgorithmName) {
 			this.algorithmName = aAlgorithmName;
+			this.digests = new InstancePool<>(InstancePool.DEFAULT_CAPACITY, () -> createDigest(aAlgorithmName));
 		}
 
 		public String getAlgorithmName() {
@@ -137,9 +145,116 @@ public final class DigestUtils {
 			if (value == null || value.length == 0)
 				return CipherUtils.EMPTY_BYTE_ARRAY;
 
+			final MessageDigest digest = digests.acquire();
+			digest.update(value);
+			if (isNotEmpty(salt))
+				digest.update(salt.getBytes(CipherUtils.DEFAULT_CHARSET));
+
+			final byte[] result = digest.digest(); // resets the digest
+			digests.release(digest);
+			return result;
+		}
+
+		/**
+		 * Create digest for the {@link ByteBuffer} content (including direct), content is not copied to the heap.<br>
+		 * Value position is advanced to its limit.
+		 * 
+		 * @param value
+		 *            original value
+		 * @return digest value
+		 */
+		public byte[] digestBuffer(final ByteBuffer value) {
+			return digestBuffer(value, EMPTY);
+		}
+
+		/**
+		 * Create digest for the {@link ByteBuffer} content (including direct), content is not copied to the heap.<br>
+		 * Value position is advanced to its limit.
+		 * 
+		 * @param value
+		 *            original value
+		 * @param salt
+		 *            secure salt, optional
+		 * @return digest value
+		 */
+		public byte[] digestBuffer(final ByteBuffer value, final String salt) {
+			if (value == null || !value.hasRemaining())
+				return CipherUtils.EMPTY_BYTE_ARRAY;
+
+			final MessageDigest digest = digests.acquire();
+			digest.update(value);
+			if (isNotEmpty(salt))
+				digest.update(salt.getBytes(CipherUtils.DEFAULT_CHARSET));
+
+			final byte[] result = digest.digest(); // resets the digest
+			digests.release(digest);
+			return result;
+		}
+
+		/**
+		 * Create digest for the {@link ByteBuffer} content (including direct) and write it into the output {@link ByteBuffer}.<br>
+		 * Value position is advanced to its limit, output position is advanced by the digest length. Output should have at least
+		 * <code>getDigestLength()</code> bytes remaining.
+		 * 
+		 * @param value
+		 *            original value
+		 * @param salt
+		 *            secure salt, optional
+		 * @param output
+		 *            {@link ByteBuffer} for digest value
+		 * @return written bytes amount, <code>0</code> for empty value
+		 */
+		public int digestBuffer(final ByteBuffer value, final String salt, final ByteBuffer output) {
+			if (output == null)
+				throw new IllegalArgumentException("output argument is null.");
+			if (value == null || !value.hasRemaining())
+				return 0;
+			if (output.remaining() < getDigestLength())
+				throw new IllegalArgumentException("output remaining[" + output.remaining() + "] is less than digest length[" + getDigestLength() + "].");
+
+			if (!output.hasArray()) {
+				final byte[] result = digestBuffer(value, salt);
+				output.put(result);
+				return result.length;
+			}
+
+			final MessageDigest digest = digests.acquire();
+			try {
+				digest.update(value);
+				if (isNotEmpty(salt))
+					digest.update(salt.getBytes(CipherUtils.DEFAULT_CHARSET));
+
+				final int length = digest.digest(output.array(), output.arrayOffset() + output.position(), output.remaining()); // resets the digest
+				output.position(output.position() + length);
+				digests.release(digest);
+				return length;
+			} catch (final DigestException e) {
+				throw new DigestRuntimeException(e);
+			}
+		}
+
+		/**
+		 * Get digest length in bytes.
+		 * 
+		 * @return <code>int</code>
+		 */
+		public int getDigestLength() {
+			final MessageDigest digest = digests.acquire();
+			final int length = digest.getDigestLength();
+			digests.release(digest);
+			return length;
+		}
+
+		/**
+		 * Create {@link MessageDigest}.
+		 * 
+		 * @param aAlgorithmName
+		 *            algorithm name
+		 * @return {@link MessageDigest}
+		 */
+		private static MessageDigest createDigest(final String aAlgorithmName) {
 			try {
-				final byte[] toDigest = isNotEmpty(salt) ? ArrayUtils.addAll(value, salt.getBytes(CipherUtils.DEFAULT_CHARSET)) : value;
-				return MessageDigest.getInstance(getAlgorithmName()).digest(toDigest);
+				return MessageDigest.getInstance(aAlgorithmName);
 			} catch (final NoSuchAlgorithmException e) {
 				throw new DigestRuntimeException(e);
 			}
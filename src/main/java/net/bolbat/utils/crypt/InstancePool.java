@@ -0,0 +1,143 @@
+package net.bolbat.utils.crypt;
+
+import static net.bolbat.utils.lang.Validations.checkArgument;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import net.bolbat.utils.annotation.Audience;
+import net.bolbat.utils.annotation.Concurrency;
+import net.bolbat.utils.annotation.Stability;
+
+/**
+ * Bounded lock-free pool of reusable instances, like initialized {@link javax.crypto.Cipher} or {@link java.security.MessageDigest}.<br>
+ * Instances are kept in slots claimed with CAS, nothing is bound to the thread (no {@link ThreadLocal}) and nothing is blocking, so pool is safe for
+ * virtual threads and is not growing with threads amount. If pool is empty new instance is created, if pool is full released instance is dropped.
+ *
+ * @param <T>
+ *            instance type
+ * @author Alexandr Bolbat
+ */
+@Audience.Private
+@Stability.Evolving
+@Concurrency.ThreadSafe
+final class InstancePool<T> {
+
+	/**
+	 * Default capacity, twice the available processors amount.
+	 */
+	static final int DEFAULT_CAPACITY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	/**
+	 * Idle instances.
+	 */
+	private final AtomicReferenceArray<T> slots;
+
+	/**
+	 * Instances factory.
+	 */
+	private final Supplier<T> factory;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param capacity
+	 *            maximum idle instances amount
+	 * @param aFactory
+	 *            instances factory
+	 */
+	InstancePool(final int capacity, final Supplier<T> aFactory) {
+		checkArgument(capacity > 0, "capacity argument should be positive");
+		checkArgument(aFactory != null, "aFactory argument is null");
+
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.factory = aFactory;
+	}
+
+	/**
+	 * Take idle instance or create new one.
+	 *
+	 * @return instance
+	 */
+	T acquire() {
+		final int length = slots.length();
+		final int start = start(length);
+		for (int i = 0; i < length; i++) {
+			final int index = (start + i) % length;
+			final T instance = slots.get(index);
+			if (instance != null && slots.compareAndSet(index, instance, null))
+				return instance;
+		}
+
+		return factory.get();
+	}
+
+	/**
+	 * Return instance to the pool, instance should be in the reusable state.<br>
+	 * Instances that failed in use shouldn't be returned.
+	 *
+	 * @param instance
+	 *            instance
+	 */
+	void release(final T instance) {
+		if (instance == null)
+			return;
+
+		final int length = slots.length();
+		final int start = start(length);
+		for (int i = 0; i < length; i++) {
+			final int index = (start + i) % length;
+			if (slots.get(index) == null && slots.compareAndSet(index, null, instance))
+				return;
+		}
+	}
+
+	/**
+	 * Get idle instances amount.
+	 *
+	 * @return <code>int</code>
+	 */
+	int size() {
+		int size = 0;
+		for (int i = 0; i < slots.length(); i++)
+			if (slots.get(i) != null)
+				size++;
+
+		return size;
+	}
+
+	/**
+	 * Get capacity.
+	 *
+	 * @return <code>int</code>
+	 */
+	int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Get probing start slot for the current thread, spreads threads over the slots to reduce CAS contention.
+	 *
+	 * @param length
+	 *            slots amount
+	 * @return slot index
+	 */
+	private static int start(final int length) {
+		final long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32));
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return (h & Integer.MAX_VALUE) % length;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.getClass().getSimpleName());
+		builder.append(" [capacity=").append(slots.length());
+		builder.append(", size=").append(size());
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -1,5 +1,6 @@
 package net.bolbat.utils.collections;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
@@ -12,6 +13,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.bolbat.utils.lang.SerializationUtils;
+
 /**
  * {@link CircularBuffer} test.
  * 
@@ -61,6 +64,72 @@ public class CircularBufferTest {
 		complexScenario();
 	}
 
+	@Test
+	public void complexOnStriped() {
+		buffer = CircularBuffer.striped(new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+		Assert.assertTrue(buffer.isStriped());
+		Assert.assertTrue(buffer.add(new AtomicInteger()).isStriped());
+		Assert.assertFalse(CircularBuffer.of(1, 2).isStriped());
+
+		final CountDownLatch starter = new CountDownLatch(1);
+		final CountDownLatch finisher = new CountDownLatch(THREADS);
+		for (int i = 0; i < THREADS; i++)
+			new Thread(new Worker(buffer, starter, finisher)).start();
+
+		starter.countDown();
+		try {
+			finisher.await();
+		} catch (final InterruptedException e) {
+			Assert.fail();
+		}
+
+		// approximate fairness, each stripe is round-robin over all elements
+		final int expectedIterationsPerElement = THREADS * CALLS_PER_THREAD / buffer.size();
+		int total = 0;
+		for (int i = 0; i < buffer.size(); i++) {
+			final int iterations = buffer.get(i).get();
+			Assert.assertTrue(Math.abs(expectedIterationsPerElement - iterations) <= THREADS);
+			total += iterations;
+		}
+		Assert.assertEquals(THREADS * CALLS_PER_THREAD, total);
+	}
+
+	@Test
+	public void order() {
+		final CircularBuffer<String> powerOfTwo = CircularBuffer.of("1", "2", "3", "4");
+		final CircularBuffer<String> other = CircularBuffer.of("1", "2", "3");
+		for (int i = 1; i <= 10; i++) {
+			Assert.assertEquals(String.valueOf(i % 4 + 1), powerOfTwo.get());
+			Assert.assertEquals(i % 4, powerOfTwo.lastIndex());
+			Assert.assertEquals(String.valueOf(i % 3 + 1), other.get());
+			Assert.assertEquals(i % 3, other.lastIndex());
+		}
+
+		final CircularBuffer<String> striped = CircularBuffer.striped("1", "2", "3");
+		final String first = striped.get();
+		Assert.assertEquals(first, striped.get(striped.lastIndex()));
+		Assert.assertFalse(first.equals(striped.get())); // single thread is round-robin
+		Assert.assertNotNull(striped.toString());
+	}
+
+	@Test
+	public void serialization() throws ReflectiveOperationException {
+		final CircularBuffer<String> original = CircularBuffer.of("1", "2", "3");
+		Assert.assertEquals("2", original.get());
+		final Field indexMask = CircularBuffer.class.getDeclaredField("indexMask");
+		indexMask.setAccessible(true);
+		indexMask.setInt(original, 0); // as deserialized from the stream written before derived fields were added
+
+		final CircularBuffer<String> restored = SerializationUtils.clone(original);
+		Assert.assertEquals("3", restored.get());
+		Assert.assertEquals("1", restored.get());
+		Assert.assertEquals("2", restored.get());
+
+		final CircularBuffer<String> striped = SerializationUtils.clone(CircularBuffer.striped("1", "2"));
+		Assert.assertTrue(striped.isStriped());
+		Assert.assertNotNull(striped.get());
+	}
+
 	@Test
 	public void contains() {
 		final String nullString = null;
@@ -111,6 +180,38 @@ public class CircularBufferTest {
 		Assert.assertTrue(b.contains("3"));
 	}
 
+	@Test
+	public void mutate() {
+		final CircularBuffer<String> original = CircularBuffer.of("1", "2", "3", "4", "5");
+		final CircularBuffer<String> b = original.mutate().remove("2").add("6").add("7").remove("7").addAll(Arrays.asList("8", "2"))
+				.removeAll(Arrays.asList("5")).build();
+		Assert.assertEquals(Arrays.asList("1", "3", "4", "6", "8", "2"), b.getAll());
+		Assert.assertEquals(5, original.size());
+		Assert.assertFalse(b.isStriped());
+		Assert.assertTrue(CircularBuffer.striped("1").mutate().add("2").build().isStriped());
+	}
+
+	@Test
+	public void mutateContinuesRotation() {
+		CircularBuffer<String> b = CircularBuffer.of("1", "2", "3", "4");
+		Assert.assertEquals("2", b.get());
+		Assert.assertEquals("3", b.get());
+
+		b = b.add("5");
+		Assert.assertEquals("4", b.get()); // not restarted from the first element
+		Assert.assertEquals("5", b.get());
+
+		b = b.mutate().remove("1").remove("2").build();
+		Assert.assertEquals(1, b.lastIndex());
+		Assert.assertEquals("5", b.get());
+
+		final CircularBuffer<String> striped = CircularBuffer.striped("1", "2", "3");
+		striped.get();
+		final String next = striped.get();
+		final CircularBuffer<String> stripedCopy = striped.add("4");
+		Assert.assertEquals(next, stripedCopy.get(stripedCopy.lastIndex()));
+	}
+
 	/**
 	 * Complex testing scenario.
 	 */
@@ -0,0 +1,158 @@
+package net.bolbat.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.bolbat.utils.collections.ConcurrentArrayQueue.WaitStrategy;
+
+/**
+ * {@link SpscArrayQueue} and {@link MpscArrayQueue} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class ConcurrentArrayQueueTest {
+
+	/**
+	 * Elements amount per producer.
+	 */
+	private static final int ELEMENTS = 200000;
+
+	@Test
+	public void basic() throws InterruptedException {
+		for (final ConcurrentArrayQueue<Integer> queue : Arrays.<ConcurrentArrayQueue<Integer>> asList(new SpscArrayQueue<Integer>(3),
+				new MpscArrayQueue<Integer>(3))) {
+			Assert.assertEquals(4, queue.getCapacity());
+			Assert.assertTrue(queue.isEmpty());
+			Assert.assertNull(queue.poll());
+
+			for (int i = 0; i < 4; i++)
+				Assert.assertTrue(queue.offer(i));
+			Assert.assertFalse(queue.offer(4));
+			Assert.assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+			Assert.assertEquals(4, queue.size());
+
+			Assert.assertEquals(Integer.valueOf(0), queue.poll());
+			Assert.assertTrue(queue.offer(4));
+
+			final List<Integer> drained = new ArrayList<>();
+			Assert.assertEquals(2, queue.drain(drained::add, 2));
+			Assert.assertEquals(Arrays.asList(1, 2), drained);
+			Assert.assertEquals(2, queue.drain(drained::add));
+			Assert.assertEquals(Arrays.asList(1, 2, 3, 4), drained);
+			Assert.assertEquals(0, queue.drain(drained::add));
+			Assert.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+			Assert.assertNotNull(queue.toString());
+		}
+	}
+
+	@Test
+	public void spsc() throws InterruptedException {
+		for (final WaitStrategy strategy : WaitStrategy.values())
+			transfer(new SpscArrayQueue<Long>(64, strategy), 1);
+	}
+
+	@Test
+	public void mpsc() throws InterruptedException {
+		for (final WaitStrategy strategy : WaitStrategy.values())
+			transfer(new MpscArrayQueue<Long>(64, strategy), 4);
+	}
+
+	@Test
+	public void blockingWakeUp() throws InterruptedException {
+		final ConcurrentArrayQueue<String> queue = new MpscArrayQueue<>(1, WaitStrategy.BLOCKING);
+		final Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+				queue.put("a");
+				queue.put("b"); // waits for the consumer
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+
+		Assert.assertEquals("a", queue.take());
+		Assert.assertEquals("b", queue.poll(10, TimeUnit.SECONDS));
+		producer.join();
+
+		Thread.currentThread().interrupt();
+		try {
+			queue.take();
+			Assert.fail();
+		} catch (final InterruptedException e) {
+			Assert.assertFalse(Thread.currentThread().isInterrupted());
+		}
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			new SpscArrayQueue<String>(0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aCapacity"));
+		}
+		try {
+			new MpscArrayQueue<String>(1, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aWaitStrategy"));
+		}
+		try {
+			new MpscArrayQueue<String>(1).offer(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("element"));
+		}
+	}
+
+	/**
+	 * Transfer elements from producers to the single consumer and check elements order per producer.
+	 *
+	 * @param queue
+	 *            queue
+	 * @param producersCount
+	 *            producers amount
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void transfer(final ConcurrentArrayQueue<Long> queue, final int producersCount) throws InterruptedException {
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread[] producers = new Thread[producersCount];
+		for (int p = 0; p < producersCount; p++) {
+			final long producer = p;
+			producers[p] = new Thread(() -> {
+				try {
+					for (long i = 0; i < ELEMENTS; i++)
+						queue.put(producer << 32 | i);
+				} catch (final Throwable e) {
+					failure.set(e);
+				}
+			});
+			producers[p].start();
+		}
+
+		final long[] expected = new long[producersCount];
+		int received = 0;
+		while (received < producersCount * ELEMENTS) { // blocking and batch takes
+			final Long element = queue.take();
+			Assert.assertEquals(expected[(int) (element >>> 32)]++, element & 0xFFFFFFFFL);
+			received++;
+
+			received += queue.drain(e -> Assert.assertEquals(expected[(int) (e >>> 32)]++, e & 0xFFFFFFFFL), 16);
+		}
+
+		for (final Thread producer : producers)
+			producer.join();
+
+		Assert.assertNull(failure.get());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+}
@@ -0,0 +1,315 @@
+package net.bolbat.utils.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ConcurrentCache} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class ConcurrentCacheTest {
+
+	@Test
+	public void basic() {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder().build();
+		Assert.assertEquals(-1L, cache.getMaximumWeight());
+		Assert.assertNull(cache.get("a"));
+
+		cache.put("a", "1");
+		cache.put("b", "2");
+		Assert.assertEquals("1", cache.get("a"));
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(2L, cache.getWeight());
+
+		cache.put("a", "3");
+		Assert.assertEquals("3", cache.get("a"));
+		Assert.assertEquals("3", cache.remove("a"));
+		Assert.assertNull(cache.remove("a"));
+		Assert.assertEquals(1, cache.size());
+
+		Assert.assertEquals(2L, cache.getHitsCount());
+		Assert.assertEquals(1L, cache.getMissesCount());
+		Assert.assertEquals(2d / 3d, cache.getHitRate(), 0.0001d);
+		Assert.assertNotNull(cache.toString());
+
+		cache.invalidateAll();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0L, cache.getWeight());
+	}
+
+	@Test
+	public void maximumSize() {
+		final ConcurrentCache<Integer, Integer> cache = ConcurrentCache.<Integer, Integer> builder().setMaximumSize(100).setSegmentsCount(4).build();
+		Assert.assertEquals(4, cache.getSegmentsCount());
+		for (int i = 0; i < 1000; i++)
+			cache.put(i, i);
+
+		Assert.assertTrue(cache.size() <= 100);
+		Assert.assertEquals(cache.size(), cache.getWeight());
+		Assert.assertEquals(1000L - cache.size(), cache.getEvictionsCount());
+
+		final ConcurrentCache<Integer, Integer> empty = ConcurrentCache.<Integer, Integer> builder().setMaximumSize(0).build();
+		empty.put(1, 1);
+		Assert.assertEquals(0, empty.size());
+	}
+
+	@Test
+	public void frequentEntriesSurviveScan() {
+		for (final int segmentsCount : new int[] { 1, 4, ConcurrentCache.DEFAULT_SEGMENTS_COUNT }) {
+			final ConcurrentCache<Integer, Integer> cache = ConcurrentCache.<Integer, Integer> builder().setMaximumSize(100)
+					.setSegmentsCount(segmentsCount).build();
+			Assert.assertEquals(segmentsCount, cache.getSegmentsCount());
+			for (int round = 0; round < 10; round++)
+				for (int i = 0; i < 50; i++) {
+					cache.put(i, i);
+					cache.get(i);
+				}
+
+			for (int i = 1000; i < 2000; i++) // one-time scan
+				cache.put(i, i);
+
+			int retained = 0;
+			for (int i = 0; i < 50; i++)
+				if (cache.get(i) != null)
+					retained++;
+
+			Assert.assertTrue("Segments: " + segmentsCount + ", retained: " + retained, retained >= 45);
+			Assert.assertTrue(cache.size() <= 100);
+		}
+	}
+
+	@Test
+	public void maximumWeight() {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder()
+				.setMaximumWeight(100, (key, value) -> value.length()).setSegmentsCount(1).build();
+		for (int i = 0; i < 100; i++)
+			cache.put("k" + i, "0123456789");
+
+		Assert.assertTrue(cache.getWeight() <= 100L);
+		Assert.assertEquals(cache.size() * 10L, cache.getWeight());
+
+		cache.put("big", new String(new char[200]));
+		Assert.assertNull(cache.get("big")); // heavier than the cache
+		Assert.assertTrue(cache.getWeight() <= 100L);
+	}
+
+	@Test
+	public void weightIsNotSplitBetweenSegments() {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder()
+				.setMaximumWeight(100, (key, value) -> value.length()).build();
+		Assert.assertTrue(cache.getSegmentsCount() > 1);
+
+		final String heavy = new String(new char[60]); // heavier than the maximum weight divided by segments
+		cache.put("heavy", heavy);
+		Assert.assertEquals(heavy, cache.get("heavy"));
+		Assert.assertEquals(60L, cache.getWeight());
+
+		for (int i = 0; i < 100; i++)
+			cache.put("k" + i, "0123456789");
+
+		Assert.assertTrue(cache.getWeight() <= 100L);
+		long weight = 0L;
+		for (int i = 0; i < 100; i++)
+			if (cache.get("k" + i) != null)
+				weight += 10L;
+		if (cache.get("heavy") != null)
+			weight += 60L;
+		Assert.assertEquals(weight, cache.getWeight());
+	}
+
+	@Test
+	public void weightUpdateIsBounded() {
+		for (final int segments : new int[] { 1, 4 }) {
+			final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder()
+					.setMaximumWeight(100, (key, value) -> value.length()).setSegmentsCount(segments).build();
+			for (int i = 0; i < 10; i++) {
+				cache.put("k" + i, "0123456789");
+				cache.get("k" + i);
+			}
+			final long evicted = cache.getEvictionsCount();
+
+			final String updated = new String(new char[60]);
+			cache.put("k5", updated); // main entry weight grows
+			Assert.assertEquals(updated, cache.get("k5"));
+			Assert.assertTrue(cache.getWeight() <= 100L);
+			Assert.assertEquals(cache.getWeight(), 60L + (cache.size() - 1) * 10L);
+			Assert.assertTrue(cache.getEvictionsCount() > evicted);
+		}
+	}
+
+	@Test
+	public void overflowEvictsLeastFrequentVictimOfAllSegments() {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder()
+				.setMaximumWeight(100, (key, value) -> value.length()).setSegmentsCount(4).build();
+		final int written = cache.segmentIndex("x");
+		final List<String> hot = keysOfSegment(cache, (written + 1) & 3, 3); // checked first by the least recently used overflow
+		final List<String> cold = keysOfSegment(cache, (written + 2) & 3, 3);
+
+		for (final String key : hot) {
+			cache.put(key, "0123456789");
+			for (int i = 0; i < 10; i++)
+				cache.get(key);
+		}
+		for (final String key : cold)
+			cache.put(key, "0123456789");
+		cache.put("x", "0123456789");
+		Assert.assertEquals(70L, cache.getWeight());
+
+		cache.put("x", new String(new char[50])); // written segment has no other victim, overflow is evicted from other segments
+		Assert.assertTrue(cache.getWeight() <= 100L);
+		Assert.assertNotNull(cache.get("x"));
+		for (final String key : hot)
+			Assert.assertNotNull(key, cache.get(key));
+		Assert.assertEquals(1L, cache.getEvictionsCount());
+		Assert.assertNull(cache.get(cold.get(0))); // least recently used of the least frequently used victims
+	}
+
+	/**
+	 * Find keys mapped to the segment.
+	 *
+	 * @param cache
+	 *            cache
+	 * @param segment
+	 *            segment index
+	 * @param amount
+	 *            keys amount
+	 * @return keys
+	 */
+	private static List<String> keysOfSegment(final ConcurrentCache<String, ?> cache, final int segment, final int amount) {
+		final List<String> result = new ArrayList<>();
+		for (int i = 0; result.size() < amount; i++)
+			if (cache.segmentIndex("k" + i) == segment)
+				result.add("k" + i);
+
+		return result;
+	}
+
+	@Test
+	public void oversizedEntryIsRejectedBeforeEviction() {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder()
+				.setMaximumWeight(100, (key, value) -> value.length()).setSegmentsCount(1).build();
+		for (int i = 0; i < 10; i++)
+			cache.put("k" + i, "0123456789");
+		final int size = cache.size();
+		final long weight = cache.getWeight();
+		final long evicted = cache.getEvictionsCount();
+
+		for (int i = 0; i < 5; i++) { // frequent, but still can't fit
+			cache.put("big", new String(new char[101]));
+			Assert.assertNull(cache.get("big"));
+		}
+		Assert.assertEquals(size, cache.size()); // nothing evicted for the rejected entry
+		Assert.assertEquals(weight, cache.getWeight());
+		Assert.assertEquals(evicted + 5L, cache.getEvictionsCount());
+
+		cache.put("k0", new String(new char[101])); // update to oversized value removes stale one
+		Assert.assertNull(cache.get("k0"));
+		Assert.assertEquals(size - 1, cache.size());
+	}
+
+	@Test
+	public void expiration() {
+		final AtomicLong time = new AtomicLong();
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder().setExpireAfterWrite(10, TimeUnit.SECONDS)
+				.setExpireAfterAccess(3, TimeUnit.SECONDS).setTicker(time::get).build();
+		cache.put("a", "1");
+		cache.put("b", "2");
+
+		time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		Assert.assertEquals("1", cache.get("a"));
+		time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		Assert.assertEquals("1", cache.get("a")); // access prolongs idle expiration
+		Assert.assertNull(cache.get("b")); // idle
+		Assert.assertEquals(1L, cache.getExpirationsCount());
+
+		for (int i = 0; i < 2; i++) {
+			time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+			Assert.assertEquals("1", cache.get("a"));
+		}
+		time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		Assert.assertNull(cache.get("a")); // written 10 seconds ago
+		Assert.assertEquals(0, cache.size());
+
+		cache.put("c", "3");
+		time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+		Assert.assertEquals(1, cache.size());
+		cache.cleanUp();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(3L, cache.getExpirationsCount());
+	}
+
+	@Test
+	public void loader() throws InterruptedException {
+		final ConcurrentCache<String, String> cache = ConcurrentCache.<String, String> builder().setMaximumSize(10).build();
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> Assert.assertEquals("value", cache.get("key", key -> {
+				calls.incrementAndGet();
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "value";
+			})));
+			threads[i].start();
+		}
+
+		started.await();
+		Thread.sleep(50);
+		release.countDown();
+		for (final Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(1L, cache.getLoadsCount());
+		Assert.assertEquals("value", cache.get("key", key -> "other"));
+		Assert.assertNull(cache.get("null", key -> null));
+		Assert.assertEquals(1, cache.size());
+
+		try {
+			cache.get("failed", key -> {
+				throw new IllegalArgumentException("failed");
+			});
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("failed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			ConcurrentCache.<String, String> builder().setMaximumSize(10).setMaximumWeight(10, (key, value) -> 1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("maximum size"));
+		}
+		try {
+			ConcurrentCache.<String, String> builder().setSegmentsCount(0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aSegmentsCount"));
+		}
+		try {
+			ConcurrentCache.<String, String> builder().build().put("a", null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("value"));
+		}
+	}
+
+}
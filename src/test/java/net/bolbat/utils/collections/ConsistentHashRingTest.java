@@ -0,0 +1,260 @@
+package net.bolbat.utils.collections;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ConsistentHashRing} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class ConsistentHashRingTest {
+
+	/**
+	 * Keys amount.
+	 */
+	private static final int KEYS = 20000;
+
+	@Test
+	public void lookup() {
+		final ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+		Assert.assertTrue(ring.isEmpty());
+		Assert.assertNull(ring.get("key"));
+		Assert.assertTrue(ring.get("key", 2).isEmpty());
+
+		Assert.assertTrue(ring.add("a"));
+		Assert.assertFalse(ring.add("a"));
+		Assert.assertEquals("a", ring.get("key"));
+		Assert.assertEquals(ConsistentHashRing.DEFAULT_VIRTUAL_NODES, ring.getPointsCount());
+
+		Assert.assertTrue(ring.addAll(Arrays.asList("b", "c")));
+		Assert.assertEquals(3, ring.size());
+		Assert.assertEquals(3 * ConsistentHashRing.DEFAULT_VIRTUAL_NODES, ring.getPointsCount());
+		Assert.assertTrue(ring.contains("b"));
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), ring.getNodes());
+
+		for (int i = 0; i < 100; i++)
+			Assert.assertEquals(ring.get("key" + i), ring.get("key" + i)); // stable
+
+		final List<String> replicas = ring.get("key", 5);
+		Assert.assertEquals(3, replicas.size());
+		Assert.assertEquals(ring.get("key"), replicas.get(0));
+		Assert.assertTrue(replicas.containsAll(Arrays.asList("a", "b", "c")));
+		Assert.assertNotNull(ring.toString());
+	}
+
+	@Test
+	public void minimalRemapping() {
+		final ConsistentHashRing<String> ring = ConsistentHashRing.of(Arrays.asList("a", "b", "c", "d"));
+		final Map<Integer, String> before = assign(ring);
+
+		Assert.assertTrue(ring.add("e"));
+		final Map<Integer, String> added = assign(ring);
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++)
+			if (!before.get(i).equals(added.get(i))) {
+				Assert.assertEquals("e", added.get(i)); // keys are moving only to the added node
+				moved++;
+			}
+		Assert.assertTrue(moved > KEYS / 10 && moved < KEYS * 3 / 10);
+
+		Assert.assertTrue(ring.remove("e"));
+		Assert.assertFalse(ring.remove("e"));
+		Assert.assertEquals(before, assign(ring)); // the same ring as before addition
+	}
+
+	@Test
+	public void loadDistribution() {
+		final ConsistentHashRing<String> ring = ConsistentHashRing.of(Arrays.asList("a", "b", "c", "d"));
+		final Map<String, Double> distribution = ring.getLoadDistribution();
+		Assert.assertEquals(4, distribution.size());
+
+		double total = 0d;
+		for (final double share : distribution.values()) {
+			Assert.assertEquals(0.25d, share, 0.08d);
+			total += share;
+		}
+		Assert.assertEquals(1d, total, 0.000001d);
+		Assert.assertTrue(ring.getLoadImbalance() >= 1d && ring.getLoadImbalance() < 1.35d);
+
+		// weighted node
+		Assert.assertTrue(ring.add("e", 4 * ConsistentHashRing.DEFAULT_VIRTUAL_NODES));
+		Assert.assertEquals(0.5d, ring.getLoadDistribution().get("e"), 0.08d);
+
+		final ConsistentHashRing<String> single = new ConsistentHashRing<>(1);
+		Assert.assertEquals(0d, single.getLoadImbalance(), 0d);
+		single.add("a");
+		Assert.assertEquals(1d, single.getLoadDistribution().get("a"), 0d);
+	}
+
+	@Test
+	public void jump() {
+		Assert.assertEquals(0, ConsistentHashRing.jump(123L, 1));
+
+		final int[] counts = new int[10];
+		for (int i = 0; i < KEYS; i++) {
+			final int bucket = ConsistentHashRing.jump(i, 10);
+			counts[bucket]++;
+
+			final int grown = ConsistentHashRing.jump(i, 11);
+			Assert.assertTrue(grown == bucket || grown == 10); // keys are moving only to the added bucket
+		}
+
+		for (final int count : counts)
+			Assert.assertEquals(KEYS / 10, count, KEYS / 50);
+	}
+
+	@Test
+	public void rendezvous() {
+		final List<String> nodes = Arrays.asList("a", "b", "c", "d");
+		final List<String> reduced = Arrays.asList("d", "c", "a");
+		Assert.assertNull(ConsistentHashRing.rendezvous("key", Arrays.<String> asList()));
+
+		final Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			final String node = ConsistentHashRing.rendezvous("key" + i, nodes);
+			counts.merge(node, 1, Integer::sum);
+
+			if (!"b".equals(node)) // only removed node keys are moving, nodes order doesn't matter
+				Assert.assertEquals(node, ConsistentHashRing.rendezvous("key" + i, reduced));
+		}
+
+		for (final String node : nodes)
+			Assert.assertEquals(KEYS / 4, counts.get(node), KEYS / 20);
+	}
+
+	@Test
+	public void nodeKeys() {
+		final Node first = new Node(1, "node");
+		final Node second = new Node(2, "node"); // same toString()
+		final ConsistentHashRing<Node> byToString = new ConsistentHashRing<>();
+		Assert.assertTrue(byToString.add(first));
+		try {
+			byToString.add(second);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().contains("collides"));
+		}
+		try {
+			byToString.addAll(Arrays.asList(new Node(3, "other"), second)); // nothing added on collision
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals(1, byToString.size());
+			Assert.assertEquals(ConsistentHashRing.DEFAULT_VIRTUAL_NODES, byToString.getPointsCount());
+		}
+		try {
+			new ConsistentHashRing<Object>().add(new Object()); // identity toString() is not stable
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().contains("identity"));
+		}
+
+		final ConsistentHashRing<Node> byId = new ConsistentHashRing<>(ConsistentHashRing.DEFAULT_VIRTUAL_NODES, node -> node.id);
+		Assert.assertTrue(byId.addAll(Arrays.asList(first, second)));
+		Assert.assertEquals(2 * ConsistentHashRing.DEFAULT_VIRTUAL_NODES, byId.getPointsCount());
+		for (final double share : byId.getLoadDistribution().values())
+			Assert.assertEquals(0.5d, share, 0.15d);
+
+		final ConsistentHashRing<Node> same = new ConsistentHashRing<>(ConsistentHashRing.DEFAULT_VIRTUAL_NODES, node -> node.id);
+		same.add(new Node(2, "renamed"));
+		same.add(new Node(1, "renamed too"));
+		for (int i = 0; i < 100; i++) // placement depends only on the node key
+			Assert.assertEquals(byId.get("key" + i).id, same.get("key" + i).id);
+
+		Assert.assertTrue(byId.remove(first));
+		Assert.assertEquals(second, byId.get("key"));
+		Assert.assertTrue(byId.add(first)); // key is released on removal
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			new ConsistentHashRing<String>(0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aVirtualNodes"));
+		}
+		try {
+			new ConsistentHashRing<String>().get(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("key"));
+		}
+		try {
+			new ConsistentHashRing<String>().add("a", 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("nodeVirtualNodes"));
+		}
+		try {
+			new ConsistentHashRing<String>(1, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aNodeHasher"));
+		}
+		try {
+			ConsistentHashRing.jump(1L, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("buckets"));
+		}
+	}
+
+	/**
+	 * Assign keys to the ring nodes.
+	 *
+	 * @param ring
+	 *            ring
+	 * @return {@link Map} with key index as key and node as value
+	 */
+	private static Map<Integer, String> assign(final ConsistentHashRing<String> ring) {
+		final Map<Integer, String> result = new HashMap<>();
+		for (int i = 0; i < KEYS; i++)
+			result.put(i, ring.get("key" + i));
+
+		return result;
+	}
+
+	/**
+	 * Node with not unique <code>toString()</code>.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	private static final class Node {
+
+		/**
+		 * Node id.
+		 */
+		private final long id;
+
+		/**
+		 * Node name.
+		 */
+		private final String name;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param aId
+		 *            node id
+		 * @param aName
+		 *            node name
+		 */
+		private Node(final long aId, final String aName) {
+			this.id = aId;
+			this.name = aName;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package net.bolbat.utils.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link LeastLoadedSelector} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public class LeastLoadedSelectorTest {
+
+	/**
+	 * Testing threads amount.
+	 */
+	private static final int THREADS = 4;
+
+	/**
+	 * Thread test calls amount.
+	 */
+	private static final int CALLS_PER_THREAD = 100000;
+
+	@Test
+	public void inFlight() {
+		final LeastLoadedSelector<String> selector = LeastLoadedSelector.of("a", "b");
+		final LeastLoadedSelector.Handle<String> first = selector.select();
+		Assert.assertEquals(1, selector.getInFlight(first.getIndex()));
+
+		// the other element is less loaded
+		for (int i = 0; i < 10; i++)
+			try (LeastLoadedSelector.Handle<String> handle = selector.select()) {
+				Assert.assertFalse(first.getElement().equals(handle.getElement()));
+			}
+
+		first.complete();
+		first.complete(); // ignored
+		Assert.assertTrue(first.isCompleted());
+		Assert.assertEquals(0, selector.getInFlight(0));
+		Assert.assertEquals(0, selector.getInFlight(1));
+		Assert.assertTrue(selector.getLatency(0, TimeUnit.NANOSECONDS) > 0);
+		Assert.assertTrue(selector.getLatency(1, TimeUnit.NANOSECONDS) > 0);
+		Assert.assertNotNull(first.toString());
+		Assert.assertNotNull(selector.toString());
+	}
+
+	@Test
+	public void slowElement() {
+		final LeastLoadedSelector<String> selector = LeastLoadedSelector.of("fast", "slow");
+		final List<LeastLoadedSelector.Handle<String>> slow = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final LeastLoadedSelector.Handle<String> handle = selector.select();
+			if ("slow".equals(handle.getElement()))
+				slow.add(handle); // stuck requests
+			else
+				handle.complete();
+		}
+
+		Assert.assertTrue(slow.size() <= 2); // stuck element is avoided
+		for (final LeastLoadedSelector.Handle<String> handle : slow)
+			handle.complete();
+	}
+
+	@Test
+	public void concurrent() throws InterruptedException {
+		final LeastLoadedSelector<Integer> selector = LeastLoadedSelector.of(1, 2, 3, 4, 5);
+		final CountDownLatch finisher = new CountDownLatch(THREADS);
+		for (int i = 0; i < THREADS; i++)
+			new Thread(() -> {
+				try {
+					for (int j = 0; j < CALLS_PER_THREAD; j++)
+						try (LeastLoadedSelector.Handle<Integer> handle = selector.select()) {
+							Assert.assertNotNull(handle.getElement());
+						}
+				} finally {
+					finisher.countDown();
+				}
+			}).start();
+
+		Assert.assertTrue(finisher.await(30, TimeUnit.SECONDS));
+		for (int i = 0; i < selector.size(); i++)
+			Assert.assertEquals(0, selector.getInFlight(i));
+	}
+
+	@Test
+	public void emptyAndSingle() {
+		Assert.assertNull(LeastLoadedSelector.of().select());
+		Assert.assertTrue(LeastLoadedSelector.of().isEmpty());
+
+		final LeastLoadedSelector<String> selector = LeastLoadedSelector.of("a");
+		Assert.assertEquals("a", selector.select().getElement());
+		Assert.assertEquals("a", selector.select().getElement());
+		Assert.assertEquals(2, selector.getInFlight(0));
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			LeastLoadedSelector.of((List<String>) null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aElements"));
+		}
+		try {
+			LeastLoadedSelector.of(new ArrayList<String>(), 0d);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aSmoothing"));
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+package net.bolbat.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link LongObjectMap}, {@link LongLongMap}, {@link IntSet}, {@link LongArrayList} and {@link IntArrayList} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class PrimitiveCollectionsTest {
+
+	/**
+	 * Random operations amount.
+	 */
+	private static final int OPERATIONS = 200000;
+
+	@Test
+	public void longObjectMap() {
+		final LongObjectMap<String> map = new LongObjectMap<>(0);
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(1L));
+		Assert.assertNull(map.put(0L, "zero"));
+		Assert.assertNull(map.put(-1L, "minus"));
+		Assert.assertEquals("zero", map.put(0L, "0"));
+		Assert.assertEquals("0", map.get(0L));
+		Assert.assertEquals("minus", map.get(-1L));
+		Assert.assertEquals("default", map.getOrDefault(5L, "default"));
+		Assert.assertEquals("5", map.computeIfAbsent(5L, String::valueOf));
+		Assert.assertEquals("5", map.computeIfAbsent(5L, key -> "other"));
+		Assert.assertEquals(3, map.size());
+		Assert.assertTrue(map.containsKey(0L));
+
+		final long[] keys = map.keys();
+		Arrays.sort(keys);
+		Assert.assertArrayEquals(new long[] { -1L, 0L, 5L }, keys);
+
+		final Map<Long, String> iterated = new HashMap<>();
+		map.forEach((key, value) -> iterated.put(key, value));
+		Assert.assertEquals(3, iterated.size());
+		Assert.assertEquals("minus", iterated.get(-1L));
+		Assert.assertNotNull(map.toString());
+
+		Assert.assertEquals("0", map.remove(0L));
+		Assert.assertFalse(map.containsKey(0L));
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+
+		// random operations against HashMap
+		final Map<Long, String> expected = new HashMap<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			final long key = random.nextInt(5000) - 2500L; // dense keys with collisions and zero
+			if (random.nextInt(3) == 0)
+				Assert.assertEquals(expected.remove(key), map.remove(key));
+			else
+				Assert.assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+		}
+
+		Assert.assertEquals(expected.size(), map.size());
+		for (final Map.Entry<Long, String> entry : expected.entrySet())
+			Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+		for (long key = -2500L; key < 2500L; key++)
+			Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+	}
+
+	@Test
+	public void longLongMap() {
+		final LongLongMap map = new LongLongMap(4, -1L);
+		Assert.assertEquals(-1L, map.get(1L));
+		Assert.assertEquals(-1L, map.put(0L, 10L));
+		Assert.assertEquals(10L, map.put(0L, 11L));
+		Assert.assertEquals(5L, map.addTo(7L, 5L));
+		Assert.assertEquals(8L, map.addTo(7L, 3L));
+		Assert.assertEquals(12L, map.addTo(0L, 1L));
+		Assert.assertEquals(3L, map.getOrDefault(9L, 3L));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(-1L, map.getMissingValue());
+
+		final long[] sum = new long[1];
+		map.forEach((key, value) -> sum[0] += key + value);
+		Assert.assertEquals(27L, sum[0]);
+		Assert.assertNotNull(map.toString());
+
+		Assert.assertEquals(8L, map.remove(7L));
+		Assert.assertEquals(-1L, map.remove(7L));
+		Assert.assertEquals(12L, map.remove(0L));
+		Assert.assertTrue(map.isEmpty());
+
+		// random operations against HashMap
+		final Map<Long, Long> expected = new HashMap<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			final long key = (random.nextInt(5000) - 2500L) << 32; // keys differing in high bits only
+			final int operation = random.nextInt(3);
+			if (operation == 0) {
+				final Long removed = expected.remove(key);
+				Assert.assertEquals(removed != null ? removed : -1L, map.remove(key));
+			} else if (operation == 1) {
+				Assert.assertEquals(expected.merge(key, 1L, Long::sum).longValue(), map.addTo(key, 1L));
+			} else {
+				final Long previous = expected.put(key, (long) i);
+				Assert.assertEquals(previous != null ? previous : -1L, map.put(key, i));
+			}
+		}
+
+		Assert.assertEquals(expected.size(), map.size());
+		for (final Map.Entry<Long, Long> entry : expected.entrySet())
+			Assert.assertEquals(entry.getValue().longValue(), map.get(entry.getKey()));
+	}
+
+	@Test
+	public void intSet() {
+		final IntSet set = IntSet.of(0, 1, 2, 2);
+		Assert.assertEquals(3, set.size());
+		Assert.assertTrue(set.contains(0));
+		Assert.assertFalse(set.add(1));
+		Assert.assertTrue(set.add(-3));
+
+		final int[] values = set.toArray();
+		Arrays.sort(values);
+		Assert.assertArrayEquals(new int[] { -3, 0, 1, 2 }, values);
+
+		final int[] sum = new int[1];
+		set.forEach(value -> sum[0] += value);
+		Assert.assertEquals(0, sum[0]);
+		Assert.assertNotNull(set.toString());
+
+		Assert.assertTrue(set.remove(0));
+		Assert.assertFalse(set.remove(0));
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+
+		// random operations against HashSet
+		final Set<Integer> expected = new HashSet<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			final int value = random.nextInt(5000) - 2500;
+			if (random.nextBoolean())
+				Assert.assertEquals(expected.remove(value), set.remove(value));
+			else
+				Assert.assertEquals(expected.add(value), set.add(value));
+		}
+
+		Assert.assertEquals(expected.size(), set.size());
+		for (int value = -2500; value < 2500; value++)
+			Assert.assertEquals(expected.contains(value), set.contains(value));
+	}
+
+	@Test
+	public void longArrayList() {
+		final LongArrayList list = new LongArrayList(0);
+		Assert.assertTrue(list.isEmpty());
+		for (long i = 0; i < 100; i++)
+			list.add(100 - i);
+
+		Assert.assertEquals(100, list.size());
+		Assert.assertEquals(100L, list.get(0));
+		list.add(0, 500L);
+		Assert.assertEquals(500L, list.get(0));
+		Assert.assertEquals(500L, list.removeAt(0));
+		Assert.assertEquals(100L, list.set(0, 1000L));
+		Assert.assertEquals(0, list.indexOf(1000L));
+		Assert.assertTrue(list.contains(50L));
+		Assert.assertFalse(list.contains(-50L));
+
+		list.sort();
+		Assert.assertEquals(1L, list.get(0));
+		Assert.assertEquals(1000L, list.get(99));
+
+		final long[] sum = new long[1];
+		list.forEach(value -> sum[0] += value);
+		Assert.assertEquals(5050L - 100L + 1000L, sum[0]);
+
+		list.trimToSize();
+		Assert.assertEquals(100, list.toArray().length);
+		Assert.assertArrayEquals(new long[] { 1L, 2L, 3L }, LongArrayList.of(1L, 2L, 3L).toArray());
+		Assert.assertNotNull(list.toString());
+
+		try {
+			list.get(100);
+			Assert.fail();
+		} catch (final IndexOutOfBoundsException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Index: 100"));
+		}
+
+		list.clear();
+		Assert.assertTrue(list.isEmpty());
+	}
+
+	@Test
+	public void intArrayList() {
+		final IntArrayList list = IntArrayList.of(3, 1, 2);
+		list.addAll(5, 4);
+		list.sort();
+		Assert.assertArrayEquals(new int[] { 1, 2, 3, 4, 5 }, list.toArray());
+
+		final List<Integer> iterated = new ArrayList<>();
+		list.forEach(iterated::add);
+		Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), iterated);
+		Assert.assertEquals(3, list.removeAt(2));
+		Assert.assertEquals(-1, list.indexOf(3));
+		Assert.assertEquals(4, list.size());
+
+		try {
+			list.add(5, 1);
+			Assert.fail();
+		} catch (final IndexOutOfBoundsException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Index: 5"));
+		}
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			new LongObjectMap<String>().put(1L, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("value"));
+		}
+		try {
+			new LongLongMap(-1, 0L);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("expectedSize"));
+		}
+		try {
+			new IntArrayList(-1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("capacity"));
+		}
+	}
+
+}
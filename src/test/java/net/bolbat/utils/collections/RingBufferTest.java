@@ -0,0 +1,99 @@
+package net.bolbat.utils.collections;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link RingBuffer} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class RingBufferTest {
+
+	@Test
+	public void overwrite() {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(3);
+		Assert.assertTrue(buffer.isEmpty());
+		Assert.assertNull(buffer.getLast());
+		Assert.assertTrue(buffer.snapshot().isEmpty());
+
+		buffer.add(1);
+		buffer.add(2);
+		Assert.assertEquals(2, buffer.size());
+		Assert.assertEquals(Arrays.asList(1, 2), buffer.snapshot());
+
+		for (int i = 3; i <= 10; i++)
+			buffer.add(i);
+
+		Assert.assertEquals(3, buffer.size());
+		Assert.assertEquals(3, buffer.getCapacity());
+		Assert.assertEquals(10, buffer.getWrittenCount());
+		Assert.assertEquals(Integer.valueOf(10), buffer.getLast());
+		Assert.assertEquals(Arrays.asList(8, 9, 10), buffer.snapshot());
+		Assert.assertEquals(Arrays.asList(9, 10), buffer.snapshot(2));
+		Assert.assertEquals(Arrays.asList(8, 9, 10), buffer.snapshot(100));
+		Assert.assertTrue(buffer.snapshot(0).isEmpty());
+		Assert.assertNotNull(buffer.toString());
+
+		final RingBuffer<String> single = new RingBuffer<>(1);
+		single.add("a");
+		single.add("b");
+		Assert.assertEquals(Arrays.asList("b"), single.snapshot());
+	}
+
+	@Test
+	public void concurrentReaders() throws InterruptedException {
+		final RingBuffer<Long> buffer = new RingBuffer<>(16);
+		final long writes = 2000000L;
+		final AtomicReference<String> failure = new AtomicReference<>();
+
+		final Thread writer = new Thread(() -> {
+			for (long i = 0; i < writes; i++)
+				buffer.add(i);
+		});
+		final Thread[] readers = new Thread[2];
+		for (int r = 0; r < readers.length; r++)
+			readers[r] = new Thread(() -> {
+				while (buffer.getWrittenCount() < writes) {
+					final List<Long> snapshot = buffer.snapshot();
+					if (snapshot.size() > 16)
+						failure.set("Snapshot too big: " + snapshot);
+					for (int i = 1; i < snapshot.size(); i++)
+						if (snapshot.get(i) != snapshot.get(i - 1) + 1) // consecutive elements
+							failure.set("Inconsistent snapshot: " + snapshot);
+				}
+			});
+
+		for (final Thread reader : readers)
+			reader.start();
+		writer.start();
+		writer.join();
+		for (final Thread reader : readers)
+			reader.join();
+
+		Assert.assertNull(failure.get());
+		Assert.assertEquals(16, buffer.snapshot().size());
+		Assert.assertEquals(Long.valueOf(writes - 1), buffer.getLast());
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			new RingBuffer<String>(0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aCapacity"));
+		}
+		try {
+			new RingBuffer<String>(1).add(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("element"));
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+package net.bolbat.utils.collections;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link WeightedCircularBuffer} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public class WeightedCircularBufferTest {
+
+	/**
+	 * Selections amount per weight unit.
+	 */
+	private static final int CALLS_PER_WEIGHT = 10000;
+
+	@Test
+	public void distribution() {
+		final WeightedCircularBuffer<String> buffer = WeightedCircularBuffer.of(Arrays.asList("a", "b", "c", "d"), new int[] { 5, 1, 3, 0 });
+		Assert.assertEquals(9, buffer.getTotalWeight());
+		Assert.assertEquals(4, buffer.size());
+
+		final Map<String, Integer> counts = select(buffer, 9 * CALLS_PER_WEIGHT);
+		assertShare(5 * CALLS_PER_WEIGHT, counts.get("a"));
+		assertShare(CALLS_PER_WEIGHT, counts.get("b"));
+		assertShare(3 * CALLS_PER_WEIGHT, counts.get("c"));
+		Assert.assertNull(counts.get("d"));
+	}
+
+	@Test
+	public void smoothness() {
+		final WeightedCircularBuffer<String> buffer = WeightedCircularBuffer.of(Arrays.asList("a", "b"), new int[] { 1, 1 });
+		int maxSeries = 0;
+		int series = 0;
+		String previous = null;
+		for (int i = 0; i < 1000; i++) {
+			final String current = buffer.get();
+			series = current.equals(previous) ? series + 1 : 1;
+			maxSeries = Math.max(maxSeries, series);
+			previous = current;
+		}
+
+		Assert.assertTrue(maxSeries <= 3); // interleaved instead of long series
+	}
+
+	@Test
+	public void updateWeights() {
+		final Map<String, Integer> weights = new LinkedHashMap<>();
+		weights.put("a", 1);
+		weights.put("b", 1);
+		final WeightedCircularBuffer<String> buffer = WeightedCircularBuffer.of(weights);
+		Assert.assertEquals(2, buffer.getTotalWeight());
+
+		Assert.assertTrue(buffer.setWeight("b", 3));
+		Assert.assertEquals(3, buffer.getWeight(1));
+		Map<String, Integer> counts = select(buffer, 4 * CALLS_PER_WEIGHT);
+		assertShare(CALLS_PER_WEIGHT, counts.get("a"));
+		assertShare(3 * CALLS_PER_WEIGHT, counts.get("b"));
+
+		buffer.setWeightAt(0, 0);
+		counts = select(buffer, CALLS_PER_WEIGHT);
+		Assert.assertNull(counts.get("a"));
+		Assert.assertEquals(Integer.valueOf(CALLS_PER_WEIGHT), counts.get("b"));
+
+		final Map<String, Integer> update = new HashMap<>();
+		update.put("b", 0);
+		update.put("x", 10);
+		Assert.assertTrue(buffer.setWeights(update));
+		Assert.assertFalse(buffer.setWeight("x", 1));
+		Assert.assertEquals(0, buffer.getTotalWeight());
+		Assert.assertNull(buffer.get());
+		Assert.assertArrayEquals(new int[] { 0, 0 }, buffer.getWeights());
+		Assert.assertNotNull(buffer.toString());
+
+		// integer elements, element and index updates are not ambiguous
+		final WeightedCircularBuffer<Integer> integers = WeightedCircularBuffer.of(Arrays.asList(5, 0), new int[] { 1, 1 });
+		Assert.assertTrue(integers.setWeight(0, 4)); // element 0, at index 1
+		Assert.assertArrayEquals(new int[] { 1, 4 }, integers.getWeights());
+		integers.setWeightAt(0, 2);
+		Assert.assertArrayEquals(new int[] { 2, 4 }, integers.getWeights());
+	}
+
+	@Test
+	public void empty() {
+		final WeightedCircularBuffer<String> buffer = WeightedCircularBuffer.of(Collections.<String, Integer> emptyMap());
+		Assert.assertTrue(buffer.isEmpty());
+		Assert.assertNull(buffer.get());
+		Assert.assertFalse(buffer.contains("a"));
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			WeightedCircularBuffer.of(Arrays.asList("a", "b"), new int[] { 1 });
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aWeights"));
+		}
+		try {
+			WeightedCircularBuffer.of(Arrays.asList("a"), new int[] { -1 });
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aWeights"));
+		}
+
+		final WeightedCircularBuffer<String> buffer = WeightedCircularBuffer.of(Arrays.asList("a"), new int[] { 1 });
+		try {
+			buffer.setWeightAt(0, -1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("weight"));
+		}
+		try {
+			buffer.setWeightAt(1, 1);
+			Assert.fail();
+		} catch (final IndexOutOfBoundsException e) {
+			Assert.assertNotNull(e.getMessage());
+		}
+	}
+
+	/**
+	 * Select elements given amount of times.
+	 * 
+	 * @param buffer
+	 *            buffer
+	 * @param calls
+	 *            selections amount
+	 * @return selections count per element
+	 */
+	private static Map<String, Integer> select(final WeightedCircularBuffer<String> buffer, final int calls) {
+		final Map<String, Integer> result = new HashMap<>();
+		for (int i = 0; i < calls; i++)
+			result.merge(buffer.get(), 1, Integer::sum);
+
+		return result;
+	}
+
+	/**
+	 * Assert selections count is within 1% of expected.
+	 * 
+	 * @param expected
+	 *            expected count
+	 * @param actual
+	 *            actual count
+	 */
+	private static void assertShare(final int expected, final Integer actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertTrue("expected[" + expected + "], actual[" + actual + "]", Math.abs(expected - actual) <= expected / 100);
+	}
+
+}
@@ -0,0 +1,131 @@
+package net.bolbat.utils.concurrency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link HashedWheelTimer} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public class HashedWheelTimerTest {
+
+	/**
+	 * Expiration and cancellation test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void expirationTest() throws InterruptedException {
+		try (final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8)) {
+			final CountDownLatch expired = new CountDownLatch(3);
+			final AtomicInteger cancelledRuns = new AtomicInteger();
+			final long started = System.nanoTime();
+			timer.newTimeout(expired::countDown, 0, TimeUnit.MILLISECONDS);
+			timer.newTimeout(expired::countDown, 5, TimeUnit.MILLISECONDS);
+			final HashedWheelTimer.Timeout last = timer.newTimeout(expired::countDown, 30, TimeUnit.MILLISECONDS); // few wheel rounds
+			final HashedWheelTimer.Timeout cancelled = timer.newTimeout(cancelledRuns::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+			Assert.assertTrue(cancelled.cancel());
+			Assert.assertFalse(cancelled.cancel());
+
+			Assert.assertTrue(expired.await(5, TimeUnit.SECONDS));
+			Assert.assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(30)); // not earlier than requested
+			Assert.assertTrue(last.isExpired());
+			Assert.assertFalse(last.cancel());
+			Assert.assertTrue(cancelled.isCancelled());
+			Assert.assertEquals(0, cancelledRuns.get());
+			Assert.assertNotNull(timer.toString());
+		}
+	}
+
+	/**
+	 * Failed task test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void failedTaskTest() throws InterruptedException {
+		final HashedWheelTimer timer = new HashedWheelTimer();
+		final CountDownLatch expired = new CountDownLatch(1);
+		timer.newTimeout(() -> {
+			throw new IllegalStateException("expected failure");
+		}, 0, TimeUnit.MILLISECONDS);
+		timer.newTimeout(() -> {
+			throw new AssertionError("expected error"); // not fatal, worker is kept alive
+		}, 0, TimeUnit.MILLISECONDS);
+		timer.newTimeout(expired::countDown, 1, TimeUnit.MILLISECONDS);
+
+		Assert.assertTrue(expired.await(5, TimeUnit.SECONDS));
+		timer.stop();
+		try {
+			timer.newTimeout(expired::countDown, 1, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		} catch (final IllegalStateException e) {
+			Assert.assertNotNull(e.getMessage());
+		}
+	}
+
+	/**
+	 * Fatal error test, timer is stopped instead of accepting timeouts which never expire.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void fatalErrorTest() throws InterruptedException {
+		final HashedWheelTimer timer = new HashedWheelTimer();
+		final CountDownLatch failed = new CountDownLatch(1);
+		timer.newTimeout(() -> {
+			failed.countDown();
+			throw new OutOfMemoryError("expected fatal error");
+		}, 0, TimeUnit.MILLISECONDS);
+
+		Assert.assertTrue(failed.await(5, TimeUnit.SECONDS));
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline)
+			try {
+				timer.newTimeout(() -> {
+				}, 1, TimeUnit.HOURS);
+				Thread.sleep(1);
+			} catch (final IllegalStateException e) {
+				timer.stop(); // no-op
+				return;
+			}
+
+		Assert.fail("Timer is not stopped");
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		try {
+			new HashedWheelTimer(0, TimeUnit.MILLISECONDS, 8);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aTickDuration"));
+		}
+		try {
+			new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aWheelSize"));
+		}
+
+		final HashedWheelTimer timer = new HashedWheelTimer();
+		try {
+			timer.newTimeout(null, 1, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("task"));
+		}
+	}
+
+}
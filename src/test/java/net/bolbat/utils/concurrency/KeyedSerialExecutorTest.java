@@ -0,0 +1,192 @@
+package net.bolbat.utils.concurrency;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link KeyedSerialExecutor} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public class KeyedSerialExecutorTest {
+
+	/**
+	 * Testing keys amount.
+	 */
+	private static final int KEYS = 10;
+
+	/**
+	 * Tasks per key amount.
+	 */
+	private static final int TASKS_PER_KEY = 10000;
+
+	/**
+	 * Shared executor.
+	 */
+	private ExecutorService pool;
+
+	@Before
+	public void before() {
+		pool = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void after() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Per key ordering test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void orderingTest() throws InterruptedException {
+		final KeyedSerialExecutor<Integer> executor = new KeyedSerialExecutor<>(pool, 2, 16);
+		final ConcurrentMap<Integer, List<Integer>> results = new ConcurrentHashMap<>();
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final CountDownLatch finisher = new CountDownLatch(KEYS * TASKS_PER_KEY);
+		for (int key = 0; key < KEYS; key++)
+			results.put(key, new CopyOnWriteArrayList<Integer>());
+
+		for (int i = 0; i < TASKS_PER_KEY; i++)
+			for (int key = 0; key < KEYS; key++) {
+				final int k = key;
+				final int value = i;
+				executor.execute(k, () -> {
+					final int current = active.incrementAndGet();
+					maxActive.accumulateAndGet(current, Math::max);
+					results.get(k).add(value);
+					active.decrementAndGet();
+					finisher.countDown();
+				});
+			}
+
+		Assert.assertTrue(finisher.await(30, TimeUnit.SECONDS));
+		for (int key = 0; key < KEYS; key++) {
+			final List<Integer> values = results.get(key);
+			Assert.assertEquals(TASKS_PER_KEY, values.size());
+			for (int i = 0; i < TASKS_PER_KEY; i++)
+				Assert.assertEquals(Integer.valueOf(i), values.get(i));
+		}
+
+		Assert.assertTrue(maxActive.get() <= 2); // bounded active keys
+		waitForIdle(executor);
+		Assert.assertEquals(0, executor.getKeysCount());
+		Assert.assertEquals(0, executor.getActiveKeysCount());
+		Assert.assertNotNull(executor.toString());
+	}
+
+	/**
+	 * Failed task test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void failedTaskTest() throws InterruptedException {
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(pool);
+		final CountDownLatch finisher = new CountDownLatch(1);
+		executor.execute("key", () -> {
+			throw new IllegalStateException("expected failure");
+		});
+		executor.execute("key", finisher::countDown);
+
+		Assert.assertTrue(finisher.await(5, TimeUnit.SECONDS));
+		waitForIdle(executor);
+		Assert.assertEquals(0, executor.getKeysCount());
+	}
+
+	/**
+	 * Shared executor rejection test, rejected tasks stay queued and are executed once.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void rejectedDispatchTest() throws InterruptedException {
+		final AtomicInteger rejections = new AtomicInteger(1);
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(command -> {
+			if (rejections.getAndDecrement() > 0)
+				throw new RejectedExecutionException("saturated");
+
+			pool.execute(command);
+		});
+		final AtomicInteger executed = new AtomicInteger();
+		executor.execute("key", executed::incrementAndGet); // rejected, not thrown
+		Assert.assertEquals(1, executor.getKeysCount());
+		Assert.assertEquals(0, executor.getActiveKeysCount());
+		Assert.assertEquals(0, executed.get());
+
+		final CountDownLatch finisher = new CountDownLatch(1);
+		executor.execute("other", finisher::countDown); // dispatches pending key as well
+		Assert.assertTrue(finisher.await(5, TimeUnit.SECONDS));
+		waitForIdle(executor);
+		Assert.assertEquals(1, executed.get());
+		Assert.assertEquals(0, executor.getKeysCount());
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		try {
+			new KeyedSerialExecutor<String>(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aExecutor"));
+		}
+		try {
+			new KeyedSerialExecutor<String>(pool, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aMaxActiveKeys"));
+		}
+
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(pool);
+		try {
+			executor.execute(null, () -> {
+			});
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("key"));
+		}
+		try {
+			executor.execute("key", null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("task"));
+		}
+	}
+
+	/**
+	 * Wait while executor finish keys queues cleanup, after the last task executed.
+	 * 
+	 * @param executor
+	 *            executor
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void waitForIdle(final KeyedSerialExecutor<?> executor) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ((executor.getKeysCount() > 0 || executor.getActiveKeysCount() > 0) && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+	}
+
+}
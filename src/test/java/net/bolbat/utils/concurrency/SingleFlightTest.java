@@ -0,0 +1,159 @@
+package net.bolbat.utils.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SingleFlight} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class SingleFlightTest {
+
+	/**
+	 * Concurrent callers amount.
+	 */
+	private static final int CALLERS = 8;
+
+	/**
+	 * Callers pool.
+	 */
+	private ExecutorService pool;
+
+	@Before
+	public void before() {
+		pool = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	@After
+	public void after() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Shared computation test.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void sharedResultTest() throws Exception {
+		final SingleFlight<String, Integer> flight = new SingleFlight<>();
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Future<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++)
+			results.add(pool.submit(() -> flight.execute("key", () -> {
+				loads.incrementAndGet();
+				release.await();
+				return 42;
+			})));
+
+		waitForCallers(flight, "key", CALLERS);
+		Assert.assertEquals(1, flight.getKeysCount());
+		Assert.assertEquals("key", flight.getKeys().get(0));
+		release.countDown();
+
+		for (final Future<Integer> result : results)
+			Assert.assertEquals(Integer.valueOf(42), result.get(5, TimeUnit.SECONDS));
+
+		Assert.assertEquals(1, loads.get());
+		Assert.assertEquals(0, flight.getKeysCount());
+		Assert.assertEquals(0, flight.getCallersCount("key"));
+
+		// flight removed, next call computes again
+		Assert.assertEquals(Integer.valueOf(43), flight.execute("key", () -> 43));
+		Assert.assertNotNull(flight.toString());
+	}
+
+	/**
+	 * Shared exception test.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void sharedExceptionTest() throws Exception {
+		final SingleFlight<String, Integer> flight = new SingleFlight<>();
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Future<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++)
+			results.add(pool.submit(() -> flight.execute("key", () -> {
+				loads.incrementAndGet();
+				release.await();
+				throw new IllegalStateException("expected failure");
+			})));
+
+		waitForCallers(flight, "key", CALLERS);
+		release.countDown();
+
+		for (final Future<Integer> result : results)
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				Assert.fail();
+			} catch (final ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+				Assert.assertEquals("expected failure", e.getCause().getMessage());
+			}
+
+		Assert.assertEquals(1, loads.get());
+		Assert.assertEquals(0, flight.getKeysCount());
+	}
+
+	/**
+	 * Error cases test.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void errorCasesTest() throws Exception {
+		final SingleFlight<String, Integer> flight = new SingleFlight<>();
+		try {
+			flight.execute(null, () -> 1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("key"));
+		}
+		try {
+			flight.execute("key", null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("loader"));
+		}
+	}
+
+	/**
+	 * Wait while given amount of callers joined the flight.
+	 *
+	 * @param flight
+	 *            single flight
+	 * @param key
+	 *            key
+	 * @param callers
+	 *            expected callers amount
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void waitForCallers(final SingleFlight<String, ?> flight, final String key, final int callers) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (flight.getCallersCount(key) < callers && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+
+		Assert.assertEquals(callers, flight.getCallersCount(key));
+	}
+
+}
@@ -0,0 +1,134 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link AsyncIdBasedLockManager} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public final class AsyncIdBasedLockManagerTest {
+
+	/**
+	 * Testing lock id.
+	 */
+	private static final String LOCK_ID = "qwe";
+
+	/**
+	 * Basic test.
+	 */
+	@Test
+	public void basicTest() {
+		final AsyncIdBasedLockManager<String> lockManager = new AsyncIdBasedLockManager<>();
+
+		final CompletableFuture<AsyncIdBasedLock<String>> first = lockManager.obtainLockAsync(LOCK_ID);
+		Assert.assertTrue(first.isDone());
+		Assert.assertEquals(1, lockManager.getLocksCount());
+		Assert.assertEquals(LOCK_ID, lockManager.getLocksIds().get(0));
+
+		final CompletableFuture<AsyncIdBasedLock<String>> second = lockManager.obtainLockAsync(LOCK_ID);
+		final CompletableFuture<AsyncIdBasedLock<String>> third = lockManager.obtainLockAsync(LOCK_ID);
+		final CompletableFuture<AsyncIdBasedLock<String>> fourth = lockManager.obtainLockAsync(LOCK_ID);
+		Assert.assertFalse(second.isDone());
+		Assert.assertTrue(lockManager.obtainLockAsync("other").join().unlock());
+
+		third.cancel(false); // cancelled waiter should be skipped
+		Assert.assertTrue(first.join().unlock());
+		Assert.assertFalse(first.join().unlock()); // repeated unlock ignored
+		Assert.assertTrue(second.isDone());
+		Assert.assertFalse(fourth.isDone());
+
+		second.join().close();
+		Assert.assertTrue(fourth.isDone());
+		Assert.assertEquals(1, lockManager.getLocksCount());
+
+		fourth.join().close();
+		Assert.assertTrue(fourth.join().isReleased());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertNotNull(lockManager.toString());
+	}
+
+	/**
+	 * FIFO order test.
+	 */
+	@Test
+	public void orderTest() {
+		final AsyncIdBasedLockManager<String> lockManager = new AsyncIdBasedLockManager<>();
+		final AsyncIdBasedLock<String> holder = lockManager.obtainLockAsync(LOCK_ID).join();
+
+		final List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			final int index = i;
+			lockManager.obtainLockAsync(LOCK_ID).thenAccept(lock -> {
+				order.add(index);
+				lock.unlock();
+			});
+		}
+
+		Assert.assertTrue(order.isEmpty());
+		holder.unlock();
+		Assert.assertEquals(10, order.size());
+		for (int i = 0; i < 10; i++)
+			Assert.assertEquals(Integer.valueOf(i), order.get(i));
+
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Multi threaded test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void multithreadedTest() throws InterruptedException {
+		final AsyncIdBasedLockManager<String> lockManager = new AsyncIdBasedLockManager<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final int calls = 100000;
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger unsafe = new AtomicInteger();
+		final CountDownLatch finisher = new CountDownLatch(calls);
+		try {
+			for (int i = 0; i < calls; i++)
+				executor.execute(() -> lockManager.obtainLockAsync(LOCK_ID).thenAcceptAsync(lock -> {
+					if (active.incrementAndGet() > 1)
+						unsafe.incrementAndGet();
+					active.decrementAndGet();
+					lock.unlock();
+					finisher.countDown();
+				}, executor));
+
+			Assert.assertTrue(finisher.await(30, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(0, unsafe.get());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		final AsyncIdBasedLockManager<String> lockManager = new AsyncIdBasedLockManager<>();
+		try {
+			lockManager.obtainLockAsync(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("id"));
+		}
+	}
+
+}
@@ -0,0 +1,310 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link FileIdBasedLockManager} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public final class FileIdBasedLockManagerTest {
+
+	/**
+	 * Testing lock id.
+	 */
+	private static final String LOCK_ID = "qwe";
+
+	/**
+	 * Forked processes amount.
+	 */
+	private static final int PROCESSES = 3;
+
+	/**
+	 * Counter increments per forked process.
+	 */
+	private static final int INCREMENTS = 50;
+
+	/**
+	 * Lock file.
+	 */
+	private Path lockFile;
+
+	@Before
+	public void before() throws IOException {
+		lockFile = Files.createTempFile("bb-utils-lock", ".lock");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(lockFile);
+	}
+
+	/**
+	 * Basic in-process test.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void basicTest() throws InterruptedException {
+		final FileIdBasedLockManager<String> lockManager = new FileIdBasedLockManager<>(lockFile, 1000);
+		Assert.assertEquals(1024, lockManager.getRegionsCount());
+		Assert.assertEquals(lockFile.toAbsolutePath(), lockManager.getLockFile());
+
+		final IdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+		Assert.assertEquals(1, lockManager.getLocksCount());
+		Assert.assertEquals(LOCK_ID, lockManager.getLocksIds().get(0));
+
+		lock.lock();
+		Assert.assertEquals(1, lockManager.getLockedRegionsCount());
+		Assert.assertTrue(lockManager.obtainLock(LOCK_ID).tryLock()); // reentrant
+		Assert.assertTrue(lockManager.obtainLock(LOCK_ID).tryLock(1, TimeUnit.SECONDS));
+		Assert.assertEquals(3, lock.getHoldCount());
+		Assert.assertEquals(1, lockManager.getLockedRegionsCount());
+
+		final Thread other = new Thread(() -> {
+			final IdBasedLock<String> otherLock = lockManager.obtainLock(LOCK_ID);
+			Assert.assertFalse(otherLock.tryLock());
+			lockManager.releaseLock(otherLock); // releasing reference of the failed acquisition
+		});
+		other.start();
+		other.join();
+		Assert.assertEquals(3, lock.getReferencesCount());
+
+		lock.unlock();
+		lock.unlock();
+		Assert.assertEquals(1, lockManager.getLockedRegionsCount());
+		lock.unlock();
+		Assert.assertEquals(0, lockManager.getLockedRegionsCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertNotNull(lockManager.toString());
+	}
+
+	/**
+	 * Lock held by other process test.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void otherProcessTest() throws Exception {
+		final Process holder = fork("hold", lockFile.toString(), LOCK_ID);
+		try {
+			final BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+			Assert.assertEquals("locked", output.readLine());
+
+			final FileIdBasedLockManager<String> lockManager = new FileIdBasedLockManager<>(lockFile);
+			final IdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+			Assert.assertFalse(lock.tryLock());
+			Assert.assertFalse(lock.tryLock(50, TimeUnit.MILLISECONDS));
+			Assert.assertEquals(0, lockManager.getLockedRegionsCount());
+
+			final OutputStream input = holder.getOutputStream();
+			input.write('\n');
+			input.flush();
+
+			Assert.assertTrue(lock.tryLock(10, TimeUnit.SECONDS));
+			lock.unlock();
+			Assert.assertEquals(0, holder.waitFor());
+		} finally {
+			holder.destroy();
+		}
+	}
+
+	/**
+	 * Status queries are not blocked by the thread waiting for the region held by other process.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void statusWhileWaitingTest() throws Exception {
+		final Process holder = fork("hold", lockFile.toString(), LOCK_ID);
+		try {
+			final BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+			Assert.assertEquals("locked", output.readLine());
+
+			final FileIdBasedLockManager<String> lockManager = new FileIdBasedLockManager<>(lockFile);
+			final CountDownLatch acquired = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			final Thread waiter = new Thread(() -> {
+				try (IdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID).lock()) { // waiting for the other process
+					acquired.countDown();
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			waiter.setDaemon(true);
+			waiter.start();
+			Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+			final FutureTask<Integer> status = new FutureTask<>(lockManager::getLockedRegionsCount);
+			final Thread query = new Thread(status);
+			query.setDaemon(true);
+			query.start();
+			Assert.assertEquals(0, status.get(5, TimeUnit.SECONDS).intValue());
+
+			final OutputStream input = holder.getOutputStream();
+			input.write('\n');
+			input.flush();
+
+			Assert.assertTrue(acquired.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals(1, lockManager.getLockedRegionsCount());
+			release.countDown();
+			waiter.join(5000);
+			Assert.assertEquals(0, lockManager.getLockedRegionsCount());
+			Assert.assertEquals(0, holder.waitFor());
+		} finally {
+			holder.destroy();
+		}
+	}
+
+	/**
+	 * Multiple processes mutual exclusion test.
+	 *
+	 * @throws Exception
+	 *             on errors
+	 */
+	@Test
+	public void multiProcessTest() throws Exception {
+		final Path counterFile = Files.createTempFile("bb-utils-lock-counter", ".txt");
+		try {
+			Files.write(counterFile, "0".getBytes(StandardCharsets.UTF_8));
+
+			final List<Process> processes = new ArrayList<>();
+			for (int i = 0; i < PROCESSES; i++)
+				processes.add(fork("increment", lockFile.toString(), LOCK_ID, counterFile.toString(), String.valueOf(INCREMENTS)));
+
+			for (final Process process : processes)
+				Assert.assertEquals(0, process.waitFor());
+
+			Assert.assertEquals(PROCESSES * INCREMENTS, readCounter(counterFile));
+		} finally {
+			Files.deleteIfExists(counterFile);
+		}
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		try {
+			new FileIdBasedLockManager<String>(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aLockFile"));
+		}
+		try {
+			new FileIdBasedLockManager<String>(lockFile, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aRegionsCount"));
+		}
+		try {
+			new FileIdBasedLockManager<String>(lockFile.resolve("not-exist").resolve("file.lock"));
+			Assert.fail();
+		} catch (final IdBasedLockRuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+	}
+
+	/**
+	 * Fork JVM executing {@link ForkedProcess}.
+	 *
+	 * @param args
+	 *            process arguments
+	 * @return {@link Process}
+	 * @throws IOException
+	 *             on errors
+	 */
+	private static Process fork(final String... args) throws IOException {
+		final List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ForkedProcess.class.getName());
+		for (final String arg : args)
+			command.add(arg);
+
+		return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+	}
+
+	/**
+	 * Read counter value.
+	 *
+	 * @param counterFile
+	 *            counter file
+	 * @return counter value
+	 * @throws IOException
+	 *             on errors
+	 */
+	private static int readCounter(final Path counterFile) throws IOException {
+		return Integer.parseInt(new String(Files.readAllBytes(counterFile), StandardCharsets.UTF_8).trim());
+	}
+
+	/**
+	 * Forked process entry point.
+	 *
+	 * @author Alexandr Bolbat
+	 */
+	public static final class ForkedProcess {
+
+		/**
+		 * Hidden constructor.
+		 */
+		private ForkedProcess() {
+			throw new IllegalAccessError("Can't be instantiated.");
+		}
+
+		/**
+		 * Execute forked process action.
+		 *
+		 * @param args
+		 *            action, lock file, lock id and action arguments
+		 * @throws Exception
+		 *             on errors
+		 */
+		public static void main(final String[] args) throws Exception {
+			final FileIdBasedLockManager<String> lockManager = new FileIdBasedLockManager<>(Paths.get(args[1]));
+			if ("hold".equals(args[0])) {
+				final IdBasedLock<String> lock = lockManager.obtainLock(args[2]).lock();
+				System.out.println("locked");
+				System.out.flush();
+				System.in.read(); // waiting for the release signal
+				lock.unlock();
+				return;
+			}
+
+			final Path counterFile = Paths.get(args[3]);
+			final int increments = Integer.parseInt(args[4]);
+			for (int i = 0; i < increments; i++)
+				try (IdBasedLock<String> lock = lockManager.obtainLock(args[2]).lock()) {
+					final int value = readCounter(counterFile);
+					Thread.yield();
+					Files.write(counterFile, String.valueOf(value + 1).getBytes(StandardCharsets.UTF_8));
+				}
+		}
+
+	}
+
+}
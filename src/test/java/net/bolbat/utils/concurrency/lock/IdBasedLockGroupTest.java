@@ -0,0 +1,227 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link IdBasedLockGroup} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public final class IdBasedLockGroupTest {
+
+	/**
+	 * Testing threads amount.
+	 */
+	private static final int THREADS = 4;
+
+	/**
+	 * Thread test calls amount.
+	 */
+	private static final int CALLS_PER_THREAD = 20000;
+
+	/**
+	 * Basic test.
+	 */
+	@Test
+	public void basicTest() {
+		final IdBasedLockManager<String> lockManager = new ConcurrentIdBasedLockManager<>();
+
+		try (final IdBasedLockGroup<String> group = IdBasedLockGroup.lock(lockManager, Arrays.asList("3", "1", "2", "1"))) {
+			Assert.assertEquals(Arrays.asList("1", "2", "3"), group.getIds());
+			Assert.assertEquals(3, lockManager.getLocksCount());
+			final IdBasedLock<String> lock = lockManager.obtainLock("1");
+			Assert.assertTrue(lock.isHeldByCurrentThread());
+			lockManager.releaseLock(lock); // releasing checking reference
+			Assert.assertNotNull(group.toString());
+		}
+
+		Assert.assertEquals(0, lockManager.getLocksCount());
+
+		// comparator order
+		final IdBasedLockGroup<String> group = IdBasedLockGroup.lock(lockManager, Arrays.asList("1", "3", "2"), Collections.reverseOrder());
+		Assert.assertEquals(Arrays.asList("3", "2", "1"), group.getIds());
+		group.unlock();
+		group.unlock(); // repeated unlock ignored
+		Assert.assertTrue(group.isReleased());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Partial acquisition rollback test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void rollbackTest() throws InterruptedException {
+		final IdBasedLockManager<String> lockManager = new ConcurrentIdBasedLockManager<>();
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Thread holder = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				final IdBasedLock<String> lock = lockManager.obtainLock("2").lock();
+				try {
+					locked.countDown();
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					lock.unlock();
+				}
+			}
+		});
+		holder.start();
+		locked.await();
+
+		final List<String> ids = Arrays.asList("1", "2", "3");
+		Assert.assertNull(IdBasedLockGroup.tryLock(lockManager, ids));
+		Assert.assertNull(IdBasedLockGroup.tryLock(lockManager, ids, 10, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, lockManager.getLocksCount()); // only held by other thread lock exist
+
+		release.countDown();
+		holder.join();
+
+		final IdBasedLockGroup<String> group = IdBasedLockGroup.tryLock(lockManager, ids, 1, TimeUnit.SECONDS);
+		Assert.assertNotNull(group);
+		group.close();
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Multi threaded test with opposite id's order, should finish without deadlocks.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void multithreadedTest() throws InterruptedException {
+		final IdBasedLockManager<String> lockManager = new ConcurrentIdBasedLockManager<>();
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger unsafe = new AtomicInteger();
+		final CountDownLatch finisher = new CountDownLatch(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			final List<String> ids = i % 2 == 0 ? Arrays.asList("a", "b") : Arrays.asList("b", "a");
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < CALLS_PER_THREAD; j++)
+							try (final IdBasedLockGroup<String> group = IdBasedLockGroup.lock(lockManager, ids)) {
+								if (active.incrementAndGet() > 1)
+									unsafe.incrementAndGet();
+								active.decrementAndGet();
+							}
+					} finally {
+						finisher.countDown();
+					}
+				}
+			}).start();
+		}
+
+		Assert.assertTrue(finisher.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals(0, unsafe.get());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Striped manager test, id's ordered by stripes and each stripe is acquired once.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void stripedTest() throws InterruptedException {
+		final StripedIdBasedLockManager<Integer> striped = new StripedIdBasedLockManager<>(2);
+		// id's order is opposite to the stripes order in the first group and the same in the second one
+		final int firstOne = nextInStripe(striped, 0, 1);
+		final List<Integer> first = Arrays.asList(firstOne, nextInStripe(striped, firstOne + 1, 0));
+		final int secondZero = nextInStripe(striped, 0, 0);
+		final List<Integer> second = Arrays.asList(secondZero, nextInStripe(striped, secondZero + 1, 1));
+
+		for (final IdBasedLockManager<Integer> lockManager : Arrays.<IdBasedLockManager<Integer>> asList(striped,
+				new InstrumentedIdBasedLockManager<>(striped))) {
+			final CountDownLatch finisher = new CountDownLatch(THREADS);
+			for (int i = 0; i < THREADS; i++) {
+				final List<Integer> ids = i % 2 == 0 ? first : second;
+				new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							for (int j = 0; j < CALLS_PER_THREAD; j++)
+								IdBasedLockGroup.lock(lockManager, ids).close();
+						} finally {
+							finisher.countDown();
+						}
+					}
+				}).start();
+			}
+
+			Assert.assertTrue(finisher.await(30, TimeUnit.SECONDS));
+			Assert.assertEquals(0, lockManager.getLocksCount());
+		}
+
+		// id's sharing the stripe
+		final List<Integer> shared = Arrays.asList(secondZero, nextInStripe(striped, secondZero + 1, 0));
+		try (final IdBasedLockGroup<Integer> group = IdBasedLockGroup.lock(striped, shared)) {
+			Assert.assertEquals(2, group.getIds().size());
+			Assert.assertEquals(1, striped.obtainLock(shared.get(0)).getHoldCount()); // acquired once
+		}
+		Assert.assertEquals(0, striped.getLocksCount());
+	}
+
+	/**
+	 * Find first id mapped to the given stripe.
+	 * 
+	 * @param manager
+	 *            striped manager
+	 * @param from
+	 *            minimal id
+	 * @param stripe
+	 *            stripe index
+	 * @return id
+	 */
+	private static int nextInStripe(final StripedIdBasedLockManager<Integer> manager, final int from, final int stripe) {
+		int id = from;
+		while (manager.stripeIndex(id) != stripe)
+			id++;
+
+		return id;
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		final IdBasedLockManager<String> lockManager = new ConcurrentIdBasedLockManager<>();
+		try {
+			IdBasedLockGroup.lock(null, Arrays.asList("1"));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("manager"));
+		}
+		try {
+			IdBasedLockGroup.lock(lockManager, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("ids"));
+		}
+		try {
+			IdBasedLockGroup.lock(lockManager, Arrays.asList("1", null));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("ids"));
+		}
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+}
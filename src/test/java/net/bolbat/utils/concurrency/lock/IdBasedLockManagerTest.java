@@ -203,6 +203,97 @@ public final class IdBasedLockManagerTest {
 		Assert.assertEquals(0, lockManager.getLocksIds().size());
 	}
 
+	/**
+	 * {@link ConcurrentIdBasedLockManager} exist lock reusing test.
+	 */
+	@Test
+	public void concurrentLockManagerReusingTest() {
+		final IdBasedLockManager<String> lockManager = new ConcurrentIdBasedLockManager<>();
+
+		final IdBasedLock<String> first = lockManager.obtainLock(LOCK_ID);
+		final IdBasedLock<String> second = lockManager.obtainLock(LOCK_ID);
+		Assert.assertSame(first, second);
+		Assert.assertEquals(2, first.getReferencesCount());
+		Assert.assertEquals(1, lockManager.getLocksCount());
+
+		first.lock().unlock();
+		Assert.assertEquals(1, first.getReferencesCount());
+		Assert.assertEquals(1, lockManager.getLocksCount());
+
+		second.lock().unlock();
+		Assert.assertEquals(0, first.getReferencesCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+
+		// released lock can't be reused
+		Assert.assertFalse(first.tryIncreaseReferences());
+		final IdBasedLock<String> third = lockManager.obtainLock(LOCK_ID);
+		Assert.assertNotSame(first, third);
+		Assert.assertEquals(1, third.getReferencesCount());
+		third.lock().unlock();
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Basic {@link StripedIdBasedLockManager} test.
+	 */
+	@Test
+	public void basicStripedLockManagerTest() {
+		final StripedIdBasedLockManager<String> lockManager = new StripedIdBasedLockManager<>(3);
+		Assert.assertEquals(4, lockManager.getStripesCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertEquals(0d, lockManager.getCollisionRate(), 0d);
+
+		final IdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+		Assert.assertSame(lock, lockManager.obtainLock(LOCK_ID));
+		Assert.assertEquals(0, lockManager.getCollisionsCount());
+
+		lock.lock();
+		try {
+			Assert.assertEquals(1, lockManager.getLocksCount());
+			Assert.assertEquals(LOCK_ID, lockManager.getLocksIds().get(0));
+			Assert.assertNotNull(lock.toString());
+		} finally {
+			lock.unlock();
+		}
+
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertEquals(0, lockManager.getLocksIds().size());
+
+		// single stripe, each id change is a collision
+		final StripedIdBasedLockManager<String> singleStripe = new StripedIdBasedLockManager<>(1);
+		Assert.assertSame(singleStripe.obtainLock("1"), singleStripe.obtainLock("2"));
+		singleStripe.obtainLock("2");
+		Assert.assertEquals(3, singleStripe.getObtainsCount());
+		Assert.assertEquals(1, singleStripe.getCollisionsCount());
+		Assert.assertEquals(1d / 3, singleStripe.getCollisionRate(), 0.0001d);
+	}
+
+	/**
+	 * Multi threaded {@link StripedIdBasedLockManager} test.
+	 */
+	@Test
+	public void multithreadedStripedLockManagerTest() {
+		final IdBasedLockManager<String> lockManager = new StripedIdBasedLockManager<>(2);
+		lockManagerTestExecutor(lockManager, LOCKS_IDS);
+
+		// checking results
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertNotNull(lockManager.getLocksIds());
+		Assert.assertEquals(0, lockManager.getLocksIds().size());
+
+		int processedTotal = 0;
+		int unsafeTotal = 0;
+		for (final String id : LOCKS_IDS) {
+			processedTotal += PROCESSED_PER_ID_CALLS.get(id).get();
+			unsafeTotal += UNSAFE_PER_ID_CALLS.get(id).get();
+
+			Assert.assertEquals(1, ACTIVE_MAX_PER_ID_CALLS.get(id).get()); // should be not more then 1
+		}
+
+		Assert.assertEquals(THREADS * CALLS_PER_THREAD, processedTotal);
+		Assert.assertEquals(0, unsafeTotal);
+	}
+
 	/**
 	 * Multi threaded {@link SafeIdBasedLockManager} test.
 	 */
@@ -261,6 +352,33 @@ public final class IdBasedLockManagerTest {
 		Assert.assertEquals(0, unsafeTotal);
 	}
 
+	/**
+	 * Multi threaded {@link InstrumentedIdBasedLockManager} test.
+	 */
+	@Test
+	public void multithreadedInstrumentedLockManagerTest() {
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(new ConcurrentIdBasedLockManager<String>());
+		lockManagerTestExecutor(lockManager, LOCKS_IDS);
+
+		// checking results
+		Assert.assertEquals(0, lockManager.getLocksCount());
+
+		int processedTotal = 0;
+		int unsafeTotal = 0;
+		for (final String id : LOCKS_IDS) {
+			processedTotal += PROCESSED_PER_ID_CALLS.get(id).get();
+			unsafeTotal += UNSAFE_PER_ID_CALLS.get(id).get();
+
+			Assert.assertEquals(1, ACTIVE_MAX_PER_ID_CALLS.get(id).get()); // should be not more then 1
+			Assert.assertEquals(PROCESSED_PER_ID_CALLS.get(id).get(), lockManager.getStats(id).getAcquisitionsCount());
+		}
+
+		Assert.assertEquals(THREADS * CALLS_PER_THREAD, processedTotal);
+		Assert.assertEquals(0, unsafeTotal);
+		Assert.assertEquals(processedTotal, lockManager.getStats().getAcquisitionsCount());
+		Assert.assertEquals(processedTotal, lockManager.getStats().getHoldTimeHistogram().getCount());
+	}
+
 	/**
 	 * {@link IdBasedLockManager} test executor.
 	 * 
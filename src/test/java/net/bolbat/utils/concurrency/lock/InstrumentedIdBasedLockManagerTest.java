@@ -0,0 +1,224 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link InstrumentedIdBasedLockManager} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public final class InstrumentedIdBasedLockManagerTest {
+
+	/**
+	 * Basic statistics test.
+	 */
+	@Test
+	public void basicTest() {
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(new ConcurrentIdBasedLockManager<String>(), 1);
+
+		final IdBasedLock<String> lock = lockManager.obtainLock("1");
+		Assert.assertEquals(1, lockManager.getLocksCount());
+		Assert.assertEquals(1, lock.getReferencesCount());
+		lock.lock();
+		final IdBasedLock<String> reentrant = lockManager.obtainLock("1").lock(); // reentrant through other instance
+		Assert.assertEquals(2, lock.getHoldCount());
+		Assert.assertEquals(2, lock.getReferencesCount());
+		reentrant.unlock();
+		Assert.assertTrue(lock.isHeldByCurrentThread());
+		lock.unlock();
+		Assert.assertFalse(lock.isLocked());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+
+		lockManager.obtainLock("2").lock().unlock(); // replaces "1", limit reached
+
+		final InstrumentedIdBasedLockManager.Stats stats = lockManager.getStats();
+		Assert.assertEquals(3, stats.getAcquisitionsCount());
+		Assert.assertEquals(0, stats.getContendedAcquisitionsCount());
+		Assert.assertEquals(2, stats.getHoldTimeHistogram().getCount());
+		Assert.assertEquals(3, stats.getWaitTimeHistogram().getCount());
+		Assert.assertNull(lockManager.getStats("1"));
+		Assert.assertEquals(1, lockManager.getStats("2").getAcquisitionsCount());
+		Assert.assertEquals(1, lockManager.getIdsStats().size());
+		Assert.assertNotNull(lockManager.toString());
+
+		lockManager.resetStats();
+		Assert.assertEquals(0, lockManager.getStats().getAcquisitionsCount());
+		Assert.assertEquals(0, lockManager.getStats().getWaitTimeHistogram().getCount());
+		Assert.assertEquals(0, lockManager.getIdsStats().size());
+
+		final IdBasedLock<String> first = lockManager.obtainLock("3").lock();
+		lockManager.obtainLock("3").unlock(); // hold released through other instance
+		lockManager.releaseLock(first);
+		Assert.assertEquals(1, lockManager.getStats().getHoldTimeHistogram().getCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Contention statistics test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void contentionTest() throws InterruptedException {
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(new StripedIdBasedLockManager<String>());
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+
+		final IdBasedLock<String> holder = lockManager.obtainLock("hot").lock();
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final IdBasedLock<String> lock = lockManager.obtainLock("hot");
+					Assert.assertFalse(lock.tryLock());
+					locked.countDown();
+					lock.lock().unlock();
+				} finally {
+					finished.countDown();
+				}
+			}
+		}).start();
+
+		Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+		Thread.sleep(20);
+		holder.unlock();
+		Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+		lockManager.obtainLock("cold").lock().unlock();
+
+		final InstrumentedIdBasedLockManager.IdStats hot = lockManager.getStats("hot");
+		Assert.assertEquals(2, hot.getAcquisitionsCount());
+		Assert.assertEquals(1, hot.getContendedAcquisitionsCount());
+		Assert.assertEquals(1, hot.getFailedAcquisitionsCount());
+		Assert.assertEquals(1, hot.getMaxQueueLength());
+		Assert.assertTrue(hot.getWaitTime() > 0);
+		Assert.assertEquals(Arrays.asList("hot"), lockManager.getTopContended(10));
+		Assert.assertEquals(0, lockManager.getTopContended(0).size());
+
+		final InstrumentedIdBasedLockManager.Histogram waitTime = lockManager.getStats().getWaitTimeHistogram();
+		Assert.assertTrue(waitTime.getMax() >= TimeUnit.MILLISECONDS.toNanos(10));
+		Assert.assertTrue(waitTime.getPercentile(100) <= waitTime.getMax());
+		Assert.assertTrue(waitTime.getPercentile(100) >= waitTime.getPercentile(50));
+	}
+
+	/**
+	 * Newly contended id's are tracked after the tracked id's limit is reached.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void trackedIdsReplacementTest() throws InterruptedException {
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(new ConcurrentIdBasedLockManager<String>(), 8);
+		for (int i = 0; i < 100; i++)
+			lockManager.obtainLock("warm-up-" + i).lock().unlock();
+		Assert.assertEquals(8, lockManager.getIdsStats().size());
+
+		final IdBasedLock<String> holder = lockManager.obtainLock("new-hot").lock();
+		final Thread waiter = new Thread(() -> lockManager.obtainLock("new-hot").lock().unlock());
+		waiter.start();
+		while (!holder.hasQueuedThreads())
+			Thread.sleep(1);
+		holder.unlock();
+		waiter.join();
+
+		Assert.assertEquals(Arrays.asList("new-hot"), lockManager.getTopContended(10));
+		Assert.assertEquals(8, lockManager.getIdsStats().size());
+	}
+
+	/**
+	 * Decorated lock is used through its methods, so it works with locks which are not based on own {@link java.util.concurrent.locks.ReentrantLock}.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void leaseDelegateTest() throws InterruptedException {
+		final LeaseIdBasedLockManager<String> leaseManager = new LeaseIdBasedLockManager<>(50, TimeUnit.MILLISECONDS);
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(leaseManager);
+		final IdBasedLock<String> a = lockManager.obtainLock("a").lock();
+		final boolean[] result = new boolean[2];
+		final Thread other = new Thread(() -> {
+			final IdBasedLock<String> b = lockManager.obtainLock("b");
+			result[0] = b.tryLock(); // different id is not blocked
+			if (result[0])
+				b.unlock();
+
+			final IdBasedLock<String> raw = leaseManager.obtainLock("a");
+			result[1] = raw.tryLock(); // same id is excluded for raw lease manager users
+			leaseManager.releaseLock(raw);
+		});
+		other.start();
+		other.join();
+		Assert.assertTrue(result[0]);
+		Assert.assertFalse(result[1]);
+
+		Thread.sleep(200); // lease expired
+		Assert.assertFalse(a.isLocked());
+		final IdBasedLock<String> next = lockManager.obtainLock("a");
+		Assert.assertTrue(next.tryLock());
+		next.unlock();
+	}
+
+	/**
+	 * Striped delegate test, different id's of the same stripe share the hold.
+	 */
+	@Test
+	public void stripedDelegateTest() {
+		final StripedIdBasedLockManager<String> striped = new StripedIdBasedLockManager<>(4);
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(striped);
+		String other = null;
+		for (int i = 0; other == null; i++)
+			if (striped.stripeIndex("b" + i) == striped.stripeIndex("a"))
+				other = "b" + i;
+
+		final IdBasedLock<String> a = lockManager.obtainLock("a").lock();
+		final IdBasedLock<String> b = lockManager.obtainLock(other).lock(); // reentrant, same stripe
+		Assert.assertEquals(2, b.getHoldCount());
+		a.unlock(); // released out of order
+		Assert.assertEquals(0, lockManager.getStats().getHoldTimeHistogram().getCount());
+		Assert.assertTrue(b.isHeldByCurrentThread());
+		b.unlock();
+		Assert.assertFalse(b.isLocked());
+		Assert.assertEquals(1, lockManager.getStats().getHoldTimeHistogram().getCount());
+
+		lockManager.obtainLock(other).lock().unlock();
+		lockManager.obtainLock("a").lock().unlock();
+		Assert.assertEquals(3, lockManager.getStats().getHoldTimeHistogram().getCount());
+		Assert.assertEquals(4, lockManager.getStats().getAcquisitionsCount());
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		try {
+			new InstrumentedIdBasedLockManager<String>(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aDelegate"));
+		}
+
+		final InstrumentedIdBasedLockManager<String> lockManager = new InstrumentedIdBasedLockManager<>(new SafeIdBasedLockManager<String>());
+		try {
+			lockManager.obtainLock(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("id"));
+		}
+		try {
+			lockManager.releaseLock(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("lock"));
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.bolbat.utils.concurrency.HashedWheelTimer;
+
+/**
+ * {@link LeaseIdBasedLockManager} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public final class LeaseIdBasedLockManagerTest {
+
+	/**
+	 * Testing lock id.
+	 */
+	private static final String LOCK_ID = "qwe";
+
+	/**
+	 * Testing timer.
+	 */
+	private static HashedWheelTimer timer;
+
+	@BeforeClass
+	public static void beforeClass() {
+		timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		timer.stop();
+	}
+
+	/**
+	 * Basic test, lock released before lease expiration.
+	 */
+	@Test
+	public void basicTest() {
+		final LeaseIdBasedLockManager<String> lockManager = new LeaseIdBasedLockManager<>(1, TimeUnit.MINUTES, timer);
+		final LeaseIdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+		Assert.assertEquals(1, lock.getReferencesCount());
+		Assert.assertNull(lock.getLock()); // no placeholder lock, locking is done by the shared state
+		Assert.assertEquals(1, lockManager.getLocksCount());
+		Assert.assertEquals(LOCK_ID, lockManager.getLocksIds().get(0));
+		Assert.assertEquals(1, lock.getLeaseTime(TimeUnit.MINUTES));
+
+		lock.lock();
+		Assert.assertTrue(lock.isLocked());
+		Assert.assertTrue(lock.isHeldByCurrentThread());
+
+		// reentrant acquisition
+		final LeaseIdBasedLock<String> reentered = lockManager.obtainLock(LOCK_ID, 1, TimeUnit.SECONDS);
+		Assert.assertTrue(reentered.tryLock());
+		Assert.assertEquals(2, lock.getHoldCount());
+		Assert.assertEquals(2, lock.getReferencesCount());
+		reentered.unlock();
+		Assert.assertTrue(lock.isLocked());
+
+		lock.unlock();
+		Assert.assertFalse(lock.isLocked());
+		Assert.assertEquals(0, lock.getReferencesCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+		Assert.assertEquals(0, lockManager.getExpiredLeasesCount());
+		Assert.assertNotNull(lock.toString());
+		Assert.assertNotNull(lockManager.toString());
+	}
+
+	/**
+	 * Lease expiration test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void expirationTest() throws InterruptedException {
+		final LeaseIdBasedLockManager<String> lockManager = new LeaseIdBasedLockManager<>(1, TimeUnit.MINUTES, timer);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		final Thread stuck = new Thread(() -> {
+			final LeaseIdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID, 50, TimeUnit.MILLISECONDS).lock();
+			locked.countDown();
+			try {
+				finish.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			try {
+				lock.unlock();
+				Assert.fail();
+			} catch (final IllegalMonitorStateException e) {
+				Assert.assertTrue(e.getMessage().contains(LOCK_ID));
+			}
+		});
+		stuck.start();
+		Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+		final LeaseIdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+		Assert.assertFalse(lock.tryLock());
+		Assert.assertTrue(lock.tryLock(5, TimeUnit.SECONDS)); // acquired after lease expiration
+		Assert.assertEquals(1, lockManager.getExpiredLeasesCount());
+		Assert.assertEquals(1, lock.getReferencesCount());
+
+		finish.countDown();
+		stuck.join(5000);
+		lock.unlock();
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		try {
+			new LeaseIdBasedLockManager<String>(0, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aDefaultLeaseTime"));
+		}
+
+		final LeaseIdBasedLockManager<String> lockManager = new LeaseIdBasedLockManager<>(1, TimeUnit.SECONDS, timer);
+		try {
+			lockManager.obtainLock(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("id"));
+		}
+		try {
+			lockManager.obtainLock(LOCK_ID, 0, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("leaseTime"));
+		}
+		try {
+			lockManager.obtainLock(LOCK_ID).unlock();
+			Assert.fail();
+		} catch (final IllegalMonitorStateException e) {
+			Assert.assertNotNull(e.getMessage());
+		}
+	}
+
+}
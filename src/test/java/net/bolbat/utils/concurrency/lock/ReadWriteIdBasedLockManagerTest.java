@@ -0,0 +1,118 @@
+package net.bolbat.utils.concurrency.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ReadWriteIdBasedLockManager} test.
+ * 
+ * @author Alexandr Bolbat
+ */
+public final class ReadWriteIdBasedLockManagerTest {
+
+	/**
+	 * Testing lock id.
+	 */
+	private static final String LOCK_ID = "qwe";
+
+	/**
+	 * Basic {@link ConcurrentReadWriteIdBasedLockManager} test.
+	 */
+	@Test
+	public void basicTest() {
+		final ReadWriteIdBasedLockManager<String> lockManager = new ConcurrentReadWriteIdBasedLockManager<>();
+		Assert.assertEquals(0, lockManager.getLocksCount());
+
+		final ReadWriteIdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID);
+		Assert.assertSame(lock, lockManager.obtainLock(LOCK_ID));
+		Assert.assertEquals(2, lock.getReferencesCount());
+		Assert.assertEquals(1, lockManager.getLocksIds().size());
+		Assert.assertEquals(LOCK_ID, lockManager.getLocksIds().get(0));
+
+		lock.lockRead();
+		Assert.assertEquals(1, lock.getReadHoldCount());
+		Assert.assertFalse(lock.isWriteLocked());
+		lock.unlockRead();
+		Assert.assertEquals(1, lockManager.getLocksCount());
+
+		try (final ReadWriteIdBasedLock<String> l = lock.lockWrite()) {
+			Assert.assertTrue(l.isWriteLockedByCurrentThread());
+			Assert.assertNotNull(l.toString());
+		}
+
+		Assert.assertFalse(lock.isWriteLocked());
+		Assert.assertEquals(0, lock.getReferencesCount());
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Concurrent readers and exclusive writer test.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	@Test
+	public void readersAndWriterTest() throws InterruptedException {
+		final ReadWriteIdBasedLockManager<String> lockManager = new ConcurrentReadWriteIdBasedLockManager<>();
+		final ReadWriteIdBasedLock<String> lock = lockManager.obtainLock(LOCK_ID).lockRead();
+
+		final AtomicBoolean readAcquired = new AtomicBoolean();
+		final AtomicBoolean writeAcquired = new AtomicBoolean(true);
+		final CountDownLatch finisher = new CountDownLatch(1);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final ReadWriteIdBasedLock<String> other = lockManager.obtainLock(LOCK_ID);
+					readAcquired.set(other.tryLockRead(1, TimeUnit.SECONDS));
+					if (readAcquired.get())
+						other.unlockRead();
+
+					final ReadWriteIdBasedLock<String> writer = lockManager.obtainLock(LOCK_ID);
+					writeAcquired.set(writer.tryLockWrite(10, TimeUnit.MILLISECONDS));
+					if (writeAcquired.get()) {
+						writer.unlockWrite();
+					} else {
+						lockManager.releaseLock(writer);
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					finisher.countDown();
+				}
+			}
+		}).start();
+
+		Assert.assertTrue(finisher.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(readAcquired.get()); // readers are not blocking each other
+		Assert.assertFalse(writeAcquired.get()); // writer blocked by reader
+
+		lock.unlockRead();
+		Assert.assertEquals(0, lockManager.getLocksCount());
+	}
+
+	/**
+	 * Error cases test.
+	 */
+	@Test
+	public void errorCasesTest() {
+		final ReadWriteIdBasedLockManager<String> lockManager = new ConcurrentReadWriteIdBasedLockManager<>();
+		try {
+			lockManager.obtainLock(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("id"));
+		}
+		try {
+			lockManager.releaseLock(null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("lock"));
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package net.bolbat.utils.crypt;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+
+/**
+ * {@link ByteBuffer} encoding, decoding and digest test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class ByteBufferCryptTest {
+
+	/**
+	 * Secure key.
+	 */
+	private static final String KEY = "qweasdzxc";
+
+	/**
+	 * Secure salt.
+	 */
+	private static final String SALT = "1234567890";
+
+	@Test
+	public void encodeDecode() {
+		final byte[] payload = new byte[1000];
+		new Random(42).nextBytes(payload);
+
+		for (final Algorithm algorithm : Algorithm.values()) {
+			final CipherHandle handle = CipherHandle.of(algorithm, KEY, SALT);
+			final ByteBuffer input = ByteBuffer.allocateDirect(payload.length);
+			input.put(payload).flip();
+
+			final ByteBuffer encoded = ByteBuffer.allocateDirect(handle.getEncodedSize(payload.length));
+			final int encodedLength = CipherUtils.encode(algorithm, input, encoded, KEY, SALT);
+			Assert.assertFalse(input.hasRemaining());
+			Assert.assertEquals(encodedLength, encoded.position());
+
+			final byte[] expected = handle.encode(payload);
+			final byte[] actual = new byte[encodedLength];
+			encoded.flip();
+			encoded.duplicate().get(actual);
+			if (algorithm.isAuthenticated())
+				Assert.assertArrayEquals(payload, handle.decode(actual));
+			else
+				Assert.assertArrayEquals(expected, actual); // same as the byte array encoding
+
+			final ByteBuffer decoded = ByteBuffer.allocate(handle.getDecodedSize(encodedLength));
+			Assert.assertEquals(payload.length, handle.decode(encoded, decoded));
+			decoded.flip();
+			Assert.assertEquals(ByteBuffer.wrap(payload), decoded);
+		}
+
+		Assert.assertEquals(0, CipherHandle.of(Algorithm.AES, KEY, SALT).encode(ByteBuffer.allocate(0), ByteBuffer.allocate(0)));
+	}
+
+	@Test
+	public void digest() {
+		final byte[] payload = "Hello world, digest test".getBytes(CipherUtils.DEFAULT_CHARSET);
+		for (final DigestUtils.Algorithm algorithm : DigestUtils.Algorithm.values()) {
+			final byte[] expected = algorithm.digest(payload, SALT);
+			Assert.assertEquals(expected.length, algorithm.getDigestLength());
+
+			final ByteBuffer direct = ByteBuffer.allocateDirect(payload.length);
+			direct.put(payload).flip();
+			Assert.assertArrayEquals(expected, algorithm.digestBuffer(direct, SALT));
+			Assert.assertFalse(direct.hasRemaining());
+			Assert.assertArrayEquals(algorithm.digest(payload), algorithm.digestBuffer(ByteBuffer.wrap(payload)));
+
+			final ByteBuffer heapOutput = ByteBuffer.allocate(expected.length + 2);
+			heapOutput.position(2);
+			Assert.assertEquals(expected.length, algorithm.digestBuffer(ByteBuffer.wrap(payload), SALT, heapOutput));
+			Assert.assertFalse(heapOutput.hasRemaining());
+			heapOutput.position(2);
+			Assert.assertEquals(ByteBuffer.wrap(expected), heapOutput);
+
+			final ByteBuffer directOutput = ByteBuffer.allocateDirect(expected.length);
+			Assert.assertEquals(expected.length, algorithm.digestBuffer(ByteBuffer.wrap(payload), SALT, directOutput));
+			directOutput.flip();
+			Assert.assertEquals(ByteBuffer.wrap(expected), directOutput);
+		}
+
+		Assert.assertEquals(0, DigestUtils.Algorithm.MD5.digestBuffer(ByteBuffer.allocate(0)).length);
+		Assert.assertEquals(0, DigestUtils.Algorithm.MD5.digestBuffer(ByteBuffer.allocate(0), null, ByteBuffer.allocate(0)));
+	}
+
+	@Test
+	public void errorCases() {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		try {
+			handle.encode(ByteBuffer.allocate(100), ByteBuffer.allocate(10));
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+		try {
+			handle.encode(null, ByteBuffer.allocate(10));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("input argument is null.", e.getMessage());
+		}
+		try {
+			handle.getEncodedSize(-1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("length argument is negative.", e.getMessage());
+		}
+		try {
+			DigestUtils.Algorithm.SHA_256.digestBuffer(ByteBuffer.allocate(10), null, ByteBuffer.allocate(10));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("output remaining[10]"));
+		}
+		Assert.assertEquals(16, handle.decode(ByteBuffer.wrap(handle.encode(new byte[16])), ByteBuffer.allocate(32))); // failed ciphers are not reused
+	}
+
+}
@@ -0,0 +1,359 @@
+package net.bolbat.utils.crypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+
+/**
+ * {@link CipherHandle} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class CipherHandleTest {
+
+	/**
+	 * Secure key.
+	 */
+	private static final String KEY = "qweasdzxc";
+
+	/**
+	 * Secure salt.
+	 */
+	private static final String SALT = "1234567890";
+
+	/**
+	 * Value to encode.
+	 */
+	private static final String VALUE = "Hello world, cipher handle test";
+
+	@Test
+	public void encodeDecode() {
+		for (final Algorithm algorithm : Algorithm.values()) {
+			final CipherHandle handle = CipherHandle.of(algorithm, KEY, SALT);
+			Assert.assertSame(algorithm, handle.getAlgorithm());
+
+			final String encoded = handle.encode(VALUE);
+			Assert.assertNotEquals(VALUE, encoded);
+			Assert.assertEquals(VALUE, handle.decode(encoded));
+			Assert.assertEquals(VALUE, CipherUtils.decode(algorithm, encoded, KEY, SALT));
+
+			final byte[] bytes = VALUE.getBytes(CipherUtils.DEFAULT_CHARSET);
+			final byte[] encodedBytes = handle.encode(bytes);
+			if (!algorithm.isAuthenticated()) // random nonce for each message
+				Assert.assertArrayEquals(encodedBytes, algorithm.encode(bytes, KEY, SALT, algorithm.createParameterSpec(KEY, SALT)));
+			Assert.assertArrayEquals(bytes, handle.decode(encodedBytes));
+		}
+	}
+
+	@Test
+	public void streams() throws IOException {
+		final byte[] payload = new byte[CipherHandle.CHUNK_SIZE * 5 + 13]; // not aligned to chunks and blocks
+		new Random(42).nextBytes(payload);
+
+		for (final Algorithm algorithm : Algorithm.values()) {
+			final CipherHandle handle = CipherHandle.of(algorithm, KEY, SALT);
+			final byte[] expected = handle.encode(payload);
+
+			final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			Assert.assertEquals(expected.length, handle.encode(new ByteArrayInputStream(payload), encoded));
+			if (!algorithm.isAuthenticated())
+				Assert.assertArrayEquals(expected, encoded.toByteArray()); // same as the whole value encoding
+
+			final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			Assert.assertEquals(payload.length, CipherUtils.decode(algorithm, new ByteArrayInputStream(encoded.toByteArray()), decoded, KEY, SALT));
+			Assert.assertArrayEquals(payload, decoded.toByteArray());
+		}
+	}
+
+	@Test
+	public void emptyPayload() throws IOException {
+		for (final Algorithm algorithm : Algorithm.values()) {
+			final CipherHandle handle = CipherHandle.of(algorithm, KEY, SALT);
+			final byte[] expected = handle.encode(new byte[0]);
+			Assert.assertEquals(algorithm.isAuthenticated() ? CipherHandle.HEADER_SIZE + CipherHandle.TAG_SIZE : 0, expected.length);
+
+			// all entry points agree on the encoded size
+			final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			Assert.assertEquals(expected.length, handle.encode(new ByteArrayInputStream(new byte[0]), stream));
+			Assert.assertEquals(expected.length, stream.size());
+			final ByteArrayOutputStream channel = new ByteArrayOutputStream();
+			Assert.assertEquals(expected.length, handle.encode(Channels.newChannel(new ByteArrayInputStream(new byte[0])), Channels.newChannel(channel)));
+			Assert.assertEquals(expected.length, channel.size());
+			final ByteBuffer buffer = ByteBuffer.allocate(handle.getEncodedSize(0));
+			Assert.assertEquals(expected.length, handle.encode(ByteBuffer.allocate(0), buffer));
+
+			// and decode the encoded empty payload back to nothing
+			Assert.assertEquals(0, handle.decode(stream.toByteArray()).length);
+			final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			Assert.assertEquals(0, handle.decode(new ByteArrayInputStream(stream.toByteArray()), decoded));
+			Assert.assertEquals(0, handle.decode(Channels.newChannel(new ByteArrayInputStream(channel.toByteArray())), Channels.newChannel(decoded)));
+			Assert.assertEquals(0, decoded.size());
+		}
+	}
+
+	@Test
+	public void channels() throws IOException {
+		final byte[] payload = new byte[CipherHandle.CHUNK_SIZE * 3 + 7];
+		new Random(42).nextBytes(payload);
+
+		for (final Algorithm algorithm : Algorithm.values()) {
+			final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			CipherUtils.encode(algorithm, Channels.newChannel(new ByteArrayInputStream(payload)), Channels.newChannel(encoded), KEY, SALT);
+			if (!algorithm.isAuthenticated())
+				Assert.assertArrayEquals(algorithm.encode(payload, KEY, SALT, null), encoded.toByteArray());
+
+			final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			final long length = CipherHandle.of(algorithm, KEY, SALT).decode(Channels.newChannel(new ByteArrayInputStream(encoded.toByteArray())),
+					Channels.newChannel(decoded));
+			Assert.assertEquals(payload.length, length);
+			Assert.assertArrayEquals(payload, decoded.toByteArray());
+		}
+	}
+
+	@Test
+	public void authenticated() throws IOException {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES_GCM, KEY, SALT);
+		final byte[] bytes = VALUE.getBytes(CipherUtils.DEFAULT_CHARSET);
+		final byte[] encoded = handle.encode(bytes);
+		Assert.assertEquals(CipherHandle.HEADER_SIZE + bytes.length + CipherHandle.TAG_SIZE, encoded.length);
+		Assert.assertEquals(encoded.length, handle.getEncodedSize(bytes.length));
+		Assert.assertEquals(bytes.length, handle.getDecodedSize(encoded.length));
+		Assert.assertEquals(CipherHandle.FRAME_VERSION, encoded[0]);
+		Assert.assertFalse(Arrays.equals(encoded, handle.encode(bytes))); // random nonce
+		Assert.assertArrayEquals(bytes, handle.decode(encoded));
+		Assert.assertSame(Algorithm.AES_GCM, Algorithm.get("aes/gcm/nopadding"));
+
+		final byte[] tampered = encoded.clone();
+		tampered[tampered.length - 1] ^= 1;
+		try {
+			handle.decode(tampered);
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertNotNull(e.getCause()); // tag verification failed
+		}
+		tampered[tampered.length - 1] ^= 1;
+		tampered[0] = 2;
+		try {
+			handle.decode(tampered);
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertEquals("frame version[2] is not supported.", e.getMessage());
+		}
+		try {
+			handle.decode(new ByteArrayInputStream(new byte[] { CipherHandle.FRAME_VERSION }), new ByteArrayOutputStream());
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertEquals("content is shorter than frame header.", e.getMessage());
+		}
+		Assert.assertArrayEquals(bytes, handle.decode(encoded)); // failed ciphers are not reused
+	}
+
+	@Test
+	public void authenticatedFrameLayout() throws GeneralSecurityException {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES_GCM, KEY, SALT);
+		final byte[] bytes = VALUE.getBytes(CipherUtils.DEFAULT_CHARSET);
+		final byte[] encoded = handle.encode(bytes);
+		Assert.assertEquals(12, CipherHandle.NONCE_SIZE); // full 96 bit random nonce
+		Assert.assertEquals(1 + CipherHandle.NONCE_SIZE, CipherHandle.HEADER_SIZE);
+		Assert.assertEquals(CipherHandle.FRAME_VERSION, encoded[0]);
+
+		// [version][nonce][single last segment], segment 0 nonce is the message nonce, header and last flag are authenticated data
+		final byte[] header = Arrays.copyOf(encoded, CipherHandle.HEADER_SIZE);
+		final Cipher cipher = Cipher.getInstance(Algorithm.AES_GCM.getAlgorithmName());
+		cipher.init(Cipher.DECRYPT_MODE, Algorithm.AES_GCM.crateKey(KEY, SALT),
+				new GCMParameterSpec(CipherHandle.TAG_SIZE * Byte.SIZE, Arrays.copyOfRange(encoded, 1, CipherHandle.HEADER_SIZE)));
+		cipher.updateAAD(header);
+		cipher.updateAAD(new byte[] { 1 });
+		Assert.assertArrayEquals(bytes, cipher.doFinal(encoded, CipherHandle.HEADER_SIZE, encoded.length - CipherHandle.HEADER_SIZE));
+
+		// segment 1 nonce has the segment index XOR-ed into the last nonce byte
+		final byte[] twoSegments = handle.encode(new byte[CipherHandle.SEGMENT_SIZE]);
+		final byte[] nonce = Arrays.copyOfRange(twoSegments, 1, CipherHandle.HEADER_SIZE);
+		nonce[CipherHandle.NONCE_SIZE - 1] ^= 1;
+		cipher.init(Cipher.DECRYPT_MODE, Algorithm.AES_GCM.crateKey(KEY, SALT), new GCMParameterSpec(CipherHandle.TAG_SIZE * Byte.SIZE, nonce));
+		cipher.updateAAD(Arrays.copyOf(twoSegments, CipherHandle.HEADER_SIZE));
+		cipher.updateAAD(new byte[] { 1 });
+		final int secondSegment = CipherHandle.HEADER_SIZE + CipherHandle.SEGMENT_SIZE + CipherHandle.TAG_SIZE;
+		Assert.assertEquals(0, cipher.doFinal(twoSegments, secondSegment, twoSegments.length - secondSegment).length); // empty last segment
+	}
+
+	@Test
+	public void largeAuthenticated() throws IOException {
+		final byte[] payload = new byte[CipherHandle.SEGMENT_SIZE * 64 + 5]; // 4 MB, not aligned to segments
+		new Random(42).nextBytes(payload);
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES_GCM, KEY, SALT);
+
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		Assert.assertEquals(handle.getEncodedSize(payload.length), handle.encode(new ByteArrayInputStream(payload), encoded));
+		final byte[] encodedBytes = encoded.toByteArray();
+		Assert.assertEquals(CipherHandle.HEADER_SIZE + payload.length + 65 * CipherHandle.TAG_SIZE, encodedBytes.length);
+		Assert.assertEquals(payload.length, handle.getDecodedSize(encodedBytes.length));
+
+		final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		Assert.assertEquals(payload.length, handle.decode(new ByteArrayInputStream(encodedBytes), decoded));
+		Assert.assertArrayEquals(payload, decoded.toByteArray());
+		decoded.reset();
+		Assert.assertEquals(payload.length, handle.decode(Channels.newChannel(new ByteArrayInputStream(encodedBytes)), Channels.newChannel(decoded)));
+		Assert.assertArrayEquals(payload, decoded.toByteArray());
+		Assert.assertArrayEquals(payload, handle.decode(encodedBytes)); // same format for all inputs
+		final ByteBuffer encodedBuffer = ByteBuffer.allocateDirect(encodedBytes.length);
+		Assert.assertEquals(encodedBytes.length, handle.encode(ByteBuffer.wrap(payload), encodedBuffer));
+		encodedBuffer.flip();
+		final ByteBuffer decodedBuffer = ByteBuffer.allocateDirect(payload.length);
+		Assert.assertEquals(payload.length, handle.decode(encodedBuffer, decodedBuffer));
+		decodedBuffer.flip();
+		Assert.assertEquals(ByteBuffer.wrap(payload), decodedBuffer);
+
+		// content aligned to segments ends with empty last segment
+		final byte[] aligned = Arrays.copyOf(payload, CipherHandle.SEGMENT_SIZE * 2);
+		final byte[] encodedAligned = handle.encode(aligned);
+		Assert.assertEquals(CipherHandle.HEADER_SIZE + aligned.length + 3 * CipherHandle.TAG_SIZE, encodedAligned.length);
+		Assert.assertArrayEquals(aligned, handle.decode(encodedAligned));
+
+		final int segment = CipherHandle.SEGMENT_SIZE + CipherHandle.TAG_SIZE;
+		final byte[] truncated = Arrays.copyOf(encodedAligned, CipherHandle.HEADER_SIZE + 2 * segment); // last segment dropped
+		final byte[] reordered = encodedAligned.clone();
+		System.arraycopy(encodedAligned, CipherHandle.HEADER_SIZE, reordered, CipherHandle.HEADER_SIZE + segment, segment);
+		System.arraycopy(encodedAligned, CipherHandle.HEADER_SIZE + segment, reordered, CipherHandle.HEADER_SIZE, segment);
+		final byte[] tampered = encodedBytes.clone();
+		tampered[CipherHandle.HEADER_SIZE + segment * 10] ^= 1;
+		for (final byte[] invalid : Arrays.asList(truncated, reordered, tampered)) {
+			try {
+				handle.decode(new ByteArrayInputStream(invalid), new ByteArrayOutputStream());
+				Assert.fail();
+			} catch (final CipherRuntimeException e) {
+				Assert.assertNotNull(e.getCause()); // tag verification failed
+			}
+			try {
+				handle.decode(invalid);
+				Assert.fail();
+			} catch (final CipherRuntimeException e) {
+				Assert.assertNotNull(e.getCause());
+			}
+		}
+	}
+
+	@Test
+	public void emptyAuthenticated() throws IOException {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES_GCM, KEY, SALT);
+		final int frameSize = CipherHandle.HEADER_SIZE + CipherHandle.TAG_SIZE; // header and empty last segment
+		final byte[] encoded = handle.encode(new byte[0]);
+		Assert.assertEquals(frameSize, encoded.length);
+		Assert.assertEquals(frameSize, handle.encode((byte[]) null).length);
+		Assert.assertEquals(frameSize, Algorithm.AES_GCM.encode(new byte[0], KEY, SALT, null).length);
+		Assert.assertEquals("", handle.decode(handle.encode("")));
+		Assert.assertEquals("", CipherUtils.decode(Algorithm.AES_GCM, CipherUtils.encode(Algorithm.AES_GCM, "", KEY, SALT), KEY, SALT));
+
+		final ByteBuffer buffer = ByteBuffer.allocate(handle.getEncodedSize(0));
+		Assert.assertEquals(frameSize, handle.encode(ByteBuffer.allocate(0), buffer));
+		buffer.flip();
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		Assert.assertEquals(frameSize, handle.encode(new ByteArrayInputStream(new byte[0]), stream));
+
+		// all entry points decode each other's output
+		for (final byte[] frame : Arrays.asList(encoded, buffer.array(), stream.toByteArray())) {
+			Assert.assertEquals(0, handle.decode(frame).length);
+			Assert.assertEquals(0, handle.decode(new ByteArrayInputStream(frame), new ByteArrayOutputStream()));
+			Assert.assertEquals(0, handle.decode(Channels.newChannel(new ByteArrayInputStream(frame)), Channels.newChannel(new ByteArrayOutputStream())));
+			Assert.assertEquals(0, handle.decode(ByteBuffer.wrap(frame), ByteBuffer.allocate(0)));
+		}
+
+		final byte[] tampered = encoded.clone();
+		tampered[tampered.length - 1] ^= 1;
+		try {
+			handle.decode(tampered);
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertNotNull(e.getCause()); // empty message is authenticated
+		}
+	}
+
+	@Test
+	public void cached() {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		Assert.assertSame(handle, CipherHandle.of(Algorithm.AES, KEY, SALT));
+		Assert.assertSame(CipherHandle.of(Algorithm.AES, KEY), CipherHandle.of(Algorithm.AES, KEY, KEY));
+		Assert.assertNotSame(handle, CipherHandle.of(Algorithm.AES, KEY, KEY));
+		Assert.assertNotSame(handle, CipherHandle.of(Algorithm.DES, KEY, SALT));
+		Assert.assertFalse(handle.toString().contains(KEY));
+
+		CipherHandle.invalidateAll();
+		final CipherHandle reloaded = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		Assert.assertNotSame(handle, reloaded);
+		Assert.assertEquals(VALUE, reloaded.decode(handle.encode(VALUE)));
+	}
+
+	@Test
+	public void emptyValues() {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		Assert.assertEquals(CipherUtils.EMPTY_STRING, handle.encode((String) null));
+		Assert.assertEquals(CipherUtils.EMPTY_STRING, handle.decode(""));
+		Assert.assertEquals(0, handle.encode((byte[]) null).length);
+		Assert.assertEquals(0, handle.decode(new byte[0]).length);
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			CipherHandle.of(null, KEY, SALT);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("algorithm argument is null.", e.getMessage());
+		}
+		try {
+			CipherHandle.of(Algorithm.AES, "", SALT);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("key argument is empty.", e.getMessage());
+		}
+		try {
+			CipherHandle.of(Algorithm.AES, KEY, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertEquals("salt argument is empty.", e.getMessage());
+		}
+
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES, KEY, SALT);
+		try {
+			handle.decode("not a hex");
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		try {
+			final byte[] encoded = handle.encode(VALUE.getBytes(CipherUtils.DEFAULT_CHARSET));
+			handle.decode(Arrays.copyOf(encoded, encoded.length - 1));
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+		try {
+			handle.decode(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), new ByteArrayOutputStream());
+			Assert.fail();
+		} catch (final CipherRuntimeException | IOException e) {
+			Assert.assertTrue(e instanceof CipherRuntimeException);
+		}
+		try {
+			handle.encode(new ByteArrayInputStream(new byte[0]), null);
+			Assert.fail();
+		} catch (final IllegalArgumentException | IOException e) {
+			Assert.assertEquals("out argument is null.", e.getMessage());
+		}
+		Assert.assertEquals(VALUE, handle.decode(handle.encode(VALUE))); // failed ciphers are not reused
+	}
+
+}
@@ -0,0 +1,105 @@
+package net.bolbat.utils.crypt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.bolbat.utils.crypt.CipherUtils.Algorithm;
+
+/**
+ * {@link InstancePool} test.
+ *
+ * @author Alexandr Bolbat
+ */
+public class InstancePoolTest {
+
+	@Test
+	public void acquireRelease() {
+		final AtomicInteger created = new AtomicInteger();
+		final InstancePool<Object> pool = new InstancePool<>(2, () -> created.incrementAndGet());
+		Assert.assertEquals(2, pool.getCapacity());
+		Assert.assertEquals(0, pool.size());
+
+		final Object first = pool.acquire();
+		final Object second = pool.acquire();
+		final Object third = pool.acquire();
+		Assert.assertEquals(3, created.get());
+
+		pool.release(first);
+		pool.release(second);
+		pool.release(third); // dropped, pool is full
+		pool.release(null);
+		Assert.assertEquals(2, pool.size());
+
+		final List<Object> reused = new ArrayList<>();
+		reused.add(pool.acquire());
+		reused.add(pool.acquire());
+		Assert.assertTrue(reused.contains(first));
+		Assert.assertTrue(reused.contains(second));
+		Assert.assertEquals(3, created.get());
+		Assert.assertEquals(0, pool.size());
+		Assert.assertNotNull(pool.toString());
+	}
+
+	@Test
+	public void concurrentUsage() throws InterruptedException {
+		final CipherHandle handle = CipherHandle.of(Algorithm.AES, "qweasdzxc", "1234567890");
+		final String expectedDigest = DigestUtils.digest(DigestUtils.Algorithm.SHA_256, "value", "salt");
+		final List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+		final Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			final int thread = i;
+			threads[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 500; j++) {
+						final String value = "value-" + thread + "-" + j;
+						Assert.assertEquals(value, handle.decode(handle.encode(value)));
+						Assert.assertEquals(expectedDigest, DigestUtils.digest(DigestUtils.Algorithm.SHA_256, "value", "salt"));
+					}
+				} catch (final Throwable e) {
+					errors.add(e);
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+
+		Assert.assertTrue(errors.toString(), errors.isEmpty());
+	}
+
+	@Test
+	public void failedCipherIsNotReused() {
+		final CipherHandle handle = CipherHandle.of(Algorithm.DES, "qweasdzxc", "1234567890");
+		final byte[] encoded = handle.encode("value".getBytes(CipherUtils.DEFAULT_CHARSET));
+		try {
+			handle.decode(new byte[] { 1, 2, 3 });
+			Assert.fail();
+		} catch (final CipherRuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+		Assert.assertEquals("value", new String(handle.decode(encoded), CipherUtils.DEFAULT_CHARSET));
+	}
+
+	@Test
+	public void errorCases() {
+		try {
+			new InstancePool<>(0, Object::new);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("capacity"));
+		}
+		try {
+			new InstancePool<>(1, null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("aFactory"));
+		}
+	}
+
+}